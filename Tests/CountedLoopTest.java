@@ -0,0 +1,155 @@
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+import Interpreter.Optimizer;
+import Interpreter.Resolver;
+import Lexers.Scanner;
+import Main.Programs;
+import Parsers.Parser;
+import Parsers.Stmt;
+
+import static Main.Programs.program;
+
+// ALANG SA loops the Resolver marks as counted keep their counter in a local
+// int (Stmt.For.isCounted), these check that happens only when the body
+// can't write the counter or the bound, and that every engine prints the
+// same either way.
+class CountedLoopTest {
+
+    // the ALANG SA statements of a resolved program, outer ones first
+    private static List<Stmt.For> loops(String source) {
+        List<Stmt> statements = new Parser(new Scanner(source).scanBuffer()).parse();
+        statements = new Optimizer().optimize(statements);
+        new Resolver().resolve(statements);
+
+        List<Stmt.For> loops = new ArrayList<>();
+        collect(statements, loops);
+        return loops;
+    }
+
+    private static void collect(List<Stmt> statements, List<Stmt.For> loops) {
+        for (Stmt statement : statements) {
+            if (statement instanceof Stmt.For loop) {
+                loops.add(loop);
+                collect(List.of(loop.getBody()), loops);
+            } else if (statement instanceof Stmt.Block block) {
+                collect(block.getStatements(), loops);
+            } else if (statement instanceof Stmt.If branch) {
+                collect(List.of(branch.getThenBranch()), loops);
+            }
+        }
+    }
+
+    private static void assertOnEveryEngine(String expected, String source, String input) {
+        for (String engine : Programs.ENGINES) {
+            assertEquals(expected, Programs.run(source, engine, input), engine);
+        }
+    }
+
+    @Test
+    void testContinueAndBreakInCountedLoop() {
+        String source = program(
+            "MUGNA NUMERO i, n = 5",
+            "ALANG SA (i = 0, i < n, i++)",
+            "PUNDOK {",
+            "    KUNG (i == 1)",
+            "    PUNDOK {",
+            "        PADAYON",
+            "    }",
+            "    KUNG (i == 4)",
+            "    PUNDOK {",
+            "        HUNONG",
+            "    }",
+            "    IPAKITA: i & \" \"",
+            "}",
+            "IPAKITA: $ & i");
+
+        assertTrue(loops(source).get(0).isCounted());
+        // PADAYON still steps the counter, HUNONG leaves it where it was
+        assertOnEveryEngine("0 2 3 \n4", source, "");
+    }
+
+    @Test
+    void testBoundReadByDawatIsNotCounted() {
+        String source = program(
+            "MUGNA NUMERO i, n = 5",
+            "ALANG SA (i = 0, i < n, i++)",
+            "PUNDOK {",
+            "    DAWAT: n",
+            "    IPAKITA: i & \":\" & n & \" \"",
+            "}",
+            "IPAKITA: $ & i");
+
+        assertFalse(loops(source).get(0).isCounted());
+        assertOnEveryEngine("0:3 1:3 2:2 \n3", source, "3\n3\n2\n");
+    }
+
+    @Test
+    void testCounterReadByDawatIsNotCounted() {
+        String source = program(
+            "MUGNA NUMERO i",
+            "ALANG SA (i = 0, i < 10, i++)",
+            "PUNDOK {",
+            "    DAWAT: i",
+            "    IPAKITA: i & \" \"",
+            "}",
+            "IPAKITA: $ & i");
+
+        assertFalse(loops(source).get(0).isCounted());
+        assertOnEveryEngine("4 8 20 \n21", source, "4\n8\n20\n");
+    }
+
+    @Test
+    void testCounterWrittenInNestedAssignmentIsNotCounted() {
+        String source = program(
+            "MUGNA NUMERO i, k = 0",
+            "ALANG SA (i = 0, i < 10, i++)",
+            "PUNDOK {",
+            "    k = (i = i + 2)",
+            "    IPAKITA: i & \" \"",
+            "}",
+            "IPAKITA: $ & i & \" \" & k");
+
+        assertFalse(loops(source).get(0).isCounted());
+        assertOnEveryEngine("2 5 8 11 \n12 11", source, "");
+    }
+
+    @Test
+    void testCounterWrittenInInnerLoopIsNotCounted() {
+        String source = program(
+            "MUGNA NUMERO i, j",
+            "ALANG SA (i = 0, i < 6, i++)",
+            "PUNDOK {",
+            "    ALANG SA (j = 0, j < 2, j++)",
+            "    PUNDOK {",
+            "        i += 1",
+            "    }",
+            "    IPAKITA: i & \" \"",
+            "}");
+
+        List<Stmt.For> loops = loops(source);
+        assertFalse(loops.get(0).isCounted());
+        assertTrue(loops.get(1).isCounted());
+        assertOnEveryEngine("2 5 ", source, "");
+    }
+
+    @Test
+    void testNullCounterFallsBackToGenericLoop() {
+        String source = program(
+            "MUGNA NUMERO j",
+            "IPAKITA: \"before\" & $",
+            "ALANG SA (j, j < 3, j++)",
+            "PUNDOK {",
+            "    IPAKITA: j",
+            "}");
+
+        assertTrue(loops(source).get(0).isCounted());
+        // the generic loop reports the null counter with the condition's line
+        assertOnEveryEngine("before\n[line 4] Operands must be numbers.\nAn error occurred\n", source, "");
+    }
+}
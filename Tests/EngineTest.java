@@ -0,0 +1,219 @@
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import Main.Environment;
+import Main.Programs;
+
+// Every engine has to print the same as the tree walking Interpreter, the
+// program's output, the runtime errors and the lines they are reported on.
+// The expected outputs are written out so engines that agree on a wrong
+// answer still fail. Every engine runs with every --frames kind.
+class EngineTest {
+    private record Case(String name, String source, String input, String expected) {}
+
+    private static final List<Case> CORPUS = List.of(
+        // arithmetic, mixed NUMERO and TIPIK, overflow and number formatting
+        new Case("arith", """
+            SUGOD
+                MUGNA NUMERO a = 7, b = 2, big = 2147483647
+                MUGNA TIPIK f = 0.5, g
+                g = (a / b) + f * (9 / 4) - -(a % b)
+                IPAKITA: g & " " & (a / b) & " " & (a / 2.0) & " " & ((a * b - 3) % 4) & $
+                IPAKITA: ((((a + 1) * 2 - b) / 3 + f) * 2 - ((b * 3) / 4)) & " " & (-(-big - 1)) & " " & (big + 1) & $
+                IPAKITA: (0.1 + 0.2) & " " & 1.0e10 & " " & 100.0 & " " & (-0.0) & " " & 1e-5 & " " & (2.5 * 2) & " " & (f * 3) & $
+                IPAKITA: (a > b) & " " & (a <> b) & " " & (f <= 0.5) & " " & (a == 7.0) & " " & (DILI (a < b) UG "OO") & $
+                MUGNA LETRA c = 'x'
+                MUGNA TINUOD t = "OO"
+                IPAKITA: c & t & [#] & [[] & []] & "end" & $
+            KATAPUSAN
+            """, "",
+            "5 3 3.5 3\n8 -2147483648 -2147483648\n0.30000000000000004 1.0E10 100 -0 1.0E-5 5 1.5\nOO OO OO DILI OO\nxOO#[]end\n"),
+        // PADAYON and HUNONG in ALANG SA, MINTRAS and BUHATA
+        new Case("loops", """
+            SUGOD
+                MUGNA NUMERO i, j, s = 0
+                ALANG SA (i = 0, i < 10, i++)
+                PUNDOK {
+                    KUNG (i % 3 == 0)
+                    PUNDOK {
+                        PADAYON
+                    }
+                    ALANG SA (j = 0, j < 10, j += 2)
+                    PUNDOK {
+                        KUNG (j > i)
+                        PUNDOK {
+                            HUNONG
+                        }
+                        s += j
+                    }
+                    KUNG (s > 60)
+                    PUNDOK {
+                        HUNONG
+                    }
+                }
+                IPAKITA: s & " " & i & " " & j & $
+                MUGNA NUMERO k = 10
+                MINTRAS (k > 0)
+                PUNDOK {
+                    k -= 1
+                    KUNG (k == 7)
+                    PUNDOK {
+                        PADAYON
+                    }
+                    KUNG (k == 3)
+                    PUNDOK {
+                        HUNONG
+                    }
+                    IPAKITA: k & ","
+                }
+                IPAKITA: $
+                BUHATA
+                PUNDOK {
+                    k++
+                    KUNG (k == 5)
+                    PUNDOK {
+                        PADAYON
+                    }
+                    IPAKITA: k & ";"
+                } MINTRAS (k < 8)
+                IPAKITA: $ & k
+            KATAPUSAN
+            """, "",
+            "46 10 10\n9,8,6,5,4,\n4;6;7;8;\n8"),
+        // DAWAT into every type, also inside a loop
+        new Case("dawat", """
+            SUGOD
+                MUGNA NUMERO a, b
+                MUGNA TIPIK c
+                MUGNA LETRA d
+                MUGNA TINUOD e
+                IPAKITA: "numbers? "
+                DAWAT: a, b, c
+                DAWAT: d, e
+                IPAKITA: a + b & " " & c * 2 & " " & d & " " & e & $
+                MUGNA NUMERO n, total = 0
+                ALANG SA (n = 0, n < 3, n++)
+                PUNDOK {
+                    DAWAT: a
+                    total += a
+                }
+                IPAKITA: total
+            KATAPUSAN
+            """, "3, 4, 2.5\nq, OO\n1\n2\n3\n",
+            "numbers? 7 5 q OO\n6"),
+        // KUNG DILI chains and block scopes
+        new Case("branches", """
+            SUGOD
+                MUGNA NUMERO r, x = 3
+                MUGNA LETRA c = 'b'
+                ALANG SA (r = 0, r < 6, r++)
+                PUNDOK {
+                    KUNG (r == 0)
+                    PUNDOK {
+                        IPAKITA: "zero "
+                    }
+                    KUNG DILI (r == 1 O r == 3)
+                    PUNDOK {
+                        IPAKITA: "odd "
+                    }
+                    KUNG DILI (r < 5)
+                    PUNDOK {
+                        MUGNA NUMERO sq = r * r
+                        IPAKITA: sq & " "
+                    }
+                    KUNG WALA
+                    PUNDOK {
+                        IPAKITA: "many "
+                    }
+                }
+                KUNG (c == 'a')
+                PUNDOK {
+                    IPAKITA: "A"
+                }
+                KUNG DILI (c == 'b')
+                PUNDOK {
+                    IPAKITA: "B"
+                }
+                KUNG (x > 1)
+                PUNDOK {
+                    MUGNA NUMERO y = 1
+                    IPAKITA: y
+                }
+                KUNG (x > 1)
+                PUNDOK {
+                    MUGNA NUMERO y = 2
+                    IPAKITA: y
+                }
+            KATAPUSAN
+            """, "",
+            "zero odd 4 odd 16 many B12"),
+        // division by zero, what was printed before the line stays
+        new Case("divzero", """
+            SUGOD
+                MUGNA NUMERO x = 1, y = 0
+                IPAKITA: "before" & $
+                IPAKITA: "partial " & x / y
+                IPAKITA: "after"
+            KATAPUSAN
+            """, "",
+            "before\n[line 4] Division by zero.\nAn error occurred\n"),
+        // arithmetic on a null NUMERO
+        new Case("nullop", """
+            SUGOD
+                MUGNA NUMERO x
+                MUGNA NUMERO i
+                ALANG SA (i = 0, i < 3, i++)
+                PUNDOK {
+                    IPAKITA: i
+                }
+                IPAKITA: $
+                x = x + 1
+            KATAPUSAN
+            """, "",
+            "012\n[line 9] Operands must be numbers.\nAn error occurred\n"),
+        // assigning a string to a NUMERO
+        new Case("typeerr", """
+            SUGOD
+                MUGNA NUMERO x = 5
+                MUGNA TIPIK f = 1.5
+                f = x
+                IPAKITA: f & $
+                x = "hello"
+            KATAPUSAN
+            """, "",
+            "5\n[line 6] Invalid input for INTEGER: Expected a number but got: hello\nAn error occurred\n"),
+        // an undeclared variable in a nested block
+        new Case("undefined", """
+            SUGOD
+                MUGNA NUMERO x = 1
+                IPAKITA: x & $
+                KUNG (x > 0)
+                PUNDOK {
+                    IPAKITA: y
+                }
+            KATAPUSAN
+            """, "",
+            "1\n[line 6] Undefined variable 'y'.\nAn error occurred\n"));
+
+    @AfterEach
+    void resetFrames() {
+        Environment.setFrameKind(Environment.FrameKind.ARRAY);
+    }
+
+    @Test
+    void testCorpusOnEveryEngine() {
+        for (Environment.FrameKind frames : Environment.FrameKind.values()) {
+            Environment.setFrameKind(frames);
+            for (Case program : CORPUS) {
+                for (String engine : Programs.ENGINES) {
+                    String printed = Programs.run(program.source(), engine, program.input());
+                    assertEquals(program.expected(), printed,
+                        program.name() + " on --engine=" + engine + " --frames=" + frames.name().toLowerCase());
+                }
+            }
+        }
+    }
+}
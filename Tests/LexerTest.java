@@ -1,4 +1,6 @@
+import java.util.ArrayList;
 import java.util.List;
+import java.util.StringJoiner;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -6,6 +8,7 @@ import org.junit.jupiter.api.Test;
 
 import Lexers.Scanner;
 import Lexers.Token;
+import Lexers.TokenBuffer;
 import Lexers.TokenType;
 
 class LexerTest {
@@ -231,4 +234,121 @@ class LexerTest {
         assertEquals(4, braceCount); // 2 pairs of braces
         assertEquals(2, ifCount); // 2 KUNG statements
     }
-}
\ No newline at end of file
+
+    // One line per token, type|lexeme|literal|line with the literal's class,
+    // line ends in a lexeme written as \\n
+    private static String row(TokenType type, String lexeme, Object literal, int line) {
+        String value = literal == null ? "null" : literal.getClass().getSimpleName() + ":" + literal;
+        return (type + "|" + lexeme + "|" + value + "|" + line).replace("\n", "\\n");
+    }
+
+    private static String rows(TokenBuffer tokens) {
+        StringJoiner rows = new StringJoiner("\n");
+        for (int i = 0; i < tokens.size(); i++) {
+            rows.add(row(tokens.type(i), tokens.lexeme(i), tokens.literal(i), tokens.line(i)));
+        }
+        return rows.toString();
+    }
+
+    private static String rows(List<Token> tokens) {
+        StringJoiner rows = new StringJoiner("\n");
+        for (Token token : tokens) {
+            rows.add(row(token.getType(), token.getLexeme(), token.getLiteral(), token.getLine()));
+        }
+        return rows.toString();
+    }
+
+    // Every way of reading the tokens gives expected: the buffer's columns,
+    // the Token each index makes and the list scanTokens returns
+    private static void assertTokens(String expected, String source) {
+        TokenBuffer buffer = new Scanner(source).scanBuffer();
+        assertEquals(expected, rows(buffer), "columns");
+
+        List<Token> made = new ArrayList<>();
+        for (int i = 0; i < buffer.size(); i++) {
+            made.add(buffer.token(i));
+        }
+        assertEquals(expected, rows(made), "token(index)");
+        assertEquals(expected, rows(buffer.toList()), "toList");
+        assertEquals(expected, rows(new Scanner(source).scanTokens()), "scanTokens");
+    }
+
+    @Test
+    void testTokenBufferGivesTheTokenList() {
+        String source =
+            "SUGOD\n" +
+            "    MUGNA LETRA c = 'x', d = '[', e = ']'\n" +
+            "    IPAKITA: \"Hello, World!\" & 'A' & \"\" & \"multi\n" +
+            "line\" & [#] & [[] & []] & [&] & $ & \"quote \"\"inside\"\n" +
+            "    KUNG DILI (c == 'b') KUNG WALA KUNG PA ALANG SA DILI\n" +
+            "    -- comment \"not a string\"\n" +
+            "    IPAKITA: 'a' & \"tab\there\" & [n]\n" +
+            "KATAPUSAN\n";
+
+        // what the Scanner made as a List<Token> before TokenBuffer
+        assertTokens("""
+            START|SUGOD|null|1
+            NEW_LINE|\\n|null|1
+            VAR|MUGNA|null|2
+            CHARACTER|LETRA|null|2
+            IDENTIFIER|c|null|2
+            DECLARE|=|null|2
+            CHARACTER|'x'|Character:x|2
+            COMMA|,|null|2
+            IDENTIFIER|d|null|2
+            DECLARE|=|null|2
+            CHARACTER|'['|Character:[|2
+            COMMA|,|null|2
+            IDENTIFIER|e|null|2
+            DECLARE|=|null|2
+            CHARACTER|']'|Character:]|2
+            NEW_LINE|\\n|null|2
+            PRINT|IPAKITA|null|3
+            COLON|:|null|3
+            STRING|"Hello, World!"|String:Hello, World!|3
+            CONCAT|&|null|3
+            CHARACTER|'A'|Character:A|3
+            CONCAT|&|null|3
+            STRING|""|String:|3
+            CONCAT|&|null|3
+            STRING|"multi\\nline"|String:multi\\nline|4
+            CONCAT|&|null|4
+            STRING|[#]|String:#|4
+            CONCAT|&|null|4
+            STRING|[[]|String:[|4
+            CONCAT|&|null|4
+            STRING|[]]|String:]|4
+            CONCAT|&|null|4
+            STRING|[&]|String:&|4
+            CONCAT|&|null|4
+            NEW_LINE_LITERAL|$|null|4
+            CONCAT|&|null|4
+            STRING|"quote "|String:quote |4
+            STRING|"inside"|String:inside|4
+            NEW_LINE|\\n|null|4
+            ELIF|KUNG DILI|null|5
+            LEFT_PAREN|(|null|5
+            IDENTIFIER|c|null|5
+            EQUAL|==|null|5
+            CHARACTER|'b'|Character:b|5
+            RIGHT_PAREN|)|null|5
+            ELSE|KUNG WALA|null|5
+            IF|KUNG|null|5
+            IDENTIFIER|PA|null|5
+            FOR|ALANG SA|null|5
+            NOT|DILI|null|5
+            NEW_LINE|\\n|null|5
+            NEW_LINE|-- comment "not a string"|null|7
+            PRINT|IPAKITA|null|7
+            COLON|:|null|7
+            CHARACTER|'a'|Character:a|7
+            CONCAT|&|null|7
+            STRING|"tab\there"|String:tab\there|7
+            CONCAT|&|null|7
+            STRING|[n]|String:\\n|7
+            NEW_LINE|\\n|null|7
+            END|KATAPUSAN|null|8
+            NEW_LINE|\\n|null|8
+            EOF||null|9""", source);
+    }
+}
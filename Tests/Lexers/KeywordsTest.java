@@ -0,0 +1,93 @@
+package Lexers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+import static Lexers.Tokens.words;
+
+// Keywords found through the perfect hash, and the words that share a
+// keyword's slot still scanned as identifiers.
+class KeywordsTest {
+    @Test
+    void testEveryKeyword() {
+        for (Map.Entry<String, TokenType> keyword : Scanner.keywords.entrySet()) {
+            String word = keyword.getKey();
+            String type = keyword.getValue() + " " + word;
+            assertEquals(type, words(word), word);
+            assertEquals("IDENTIFIER x, " + type + ", IDENTIFIER y", words("x " + word + " y"), word);
+            assertEquals("LEFT_PAREN (, " + type + ", RIGHT_PAREN )", words("(" + word + ")"), word);
+        }
+    }
+
+    @Test
+    void testTwoWordKeywords() {
+        assertEquals("FOR ALANG SA, ELIF KUNG DILI, ELSE KUNG WALA", words("ALANG SA KUNG DILI KUNG WALA"));
+        // only one space between the words, on one line
+        assertEquals("IDENTIFIER ALANG, IDENTIFIER SA, IF KUNG, NOT DILI", words("ALANG  SA KUNG  DILI"));
+        assertEquals("IF KUNG, IDENTIFIER WALA", words("KUNG\tWALA"));
+        assertEquals("IF KUNG, NEW_LINE \n, NOT DILI, IDENTIFIER ALANG, NEW_LINE \n, IDENTIFIER SA",
+            words("KUNG\nDILI ALANG\nSA"));
+        // the second word has to end where the keyword does
+        assertEquals("IDENTIFIER ALANG, IDENTIFIER SAB, IF KUNG, IDENTIFIER DILIx, IF KUNG, IDENTIFIER WALA2",
+            words("ALANG SAB KUNG DILIx KUNG WALA2"));
+        assertEquals("IF KUNG, IDENTIFIER WAL, IF KUNG, IDENTIFIER DIL, IDENTIFIER ALANG, IDENTIFIER S",
+            words("KUNG WAL KUNG DIL ALANG S"));
+        assertEquals("IDENTIFIER ALANG_SA, IDENTIFIER KUNG_DILI, IF KUNG, IDENTIFIER dili, IDENTIFIER ALANG, IDENTIFIER sa",
+            words("ALANG_SA KUNG_DILI KUNG dili ALANG sa"));
+        // the source ending inside the second word
+        assertEquals("IF KUNG", words("KUNG "));
+        assertEquals("IF KUNG, IDENTIFIER D", words("KUNG D"));
+        assertEquals("IDENTIFIER ALANG, IDENTIFIER S", words("ALANG S"));
+        assertEquals("FOR ALANG SA", words("ALANG SA"));
+    }
+
+    @Test
+    void testKeywordNearMisses() {
+        // prefixes and one char longer
+        assertEquals("IDENTIFIER SUGO, IDENTIFIER SUGODx, IDENTIFIER SUGOD_, IDENTIFIER SUGOD1, IDENTIFIER KATAPUSA, "
+                + "IDENTIFIER MUGN, IDENTIFIER KUN, IDENTIFIER U, IDENTIFIER DIL, IDENTIFIER NUL, IDENTIFIER OR, IDENTIFIER UGG",
+            words("SUGO SUGODx SUGOD_ SUGOD1 KATAPUSA MUGN KUN U DIL NUL OR UGG"));
+        // keywords are upper case only
+        assertEquals("IDENTIFIER sugod, IDENTIFIER Sugod, IDENTIFIER Mugna, IDENTIFIER kung, IDENTIFIER Kung, "
+                + "IDENTIFIER Dili, IDENTIFIER o, IDENTIFIER ug, IDENTIFIER null, IDENTIFIER Null",
+            words("sugod Sugod Mugna kung Kung Dili o ug null Null"));
+        // OO is read by the parser, STRING is not a keyword
+        assertEquals("IDENTIFIER OO, IDENTIFIER STRING, IDENTIFIER _KUNG, IDENTIFIER KUNG1",
+            words("OO STRING _KUNG KUNG1"));
+    }
+
+    @Test
+    void testIdentifiersInAKeywordsSlot() {
+        Keywords keywords = new Keywords(Scanner.keywords);
+        int found = 0;
+        // every word of up to three upper case letters and digits that lands
+        // in a keyword's slot without being one
+        char[] chars = "ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789_".toCharArray();
+        List<String> words = new ArrayList<>();
+        for (char a : "ABCDEFGHIJKLMNOPQRSTUVWXYZ_".toCharArray()) {
+            words.add("" + a);
+            for (char b : chars) {
+                words.add("" + a + b);
+                for (char c : chars) {
+                    words.add("" + a + b + c);
+                }
+            }
+        }
+        for (String word : words) {
+            Keywords.Entry entry = keywords.find(word.hashCode());
+            if (entry == null || entry.word.equals(word)) continue;
+            found++;
+            assertEquals("IDENTIFIER " + word, words(word), word);
+            // followed by what would make the entry's word a two word keyword
+            for (String second : entry.seconds) {
+                assertEquals("IDENTIFIER " + word + ", " + words(second), words(word + " " + second), word);
+            }
+        }
+        assertTrue(found > 100, "only " + found + " words share a slot");
+    }
+}
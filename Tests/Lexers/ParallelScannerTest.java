@@ -0,0 +1,57 @@
+package Lexers;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+import static Lexers.Tokens.scanned;
+
+// ParallelScanner gives the tokens and errors of scanning in one go, with
+// chunk boundaries in strings, escapes, comments and an unclosed string.
+class ParallelScannerTest {
+    @Test
+    void testParallelScanChunkBoundaries() {
+        String source =
+            "SUGOD\n" +
+            "    IPAKITA: \"a string\nover\nthree lines\" & x\n" +
+            "    IPAKITA: [\n] & [a\nb] & [#]\n" +
+            "    -- a comment with \"a quote and [ a bracket\n" +
+            "    MUGNA LETRA c = '\"'\n" +
+            "    x = 1 @ 2\n" +
+            "    IPAKITA: x & [[] & \"\" & $\n" +
+            "KATAPUSAN\n" +
+            "\"never closed\n" +
+            "\n";
+        String expected = scanned(() -> new Scanner(source).scanBuffer());
+        // the errors are reported too, with the lines of the whole program
+        // (the line ends inside [..] escapes are not counted)
+        assertTrue(expected.contains("[line 8] Error: Unexpected character: @"), expected);
+
+        // a boundary right after each of these line ends
+        int inString = source.indexOf("over");
+        int inEscape = source.indexOf("b] &");
+        int afterComment = source.indexOf("    MUGNA");
+        int inUnclosed = source.lastIndexOf("\n\n") + 1;
+
+        Set<Integer> boundaries = new HashSet<>();
+        try {
+            for (int chunks = 2; chunks <= source.length(); chunks++) {
+                ParallelScanner.setChunking(1, chunks);
+                ParallelScanner scanner = new ParallelScanner(source);
+                for (int bound : scanner.bounds()) {
+                    boundaries.add(bound);
+                }
+                assertEquals(expected, scanned(scanner::scanBuffer), chunks + " chunks");
+            }
+        } finally {
+            ParallelScanner.setChunking(ParallelScanner.MIN_CHUNK, ParallelScanner.MAX_CHUNKS);
+        }
+
+        for (int boundary : new int[] {inString, inString + 5, inEscape, afterComment, inUnclosed}) {
+            assertTrue(boundaries.contains(boundary), "no chunk starts at " + boundary);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package Lexers;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.StringJoiner;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.Test;
+
+import static Lexers.Tokens.row;
+import static Lexers.Tokens.rows;
+
+// A Scanner reading a Reader through a SourceWindow gives the tokens the
+// String scanner gives, also for tokens cut by a refill of the window.
+class ScannerStreamTest {
+    // The rows of a Scanner reading reader, a streamed buffer only keeps
+    // the last few tokens so each one is read as the scanning goes
+    private static String streamedRows(Reader reader) {
+        TokenBuffer buffer = new Scanner(reader).scanBuffer();
+        StringJoiner rows = new StringJoiner("\n");
+        for (int i = 0; ; i++) {
+            TokenType type = buffer.type(i);
+            rows.add(row(type, buffer.lexeme(i), buffer.literal(i), buffer.line(i)));
+            if (type == TokenType.EOF) return rows.toString();
+        }
+    }
+
+    // A Reader that gives at most a few chars per read, like a slow pipe
+    private static Reader trickle(String text, int chunk) {
+        return new Reader() {
+            private int at = 0;
+
+            @Override
+            public int read(char[] buffer, int offset, int length) {
+                if (at == text.length()) return -1;
+                int count = Math.min(Math.min(length, chunk), text.length() - at);
+                text.getChars(at, at + count, buffer, offset);
+                at += count;
+                return count;
+            }
+
+            @Override
+            public void close() throws IOException {}
+        };
+    }
+
+    private static void assertStreamedLikeString(String source) {
+        String expected = rows(new Scanner(source).scanBuffer());
+        assertEquals(expected, streamedRows(new StringReader(source)), "StringReader");
+        assertEquals(expected, streamedRows(trickle(source, 7)), "7 chars a read");
+    }
+
+    @Test
+    void testReaderGivesTheStringTokens() {
+        String source =
+            "SUGOD\n" +
+            "    MUGNA LETRA c = '['\n" +
+            "    IPAKITA: \"Hello\" & [#] & $ & \"two\nlines\" & c & 1.5 & 42\n" +
+            "    KUNG DILI (c == 'b') KUNG WALA ALANG SA\n" +
+            "    -- a comment\n" +
+            "KATAPUSAN\n";
+        assertStreamedLikeString(source);
+    }
+
+    @Test
+    void testTokensAcrossAWindowRefill() {
+        String[] tokens = {
+            "\"a string [#] with an escape\"", "\"a string\nover two lines\"", "identifier_name",
+            "12345.678", "-- a comment to the line end", "KUNG DILI", "KUNG WALA", "ALANG SA",
+            "'['", "[[]", "[#]", "<=", "++"
+        };
+
+        for (String token : tokens) {
+            // the token starts shift chars before the first refill
+            for (int shift = 1; shift < token.length(); shift++) {
+                StringBuilder source = new StringBuilder("SUGOD\n");
+                while (source.length() < SourceWindow.SIZE - shift - 20) {
+                    source.append("    x = 1\n");
+                }
+                while (source.length() < SourceWindow.SIZE - shift - 1) {
+                    source.append(' ');
+                }
+                source.append('\n').append(token).append(" & x\nKATAPUSAN\n");
+                assertEquals(SourceWindow.SIZE - shift, source.indexOf(token, SourceWindow.SIZE - shift - 1));
+                assertStreamedLikeString(source.toString());
+            }
+        }
+    }
+
+    @Test
+    void testTokenLongerThanTheWindow() {
+        String text = "x".repeat(SourceWindow.SIZE * 2 + 5);
+        assertStreamedLikeString("SUGOD\n    IPAKITA: \"" + text + "\" & " + text + "\nKATAPUSAN\n");
+    }
+}
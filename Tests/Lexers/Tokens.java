@@ -0,0 +1,52 @@
+package Lexers;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.StringJoiner;
+import java.util.function.Supplier;
+
+/*
+ * Tokens
+ * What the scanners in this package made, written out for the tests to
+ * compare: one row per token, or type lexeme pairs.
+ */
+final class Tokens {
+    private Tokens() {}
+
+    // One line per token, type|lexeme|literal|line with the literal's class,
+    // line ends in a lexeme written as \\n
+    static String row(TokenType type, String lexeme, Object literal, int line) {
+        String value = literal == null ? "null" : literal.getClass().getSimpleName() + ":" + literal;
+        return (type + "|" + lexeme + "|" + value + "|" + line).replace("\n", "\\n");
+    }
+
+    static String rows(TokenBuffer tokens) {
+        StringJoiner rows = new StringJoiner("\n");
+        for (int i = 0; i < tokens.size(); i++) {
+            rows.add(row(tokens.type(i), tokens.lexeme(i), tokens.literal(i), tokens.line(i)));
+        }
+        return rows.toString();
+    }
+
+    // The rows of the tokens scan gives and what it reported on System.err
+    static String scanned(Supplier<TokenBuffer> scan) {
+        ByteArrayOutputStream printed = new ByteArrayOutputStream();
+        PrintStream err = System.err;
+        System.setErr(new PrintStream(printed, true));
+        try {
+            return rows(scan.get()) + "\n" + printed;
+        } finally {
+            System.setErr(err);
+        }
+    }
+
+    // The tokens of source as type lexeme pairs, without the EOF
+    static String words(String source) {
+        StringJoiner words = new StringJoiner(", ");
+        TokenBuffer tokens = new Scanner(source).scanBuffer();
+        for (int i = 0; i < tokens.size() - 1; i++) {
+            words.add(tokens.type(i) + " " + tokens.lexeme(i));
+        }
+        return words.toString();
+    }
+}
@@ -0,0 +1,42 @@
+package Lexers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import org.junit.jupiter.api.Test;
+
+import static Lexers.Tokens.scanned;
+
+// VectorScan gives the tokens of scanning one char at a time, with the
+// runs it searches ending on every lane. Only runs with mvn -Pvector.
+class VectorScanTest {
+    @Test
+    void testVectorScanGivesTheScalarTokens() {
+        // only the vector profile builds VectorScan and adds the module
+        assumeTrue(Scanner.setVectorScan(true), "run with mvn -Pvector");
+        try {
+            // the end of each run on every position of the first 256 char
+            // blocks VectorScan copies, past the chars it checks one by one
+            for (int length = 0; length <= 600; length++) {
+                String run = "a".repeat(length);
+                String blanks = " \t".repeat(length / 2 + 1).substring(0, length + 1);
+                String source =
+                    "SUGOD\n" +
+                    "    IPAKITA: \"" + run + "\" & x\n" +
+                    "    IPAKITA: \"" + run + "\n" + run + "\"\n" +
+                    "    -- " + run + "\n" +
+                    "    x = 1 --" + run + "\n" +
+                    "   " + blanks + "x" + blanks + "=" + blanks + "2\n" +
+                    "    IPAKITA: [" + run + "] & [[] & []]\n" +
+                    "KATAPUSAN\n" +
+                    "\"unclosed " + run;
+
+                Scanner.setVectorScan(false);
+                String scalar = scanned(() -> new Scanner(source).scanBuffer());
+                Scanner.setVectorScan(true);
+                assertEquals(scalar, scanned(() -> new Scanner(source).scanBuffer()), "runs of " + length);
+            }
+        } finally {
+            Scanner.setVectorScan(false);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package Main;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// When the buffered IPAKITA output reaches stdout or the --output file,
+// next to the error messages and the input DAWAT reads. The command line
+// tests start baithon in a java process of its own, so stdout and stderr
+// go through one pipe in the order they were written.
+class BaithonTest {
+    @TempDir
+    Path dir;
+
+    // reading c before it has a value throws past the RunTimeError handling
+    private static final String FAILS_AFTER_PRINTING = Programs.program(
+        "MUGNA NUMERO c",
+        "IPAKITA: \"before\" & $",
+        "c = c");
+
+    private String baithon(String source, String... options) throws IOException, InterruptedException {
+        Path script = dir.resolve("program.baithon");
+        Files.writeString(script, source);
+
+        List<String> command = new ArrayList<>(List.of(
+            Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+            "-cp", System.getProperty("java.class.path"), "Main.Baithon"));
+        command.addAll(List.of(options));
+        command.add(script.toString());
+
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        process.getOutputStream().close();
+        String printed = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        process.waitFor();
+        return printed;
+    }
+
+    @Test
+    void testOutputBeforeAnError() throws Exception {
+        for (String engine : Programs.ENGINES) {
+            assertEquals("before\nAn error occurred\n", baithon(FAILS_AFTER_PRINTING, "--engine=" + engine), engine);
+            assertEquals("before\nAn error occurred\n", Programs.run(FAILS_AFTER_PRINTING, engine), engine);
+        }
+    }
+
+    @Test
+    void testRunTimeErrorAfterOutput() throws Exception {
+        String source = Programs.program(
+            "MUGNA NUMERO a = 1, b = 0",
+            "IPAKITA: \"before\" & $",
+            "IPAKITA: a / b");
+        for (String engine : Programs.ENGINES) {
+            assertEquals("before\n[line 4] Division by zero.\nAn error occurred\n",
+                baithon(source, "--engine=" + engine), engine);
+        }
+    }
+
+    @Test
+    void testOutputToAFile() throws Exception {
+        Path file = dir.resolve("printed.txt");
+        String source = Programs.program(
+            "MUGNA NUMERO a = 6",
+            "IPAKITA: \"a = \" & a * 7 & $",
+            "IPAKITA: 'x' & 2.5");
+        for (String engine : Programs.ENGINES) {
+            assertEquals("\nprogram finished\n", baithon(source, "--engine=" + engine, "--output=" + file), engine);
+            assertEquals("a = 42\nx2.5", Files.readString(file), engine);
+        }
+    }
+
+    @Test
+    void testOutputToAFileBeforeAnError() throws Exception {
+        Path file = dir.resolve("printed.txt");
+        for (String engine : Programs.ENGINES) {
+            assertEquals("An error occurred\n", baithon(FAILS_AFTER_PRINTING, "--engine=" + engine, "--output=" + file), engine);
+            assertEquals("before\n", Files.readString(file), engine);
+        }
+    }
+
+    // Input that marks in the output where DAWAT first read it
+    private static final class Watched extends InputStream {
+        private final InputStream input;
+        private boolean read = false;
+
+        Watched(String input) {
+            this.input = new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public int read() throws IOException {
+            mark();
+            return input.read();
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            mark();
+            return input.read(bytes, offset, length);
+        }
+
+        private void mark() {
+            if (read) return;
+            read = true;
+            // stderr, it is not buffered like IPAKITA
+            System.err.print("<read>");
+        }
+    }
+
+    @Test
+    void testPromptBeforeInput() {
+        String source = Programs.program(
+            "MUGNA NUMERO n",
+            "IPAKITA: \"n? \"",
+            "DAWAT: n",
+            "IPAKITA: n * 2 & $");
+        for (String engine : Programs.ENGINES) {
+            assertEquals("n? <read>42\n", Programs.run(source, engine, new Watched("21\n")), engine);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package Main;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.function.Supplier;
+
+import Interpreter.Interpreter;
+import Interpreter.Optimizer;
+import Interpreter.Output;
+import Interpreter.Resolver;
+import Jvm.JvmEngine;
+import Lexers.Scanner;
+import Nodes.NodeEngine;
+import Parsers.Parser;
+import Parsers.Stmt;
+import Vm.VirtualMachine;
+
+/*
+ * Programs
+ * Runs Baithon programs for the tests the way Baithon.run does (scan, parse,
+ * fold, resolve, run) and returns what they printed, the program's output
+ * and the error messages in the order they were written.
+ */
+public final class Programs {
+    // every --engine, by the name the option takes
+    public static final List<String> ENGINES = List.of("nodes", "tree", "vm", "jvm");
+
+    private Programs() {}
+
+    public static Supplier<Engine> engine(String name) {
+        return switch (name) {
+            case "nodes" -> NodeEngine::new;
+            case "tree" -> Interpreter::new;
+            case "vm" -> VirtualMachine::new;
+            case "jvm" -> JvmEngine::new;
+            default -> throw new IllegalArgumentException(name);
+        };
+    }
+
+    public static String run(String source) {
+        return run(source, "nodes", "");
+    }
+
+    public static String run(String source, String engine) {
+        return run(source, engine, "");
+    }
+
+    // input is what DAWAT reads, one line per DAWAT
+    public static String run(String source, String engine, String input) {
+        return run(source, engine(engine), input);
+    }
+
+    public static String run(String source, Supplier<Engine> engine, String input) {
+        return run(source, new Resolver(), engine, text(input), true);
+    }
+
+    // with a Resolver the test has set up, for its options
+    public static String run(String source, Resolver resolver, Supplier<Engine> engine) {
+        return run(source, resolver, engine, text(""), true);
+    }
+
+    // input as a stream, for tests that watch when DAWAT reads
+    public static String run(String source, String engine, InputStream input) {
+        return run(source, new Resolver(), engine(engine), input, true);
+    }
+
+    // the program as the parser gave it, for what the Optimizer must not change
+    public static String runUnoptimized(String source, String engine, String input) {
+        return run(source, new Resolver(), engine(engine), text(input), false);
+    }
+
+    private static InputStream text(String input) {
+        return new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String run(String source, Resolver resolver, Supplier<Engine> engine, InputStream input, boolean optimize) {
+        ByteArrayOutputStream printed = new ByteArrayOutputStream();
+        PrintStream out = System.out;
+        PrintStream err = System.err;
+        InputStream in = System.in;
+        PrintStream both = new PrintStream(printed, true, StandardCharsets.UTF_8);
+        System.setOut(both);
+        System.setErr(both);
+        // the engines read System.in when they are made
+        System.setIn(input);
+        Baithon.hadError = false;
+        Baithon.hadRuntimeError = false;
+        try {
+            List<Stmt> statements = new Parser(new Scanner(source).scanBuffer()).parse();
+            if (!Baithon.hadError) {
+                if (optimize) statements = new Optimizer().optimize(statements);
+                resolver.resolve(statements);
+            }
+            if (!Baithon.hadError) engine.get().interpret(statements);
+        } catch (Exception e) {
+            // the engines report a runtime error and throw, like Baithon.run prints
+            Output.flush();
+            System.err.println("An error occurred");
+        } finally {
+            Output.flush();
+            System.setOut(out);
+            System.setErr(err);
+            System.setIn(in);
+            Baithon.hadError = false;
+            Baithon.hadRuntimeError = false;
+        }
+        return printed.toString(StandardCharsets.UTF_8);
+    }
+
+    // SUGOD and KATAPUSAN around the lines of a program body
+    public static String program(String... lines) {
+        StringBuilder source = new StringBuilder("SUGOD\n");
+        for (String line : lines) {
+            source.append("    ").append(line).append('\n');
+        }
+        return source.append("KATAPUSAN\n").toString();
+    }
+}
@@ -0,0 +1,92 @@
+package Nodes;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import Interpreter.Operations;
+import Lexers.Token;
+import Lexers.TokenType;
+
+// A Binary site rewrites itself on its first run and goes Generic when the
+// operands stop fitting, these run sites the way Binary.execute does with
+// the operands already evaluated.
+class BinarySpecializationTest {
+
+    @BeforeEach
+    void resetCounters() {
+        BinarySpecialization.resetCounters();
+    }
+
+    private static ExprNode.Binary site(TokenType type, String lexeme) {
+        return new ExprNode.Binary(null, null, new Token(type, lexeme, null, 7));
+    }
+
+    private static Object run(ExprNode.Binary site, Object l, Object r) {
+        return site.specialization.execute(site, l, r);
+    }
+
+    @Test
+    void testIntThenDoubleGoesGeneric() {
+        ExprNode.Binary site = site(TokenType.PLUS, "+");
+
+        assertEquals(5, run(site, 2, 3));
+        assertSame(BinarySpecialization.INT_ADD, site.specialization);
+
+        assertEquals(Operations.binary(2.5, 3, site.operator), run(site, 2.5, 3));
+        assertSame(BinarySpecialization.GENERIC, site.specialization);
+
+        // stays generic and keeps giving what the tree walker gives
+        assertEquals(Operations.binary(4, 3, site.operator), run(site, 4, 3));
+        assertEquals(Operations.binary(1, 0.5, site.operator), run(site, 1, 0.5));
+        assertSame(BinarySpecialization.GENERIC, site.specialization);
+
+        assertEquals(1, BinarySpecialization.specializedSites());
+        assertEquals(1, BinarySpecialization.polymorphicSites());
+        assertEquals(0, BinarySpecialization.genericSites());
+        assertEquals("binary sites: 1 specialized, 1 of them went polymorphic, 0 generic from the start",
+            BinarySpecialization.report());
+    }
+
+    @Test
+    void testEveryOperatorAgreesWithOperationsAfterGoingGeneric() {
+        List<Token> operators = List.of(
+            new Token(TokenType.PLUS, "+", null, 1),
+            new Token(TokenType.MINUS, "-", null, 1),
+            new Token(TokenType.MULTIPLY, "*", null, 1),
+            new Token(TokenType.DIVIDE, "/", null, 1),
+            new Token(TokenType.MODULO, "%", null, 1),
+            new Token(TokenType.LESS, "<", null, 1),
+            new Token(TokenType.LESS_EQUAL, "<=", null, 1),
+            new Token(TokenType.GREATER, ">", null, 1),
+            new Token(TokenType.GREATER_EQUAL, ">=", null, 1));
+
+        for (Token operator : operators) {
+            ExprNode.Binary site = new ExprNode.Binary(null, null, operator);
+            assertEquals(Operations.binary(7, 2, operator), run(site, 7, 2), operator.getLexeme());
+            assertEquals(Operations.binary(7.5, 2, operator), run(site, 7.5, 2), operator.getLexeme());
+            assertEquals(Operations.binary(7, 2, operator), run(site, 7, 2), operator.getLexeme());
+            assertSame(BinarySpecialization.GENERIC, site.specialization, operator.getLexeme());
+        }
+
+        assertEquals(operators.size(), BinarySpecialization.specializedSites());
+        assertEquals(operators.size(), BinarySpecialization.polymorphicSites());
+    }
+
+    @Test
+    void testGenericFromTheStartIsNotPolymorphic() {
+        // two LETRA are added by the generic case only
+        ExprNode.Binary site = site(TokenType.PLUS, "+");
+
+        assertEquals(Operations.binary('a', '\u0001', site.operator), run(site, 'a', '\u0001'));
+        assertSame(BinarySpecialization.GENERIC, site.specialization);
+        assertEquals(Operations.binary(3, 1, site.operator), run(site, 3, 1));
+
+        assertEquals(0, BinarySpecialization.specializedSites());
+        assertEquals(0, BinarySpecialization.polymorphicSites());
+        assertEquals(1, BinarySpecialization.genericSites());
+    }
+}
@@ -0,0 +1,140 @@
+package Nodes;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import org.junit.jupiter.api.Test;
+
+import Interpreter.Optimizer;
+import Interpreter.Resolver;
+import Lexers.Scanner;
+import Main.Programs;
+import Parsers.Parser;
+import Parsers.Stmt;
+
+import static Main.Programs.program;
+
+// KUNG chains on one NUMERO or LETRA variable become a Switch, with a table
+// when the literals are close together and a map otherwise. Both have to
+// take the branch the chain would, on every engine.
+class SwitchTest {
+
+    // The chain, each branch printing its literal, KUNG WALA printing else.
+    // x is read by DAWAT when read is set and left null otherwise, reversed
+    // writes the conditions as literal == x.
+    private static String chain(String type, boolean read, boolean reversed, String... literals) {
+        List<String> lines = new ArrayList<>();
+        lines.add("MUGNA " + type + " x");
+        if (read) lines.add("DAWAT: x");
+        for (int i = 0; i < literals.length; i++) {
+            String condition = reversed ? literals[i] + " == x" : "x == " + literals[i];
+            lines.add((i == 0 ? "KUNG (" : "KUNG DILI (") + condition + ")");
+            lines.add("PUNDOK {");
+            lines.add("    IPAKITA: \"" + literals[i].replace("'", "") + "\"");
+            lines.add("}");
+        }
+        lines.add("KUNG WALA");
+        lines.add("PUNDOK {");
+        lines.add("    IPAKITA: \"else\"");
+        lines.add("}");
+        return program(lines.toArray(new String[0]));
+    }
+
+    // The Switch the node engine compiles the program's chain into
+    private static StmtNode.Switch compiled(String source) {
+        List<Stmt> statements = new Parser(new Scanner(source).scanBuffer()).parse();
+        statements = new Optimizer().optimize(statements);
+        new Resolver().resolve(statements);
+        StmtNode.Block program = (StmtNode.Block) new NodeCompiler(new java.util.Scanner("")).compile(statements);
+        for (StmtNode statement : program.statements) {
+            if (statement instanceof StmtNode.Switch dispatch) return dispatch;
+        }
+        throw new AssertionError("no Switch in the compiled program");
+    }
+
+    // Every value in turn read by DAWAT, each has to print what expected says
+    private static void assertBranches(String type, boolean reversed, String[] literals, String[] values, String[] expected) {
+        String source = chain(type, true, reversed, literals);
+        for (int i = 0; i < values.length; i++) {
+            for (String engine : Programs.ENGINES) {
+                assertEquals(expected[i], Programs.run(source, engine, values[i] + "\n"), values[i] + " on " + engine);
+            }
+        }
+    }
+
+    private static void assertNullTakesElse(String type, String... literals) {
+        String source = chain(type, false, false, literals);
+        for (String engine : Programs.ENGINES) {
+            assertEquals("else", Programs.run(source, engine, ""), engine);
+        }
+    }
+
+    @Test
+    void testCloseNumbersUseTable() {
+        String[] literals = {"3", "1", "2", "5"};
+        StmtNode.Switch dispatch = compiled(chain("NUMERO", true, false, literals));
+        assertNotNull(dispatch.table);
+        assertEquals(1, dispatch.lowest);
+
+        assertBranches("NUMERO", false, literals,
+            new String[] {"1", "2", "3", "4", "5", "0", "6", "-1"},
+            new String[] {"1", "2", "3", "else", "5", "else", "else", "else"});
+        assertNullTakesElse("NUMERO", literals);
+    }
+
+    @Test
+    void testFarApartNumbersUseMap() {
+        String[] literals = {"1", "1000", "-50000", "2147483647"};
+        StmtNode.Switch dispatch = compiled(chain("NUMERO", true, false, literals));
+        assertNull(dispatch.table);
+        assertNotNull(dispatch.branches);
+
+        assertBranches("NUMERO", false, literals,
+            new String[] {"1", "1000", "-50000", "2147483647", "2", "999", "0", "-2147483647"},
+            new String[] {"1", "1000", "-50000", "2147483647", "else", "else", "else", "else"});
+        assertNullTakesElse("NUMERO", literals);
+    }
+
+    @Test
+    void testCloseLettersUseTable() {
+        String[] literals = {"'b'", "'a'", "'c'"};
+        StmtNode.Switch dispatch = compiled(chain("LETRA", true, false, literals));
+        assertNotNull(dispatch.table);
+        assertEquals('a', dispatch.lowest);
+
+        assertBranches("LETRA", false, literals,
+            new String[] {"a", "b", "c", "d", "A", "`"},
+            new String[] {"a", "b", "c", "else", "else", "else"});
+        assertNullTakesElse("LETRA", literals);
+    }
+
+    @Test
+    void testFarApartLettersUseMap() {
+        String[] literals = {"'a'", "'m'", "'z'"};
+        StmtNode.Switch dispatch = compiled(chain("LETRA", true, false, literals));
+        assertNull(dispatch.table);
+
+        assertBranches("LETRA", false, literals,
+            new String[] {"a", "m", "z", "b", "Z"},
+            new String[] {"a", "m", "z", "else", "else"});
+        assertNullTakesElse("LETRA", literals);
+    }
+
+    @Test
+    void testLiteralOnTheLeft() {
+        String[] close = {"2", "1", "3"};
+        assertNotNull(compiled(chain("NUMERO", true, true, close)).table);
+        assertBranches("NUMERO", true, close,
+            new String[] {"1", "2", "3", "4"},
+            new String[] {"1", "2", "3", "else"});
+
+        String[] far = {"'a'", "'m'", "'z'"};
+        assertNull(compiled(chain("LETRA", true, true, far)).table);
+        assertBranches("LETRA", true, far,
+            new String[] {"a", "m", "z", "q"},
+            new String[] {"a", "m", "z", "else"});
+    }
+}
@@ -0,0 +1,208 @@
+package Nodes;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.DoublePredicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+import Interpreter.Completion;
+import Interpreter.Optimizer;
+import Interpreter.Resolver;
+import Lexers.Scanner;
+import Main.Environment;
+import Parsers.Expr;
+import Parsers.Parser;
+import Parsers.Stmt;
+
+import static Main.Programs.program;
+
+// The ranges a KUNG chain on one number variable gets per branch (its own
+// condition minus the ones before it) and the ProfiledChain that tests
+// them in the order they are hit most.
+class ValueRangesTest {
+    private static final double[] PROBES = {
+        Double.NEGATIVE_INFINITY, -1e9, -100, -5.5, -5, -1, -0.5, -0.0, 0, 0.5, 1, 2.5, 4.999,
+        5, 5.5, 9.999, 10, 10.5, 50, 99, 100, 100.5, 1e9, Double.POSITIVE_INFINITY, Double.NaN
+    };
+
+    // The conditions of a chain on x declared with type, as the Resolver left them
+    private static List<Expr> conditions(String type, String... conditions) {
+        List<String> lines = new ArrayList<>();
+        lines.add("MUGNA " + type + " x");
+        lines.add("DAWAT: x");
+        for (int i = 0; i < conditions.length; i++) {
+            lines.add((i == 0 ? "KUNG (" : "KUNG DILI (") + conditions[i] + ")");
+            lines.add("PUNDOK {");
+            lines.add("    IPAKITA: " + i);
+            lines.add("}");
+        }
+        List<Stmt> statements = new Parser(new Scanner(program(lines.toArray(new String[0]))).scanBuffer()).parse();
+        statements = new Optimizer().optimize(statements);
+        new Resolver().resolve(statements);
+
+        Stmt.If chain = (Stmt.If) statements.get(2);
+        List<Expr> result = new ArrayList<>();
+        for (int i = 0; i < chain.getBranchCount(); i++) {
+            result.add(chain.getBranchCondition(i));
+        }
+        return result;
+    }
+
+    // What each branch takes, the way NodeCompiler.compileProfiledChain works it out
+    private static ValueRanges[] branches(String type, String... conditions) {
+        Expr.Variable[] subject = new Expr.Variable[1];
+        List<Expr> exprs = conditions(type, conditions);
+        ValueRanges[] ranges = new ValueRanges[exprs.size()];
+        ValueRanges before = ValueRanges.none();
+        for (int i = 0; i < ranges.length; i++) {
+            ValueRanges condition = ValueRanges.of(exprs.get(i), subject);
+            ranges[i] = condition.minus(before);
+            before = before.union(condition);
+        }
+        return ranges;
+    }
+
+    // The first branch whose condition holds, -1 for the else
+    private static int inSourceOrder(List<DoublePredicate> conditions, double value) {
+        for (int i = 0; i < conditions.size(); i++) {
+            if (conditions.get(i).test(value)) return i;
+        }
+        return -1;
+    }
+
+    private static void assertSourceOrder(ValueRanges[] ranges, List<DoublePredicate> conditions) {
+        for (double probe : PROBES) {
+            int expected = inSourceOrder(conditions, probe);
+            for (int i = 0; i < ranges.length; i++) {
+                assertEquals(i == expected, ranges[i].contains(probe), "branch " + i + " for " + probe);
+            }
+        }
+    }
+
+    @Test
+    void testOverlappingComparisonsAreSubtracted() {
+        ValueRanges[] ranges = branches("NUMERO", "x < 0", "x <= 0", "x < 10", "x == 10", "x > 5", "x >= 100");
+
+        assertSourceOrder(ranges, List.of(
+            x -> x < 0, x -> x <= 0, x -> x < 10, x -> x == 10, x -> x > 5, x -> x >= 100));
+        // x <= 0 only keeps 0, x >= 100 is inside x > 5
+        assertTrue(ranges[1].contains(0));
+        assertFalse(ranges[1].contains(-0.5));
+        assertTrue(ranges[5].isEmpty());
+    }
+
+    @Test
+    void testReversedOperandsAndEqualityInTheMiddle() {
+        ValueRanges[] ranges = branches("NUMERO", "5 == x", "x <= 5", "10 > x", "x == 10", "x >= 10");
+
+        assertSourceOrder(ranges, List.of(
+            x -> x == 5, x -> x <= 5, x -> 10 > x, x -> x == 10, x -> x >= 10));
+        // x <= 5 only loses the point 5
+        assertTrue(ranges[1].contains(4.999));
+        assertFalse(ranges[1].contains(5));
+        assertTrue(ranges[2].contains(5.5));
+        assertFalse(ranges[4].contains(10));
+    }
+
+    @Test
+    void testUnionsAndIntersections() {
+        ValueRanges[] ranges = branches("TIPIK", "x < 0 O x > 100", "x >= -5 UG x <= 5", "x > 50", "x > 1 UG x < 20");
+        assertSourceOrder(ranges, List.of(
+            x -> x < 0 || x > 100, x -> x >= -5 && x <= 5, x -> x > 50, x -> x > 1 && x < 20));
+        assertTrue(ranges[1].contains(0));
+        assertFalse(ranges[1].contains(-5));
+        assertTrue(ranges[2].contains(100));
+        assertFalse(ranges[2].contains(100.5));
+    }
+
+    @Test
+    void testEmptyBranchAfterWiderOne() {
+        ValueRanges[] ranges = branches("TIPIK", "x <= 2.5", "x < 2.5", "2.5 >= x");
+
+        assertFalse(ranges[0].isEmpty());
+        assertTrue(ranges[1].isEmpty());
+        assertTrue(ranges[2].isEmpty());
+        assertSourceOrder(ranges, List.of(x -> x <= 2.5, x -> x < 2.5, x -> 2.5 >= x));
+    }
+
+    @Test
+    void testOtherConditionsAreNotRanges() {
+        Expr.Variable[] subject = new Expr.Variable[1];
+        List<Expr> exprs = conditions("NUMERO", "x == 1", "x <> 2", "x + 1 > 3");
+        assertNotNull(ValueRanges.of(exprs.get(0), subject));
+        assertNull(ValueRanges.of(exprs.get(1), subject));
+        assertNull(ValueRanges.of(exprs.get(2), subject));
+        // == on a TIPIK compares with equals, 1 == 1.0 is false
+        assertNull(ValueRanges.of(conditions("TIPIK", "x == 50.0").get(0), new Expr.Variable[1]));
+    }
+
+    // ProfiledChain ---------------------------------------------------------
+
+    // The value the chain's subject gives and the branches it ran, -1 for
+    // the else and -2 for the chain as written
+    private Object value;
+    private final List<Integer> taken = new ArrayList<>();
+
+    private StmtNode branch(int index) {
+        return new StmtNode() {
+            @Override
+            public Completion execute(Environment env) {
+                taken.add(index);
+                return null;
+            }
+        };
+    }
+
+    private StmtNode.ProfiledChain profiled(ValueRanges[] ranges) {
+        ExprNode subject = new ExprNode() {
+            @Override
+            public Object execute(Environment env) {
+                return value;
+            }
+        };
+        StmtNode[] nodes = new StmtNode[ranges.length];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = branch(i);
+        }
+        return new StmtNode.ProfiledChain(subject, ranges, nodes, branch(-1), branch(-2));
+    }
+
+    private int run(StmtNode.ProfiledChain chain, Object subject) {
+        value = subject;
+        taken.clear();
+        chain.execute(null);
+        assertEquals(1, taken.size());
+        return taken.get(0);
+    }
+
+    @Test
+    void testProfiledChainTakesTheSourceOrderBranchAfterWarmup() {
+        List<DoublePredicate> conditions = List.of(
+            x -> x < 0, x -> x <= 0, x -> x < 10, x -> x == 10, x -> x > 5);
+        StmtNode.ProfiledChain chain = profiled(
+            branches("NUMERO", "x < 0", "x <= 0", "x < 10", "x == 10", "x > 5"));
+
+        for (double probe : PROBES) {
+            assertEquals(inSourceOrder(conditions, probe), run(chain, probe), "before warmup " + probe);
+        }
+        // mostly the last branch, then the else
+        while (chain.runs < StmtNode.ProfiledChain.WARMUP) {
+            run(chain, chain.runs % 3 == 0 ? (Object) Double.NaN : (Object) 50);
+        }
+        assertEquals(4, chain.order[0]);
+
+        for (double probe : PROBES) {
+            assertEquals(inSourceOrder(conditions, probe), run(chain, probe), "after warmup " + probe);
+            assertEquals(inSourceOrder(conditions, probe), run(chain, (int) probe == probe ? (Object) (int) probe : probe),
+                "after warmup NUMERO " + probe);
+        }
+        // null is left to the conditions as written
+        assertEquals(-2, run(chain, null));
+    }
+}
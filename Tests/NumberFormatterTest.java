@@ -0,0 +1,120 @@
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.Test;
+
+import Interpreter.NumberFormatter;
+import Interpreter.Operations;
+
+// NumberFormatter has to write what stringify wrote before it existed,
+// Double.toString with the ".0" of whole numbers cut off, on both of its
+// paths, the StringBuilder one and the byte buffer one that gives up (-1)
+// on what it leaves to Double.toString.
+class NumberFormatterTest {
+
+    // stringify of a TIPIK before NumberFormatter
+    private static String reference(double value) {
+        String text = Double.toString(value);
+        return text.endsWith(".0") ? text.substring(0, text.length() - 2) : text;
+    }
+
+    private static String format(double value) {
+        StringBuilder builder = new StringBuilder("x");
+        NumberFormatter.format(value, builder);
+        // what was in the builder before is kept
+        assertEquals('x', builder.charAt(0));
+        return builder.substring(1);
+    }
+
+    // the byte buffer path, null when it leaves value to Double.toString
+    private static String formatBytes(double value) {
+        byte[] buffer = new byte[3 + 24];
+        int end = NumberFormatter.format(value, buffer, 3);
+        return end < 0 ? null : new String(buffer, 3, end - 3, StandardCharsets.US_ASCII);
+    }
+
+    private static void assertFormats(String expected, double value) {
+        assertEquals(expected, reference(value), "reference for " + value);
+        assertBothPaths(value);
+    }
+
+    // both paths give the reference text
+    private static void assertBothPaths(double value) {
+        String expected = reference(value);
+        assertEquals(expected, format(value), "StringBuilder for " + value);
+        assertEquals(expected, Operations.stringify(value), "stringify for " + value);
+        String bytes = formatBytes(value);
+        if (bytes != null) assertEquals(expected, bytes, "bytes for " + value);
+    }
+
+    private static void assertInt(int value) {
+        byte[] buffer = new byte[2 + 11];
+        int end = NumberFormatter.format(value, buffer, 2);
+        assertEquals(Integer.toString(value), new String(buffer, 2, end - 2, StandardCharsets.US_ASCII));
+        StringBuilder builder = new StringBuilder();
+        NumberFormatter.format(value, builder);
+        assertEquals(Integer.toString(value), builder.toString());
+    }
+
+    @Test
+    void testKnownValues() {
+        assertFormats("0", 0.0);
+        assertFormats("-0", -0.0);
+        assertFormats("4", 4.0);
+        assertFormats("-2.5", -2.5);
+        assertFormats("0.1", 0.1);
+        assertFormats("0.30000000000000004", 0.1 + 0.2);
+        assertFormats("0.001", 1e-3);
+        assertFormats("1.0E-4", 1e-4);
+        assertFormats("9999999.999", 9999999.999);
+        assertFormats("1.0E7", 1e7);
+        assertFormats("1.0E10", 1e10);
+        assertFormats("-2.147483648E9", Integer.MIN_VALUE);
+        assertFormats("NaN", Double.NaN);
+        assertFormats("Infinity", Double.POSITIVE_INFINITY);
+        assertFormats("-Infinity", Double.NEGATIVE_INFINITY);
+        assertFormats("4.9E-324", Double.MIN_VALUE);
+    }
+
+    @Test
+    void testBytesLeaveTheRestToDoubleToString() {
+        assertEquals("-0", formatBytes(-0.0));
+        assertEquals("0.001", formatBytes(1e-3));
+        assertEquals("123.456", formatBytes(123.456));
+        // exponents, NaN, Infinity and 17 digits are not written there
+        assertEquals(null, formatBytes(1e10));
+        assertEquals(null, formatBytes(1e7));
+        assertEquals(null, formatBytes(1e-4));
+        assertEquals(null, formatBytes(Integer.MIN_VALUE));
+        assertEquals(null, formatBytes(Double.NaN));
+        assertEquals(null, formatBytes(Double.NEGATIVE_INFINITY));
+        assertEquals(null, formatBytes(0.1 + 0.2));
+    }
+
+    @Test
+    void testIntegers() {
+        for (int value : new int[] {0, 1, -1, 9, 10, -10, 99, 100, 123456789, Integer.MAX_VALUE, Integer.MIN_VALUE,
+                Integer.MIN_VALUE + 1, -1000000000, 1000000000}) {
+            assertInt(value);
+        }
+        Random random = new Random(20);
+        for (int i = 0; i < 100_000; i++) {
+            assertInt(random.nextInt());
+        }
+    }
+
+    @Test
+    void testFuzzAgainstDoubleToString() {
+        Random random = new Random(19);
+        for (int i = 0; i < 200_000; i++) {
+            // any bits, decimals with a few digits, and values near the ends of the fast path
+            assertBothPaths(Double.longBitsToDouble(random.nextLong()));
+            assertBothPaths((random.nextInt(2_000_001) - 1_000_000) / Math.pow(10, random.nextInt(8)));
+            assertBothPaths(random.nextDouble() * Math.pow(10, random.nextInt(12) - 4));
+            assertBothPaths(1e-3 + (random.nextInt(5) - 2) * Math.ulp(1e-3));
+            assertBothPaths(Math.nextDown(1e7) - random.nextInt(1000) * Math.ulp(1e7));
+            assertBothPaths(random.nextInt() + random.nextDouble());
+        }
+    }
+}
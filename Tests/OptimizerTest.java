@@ -0,0 +1,409 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.Test;
+
+import Interpreter.Optimizer;
+import Lexers.Scanner;
+import Main.Programs;
+import Parsers.AstPrinter;
+import Parsers.Expr;
+import Parsers.Parser;
+import Parsers.Stmt;
+
+import static Main.Programs.program;
+
+// What the Optimizer leaves of a program, one line per statement with the
+// expressions the way AstPrinter prints them, and that every engine still
+// prints what the program printed before it was optimized.
+class OptimizerTest {
+
+    private static List<Stmt> optimize(String source) {
+        return new Optimizer().optimize(new Parser(new Scanner(source).scanBuffer()).parse());
+    }
+
+    private static String show(String source) {
+        StringJoiner lines = new StringJoiner("\n");
+        for (Stmt statement : optimize(source)) {
+            lines.add(show(statement));
+        }
+        return lines.toString();
+    }
+
+    private static String show(Stmt stmt) {
+        if (stmt == null) return "nil";
+        if (stmt instanceof Stmt.Expression expression) return show(expression.getExpression());
+        if (stmt instanceof Stmt.Print print) return "IPAKITA " + show(print.getExpression());
+        if (stmt instanceof Stmt.Var var) {
+            return "MUGNA " + var.getName().getLexeme() + " = " + show(var.getInitializer());
+        }
+        if (stmt instanceof Stmt.MultiVar var) {
+            StringJoiner names = new StringJoiner(", ", "MUGNA ", "");
+            for (int i = 0; i < var.getNames().size(); i++) {
+                names.add(var.getNames().get(i).getLexeme() + " = " + show(var.getInitializers().get(i)));
+            }
+            return names.toString();
+        }
+        if (stmt instanceof Stmt.Block block) {
+            StringJoiner statements = new StringJoiner("; ", "{ ", " }").setEmptyValue("{}");
+            for (Stmt statement : block.getStatements()) {
+                statements.add(show(statement));
+            }
+            return statements.toString();
+        }
+        if (stmt instanceof Stmt.If branch) {
+            StringBuilder text = new StringBuilder("KUNG " + show(branch.getCondition()) + " " + show(branch.getThenBranch()));
+            if (branch.getElseIfBranches() != null) {
+                for (Stmt.ElseIf elseIf : branch.getElseIfBranches()) {
+                    text.append(" KUNG DILI ").append(show(elseIf.getCondition())).append(' ').append(show(elseIf.getBlock()));
+                }
+            }
+            if (branch.getElseBranch() != null) text.append(" KUNG WALA ").append(show(branch.getElseBranch()));
+            return text.toString();
+        }
+        if (stmt instanceof Stmt.While loop) return "MINTRAS " + show(loop.getCondition()) + " " + show(loop.getBody());
+        if (stmt instanceof Stmt.DoWhile loop) return "BUHATA " + show(loop.getBody()) + " MINTRAS " + show(loop.getCondition());
+        if (stmt instanceof Stmt.For loop) {
+            return "ALANG SA (" + show(loop.getInitializer()) + ", " + show(loop.getCondition()) + ", "
+                + show(loop.getIncrement()) + ") " + show(loop.getBody());
+        }
+        if (stmt instanceof Stmt.Scan scan) {
+            List<String> names = new ArrayList<>();
+            scan.getNames().forEach(name -> names.add(name.getLexeme()));
+            return "DAWAT " + String.join(", ", names);
+        }
+        if (stmt instanceof Stmt.Break) return "HUNONG";
+        if (stmt instanceof Stmt.Continue) return "PADAYON";
+        return stmt.getClass().getSimpleName();
+    }
+
+    private static String show(Expr expr) {
+        // a line end inside a string literal would split the statement's line
+        return expr == null ? "nil" : new AstPrinter().print(expr).replace("\n", "\\n");
+    }
+
+    private static void assertOnEveryEngine(String expected, String source, String input) {
+        for (String engine : Programs.ENGINES) {
+            assertEquals(expected, Programs.run(source, engine, input), engine);
+        }
+    }
+
+    // Folding ---------------------------------------------------------------
+
+    @Test
+    void testDivisionByZeroIsLeftToRunTime() {
+        String source = program(
+            "MUGNA NUMERO x = 7",
+            "IPAKITA: \"before\" & $",
+            "IPAKITA: 1 / 0");
+
+        assertEquals("MUGNA x = 7\nIPAKITA before\\n\nIPAKITA (/ 1 0)", show(source));
+        assertOnEveryEngine("before\n[line 4] Division by zero.\nAn error occurred\n", source, "");
+    }
+
+    @Test
+    void testModuloByZeroIsLeftToRunTime() {
+        String source = program(
+            "MUGNA NUMERO x = 7",
+            "IPAKITA: x % 2 & $",
+            "IPAKITA: x % 0");
+
+        // x is still propagated, only the % that throws stays
+        assertEquals("MUGNA x = 7\nIPAKITA 1\\n\nIPAKITA (% 7 0)", show(source));
+        assertOnEveryEngine("1\n[line 4] Division by zero.\nAn error occurred\n", source, "");
+    }
+
+    @Test
+    void testFoldingGivesWhatTheEnginesCompute() {
+        String folded = program(
+            "IPAKITA: -0.0 & \" \" & (0.0 * -1) & \" \" & -(0.0) & \" \" & (-0.0 + 0.0)",
+            "IPAKITA: $ & (2147483647 + 1) & \" \" & (-2147483647 - 1 - 1) & \" \" & (65536 * 65536) & \" \" & -(-2147483647 - 1)",
+            "IPAKITA: $ & ((-2147483647 - 1) / -1) & \" \" & ((-2147483647 - 1) % -1) & \" \" & (7 / 2) & \" \" & (-7 % 3)");
+        // the same operators on values only DAWAT knows
+        String computed = program(
+            "MUGNA TIPIK zero, negativeZero",
+            "MUGNA NUMERO max, min, big, one, negativeOne, seven, two, three",
+            "DAWAT: zero, negativeZero, max, min, big, one, negativeOne, seven, two, three",
+            "min = min - 1",
+            "IPAKITA: negativeZero & \" \" & (zero * -1) & \" \" & -(zero) & \" \" & (negativeZero + zero)",
+            "IPAKITA: $ & (max + one) & \" \" & (min - one) & \" \" & (big * big) & \" \" & -(min)",
+            "IPAKITA: $ & (min / negativeOne) & \" \" & (min % negativeOne) & \" \" & (seven / two) & \" \" & (-seven % three)");
+        String input = "0.0, -0.0, 2147483647, -2147483647, 65536, 1, -1, 7, 2, 3\n";
+
+        // every operator was folded into the one literal
+        assertEquals(3, show(folded).split("\n").length);
+        for (String line : show(folded).split("\n")) {
+            assertEquals(-1, line.indexOf('('), line);
+        }
+
+        String expected = "-0 -0 -0 0\n-2147483648 2147483647 0 -2147483648\n-2147483648 0 3 -1";
+        assertOnEveryEngine(expected, folded, "");
+        assertOnEveryEngine(expected, computed, input);
+    }
+
+    @Test
+    void testOnlyVariablesNeverWrittenArePropagated() {
+        String source = program(
+            "MUGNA NUMERO a = 1, b = 2, c = 3, d = 4, e = 5",
+            "IPAKITA: a & b & c & d & e & $",
+            "b = 20",
+            "c++",
+            "d += 40",
+            "DAWAT: e",
+            "KUNG (e > 0)",
+            "PUNDOK {",
+            "    MUGNA NUMERO f = 6",
+            "    IPAKITA: f & $",
+            "}",
+            "KUNG (e > 1)",
+            "PUNDOK {",
+            "    MUGNA NUMERO f = 60",
+            "    IPAKITA: f & $",
+            "}",
+            "IPAKITA: a & b & c & d & e");
+
+        String optimized = show(source);
+        // a is the only one nothing writes, f is declared twice
+        assertEquals("IPAKITA (& 1 b c d e \\n)", optimized.split("\n")[1]);
+        assertEquals("KUNG (> e 0) { MUGNA f = 6; IPAKITA (& f \\n) }", optimized.split("\n")[6]);
+        assertEquals("IPAKITA (& 1 b c d e)", optimized.substring(optimized.lastIndexOf('\n') + 1));
+        assertOnEveryEngine("12345\n6\n60\n12044450", source, "50\n");
+    }
+
+    // Dead code -------------------------------------------------------------
+
+    @Test
+    void testBranchesDecidedByLiteralsAreRemoved() {
+        String source = program(
+            "MUGNA NUMERO mode = 2, x = 0",
+            "DAWAT: x",
+            "KUNG (mode == 1)",
+            "PUNDOK {",
+            "    IPAKITA: \"one\"",
+            "}",
+            "KUNG DILI (mode == 2)",
+            "PUNDOK {",
+            "    IPAKITA: \"two\"",
+            "}",
+            "KUNG DILI (x > 0)",
+            "PUNDOK {",
+            "    IPAKITA: \"never\"",
+            "}",
+            "KUNG (mode > 5)",
+            "PUNDOK {",
+            "    IPAKITA: \"big\"",
+            "}",
+            "KUNG DILI (x > 0)",
+            "PUNDOK {",
+            "    IPAKITA: \" positive\"",
+            "}",
+            "KUNG WALA",
+            "PUNDOK {",
+            "    IPAKITA: \" not positive\"",
+            "}",
+            "KUNG (mode < 0)",
+            "PUNDOK {",
+            "    IPAKITA: \"gone\"",
+            "}");
+
+        // the branch that is always taken runs as a block, a false first
+        // one leaves the KUNG DILI after it in its place
+        assertEquals(String.join("\n",
+            "MUGNA mode = 2, x = 0",
+            "DAWAT x",
+            "{ IPAKITA two }",
+            "KUNG (> x 0) { IPAKITA  positive } KUNG WALA { IPAKITA  not positive }"),
+            show(source));
+        assertOnEveryEngine("two positive", source, "4\n");
+        assertOnEveryEngine("two not positive", source, "-4\n");
+    }
+
+    @Test
+    void testEmptyThenBranchBecomesNegatedCondition() {
+        String source = program(
+            "MUGNA NUMERO x = 0",
+            "DAWAT: x",
+            "KUNG (x > 5)",
+            "PUNDOK {",
+            "}",
+            "KUNG WALA",
+            "PUNDOK {",
+            "    IPAKITA: \"small \"",
+            "}",
+            "KUNG (x < 100)",
+            "PUNDOK {",
+            "}",
+            "IPAKITA: x");
+
+        assertEquals(String.join("\n",
+            "MUGNA x = 0",
+            "DAWAT x",
+            "KUNG (DILI (> x 5)) { IPAKITA small  }",
+            "(< x 100)",
+            "IPAKITA x"),
+            show(source));
+        assertOnEveryEngine("small 3", source, "3\n");
+        assertOnEveryEngine("9", source, "9\n");
+    }
+
+    @Test
+    void testLoopsWhoseConditionIsFalseAreRemoved() {
+        String source = program(
+            "MUGNA NUMERO limit = 3, i = 0",
+            "MINTRAS (limit < 0)",
+            "PUNDOK {",
+            "    IPAKITA: \"never\"",
+            "}",
+            "MINTRAS (DILI (limit == 3))",
+            "PUNDOK {",
+            "    i++",
+            "}",
+            "MINTRAS (i < limit)",
+            "PUNDOK {",
+            "    i++",
+            "}",
+            "IPAKITA: i");
+
+        assertEquals(String.join("\n",
+            "MUGNA limit = 3, i = 0",
+            "MINTRAS (< i 3) { (i++) }",
+            "IPAKITA i"),
+            show(source));
+        assertOnEveryEngine("3", source, "");
+    }
+
+    // Loop invariant conditions ---------------------------------------------
+
+    @Test
+    void testInvariantConditionIsHoisted() {
+        String source = program(
+            "MUGNA NUMERO n = 0, i = 0",
+            "DAWAT: n",
+            "MINTRAS (i < 3 UG n > 0)",
+            "PUNDOK {",
+            "    i++",
+            "}",
+            "IPAKITA: i");
+
+        assertEquals(String.join("\n",
+            "MUGNA n = 0, i = 0",
+            "DAWAT n",
+            "{ MUGNA $condition0 = (> n 0); MINTRAS (UG (< i 3) $condition0) { (i++) } }",
+            "IPAKITA i"),
+            show(source));
+        assertOnEveryEngine("3", source, "1\n");
+        assertOnEveryEngine("0", source, "0\n");
+    }
+
+    @Test
+    void testConditionWhoseOperandTheBodyWritesIsNotHoisted() {
+        String assigned = program(
+            "MUGNA NUMERO n = 0, i = 0",
+            "DAWAT: n",
+            "MINTRAS (i < 10 UG n > 0)",
+            "PUNDOK {",
+            "    i++",
+            "    n -= 2",
+            "}",
+            "IPAKITA: i");
+        String scanned = program(
+            "MUGNA NUMERO n = 0, i = 0",
+            "DAWAT: n",
+            "MINTRAS (i < 10 UG n > 0)",
+            "PUNDOK {",
+            "    i++",
+            "    DAWAT: n",
+            "}",
+            "IPAKITA: i");
+        String nested = program(
+            "MUGNA NUMERO n = 0, i = 0, k = 0",
+            "DAWAT: n",
+            "BUHATA",
+            "PUNDOK {",
+            "    i++",
+            "    KUNG (i == 2)",
+            "    PUNDOK {",
+            "        k = (n = 0)",
+            "    }",
+            "} MINTRAS (i < 10 UG n > 0)",
+            "IPAKITA: i");
+
+        for (String source : List.of(assigned, scanned, nested)) {
+            assertEquals(-1, show(source).indexOf("$condition"), show(source));
+        }
+        assertOnEveryEngine("3", assigned, "5\n");
+        assertOnEveryEngine("2", scanned, "1\n1\n0\n");
+        assertOnEveryEngine("2", nested, "1\n");
+    }
+
+    // Common subexpressions -------------------------------------------------
+
+    // a * b twice, the write, then a * b twice again
+    private static String commonAround(String write) {
+        return program(
+            "MUGNA NUMERO a = 0, b = 0",
+            "DAWAT: a, b",
+            "IPAKITA: (a * b) & \" \"",
+            "IPAKITA: (a * b + 1) & \" \"",
+            write,
+            "IPAKITA: (a * b) & \" \"",
+            "IPAKITA: a * b");
+    }
+
+    @Test
+    void testCommonSubexpressionIsComputedOnce() {
+        String source = program(
+            "MUGNA NUMERO a = 0, b = 0",
+            "DAWAT: a, b",
+            "IPAKITA: (a * b) & \" \"",
+            "IPAKITA: a * b + 1");
+
+        assertEquals(String.join("\n",
+            "MUGNA a = 0, b = 0",
+            "DAWAT a, b",
+            "MUGNA $common0 = (* a b)",
+            "IPAKITA (& $common0  )",
+            "IPAKITA (+ $common0 1)"),
+            show(source));
+        assertOnEveryEngine("12 13", source, "3, 4\n");
+    }
+
+    @Test
+    void testCommonSubexpressionEndsAtAWrite() {
+        List<String> writes = List.of("a = a + 1", "a += 1", "a++", "DAWAT: a");
+
+        for (String write : writes) {
+            String source = commonAround(write);
+            String[] lines = show(source).split("\n");
+            // the two before the write share one, the two after another
+            assertEquals("MUGNA $common0 = (* a b)", lines[2], write);
+            assertEquals("MUGNA $common1 = (* a b)", lines[6], write);
+            assertEquals("IPAKITA (& $common1  )", lines[7], write);
+            assertEquals("IPAKITA $common1", lines[8], write);
+            assertOnEveryEngine("12 13 16 16", source, "3, 4\n4\n");
+        }
+    }
+
+    // & chains --------------------------------------------------------------
+
+    @Test
+    void testConcatChainPrintsWhatTheUnfoldedChainPrints() {
+        String source = program(
+            "MUGNA NUMERO n = 0",
+            "MUGNA TIPIK f = 0.0",
+            "MUGNA LETRA c = 'z'",
+            "MUGNA TINUOD t = \"DILI\"",
+            "DAWAT: n, f, c, t",
+            "IPAKITA: \"a\" & 1 & 'b' & [#] & n & \" \" & f & 2.5 & c & [[] & t & []] & $",
+            "IPAKITA: $ & n & $ & $ & \"x\" & [#] & [#] & (n + 1) & ('q' & c) & (\"p\" & (f & \"-\" & n)) & $",
+            "IPAKITA: n & -0.0 & 1.0E10 & \"\" & 'k' & (n * 2.5) & \" end\" & $",
+            "IPAKITA: c & c & [&] & t & (n > 3) & \"[#]\"");
+        String input = "4, 0.5, y, OO\n";
+
+        String tree = Programs.runUnoptimized(source, "tree", input);
+        assertEquals("a1b#4 0.52.5y[OO]\n\n4\n\nx##5qyp0.5-4\n4-01.0E10k10 end\nyy&OOOO[#]", tree);
+        assertOnEveryEngine(tree, source, input);
+    }
+}
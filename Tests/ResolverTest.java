@@ -0,0 +1,147 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.Test;
+
+import Main.Programs;
+
+import static Main.Programs.program;
+
+// Redeclaring a variable that is still visible is reported by the Resolver,
+// before the program runs, so nothing it would have printed first is printed.
+// A name is free again once the block that declared it has ended.
+class ResolverTest {
+
+    private static void assertOnEveryEngine(String expected, String source) {
+        for (String engine : Programs.ENGINES) {
+            assertEquals(expected, Programs.run(source, engine), engine);
+        }
+    }
+
+    private static String redeclared(int line, String name) {
+        return "\n[line " + line + "] Error: Variable '" + name + "' already declared in this scope.\n";
+    }
+
+    @Test
+    void testRedeclarationInTheSameScope() {
+        assertOnEveryEngine(redeclared(4, "x"), program(
+            "MUGNA NUMERO x = 1",
+            "IPAKITA: x",
+            "MUGNA NUMERO x = 2"));
+        assertOnEveryEngine(redeclared(2, "x"), program(
+            "MUGNA NUMERO x = 1, x = 2"));
+        // the type does not matter
+        assertOnEveryEngine(redeclared(3, "x"), program(
+            "MUGNA NUMERO x = 1",
+            "MUGNA LETRA x = 'a'"));
+    }
+
+    @Test
+    void testRedeclarationInANestedScope() {
+        assertOnEveryEngine(redeclared(5, "x"), program(
+            "MUGNA NUMERO x = 1",
+            "KUNG (x > 0)",
+            "PUNDOK {",
+            "    MUGNA NUMERO x = 2",
+            "}"));
+        assertOnEveryEngine(redeclared(8, "y"), program(
+            "MUGNA NUMERO x = 1",
+            "KUNG (x > 0)",
+            "PUNDOK {",
+            "    MUGNA NUMERO y = 2",
+            "    KUNG (y > 0)",
+            "    PUNDOK {",
+            "        MUGNA NUMERO y = 3",
+            "    }",
+            "}"));
+    }
+
+    @Test
+    void testSiblingBlocks() {
+        assertOnEveryEngine("24", program(
+            "MUGNA NUMERO a = 1",
+            "KUNG (a > 0)",
+            "PUNDOK {",
+            "    MUGNA NUMERO x = 2",
+            "    IPAKITA: x",
+            "}",
+            "KUNG WALA",
+            "PUNDOK {",
+            "    MUGNA NUMERO x = 3",
+            "}",
+            "KUNG (a > 0)",
+            "PUNDOK {",
+            "    MUGNA NUMERO x = 4",
+            "    IPAKITA: x",
+            "}"));
+        // declared at the top once the block's x is gone
+        assertOnEveryEngine("2 5", program(
+            "MUGNA NUMERO a = 1",
+            "KUNG (a > 0)",
+            "PUNDOK {",
+            "    MUGNA NUMERO x = 2",
+            "    IPAKITA: x",
+            "}",
+            "MUGNA NUMERO x = 5",
+            "IPAKITA: \" \" & x"));
+    }
+
+    @Test
+    void testLoopBodies() {
+        // the body's declarations are made again on every iteration
+        assertOnEveryEngine("024", program(
+            "MUGNA NUMERO i",
+            "ALANG SA (i = 0, i < 3, i++)",
+            "PUNDOK {",
+            "    MUGNA NUMERO x = i * 2",
+            "    IPAKITA: x",
+            "}"));
+        assertOnEveryEngine("321", program(
+            "MUGNA NUMERO n = 3",
+            "MINTRAS (n > 0)",
+            "PUNDOK {",
+            "    MUGNA NUMERO x = n",
+            "    IPAKITA: x",
+            "    n -= 1",
+            "}"));
+        assertOnEveryEngine(redeclared(6, "i"), program(
+            "MUGNA NUMERO i",
+            "ALANG SA (i = 0, i < 3, i++)",
+            "PUNDOK {",
+            "    IPAKITA: i",
+            "    MUGNA NUMERO i = 5",
+            "}"));
+        assertOnEveryEngine(redeclared(7, "x"), program(
+            "MUGNA NUMERO n = 3",
+            "MUGNA NUMERO x = 0",
+            "BUHATA",
+            "PUNDOK {",
+            "    n -= 1",
+            "    MUGNA NUMERO x = n",
+            "} MINTRAS (n > 0)"));
+    }
+
+    @Test
+    void testRedeclarationInABranchNotTaken() {
+        // reported although the branch never runs, before "start" is printed
+        assertOnEveryEngine(redeclared(6, "a"), program(
+            "MUGNA NUMERO a = 1",
+            "IPAKITA: \"start\" & $",
+            "KUNG (a < 0)",
+            "PUNDOK {",
+            "    MUGNA NUMERO a = 2",
+            "}"));
+        assertOnEveryEngine(redeclared(13, "a"), program(
+            "MUGNA NUMERO a = 1",
+            "KUNG (a > 0)",
+            "PUNDOK {",
+            "    IPAKITA: a",
+            "}",
+            "KUNG DILI (a < 0)",
+            "PUNDOK {",
+            "    IPAKITA: 0",
+            "}",
+            "KUNG WALA",
+            "PUNDOK {",
+            "    MUGNA TIPIK a = 0.0",
+            "}"));
+    }
+}
@@ -0,0 +1,183 @@
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import Interpreter.Interpreter;
+import Interpreter.Resolver;
+import Main.Engine;
+import Main.Environment;
+import Main.Programs;
+
+import static Main.Programs.program;
+
+// Loop bodies print the same with and without Resolver.setScopeElision (no
+// scope for blocks that declare nothing) and Interpreter.setFrameReuse (one
+// frame per loop, cleared every iteration), with every --frames kind. The
+// bodies declare variables or not and leave with PADAYON and HUNONG halfway.
+class ScopeElisionTest {
+    private record Case(String name, String source, String expected) {}
+
+    private static final List<Case> LOOPS = List.of(
+        new Case("no declarations", program(
+            "MUGNA NUMERO i, s = 0",
+            "ALANG SA (i = 0, i < 10, i++)",
+            "PUNDOK {",
+            "    KUNG (i % 2 == 0)",
+            "    PUNDOK {",
+            "        PADAYON",
+            "    }",
+            "    KUNG (i > 7)",
+            "    PUNDOK {",
+            "        HUNONG",
+            "    }",
+            "    s += i",
+            "}",
+            "IPAKITA: s & \" \" & i & $"),
+            "16 9\n"),
+        new Case("declarations", program(
+            "MUGNA NUMERO i, s = 0",
+            "ALANG SA (i = 0, i < 6, i++)",
+            "PUNDOK {",
+            "    MUGNA NUMERO x = i * 10, y",
+            "    KUNG (i == 1)",
+            "    PUNDOK {",
+            "        PADAYON",
+            "    }",
+            "    y = x + 1",
+            "    KUNG (i == 4)",
+            "    PUNDOK {",
+            "        HUNONG",
+            "    }",
+            "    s += y",
+            "    IPAKITA: x & \":\" & y & \" \"",
+            "}",
+            "IPAKITA: s & $"),
+            "0:1 20:21 30:31 53\n"),
+        // a frame that is reused has to forget what the last iteration set
+        new Case("no initializer", program(
+            "MUGNA NUMERO i",
+            "ALANG SA (i = 0, i < 3, i++)",
+            "PUNDOK {",
+            "    MUGNA NUMERO seen",
+            "    KUNG (i == 0)",
+            "    PUNDOK {",
+            "        seen = 5",
+            "    }",
+            "    IPAKITA: seen & \" \"",
+            "}"),
+            "5 null null "),
+        new Case("nested", program(
+            "MUGNA NUMERO n = 0",
+            "MINTRAS (n < 4)",
+            "PUNDOK {",
+            "    MUGNA NUMERO m = n, k",
+            "    n++",
+            "    ALANG SA (k = 0, k < 10, k++)",
+            "    PUNDOK {",
+            "        MUGNA NUMERO p = k * m",
+            "        KUNG (p > 4)",
+            "        PUNDOK {",
+            "            HUNONG",
+            "        }",
+            "        KUNG (k == 1)",
+            "        PUNDOK {",
+            "            PADAYON",
+            "        }",
+            "        IPAKITA: p & \",\"",
+            "    }",
+            "    IPAKITA: k & \"|\"",
+            "}"),
+            "0,0,0,0,0,0,0,0,0,10|0,2,3,4,5|0,4,3|0,2|"),
+        new Case("do while", program(
+            "MUGNA NUMERO n = 5",
+            "BUHATA",
+            "PUNDOK {",
+            "    MUGNA TIPIK half = n / 2.0",
+            "    n -= 1",
+            "    KUNG (n % 2 == 0)",
+            "    PUNDOK {",
+            "        PADAYON",
+            "    }",
+            "    IPAKITA: half & \" \"",
+            "} MINTRAS (n > 0)"),
+            "2 1 "),
+        new Case("sibling bodies", program(
+            "MUGNA NUMERO n = 3",
+            "MINTRAS (n > 0)",
+            "PUNDOK {",
+            "    MUGNA NUMERO t = n * n",
+            "    n -= 1",
+            "    KUNG (t == 4)",
+            "    PUNDOK {",
+            "        PADAYON",
+            "    }",
+            "    IPAKITA: t & \" \"",
+            "}",
+            "MINTRAS (n < 3)",
+            "PUNDOK {",
+            "    MUGNA LETRA t = 'a'",
+            "    n++",
+            "    KUNG (n == 2)",
+            "    PUNDOK {",
+            "        HUNONG",
+            "    }",
+            "    IPAKITA: t & n & \" \"",
+            "}"),
+            "9 1 a1 "),
+        // the two bodies' twice are in scopes of their own
+        new Case("declared counters", program(
+            "MUGNA NUMERO s = 0",
+            "ALANG SA (MUGNA NUMERO j = 0, j < 3, j++)",
+            "PUNDOK {",
+            "    MUGNA NUMERO twice = j * 2",
+            "    s += twice",
+            "}",
+            "ALANG SA (MUGNA NUMERO j = 10, j > 0, j -= 4)",
+            "PUNDOK {",
+            "    MUGNA NUMERO twice = j * 2",
+            "    KUNG (twice == 12)",
+            "    PUNDOK {",
+            "        PADAYON",
+            "    }",
+            "    s += twice",
+            "}",
+            "IPAKITA: s & $"),
+            "30\n"));
+
+    @AfterEach
+    void resetFrames() {
+        Environment.setFrameKind(Environment.FrameKind.ARRAY);
+    }
+
+    private static String run(String source, boolean scopeElision, boolean frameReuse, String engine) {
+        Resolver resolver = new Resolver();
+        resolver.setScopeElision(scopeElision);
+        Supplier<Engine> make = !engine.equals("tree") ? Programs.engine(engine) : () -> {
+            Interpreter interpreter = new Interpreter();
+            interpreter.setFrameReuse(frameReuse);
+            return interpreter;
+        };
+        return Programs.run(source, resolver, make);
+    }
+
+    @Test
+    void testLoopBodies() {
+        for (Environment.FrameKind frames : Environment.FrameKind.values()) {
+            Environment.setFrameKind(frames);
+            for (Case loop : LOOPS) {
+                for (boolean scopeElision : new boolean[] {false, true}) {
+                    for (boolean frameReuse : new boolean[] {false, true}) {
+                        for (String engine : Programs.ENGINES) {
+                            assertEquals(loop.expected(), run(loop.source(), scopeElision, frameReuse, engine),
+                                loop.name() + " on " + engine + " with " + frames + " frames, scope elision "
+                                    + scopeElision + ", frame reuse " + frameReuse);
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
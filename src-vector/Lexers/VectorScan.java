@@ -0,0 +1,122 @@
+/*
+ * VectorScan
+ * The Scanner's fast paths for --vector-scan, the only class that uses the
+ * jdk.incubator.vector API. Runs of spaces, comment bodies, strings and
+ * [..] escapes are searched a whole vector of chars at a time (16 on AVX2)
+ * instead of one peek()/advance() each.
+ *
+ * A String's chars can't be loaded into a vector, so a run is copied into
+ * a small buffer a piece at a time (String.getChars) and searched there,
+ * only the chars a run covers are copied and nothing is allocated. Most
+ * runs are short (one space between tokens, a [n] escape), so the first
+ * few chars are checked one by one before anything is copied.
+ *
+ * Compiled only with the vector profile (mvn -Pvector), and only loaded by
+ * Scanner.setVectorScan once it found the module, the JVM has to be started
+ * with --add-modules jdk.incubator.vector.
+ */
+package Lexers;
+
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+final class VectorScan implements RunSearch {
+  // at most 256 bits, most runs are too short to fill a wider vector
+  private static final VectorSpecies<Short> SPECIES =
+      ShortVector.SPECIES_PREFERRED.vectorBitSize() > 256 ? ShortVector.SPECIES_256 : ShortVector.SPECIES_PREFERRED;
+  private static final int LANES = SPECIES.length();
+  // chars checked one by one before the vector loop
+  private static final int SHORT = 16;
+
+  private final String source;
+  private final char[] buffer = new char[256];
+
+  VectorScan(String source) {
+    this.source = source;
+  }
+
+  // the first index from from on whose char is not a space or a tab, end if none
+  @Override
+  public int skipBlanks(int from, int end) {
+    int i = from;
+    for (int stop = Math.min(end, from + SHORT); i < stop; i++) {
+      char c = source.charAt(i);
+      if (c != ' ' && c != '\t') return i;
+    }
+
+    while (i < end) {
+      int count = load(i, end);
+      int j = 0;
+      for (; j + LANES <= count; j += LANES) {
+        ShortVector vector = ShortVector.fromCharArray(SPECIES, buffer, j);
+        VectorMask<Short> blank = vector.compare(VectorOperators.EQ, (short) ' ')
+            .or(vector.compare(VectorOperators.EQ, (short) '\t'));
+        if (!blank.allTrue()) return i + j + blank.not().firstTrue();
+      }
+      for (; j < count; j++) {
+        if (buffer[j] != ' ' && buffer[j] != '\t') return i + j;
+      }
+      i += count;
+    }
+    return end;
+  }
+
+  // the first index from from on whose char is target, end if none
+  @Override
+  public int indexOf(int from, int end, char target) {
+    int i = from;
+    for (int stop = Math.min(end, from + SHORT); i < stop; i++) {
+      if (source.charAt(i) == target) return i;
+    }
+
+    while (i < end) {
+      int count = load(i, end);
+      int j = 0;
+      for (; j + LANES <= count; j += LANES) {
+        ShortVector vector = ShortVector.fromCharArray(SPECIES, buffer, j);
+        VectorMask<Short> found = vector.compare(VectorOperators.EQ, (short) target);
+        if (found.anyTrue()) return i + j + found.firstTrue();
+      }
+      for (; j < count; j++) {
+        if (buffer[j] == target) return i + j;
+      }
+      i += count;
+    }
+    return end;
+  }
+
+  // the first index from from on whose char is either a or b, end if none
+  @Override
+  public int indexOf(int from, int end, char a, char b) {
+    int i = from;
+    for (int stop = Math.min(end, from + SHORT); i < stop; i++) {
+      char c = source.charAt(i);
+      if (c == a || c == b) return i;
+    }
+
+    while (i < end) {
+      int count = load(i, end);
+      int j = 0;
+      for (; j + LANES <= count; j += LANES) {
+        ShortVector vector = ShortVector.fromCharArray(SPECIES, buffer, j);
+        VectorMask<Short> found = vector.compare(VectorOperators.EQ, (short) a)
+            .or(vector.compare(VectorOperators.EQ, (short) b));
+        if (found.anyTrue()) return i + j + found.firstTrue();
+      }
+      for (; j < count; j++) {
+        if (buffer[j] == a || buffer[j] == b) return i + j;
+      }
+      i += count;
+    }
+    return end;
+  }
+
+  // copies the next piece of the run from from into buffer, how many chars
+  private int load(int from, int end) {
+    int count = Math.min(buffer.length, end - from);
+    source.getChars(from, from + count, buffer, 0);
+    return count;
+  }
+}
@@ -0,0 +1,86 @@
+/*
+ * Bench
+ * Small timing and allocation harness shared by the benchmarks in this package.
+ * Each task is warmed up first so the JIT has compiled the hot paths, then
+ * timed over a few runs. Allocation is measured per thread with the
+ * com.sun.management extension of ThreadMXBean.
+ * The benchmarks use this instead of JMH so the build needs no dependency
+ * for them.
+ *
+ * Run a benchmark with:
+ *   java -cp out/production/Baithon/ Benchmarks.ScopeBenchmark
+ */
+package Benchmarks;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+import Interpreter.Optimizer;
+import Interpreter.Output;
+import Interpreter.Resolver;
+import Lexers.Scanner;
+import Lexers.TokenBuffer;
+import Main.Engine;
+import Parsers.Parser;
+import Parsers.Stmt;
+
+public class Bench {
+    private static final com.sun.management.ThreadMXBean threads =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    public static final int WARMUPS = 3;
+    public static final int RUNS = 5;
+
+    // Average time and allocation of one run
+    public record Result(String name, double millis, double megabytes) {
+        @Override
+        public String toString() {
+            return String.format("%-40s %10.2f ms %12.3f MB allocated", name, millis, megabytes);
+        }
+    }
+
+    public static Result measure(String name, Runnable task) {
+        for (int i = 0; i < WARMUPS; i++) {
+            task.run();
+        }
+
+        long bytes = threads.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < RUNS; i++) {
+            task.run();
+        }
+        long elapsed = System.nanoTime() - start;
+        bytes = threads.getCurrentThreadAllocatedBytes() - bytes;
+
+        Result result = new Result(name, elapsed / 1e6 / RUNS, bytes / 1e6 / RUNS);
+        System.out.println(result);
+        return result;
+    }
+
+    // Lexes, parses, optimizes and resolves a program the same way Baithon.run does
+    public static List<Stmt> compile(String source, Resolver resolver) {
+        TokenBuffer tokens = new Scanner(source).scanBuffer();
+        List<Stmt> statements = new Optimizer().optimize(new Parser(tokens).parse());
+        resolver.resolve(statements);
+        return statements;
+    }
+
+    // Runs the task with System.out going nowhere so printing does not skew the numbers
+    public static void quietly(Runnable task) {
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            task.run();
+        } finally {
+            Output.flush();
+            System.setOut(out);
+        }
+    }
+
+    // Runs the program on a fresh engine, output discarded
+    public static void interpret(List<Stmt> statements, Engine engine) {
+        quietly(() -> engine.interpret(statements));
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * ControlFlowBenchmark
+ * The same loop written twice, once skipping the odd numbers with PADAYON
+ * and once with the work inside a KUNG instead. HUNONG and PADAYON used to
+ * throw an exception (with a stack trace) every time they ran, now they are
+ * returned as a Completion so both loops should take about the same time.
+ *
+ * The menu programs run a KUNG chain of eight x == literal tests, once
+ * always taking the first branch and once always the last. The chain jumps
+ * straight to its branch, so both should take about the same time too.
+ *
+ * The grades program runs a chain of x < literal tests where four out of
+ * five runs take the last branch, once as written and once with
+ * --profile-branches, which moves that branch to the front.
+ */
+package Benchmarks;
+
+import java.util.List;
+
+import Interpreter.Interpreter;
+import Interpreter.Resolver;
+import Nodes.NodeCompiler;
+import Nodes.NodeEngine;
+import Parsers.Stmt;
+
+public class ControlFlowBenchmark {
+    private static final String WITH_CONTINUE = """
+        SUGOD
+            MUGNA NUMERO i = 0, total = 0
+            MINTRAS (i < 1000000)
+            PUNDOK {
+                i++
+                KUNG (i % 2 == 1)
+                PUNDOK {
+                    PADAYON
+                }
+                total = total + i % 10
+            }
+            IPAKITA: total
+        KATAPUSAN
+        """;
+
+    private static final String WITHOUT_CONTINUE = """
+        SUGOD
+            MUGNA NUMERO i = 0, total = 0
+            MINTRAS (i < 1000000)
+            PUNDOK {
+                i++
+                KUNG (i % 2 == 0)
+                PUNDOK {
+                    total = total + i % 10
+                }
+            }
+            IPAKITA: total
+        KATAPUSAN
+        """;
+
+    private static final String WITH_BREAK = """
+        SUGOD
+            MUGNA NUMERO i, j, total = 0
+            ALANG SA (i = 0, i < 200000, i++)
+            PUNDOK {
+                ALANG SA (j = 0, j < 10, j++)
+                PUNDOK {
+                    KUNG (j == 3)
+                    PUNDOK {
+                        HUNONG
+                    }
+                    total = total + j
+                }
+            }
+            IPAKITA: total
+        KATAPUSAN
+        """;
+
+    private static final String WITHOUT_BREAK = """
+        SUGOD
+            MUGNA NUMERO i, j, total = 0
+            ALANG SA (i = 0, i < 200000, i++)
+            PUNDOK {
+                ALANG SA (j = 0, j < 3, j++)
+                PUNDOK {
+                    KUNG (j == 10)
+                    PUNDOK {
+                        total = 0
+                    }
+                    total = total + j
+                }
+            }
+            IPAKITA: total
+        KATAPUSAN
+        """;
+
+    // %d is the value of x, 1 takes the first branch and 8 the last
+    private static final String MENU = """
+        SUGOD
+            MUGNA NUMERO i, x = %d, total = 0
+            ALANG SA (i = 0, i < 1000000, i++)
+            PUNDOK {
+                KUNG (x == 1)
+                PUNDOK {
+                    total = total + 1
+                }
+                KUNG DILI (x == 2)
+                PUNDOK {
+                    total = total + 2
+                }
+                KUNG DILI (x == 3)
+                PUNDOK {
+                    total = total + 3
+                }
+                KUNG DILI (x == 4)
+                PUNDOK {
+                    total = total + 4
+                }
+                KUNG DILI (x == 5)
+                PUNDOK {
+                    total = total + 5
+                }
+                KUNG DILI (x == 6)
+                PUNDOK {
+                    total = total + 6
+                }
+                KUNG DILI (x == 7)
+                PUNDOK {
+                    total = total + 7
+                }
+                KUNG DILI (x == 8)
+                PUNDOK {
+                    total = total + 8
+                }
+                x = x + 0
+            }
+            IPAKITA: total
+        KATAPUSAN
+        """;
+
+    private static final String GRADES = """
+        SUGOD
+            MUGNA NUMERO i, x, total = 0
+            ALANG SA (i = 0, i < 1000000, i++)
+            PUNDOK {
+                x = i % 100
+                KUNG (x < 5)
+                PUNDOK {
+                    total = total + 1
+                }
+                KUNG DILI (x < 10)
+                PUNDOK {
+                    total = total + 2
+                }
+                KUNG DILI (x < 15)
+                PUNDOK {
+                    total = total + 3
+                }
+                KUNG DILI (x < 20)
+                PUNDOK {
+                    total = total + 4
+                }
+                KUNG DILI (x >= 20)
+                PUNDOK {
+                    total = total + 5
+                }
+            }
+            IPAKITA: total
+        KATAPUSAN
+        """;
+
+    public static void main(String[] args) {
+        run("PADAYON every other iteration", WITH_CONTINUE);
+        run("same loop without PADAYON", WITHOUT_CONTINUE);
+        run("HUNONG in every inner loop", WITH_BREAK);
+        run("same loop without HUNONG", WITHOUT_BREAK);
+        run("menu, first branch", MENU.formatted(1));
+        run("menu, last branch", MENU.formatted(8));
+        runNodes("menu on nodes, first branch", MENU.formatted(1));
+        runNodes("menu on nodes, last branch", MENU.formatted(8));
+        runNodes("grades on nodes", GRADES);
+        NodeCompiler.setBranchProfiling(true);
+        runNodes("grades on nodes, profiled", GRADES);
+        NodeCompiler.setBranchProfiling(false);
+    }
+
+    private static void run(String name, String program) {
+        List<Stmt> statements = Bench.compile(program, new Resolver());
+        Bench.measure(name, () -> Bench.interpret(statements, new Interpreter()));
+    }
+
+    private static void runNodes(String name, String program) {
+        List<Stmt> statements = Bench.compile(program, new Resolver());
+        Bench.measure(name, () -> Bench.interpret(statements, new NodeEngine()));
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * EngineBenchmark
+ * The same programs on the tree walking Interpreter, on the NodeEngine,
+ * which compiles the AST into executable nodes before running it, on the
+ * bytecode VirtualMachine and on the JvmEngine, which compiles it into a
+ * JVM class.
+ */
+package Benchmarks;
+
+import java.io.InputStream;
+import java.util.List;
+import java.util.Scanner;
+import java.util.function.Supplier;
+
+import Interpreter.Interpreter;
+import Interpreter.Resolver;
+import Jvm.CompiledScript;
+import Jvm.JvmEngine;
+import Main.Engine;
+import Nodes.NodeEngine;
+import Parsers.Stmt;
+import Vm.VirtualMachine;
+
+public class EngineBenchmark {
+    // int arithmetic and comparisons in nested loops
+    private static final String ARITHMETIC = """
+        SUGOD
+            MUGNA NUMERO a, b, total = 0
+            ALANG SA (a = 1, a <= 1000, a++)
+            PUNDOK {
+                ALANG SA (b = 1, b <= 1000, b++)
+                PUNDOK {
+                    KUNG (a * b % 3 == 0 UG b > a)
+                    PUNDOK {
+                        total = total + (a + b) % 7
+                    }
+                }
+            }
+            IPAKITA: total
+        KATAPUSAN
+        """;
+
+    // TIPIK math in a MINTRAS loop
+    private static final String FLOATS = """
+        SUGOD
+            MUGNA NUMERO i = 0
+            MUGNA TIPIK x = 0.0, step = 0.5
+            MINTRAS (i < 1000000)
+            PUNDOK {
+                x = x + step * 2 - i % 3
+                i++
+            }
+            IPAKITA: x
+        KATAPUSAN
+        """;
+
+    // printing values joined with &
+    private static final String STRINGS = """
+        SUGOD
+            MUGNA NUMERO i
+            MUGNA LETRA c = 'a'
+            ALANG SA (i = 0, i < 200000, i++)
+            PUNDOK {
+                IPAKITA: c & i & "-" & (i % 10 == 0) & $
+            }
+        KATAPUSAN
+        """;
+
+    public static void main(String[] args) {
+        run("arithmetic", ARITHMETIC);
+        run("floats", FLOATS);
+        run("strings", STRINGS);
+    }
+
+    private static void run(String name, String program) {
+        List<Stmt> statements = Bench.compile(program, new Resolver());
+        measure(name + ", tree walker", statements, Interpreter::new);
+        measure(name + ", nodes", statements, NodeEngine::new);
+        measure(name + ", vm", statements, VirtualMachine::new);
+        measure(name + ", jvm", statements, JvmEngine::new);
+
+        // the generated class is only compiled by HotSpot once it has run a
+        // while, so a script that is kept shows what the JVM makes of it
+        CompiledScript script = JvmEngine.compile(statements);
+        Scanner input = new Scanner(InputStream.nullInputStream());
+        Bench.measure(name + ", jvm compiled once", () -> Bench.quietly(() -> script.run(input)));
+    }
+
+    private static void measure(String name, List<Stmt> statements, Supplier<Engine> engine) {
+        Bench.measure(name, () -> Bench.interpret(statements, engine.get()));
+    }
+}
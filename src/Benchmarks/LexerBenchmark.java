@@ -0,0 +1,56 @@
+/*
+ * LexerBenchmark
+ * Scanning throughput in MB of source per second on a generated program
+ * that is mostly keywords and identifiers, the two word keywords (ALANG SA,
+ * KUNG DILI, KUNG WALA) included and identifiers followed by a space, which
+ * is where the Scanner used to look up substrings and scan ahead.
+ */
+package Benchmarks;
+
+import Lexers.Scanner;
+
+public class LexerBenchmark {
+    private static final String BLOCK = """
+        MUGNA NUMERO total = 0, count = 0, index
+        MUGNA TIPIK ratio = 0.5
+        MUGNA LETRA grade = 'A'
+        ALANG SA (index = 0, index < 100, index++)
+        PUNDOK {
+            KUNG (total > count UG index % 2 == 0)
+            PUNDOK {
+                total = total + index * 3
+            }
+            KUNG DILI (total == count O DILI (index < 10))
+            PUNDOK {
+                count += 1
+            }
+            KUNG WALA
+            PUNDOK {
+                ratio = ratio * 2.25
+            }
+        }
+        MINTRAS (count < total)
+        PUNDOK {
+            count = count + 1 -- keep going
+            KUNG (count == 50)
+            PUNDOK {
+                HUNONG
+            }
+        }
+        IPAKITA: total & " and " & count & $ & grade
+        """;
+
+    public static void main(String[] args) {
+        StringBuilder program = new StringBuilder("SUGOD\n");
+        while (program.length() < 4_000_000) {
+            program.append(BLOCK);
+        }
+        program.append("KATAPUSAN\n");
+        String source = program.toString();
+        double megabytes = source.length() / 1e6;
+
+        Bench.Result result = Bench.measure("scan " + (int) megabytes + " MB",
+            () -> new Scanner(source).scanBuffer());
+        System.out.printf("%-40s %10.1f MB/s%n", "throughput", megabytes / (result.millis() / 1000));
+    }
+}
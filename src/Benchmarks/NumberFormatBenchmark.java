@@ -0,0 +1,108 @@
+/*
+ * NumberFormatBenchmark
+ * Printing numbers: the old path, Integer.toString and Double.toString with
+ * the ".0" cut off by substring and then encoded, against NumberFormatter
+ * writing the digits straight into the output bytes. Both write the same
+ * values into the same buffer, the text is checked to be the same first.
+ */
+package Benchmarks;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import Interpreter.NumberFormatter;
+
+public class NumberFormatBenchmark {
+    private static final int COUNT = 1_000_000;
+
+    private static final int[] ints = new int[COUNT];
+    private static final double[] doubles = new double[COUNT];
+    private static final byte[] buffer = new byte[64 * COUNT];
+    private static int position;
+
+    public static void main(String[] args) {
+        // what programs print: counters, money like values and halves, and
+        // results like 1/3 with all their digits, the 17 digit ones of
+        // which are still left to Double.toString
+        SplittableRandom random = new SplittableRandom(7);
+        for (int i = 0; i < COUNT; i++) {
+            ints[i] = random.nextInt(-1_000_000, 1_000_000);
+            doubles[i] = switch (i % 4) {
+                case 0 -> random.nextInt(100_000) / 100.0;
+                case 1 -> random.nextInt(1000) * 0.5;
+                case 2 -> random.nextInt(1, 1000) / 3.0;
+                default -> random.nextDouble() * 1000;
+            };
+        }
+
+        check();
+        Bench.measure("NUMERO, Integer.toString", () -> oldInts());
+        Bench.measure("NUMERO, NumberFormatter", () -> newInts());
+        Bench.measure("TIPIK, Double.toString + substring", () -> oldDoubles());
+        Bench.measure("TIPIK, NumberFormatter", () -> newDoubles());
+    }
+
+    private static void check() {
+        oldInts();
+        byte[] expected = Arrays.copyOf(buffer, position);
+        newInts();
+        if (!Arrays.equals(expected, 0, expected.length, buffer, 0, position)) {
+            throw new AssertionError("NUMERO text differs");
+        }
+
+        oldDoubles();
+        expected = Arrays.copyOf(buffer, position);
+        newDoubles();
+        if (!Arrays.equals(expected, 0, expected.length, buffer, 0, position)) {
+            throw new AssertionError("TIPIK text differs");
+        }
+    }
+
+    private static void oldInts() {
+        position = 0;
+        for (int value : ints) {
+            put(Integer.toString(value));
+        }
+    }
+
+    private static void newInts() {
+        position = 0;
+        for (int value : ints) {
+            position = NumberFormatter.format(value, buffer, position);
+        }
+    }
+
+    private static void oldDoubles() {
+        position = 0;
+        for (double value : doubles) {
+            String text = Double.toString(value);
+            if (text.endsWith(".0")) {
+                text = text.substring(0, text.length() - 2);
+            }
+            put(text);
+        }
+    }
+
+    private static void newDoubles() {
+        position = 0;
+        StringBuilder scratch = new StringBuilder();
+        for (double value : doubles) {
+            int end = NumberFormatter.format(value, buffer, position);
+            if (end >= 0) {
+                position = end;
+            } else {
+                // what Output does with the values left to Double.toString
+                scratch.setLength(0);
+                NumberFormatter.format(value, scratch);
+                put(scratch.toString());
+            }
+        }
+    }
+
+    private static void put(String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+    }
+}
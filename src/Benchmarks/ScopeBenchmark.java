@@ -0,0 +1,51 @@
+/*
+ * ScopeBenchmark
+ * Nested ALANG SA loops like SamplePrograms/test.by, run with and without
+ * scope elision and loop frame reuse. Before, every PUNDOK got a new frame
+ * on every iteration. After, blocks that declare nothing run in the
+ * enclosing frame and loop bodies reuse one frame for the whole loop.
+ */
+package Benchmarks;
+
+import java.util.List;
+
+import Interpreter.Interpreter;
+import Interpreter.Resolver;
+import Parsers.Stmt;
+
+public class ScopeBenchmark {
+    private static final String PROGRAM = """
+        SUGOD
+            MUGNA NUMERO a, b, total = 0
+            ALANG SA (a = 1, a <= 1000, a++)
+            PUNDOK {
+                ALANG SA (b = 1, b <= 1000, b++)
+                PUNDOK {
+                    MUGNA NUMERO sq = a * b
+                    KUNG (sq % 2 == 0)
+                    PUNDOK {
+                        total = total + sq % 10
+                    }
+                }
+            }
+            IPAKITA: total
+        KATAPUSAN
+        """;
+
+    public static void main(String[] args) {
+        run("before (a frame per block per iteration)", false);
+        run("after (elided scopes, reused loop frames)", true);
+    }
+
+    private static void run(String name, boolean optimized) {
+        Resolver resolver = new Resolver();
+        resolver.setScopeElision(optimized);
+        List<Stmt> statements = Bench.compile(PROGRAM, resolver);
+
+        Bench.measure(name, () -> {
+            Interpreter interpreter = new Interpreter();
+            interpreter.setFrameReuse(optimized);
+            Bench.interpret(statements, interpreter);
+        });
+    }
+}
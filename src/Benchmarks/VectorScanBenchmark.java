@@ -0,0 +1,66 @@
+/*
+ * VectorScanBenchmark
+ * Scanning throughput with and without the VectorScan fast paths on a
+ * generated program that is mostly what they skip: deep indentation, long
+ * -- comments, long strings and [..] escapes.
+ *
+ * The vector mode needs src-vector compiled into out/production/Baithon
+ * too, see the --vector-scan option in readme.md. Run it once per mode, a
+ * JVM that scanned one way has the Scanner compiled for it and makes the
+ * other look slower than it is:
+ *   java -cp out/production/Baithon/ Benchmarks.VectorScanBenchmark scalar
+ *   java --add-modules jdk.incubator.vector -cp out/production/Baithon/ Benchmarks.VectorScanBenchmark vector
+ */
+package Benchmarks;
+
+import Lexers.Scanner;
+
+public class VectorScanBenchmark {
+    private static final String BLOCK = """
+        -- Computes the running total of the first hundred numbers and keeps a
+        -- count of the even ones, the odd ones are only printed. Nothing here
+        -- is interesting to the scanner but the comments, which is the point.
+        MUGNA NUMERO total = 0, count = 0, index
+        ALANG SA (index = 0, index < 100, index++)
+        PUNDOK {
+                KUNG (index % 2 == 0)
+                PUNDOK {
+                                -- an even one, counted and added to the total
+                                total = total + index
+                                count += 1
+                }
+                KUNG WALA
+                PUNDOK {
+                                IPAKITA: "odd number found while adding up the first hundred: " & index & [[] & [#] & []] & $
+                }
+        }
+        IPAKITA: "the total of the even numbers below one hundred is " & total & " from " & count & " of them" & $
+        """;
+
+    public static void main(String[] args) {
+        StringBuilder program = new StringBuilder("SUGOD\n");
+        while (program.length() < 4_000_000) {
+            program.append(BLOCK);
+        }
+        program.append("KATAPUSAN\n");
+        String source = program.toString();
+        double megabytes = source.length() / 1e6;
+
+        boolean vector = args.length > 0 && args[0].equals("vector");
+        if (vector && !Scanner.setVectorScan(true)) {
+            System.out.println("VectorScan is not available, build src-vector and run with --add-modules jdk.incubator.vector");
+            return;
+        }
+
+        // the vector code takes more runs than Bench warms up with to get
+        // compiled by C2, before that it runs as slow as it can
+        for (int i = 0; i < 10; i++) {
+            new Scanner(source).scanBuffer();
+        }
+
+        String mode = vector ? "vector" : "scalar";
+        Bench.Result result = Bench.measure(mode + " scan " + (int) megabytes + " MB",
+            () -> new Scanner(source).scanBuffer());
+        System.out.printf("%-40s %10.1f MB/s%n", mode + " throughput", megabytes / (result.millis() / 1000));
+    }
+}
@@ -0,0 +1,10 @@
+package Interpreter;
+
+// How a statement finished, returned by the interpreter's statement visitors.
+// null means it completed normally and the next statement runs.
+// HUNONG and PADAYON return their signal instead of throwing, it is passed up
+// through the enclosing blocks and KUNG branches until a loop handles it.
+public enum Completion {
+    BREAK,
+    CONTINUE
+}
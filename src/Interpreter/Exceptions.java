@@ -1,4 +0,0 @@
-package Interpreter;
-
-class BreakException extends RuntimeException {}
-class ContinueException extends RuntimeException {}
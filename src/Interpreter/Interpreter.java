@@ -17,20 +17,35 @@ import java.util.Scanner;
 import Lexers.Token;
 import Lexers.TokenType;
 import Main.Baithon;
+import Main.Engine;
 import Main.Environment;
 import Parsers.Expr;
 import Parsers.Stmt;
 
-public class Interpreter implements Expr.Visitor<Object>
-                                    ,Stmt.Visitor<Void> {
-    private Environment environment = new Environment();
+public class Interpreter implements Engine
+                                    ,Expr.Visitor<Object>
+                                    ,Stmt.Visitor<Completion> {
+    // the global scope is created on the first run so the frame kind
+    // picked on the command line is used
+    private Environment environment;
+    // reuse one frame per loop instead of one per iteration
+    private boolean frameReuse = true;
     private final Scanner scanner = new Scanner(System.in);
+    // joins the parts of & chains, null while one is being joined
+    private static final int MAX_KEPT_BUILDER = 1 << 16;
+    private StringBuilder concatBuilder = new StringBuilder();
 
     @Override
     public Object visitAssignExpr(Expr.Assign expr) {
         Object value = evaluate(expr.getValue());  // Evaluate the assigned value
         Token variableName = expr.getName();       // Get the variable token
 
+        // Resolved variables go straight to their scope and slot
+        if (expr.isResolved()) {
+            environment.assignAt(expr.getDepth(), expr.getSlot(), variableName, value);
+            return value;
+        }
+
         // Check if variable is defined
         if (!environment.isDefined(variableName)) {
             throw new RunTimeError(variableName, "Variable '" + variableName.getLexeme() + "' is not defined.");
@@ -42,11 +57,38 @@ public class Interpreter implements Expr.Visitor<Object>
         return value;
     }
 
+    @Override
+    public Object visitCompoundAssignExpr(Expr.CompoundAssign expr) {
+        Token name = expr.getName();
+
+        // the scope is found once, for the read and for the write
+        if (expr.isResolved()) {
+            Environment frame = environment.ancestor(expr.getDepth());
+            Object current = frame.getAt(0, expr.getSlot(), name);
+            Object value = Operations.binary(current, evaluate(expr.getValue()), expr.getOperator());
+            frame.assignAt(0, expr.getSlot(), name, value);
+            return value;
+        }
+
+        // reports the undefined variable
+        Object current = environment.get(name);
+        Object value = Operations.binary(current, evaluate(expr.getValue()), expr.getOperator());
+        environment.assign(name, value);
+        return value;
+    }
+
+    public void setFrameReuse(boolean frameReuse) {
+        this.frameReuse = frameReuse;
+    }
+
+    @Override
     public void interpret(List<Stmt> statements) {
+        if (environment == null) {
+            environment = Environment.create(null, 0);
+        }
+
         try {
-            for (Stmt statement : statements) {
-                execute(statement);
-            }
+            executeStatements(statements);
         } catch (RunTimeError error) {
             Baithon.runTimeError(error);
             throw new RuntimeException();
@@ -56,84 +98,44 @@ public class Interpreter implements Expr.Visitor<Object>
     @Override
     public Object visitUnaryExpr(Expr.Unary expr) {
         Object right = evaluate(expr.getRight());
-
-        switch (expr.getOperator().getType()) {
-            case MINUS:
-                checkNumberOperand(expr.getOperator(), right);
-                if (right instanceof Integer) {
-                    return - (Integer) right;
-                } else {
-                    return - (Double) right;
-                }
-            case NOT:
-                return !(boolean) isTruthy(right);
-        }
-
-        return null;
-    }
-
-    private void checkNumberOperand(Token operator, Object operand) {
-        if (operand instanceof Number) return;
-        throw new RunTimeError(operator, "Operand must be a number.");
-    }
-
-    private boolean isTruthy(Object object) {
-        if (object == null) return false;
-        if (object instanceof Boolean) return (boolean)object;
-        return true;
+        return Operations.unary(expr.getOperator(), right);
     }
 
     @Override
     public Object visitBinaryExpr(Expr.Binary expr) {
+        // numbers that can be computed without boxing the operands
+        int leftKind = Operations.numericKind(expr.getLeft());
+        if (leftKind != Operations.OTHER) {
+            int rightKind = Operations.numericKind(expr.getRight());
+            if (rightKind != Operations.OTHER) {
+                Object result = unboxedBinary(expr, leftKind == Operations.INT && rightKind == Operations.INT);
+                if (result != null) return result;
+            }
+        }
+
         Object left = evaluate(expr.getLeft());
         Object right = evaluate(expr.getRight());
-        Token operator = expr.getOperator();
-
-        // Left     Right   Result
-        // Integer	Integer	Integer
-        // Integer	Double	Double
-        // Double	Integer	Double
-        // Double	Double	Double
-
-        switch (operator.getType()) {
-            case PLUS:
-                if (left instanceof String || right instanceof String) {
-                    if (!(left instanceof String) || !(right instanceof String)) {
-                        throw new RunTimeError(expr.getOperator(),
-                        "Type mismatch: Cannot concatenate " + left.getClass().getSimpleName() +
-                        " with " + right.getClass().getSimpleName());
-                    }
-                    return (String) left + (String) right;
-                }
-                if (left instanceof Character && right instanceof Character) {
-                    return (char) ((Character) left + (Character) right);
-                }
-                return numberArithmetic(left, right, operator);
-            case MINUS,MULTIPLY,DIVIDE,MODULO,GREATER,GREATER_EQUAL,LESS,LESS_EQUAL:
-                return numberArithmetic(left, right, operator);
-            case EQUAL:
-                return isEqual(left, right);
-            case NOT_EQUAL:
-                return !isEqual(left, right);
-            case CONCAT:
-                return stringify(left) + stringify(right);
-            case NEW_LINE:
-                // System.out.print("Stringify NEW_LINE: " + stringify(left) + stringify(right));
-                String leftString = stringify(left).stripTrailing();
-                String rightString = stringify(right).stripLeading();
-                return leftString + rightString;
-            case ESCAPE:
-                // Insert the escape sequence literal between left and right parts.
-                String escapeValue = expr.getOperator().getLiteral() != null
-                ? (String) expr.getOperator().getLiteral()
-                : ""; // default to "&" if none provided
-                return stringify(left) + escapeValue + stringify(right);
-            default:
-                throw new RunTimeError(expr.getOperator(), "Unknown operator: " + expr.getOperator().getLexeme());
-            }
+        return Operations.binary(left, right, expr.getOperator());
     }
     
     
+    @Override
+    public Object visitConcatExpr(Expr.Concat expr) {
+        // a part can hold a & chain of its own, that one gets a new builder
+        StringBuilder builder = concatBuilder != null ? concatBuilder : new StringBuilder();
+        concatBuilder = null;
+        builder.setLength(0);
+        try {
+            for (Expr part : expr.getParts()) {
+                Operations.stringify(evaluate(part), builder);
+            }
+            return builder.toString();
+        } finally {
+            // a huge one is not kept around
+            if (builder.capacity() <= MAX_KEPT_BUILDER) concatBuilder = builder;
+        }
+    }
+
     @Override
     public Object visitLiteralExpr(Expr.Literal expr) {
         Object value = expr.getValue();
@@ -151,9 +153,9 @@ public class Interpreter implements Expr.Visitor<Object>
         Object left = evaluate(expr.getLeft());
 
         if (expr.getOperator().getType() == TokenType.OR) {
-        if (isTruthy(left)) return left;
+        if (Operations.isTruthy(left)) return left;
         } else {
-        if (!isTruthy(left)) return left;
+        if (!Operations.isTruthy(left)) return left;
         }
 
         return evaluate(expr.getRight());
@@ -161,6 +163,14 @@ public class Interpreter implements Expr.Visitor<Object>
 
 	@Override
 	public Object visitVariableExpr(Expr.Variable expr) {
+        return lookUpVariable(expr);
+    }
+
+    private Object lookUpVariable(Expr.Variable expr) {
+        if (expr.isResolved()) {
+            return environment.getAt(expr.getDepth(), expr.getSlot(), expr.getName());
+        }
+        // not declared before this point, this reports the undefined variable
         return environment.get(expr.getName());
     }
 
@@ -172,7 +182,7 @@ public class Interpreter implements Expr.Visitor<Object>
     
     // this function is kinda useless kay murag adto tanan mo agi sa visitMultiVar
     @Override
-    public Void visitVarStmt(Stmt.Var stmt) {
+    public Completion visitVarStmt(Stmt.Var stmt) {
         Token name = stmt.getName();
         TokenType declaredType = stmt.getDeclaredType();
 
@@ -182,8 +192,11 @@ public class Interpreter implements Expr.Visitor<Object>
         if (initializer != null) {
             value = evaluate(initializer);
         }
+        if (value != null) {
+            value = Environment.checkType(name, declaredType, value);
+        }
 
-        environment.define(name.getLexeme(), value, declaredType);
+        environment.define(name.getLexeme(), stmt.getSlot(), value, declaredType);
         // DEBUGING FEATURE: print the variable name and value
         try {
             // System.out.println("Variable " + name.getLexeme() + " = " + stringify(value) + " of type " + value.getClass().getName());
@@ -195,7 +208,7 @@ public class Interpreter implements Expr.Visitor<Object>
     }
 
     @Override
-    public Void visitMultiVar(Stmt.MultiVar stmt) {
+    public Completion visitMultiVar(Stmt.MultiVar stmt) {
         List<Token> names = stmt.getNames();
         TokenType declaredType = stmt.getDeclaredType();
 
@@ -207,14 +220,14 @@ public class Interpreter implements Expr.Visitor<Object>
             if (initializer != null) {
                 value = evaluate(initializer);
             }
-
-            // Check if variable already exists in current scope before defining
-            if (environment.existsInAnyScope(name.getLexeme())) {
-                throw new RunTimeError(name, 
-                    "Variable '" + name.getLexeme() + "' already declared in this scope.");
+            // the initial value is type checked like an assignment so the
+            // variable holds what its declared type says
+            if (value != null) {
+                value = Environment.checkType(name, declaredType, value);
             }
 
-            environment.define(name.getLexeme(), value, declaredType);
+            // Redeclarations are already reported by the Resolver
+            environment.define(name.getLexeme(), stmt.getSlot(i), value, declaredType);
 
             // DEBUGING FEATURE: print the variable name and value
             try {
@@ -228,109 +241,180 @@ public class Interpreter implements Expr.Visitor<Object>
 
     @Override
     public Object visitIncrementOrDecrementExpr(Expr.IncrementOrDecrement expr) {
-        Token variableToken = expr.getVariable().getName();
-        Object value = environment.get(variableToken);
-
-        if (!(value instanceof Integer || value instanceof Double)) {
-            throw new RunTimeError(variableToken, "Variable must be a number.");
-        }
-
-        Object newValue;
-        if (expr.getOperator().getType() == TokenType.INCREMENT) {
-            newValue = (value instanceof Integer) ?
-                (Integer) value + 1 :
-                (Double) value + 1.0;
-        } else if (expr.getOperator().getType() == TokenType.DECREMENT) {
-            newValue = (value instanceof Integer) ?
-                (Integer) value - 1 :
-                (Double) value - 1.0;
-        } else {
-            throw new RunTimeError(variableToken, "Invalid increment/decrement operator.");
+        Expr.Variable variable = expr.getVariable();
+        Token variableToken = variable.getName();
+
+        if (!variable.isResolved()) {
+            Object value = environment.get(variableToken);
+            Object newValue = Operations.increment(expr.getOperator(), variableToken, value);
+            environment.assign(variableToken, newValue);
+            return expr.isPrefix() ? newValue : value;
         }
 
-        // update the variable in the environment
-        environment.assign(variableToken, newValue);
-
-        return expr.isPrefix() ? newValue : value;
+        // the scope is found once, numbers are updated in their slot
+        Environment frame = environment.ancestor(variable.getDepth());
+        int slot = variable.getSlot();
+        int delta = expr.getOperator().getType() == TokenType.INCREMENT ? 1 : -1;
+        switch (frame.kindOf(slot, variableToken)) {
+            case Environment.INT -> {
+                int value = frame.getInt(slot, variableToken);
+                frame.setInt(slot, variableToken, value + delta);
+                return expr.isPrefix() ? value + delta : value;
+            }
+            case Environment.DOUBLE -> {
+                double value = frame.getDouble(slot, variableToken);
+                frame.setDouble(slot, variableToken, value + delta);
+                return expr.isPrefix() ? value + delta : value;
+            }
+            default -> {
+                Object value = frame.getAt(0, slot, variableToken);
+                Object newValue = Operations.increment(expr.getOperator(), variableToken, value);
+                frame.assignAt(0, slot, variableToken, newValue);
+                return expr.isPrefix() ? newValue : value;
+            }
+        }
     }
 
     @Override
-    public Void visitIfStmt(Stmt.If stmt) {
-        if (isTruthy(evaluate(stmt.getCondition()))) {
-            execute(stmt.getThenBranch());
+    public Completion visitIfStmt(Stmt.If stmt) {
+        // the branch's completion is passed on, HUNONG inside KUNG ends the loop around it
+        if (stmt.isDispatch()) {
+            Integer branch = stmt.getCases().get(lookUpVariable(stmt.getSubject()));
+            if (branch != null) return execute(stmt.getBranch(branch));
+            return stmt.getElseBranch() != null ? execute(stmt.getElseBranch()) : null;
+        }
+
+        if (Operations.isTruthy(evaluate(stmt.getCondition()))) {
+            return execute(stmt.getThenBranch());
         } 
         else if (stmt.getElseIfBranches() != null) {
             // Process all elif branches (KUNG DILI) in order
-            boolean elifBranchExecuted = false;
-            
             for (Stmt.ElseIf elifBranch : stmt.getElseIfBranches()) {
                 // Check the condition of the ELIF (KUNG DILI) branch
-                if (isTruthy(evaluate(elifBranch.getCondition()))) {
-                    execute(elifBranch.getBlock());
-                    elifBranchExecuted = true;
-                    break;  // Only execute the first matching condition
+                if (Operations.isTruthy(evaluate(elifBranch.getCondition()))) {
+                    // Only execute the first matching condition
+                    return execute(elifBranch.getBlock());
                 }
             }
             
             // If no elif branch was executed and there's an else branch, execute it
-            if (!elifBranchExecuted && stmt.getElseBranch() != null) {
-                execute(stmt.getElseBranch());
+            if (stmt.getElseBranch() != null) {
+                return execute(stmt.getElseBranch());
             }
         } 
         else if (stmt.getElseBranch() != null) {
-            execute(stmt.getElseBranch());
+            return execute(stmt.getElseBranch());
         }
         return null;
     }
 
     @Override
-    public Void visitElseIfStmt(Stmt.ElseIf stmt) {
+    public Completion visitElseIfStmt(Stmt.ElseIf stmt) {
         // to be handled within visitIfStmt
         return null;
     }
 
     @Override
-    public Void visitWhileStmt(Stmt.While stmt) {
-        while (isTruthy(evaluate(stmt.getCondition()))) {
-            try {
-                execute(stmt.getBody());
-            } catch (BreakException e) {
-                break;
-            } catch (ContinueException e) {
-                // Continue to the next iteration
-            }
+    public Completion visitWhileStmt(Stmt.While stmt) {
+        Environment frame = loopFrame(stmt.getBody());
+
+        while (Operations.isTruthy(evaluate(stmt.getCondition()))) {
+            // CONTINUE needs nothing, the next iteration starts anyway
+            if (executeBody(stmt.getBody(), frame) == Completion.BREAK) break;
         }
         return null;
     }
 
     @Override
-    public Void visitDoWhileStmt(Stmt.DoWhile stmt) {
+    public Completion visitDoWhileStmt(Stmt.DoWhile stmt) {
+        Environment frame = loopFrame(stmt.getBody());
+
         do {
-            try {
-                execute(stmt.getBody());
-            } catch (BreakException e) {
-                break;
-            } catch (ContinueException e) {
-                // Continue to the next iteration
-            }
-        } while (isTruthy(evaluate(stmt.getCondition())));
+            if (executeBody(stmt.getBody(), frame) == Completion.BREAK) break;
+        } while (Operations.isTruthy(evaluate(stmt.getCondition())));
         return null;
     }
 
     @Override
-    public Void visitBreakStmt(Stmt.Break stmt) {
-        throw new BreakException();
+    public Completion visitForStmt(Stmt.For stmt) {
+        if (!stmt.isScoped()) {
+            runFor(stmt);
+            return null;
+        }
+
+        // the counter was declared in the initializer, it lives in the loop's scope
+        Environment previous = environment;
+        try {
+            environment = Environment.create(environment, stmt.getSlotCount());
+            runFor(stmt);
+        } finally {
+            environment = previous;
+        }
+        return null;
+    }
+
+    private void runFor(Stmt.For stmt) {
+        if (stmt.getInitializer() != null) {
+            execute(stmt.getInitializer());
+        }
+
+        if (stmt.isCounted() && countedLoop(stmt)) return;
+
+        Environment frame = loopFrame(stmt.getBody());
+        while (stmt.getCondition() == null || Operations.isTruthy(evaluate(stmt.getCondition()))) {
+            // PADAYON still runs the increment
+            if (executeBody(stmt.getBody(), frame) == Completion.BREAK) break;
+            if (stmt.getIncrement() != null) {
+                execute(stmt.getIncrement());
+            }
+        }
+    }
+
+    // Counted loop, the counter is kept in a local int and written back to
+    // its variable after every step so the body still sees it. The Resolver
+    // made sure the body never assigns the counter or the bound.
+    // Returns false when the values do not allow it, the generic loop then runs instead.
+    private boolean countedLoop(Stmt.For stmt) {
+        Expr.Variable counter = stmt.getCounter();
+        Token name = counter.getName();
+        int slot = counter.getSlot();
+        Environment scope = environment.ancestor(counter.getDepth());
+
+        // the counter could still be null
+        if (scope.kindOf(slot, name) != Environment.INT) return false;
+        Object bound = evaluate(stmt.getBound());
+        if (!(bound instanceof Integer)) return false;
+
+        int limit = (Integer) bound;
+        int step = stmt.getStep();
+        Token comparison = ((Expr.Binary) stmt.getCondition()).getOperator();
+        Stmt body = stmt.getBody();
+        Environment frame = loopFrame(body);
+
+        int i = scope.getInt(slot, name);
+        while (Operations.compare(i, limit, comparison)) {
+            if (executeBody(body, frame) == Completion.BREAK) break;
+            i += step;
+            scope.setInt(slot, name, i);
+        }
+        return true;
+    }
+
+    @Override
+    public Completion visitBreakStmt(Stmt.Break stmt) {
+        return Completion.BREAK;
     }
 
     @Override
-    public Void visitContinueStmt(Stmt.Continue stmt) {
-        throw new ContinueException();
+    public Completion visitContinueStmt(Stmt.Continue stmt) {
+        return Completion.CONTINUE;
     }
 
     @Override
-    public Void visitScanStmt(Stmt.Scan stmt) {
+    public Completion visitScanStmt(Stmt.Scan stmt) {
         // System.out.print(""); // Optionally keep prompt on same line
 
+        Output.flush();
         String input = scanner.nextLine();
         // split by comma
         String[] parts = input.split(",");
@@ -341,77 +425,191 @@ public class Interpreter implements Expr.Visitor<Object>
 
         for (int i = 0; i < stmt.getNames().size(); i++) {
             parts[i] = parts[i].trim(); // trim whitespace
-            environment.assign(stmt.getNames().get(i), parts[i]);
+            if (stmt.isResolved(i)) {
+                environment.assignAt(stmt.getDepth(i), stmt.getSlot(i), stmt.getNames().get(i), parts[i]);
+            } else {
+                environment.assign(stmt.getNames().get(i), parts[i]);
+            }
         }
         return null;
     }
 
 
-    // Helper functions -----------------------------------------------------
+    // Typed paths -----------------------------------------------------------
+    // Pure number expressions (literals, NUMERO and TIPIK variables and
+    // arithmetic on them) are computed with int and double directly,
+    // reading and writing the unboxed variable slots.
 
-    // Used for type fidelity
-    private Object numberArithmetic(Object left, Object right, Token operator) {
-        TokenType type = operator.getType();
+    // only call when numericKind(expr) is INT
+    private int evaluateInt(Expr expr) {
+        if (expr instanceof Expr.Variable variable) {
+            Environment frame = environment.ancestor(variable.getDepth());
+            if (frame.kindOf(variable.getSlot(), variable.getName()) != Environment.INT) {
+                throw NotUnboxedException.INSTANCE;
+            }
+            return frame.getInt(variable.getSlot(), variable.getName());
+        }
+        if (expr instanceof Expr.Literal literal) {
+            return (Integer) literal.getValue();
+        }
+        if (expr instanceof Expr.Binary binary) {
+            int l = evaluateInt(binary.getLeft());
+            int r = evaluateInt(binary.getRight());
+            return Operations.intArithmetic(l, r, binary.getOperator());
+        }
+        if (expr instanceof Expr.Grouping grouping) {
+            return evaluateInt(grouping.getExpression());
+        }
+        return -evaluateInt(((Expr.Unary) expr).getRight());
+    }
 
-        // Check if both operands are numbers
-        if (!(left instanceof Number) || !(right instanceof Number)) {
-            throw new RunTimeError(operator, "Operands must be numbers.");
+    // only call when numericKind(expr) is INT or DOUBLE. The NUMERO parts
+    // are still computed with int arithmetic, whether the value it returned
+    // was one is left in doubleWasInt so the kinds are found on the way up
+    // instead of asking numericKind again at every level.
+    private boolean doubleWasInt;
+
+    private double evaluateDouble(Expr expr) {
+        if (expr instanceof Expr.Variable variable) {
+            Environment frame = environment.ancestor(variable.getDepth());
+            int kind = frame.kindOf(variable.getSlot(), variable.getName());
+            if (kind != Environment.INT && kind != Environment.DOUBLE) {
+                throw NotUnboxedException.INSTANCE;
+            }
+            doubleWasInt = variable.getDeclaredType() == TokenType.INTEGER;
+            return frame.getDouble(variable.getSlot(), variable.getName());
+        }
+        if (expr instanceof Expr.Literal literal) {
+            doubleWasInt = literal.getValue() instanceof Integer;
+            return ((Number) literal.getValue()).doubleValue();
         }
+        if (expr instanceof Expr.Binary binary) {
+            double l = evaluateDouble(binary.getLeft());
+            boolean leftWasInt = doubleWasInt;
+            double r = evaluateDouble(binary.getRight());
+            // Integer op Integer stays an Integer, even inside a double expression
+            if (leftWasInt && doubleWasInt) {
+                return Operations.intArithmetic((int) l, (int) r, binary.getOperator());
+            }
+            doubleWasInt = false;
+            return Operations.doubleArithmetic(l, r, binary.getOperator());
+        }
+        if (expr instanceof Expr.Grouping grouping) {
+            return evaluateDouble(grouping.getExpression());
+        }
+        double value = evaluateDouble(((Expr.Unary) expr).getRight());
+        return doubleWasInt ? -(int) value : -value;
+    }
 
-        boolean leftIsInt = left instanceof Integer;
-        boolean rightIsInt = right instanceof Integer;
+    // Binary operator on two pure number operands.
+    // Returns null if it has to go through the boxed path instead.
+    private Object unboxedBinary(Expr.Binary expr, boolean ints) {
+        Token operator = expr.getOperator();
 
-        // Integer + Integer = Integer
-        if (leftIsInt && rightIsInt) {
-            int l = (int) left;
-            int r = (int) right;
-            return switch (type) {
-                case PLUS -> l + r;
-                case MINUS -> l - r;
-                case MULTIPLY -> l * r;
-                case DIVIDE -> {
-                    if (r == 0) throw new RunTimeError(operator, "Division by zero.");
-                    yield l / r;
+        try {
+            switch (operator.getType()) {
+                case PLUS, MINUS, MULTIPLY, DIVIDE, MODULO -> {
+                    if (ints) return evaluateInt(expr);
+                    return evaluateDouble(expr);
+                }
+                case GREATER, GREATER_EQUAL, LESS, LESS_EQUAL -> {
+                    if (ints) {
+                        int l = evaluateInt(expr.getLeft());
+                        int r = evaluateInt(expr.getRight());
+                        return Operations.compare(l, r, operator);
+                    }
+                    double l = evaluateDouble(expr.getLeft());
+                    double r = evaluateDouble(expr.getRight());
+                    return Operations.compare(l, r, operator);
+                }
+                case EQUAL, NOT_EQUAL -> {
+                    // an Integer is never equal to a Double, leave that to isEqual
+                    if (!ints) return null;
+                    boolean equal = evaluateInt(expr.getLeft()) == evaluateInt(expr.getRight());
+                    return operator.getType() == TokenType.EQUAL ? equal : !equal;
                 }
-                case MODULO -> {
-                    if (r == 0) throw new RunTimeError(operator, "Division by zero.");
-                    yield l % r;
+                default -> {
+                    return null;
                 }
-                case GREATER -> l > r;
-                case GREATER_EQUAL -> l >= r;
-                case LESS -> l < r;
-                case LESS_EQUAL -> l <= r;
-                default -> throw new RunTimeError(operator, "Unsupported operator for integers.");
-            };
-        }
-
-        // Otherwise, convert both to double
-        double l = toDouble(left);
-        double r = toDouble(right);
-        return switch (type) {
-            case PLUS -> l + r;
-            case MINUS -> l - r;
-            case MULTIPLY -> l * r;
-            case DIVIDE -> {
-                if (r == 0) throw new RunTimeError(operator, "Division by zero.");
-                yield l / r;
             }
-            case MODULO -> {
-                if (r == 0) throw new RunTimeError(operator, "Division by zero.");
-                yield l % r;
+        } catch (NotUnboxedException e) {
+            // pure expression, safe to evaluate again the boxed way
+            return null;
+        }
+    }
+
+    // x = <number expression> without boxing the new value
+    private boolean assignUnboxed(Expr.Assign expr) {
+        if (!expr.isResolved()) return false;
+
+        int kind = Operations.numericKind(expr.getValue());
+        if (kind == Operations.OTHER) return false;
+
+        try {
+            if (kind == Operations.INT) {
+                int value = evaluateInt(expr.getValue());
+                environment.ancestor(expr.getDepth()).setInt(expr.getSlot(), expr.getName(), value);
+            } else {
+                double value = evaluateDouble(expr.getValue());
+                environment.ancestor(expr.getDepth()).setDouble(expr.getSlot(), expr.getName(), value);
             }
-            case GREATER -> l > r;
-            case GREATER_EQUAL -> l >= r;
-            case LESS -> l < r;
-            case LESS_EQUAL -> l <= r;
-            default -> throw new RunTimeError(operator, "Unsupported operator for doubles.");
-        };
+        } catch (NotUnboxedException e) {
+            return false;
+        }
+        return true;
     }
 
-    private double toDouble(Object number) {
-        if (number instanceof Integer) return ((Integer) number).doubleValue();
-        if (number instanceof Double) return (Double) number;
-        throw new RuntimeException("Expected number, got: " + number.getClass().getSimpleName());
+    // x += <number expression> without boxing, NUMERO += NUMERO and
+    // TIPIK += any number
+    private boolean compoundUnboxed(Expr.CompoundAssign expr) {
+        if (!expr.isResolved()) return false;
+
+        int kind = Operations.numericKind(expr.getValue());
+        if (kind == Operations.OTHER) return false;
+
+        Environment frame = environment.ancestor(expr.getDepth());
+        int slot = expr.getSlot();
+        Token name = expr.getName();
+        try {
+            switch (frame.kindOf(slot, name)) {
+                case Environment.INT -> {
+                    if (kind != Operations.INT) return false;
+                    int value = evaluateInt(expr.getValue());
+                    frame.setInt(slot, name, Operations.intArithmetic(frame.getInt(slot, name), value, expr.getOperator()));
+                }
+                case Environment.DOUBLE -> {
+                    double value = evaluateDouble(expr.getValue());
+                    frame.setDouble(slot, name, Operations.doubleArithmetic(frame.getDouble(slot, name), value, expr.getOperator()));
+                }
+                default -> {
+                    return false;
+                }
+            }
+        } catch (NotUnboxedException e) {
+            return false;
+        }
+        return true;
+    }
+
+    // x++ / ++x on a number variable without boxing
+    private boolean updateUnboxed(Expr.IncrementOrDecrement expr) {
+        Expr.Variable variable = expr.getVariable();
+        if (!variable.isResolved()) return false;
+
+        Environment frame = environment.ancestor(variable.getDepth());
+        int slot = variable.getSlot();
+        int kind = frame.kindOf(slot, variable.getName());
+        int delta = expr.getOperator().getType() == TokenType.INCREMENT ? 1 : -1;
+
+        if (kind == Environment.INT) {
+            frame.setInt(slot, variable.getName(), frame.getInt(slot, variable.getName()) + delta);
+            return true;
+        }
+        if (kind == Environment.DOUBLE) {
+            frame.setDouble(slot, variable.getName(), frame.getDouble(slot, variable.getName()) + delta);
+            return true;
+        }
+        return false;
     }
 
     private Object evaluate(Expr expr) {
@@ -421,69 +619,101 @@ public class Interpreter implements Expr.Visitor<Object>
         return result;
     }
 
-    private void execute(Stmt stmt) {
-        stmt.accept(this);
+    private Completion execute(Stmt stmt) {
+        return stmt.accept(this);
     }
 
     @Override
-    public Void visitBlockStmt(Stmt.Block stmt) {
-        executeBlock(stmt.getStatements(), new Environment(environment));
-        return null;
+    public Completion visitBlockStmt(Stmt.Block stmt) {
+        if (!stmt.isScoped()) {
+            // nothing is declared in the block, it does not need a scope of its own
+            return executeStatements(stmt.getStatements());
+        }
+        return executeBlock(stmt.getStatements(), Environment.create(environment, stmt.getSlotCount()));
     }
 
-    void executeBlock(List<Stmt> statements, Environment environment) {
+    Completion executeBlock(List<Stmt> statements, Environment environment) {
         Environment previous = this.environment;
         try {
         this.environment = environment;
 
-        for (Stmt statement : statements) {
-            execute(statement);
-        }
+        return executeStatements(statements);
         } finally {
             this.environment = previous;
         }
     }
 
-    @Override
-    public Void visitExpressionStmt(Stmt.Expression stmt) {
-        evaluate(stmt.getExpression());
+    // indexed loop, an iterator per block adds up inside loops.
+    // Stops at the first HUNONG or PADAYON and returns it.
+    private Completion executeStatements(List<Stmt> statements) {
+        for (int i = 0; i < statements.size(); i++) {
+            Completion completion = execute(statements.get(i));
+            if (completion != null) return completion;
+        }
         return null;
     }
 
-    @Override
-    public Void visitPrintStmt(Stmt.Print stmt) {
-        Object value = evaluate(stmt.getExpression());
-        String result = stringify(value);
-        System.out.print(result); 
+    // A loop body that has its own scope gets one frame for the whole loop,
+    // cleared at the start of every iteration instead of a new one each time.
+    // Returns null when the body does not need a frame.
+    private Environment loopFrame(Stmt body) {
+        if (frameReuse && body instanceof Stmt.Block block && block.isScoped()) {
+            return Environment.create(environment, block.getSlotCount());
+        }
         return null;
     }
 
-    private boolean isEqual(Object left, Object right) {
-        if (left == null && right == null) return true;
-        if (left == null) return false;
-        return left.equals(right);
+    private Completion executeBody(Stmt body, Environment frame) {
+        if (frame == null) {
+            return execute(body);
+        }
+        frame.reset();
+        return executeBlock(((Stmt.Block) body).getStatements(), frame);
     }
 
-    private String stringify(Object object) {
-        // System.out.println("Stringifying object: " + object + " (Type: " + (object != null ? object.getClass().getName() : "null") + ")");
+    @Override
+    public Completion visitExpressionStmt(Stmt.Expression stmt) {
+        Expr expr = stmt.getExpression();
 
-        if (object == null) return "null";
+        // x = x + 1, x += 1 and x++ as statements do not need their value,
+        // so the new value can be stored without boxing it
+        if (expr instanceof Expr.Assign assign && assignUnboxed(assign)) return null;
+        if (expr instanceof Expr.CompoundAssign compound && compoundUnboxed(compound)) return null;
+        if (expr instanceof Expr.IncrementOrDecrement update && updateUnboxed(update)) return null;
 
-        // maybe change this to OO or DILI??
-        if (object instanceof Boolean) return (boolean) object ? "OO" : "DILI";
+        evaluate(expr);
+        return null;
+    }
 
-        if (object instanceof Double) {
-            String text = object.toString();
-            if (text.endsWith(".0")) {
-                text = text.substring(0, text.length() - 2); // remove trailing ".0"
+    @Override
+    public Completion visitPrintStmt(Stmt.Print stmt) {
+        // a & chain is printed part by part, its joined text is never built
+        if (stmt.getExpression() instanceof Expr.Concat concat) {
+            for (Expr part : concat.getParts()) {
+                print(part);
             }
-            return text;
+        } else {
+            print(stmt.getExpression());
         }
+        Output.end();
+        return null;
+    }
 
-        if (object instanceof Integer) return object.toString();
-        if (object instanceof Character) return object.toString();
-        if (object instanceof String) return (String) object;
-
-        return object.toString();
+    // One printed value, a number expression is written without boxing it
+    private void print(Expr expr) {
+        int kind = Operations.numericKind(expr);
+        if (kind != Operations.OTHER) {
+            try {
+                if (kind == Operations.INT) {
+                    Output.write(evaluateInt(expr));
+                } else {
+                    Output.write(evaluateDouble(expr));
+                }
+                return;
+            } catch (NotUnboxedException e) {
+                // pure expression, safe to evaluate again the boxed way
+            }
+        }
+        Output.write(evaluate(expr));
     }
 }
@@ -0,0 +1,14 @@
+package Interpreter;
+
+// Thrown when an unboxed evaluation runs into a value it cannot handle
+// (a variable that is still null), the engine then falls back to the
+// boxed path. Shared and stackless since it is only a signal.
+public class NotUnboxedException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public static final NotUnboxedException INSTANCE = new NotUnboxedException();
+
+    private NotUnboxedException() {
+        super(null, null, false, false);
+    }
+}
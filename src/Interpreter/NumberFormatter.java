@@ -0,0 +1,176 @@
+/*
+ * NumberFormatter
+ * Writes numbers the way stringify prints them, straight into a
+ * StringBuilder or a byte buffer, without the Strings Integer.toString and
+ * Double.toString make.
+ *
+ * A double is written as its shortest decimal that reads back as the same
+ * double, the digits Double.toString picks too. It is only done here for
+ * the values Double.toString writes without an exponent (1.0E-3 <= |v| <
+ * 1.0E7) and whose digits fit in a long that a double holds exactly, which
+ * covers what programs usually print. The rest (exponents, NaN, Infinity,
+ * 17 digit values) still goes through Double.toString, so the text is
+ * exactly the same either way: 4 and not 4.0, 0.5, 1.0E7.
+ */
+package Interpreter;
+
+public final class NumberFormatter {
+    private NumberFormatter() {}
+
+    private static final double[] POWERS = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    // digits of a double are kept below this, every long under it is an
+    // exact double
+    private static final long MAX_DIGITS = 1L << 53;
+
+    public static void format(int value, StringBuilder builder) {
+        builder.append(value);
+    }
+
+    public static void format(double value, StringBuilder builder) {
+        long decimal = decimal(value);
+        if (decimal < 0) {
+            // Double.toString case, with the ".0" of whole numbers trimmed
+            builder.append(value);
+            int length = builder.length();
+            if (builder.charAt(length - 2) == '.' && builder.charAt(length - 1) == '0') {
+                builder.setLength(length - 2);
+            }
+            return;
+        }
+
+        int scale = (int) (decimal & 0x1F);
+        long digits = decimal >>> 5;
+        if (value < 0 || (value == 0 && 1 / value < 0)) builder.append('-');
+        if (scale == 0) {
+            builder.append(digits);
+            return;
+        }
+
+        long unit = (long) POWERS[scale];
+        builder.append(digits / unit).append('.');
+        long fraction = digits % unit;
+        for (long zeros = unit / 10; zeros > fraction; zeros /= 10) {
+            builder.append('0');
+        }
+        builder.append(fraction);
+    }
+
+    // Writes value at buffer[at], returns the position after it. Room for
+    // 11 bytes is needed.
+    public static int format(int value, byte[] buffer, int at) {
+        // digits are made from the negative value so MIN_VALUE works too
+        int negative = value < 0 ? value : -value;
+        if (value < 0) buffer[at++] = '-';
+        int end = at + digits(negative);
+        int position = end;
+        do {
+            buffer[--position] = (byte) ('0' - negative % 10);
+            negative /= 10;
+        } while (negative != 0);
+        return end;
+    }
+
+    // Writes value at buffer[at], returns the position after it, or -1 when
+    // it is a value for Double.toString (see above). Room for 24 bytes is
+    // needed.
+    public static int format(double value, byte[] buffer, int at) {
+        long decimal = decimal(value);
+        if (decimal < 0) return -1;
+
+        int scale = (int) (decimal & 0x1F);
+        long digits = decimal >>> 5;
+        if (value < 0 || (value == 0 && 1 / value < 0)) buffer[at++] = '-';
+
+        // whole part, then the fraction padded with zeros to scale digits
+        long unit = (long) POWERS[scale];
+        at = format(digits / unit, buffer, at);
+        if (scale == 0) return at;
+
+        buffer[at++] = '.';
+        long fraction = digits % unit;
+        for (int i = at + scale - 1; i >= at; i--) {
+            buffer[i] = (byte) ('0' + fraction % 10);
+            fraction /= 10;
+        }
+        return at + scale;
+    }
+
+    private static int format(long value, byte[] buffer, int at) {
+        int end = at + digits(value);
+        int position = end;
+        do {
+            buffer[--position] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        return end;
+    }
+
+    // The shortest decimal digits * 10^-scale that reads back as |value|,
+    // packed as digits << 5 | scale, or -1 when it is not written here
+    private static long decimal(double value) {
+        double magnitude = Math.abs(value);
+        if (magnitude == 0) return 0;
+        if (!(magnitude >= 1e-3 && magnitude < 1e7)) return -1;
+
+        // most printed values have a few decimals at most (2.5, 12.75),
+        // trying those first is cheaper than cutting the zeros off below
+        for (int scale = 0; scale <= 3; scale++) {
+            long digits = Math.round(magnitude * POWERS[scale]);
+            if (digits / POWERS[scale] == magnitude) return digits << 5 | scale;
+        }
+
+        // 10^exponent <= magnitude < 10^(exponent + 1)
+        int exponent;
+        if (magnitude >= 1) {
+            exponent = 0;
+            while (exponent < 6 && magnitude >= POWERS[exponent + 1]) exponent++;
+        } else {
+            exponent = magnitude >= 1e-1 ? -1 : magnitude >= 1e-2 ? -2 : -3;
+        }
+
+        // With 15 digits magnitude * 10^scale is off from a whole number by
+        // far less than 0.5, so when a decimal of at most 15 digits reads
+        // back as magnitude this rounds to it followed by zeros. Both are
+        // exact doubles, so the division rounds the decimal to the nearest
+        // double once, like reading it back does.
+        int scale = 14 - exponent;
+        long digits = Math.round(magnitude * POWERS[scale]);
+        if (digits / POWERS[scale] == magnitude) {
+            while (scale > 0 && digits % 10 == 0) {
+                digits /= 10;
+                scale--;
+            }
+            return digits << 5 | scale;
+        }
+
+        // otherwise it takes 16 or 17 digits, only 16 are done here
+        scale++;
+        digits = Math.round(magnitude * POWERS[scale]);
+        if (digits < MAX_DIGITS && digits / POWERS[scale] == magnitude) return digits << 5 | scale;
+        return -1;
+    }
+
+    // number of digits of a value <= 0
+    private static int digits(int negative) {
+        int count = 1;
+        while (negative <= -10) {
+            negative /= 10;
+            count++;
+        }
+        return count;
+    }
+
+    // number of digits of a value >= 0
+    private static int digits(long value) {
+        int count = 1;
+        while (value >= 10) {
+            value /= 10;
+            count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,318 @@
+/*
+ * Operations
+ * The runtime semantics of Baithon's operators and values, shared by every
+ * engine so they all compute, compare and print values the same way:
+ * - the tree walking Interpreter
+ * - the closure tree in Nodes
+ */
+package Interpreter;
+
+import Lexers.Token;
+import Lexers.TokenType;
+import Parsers.Expr;
+
+public final class Operations {
+    private Operations() {}
+
+    // Result kinds of pure number expressions (literals, NUMERO and TIPIK
+    // variables and arithmetic on them), which engines can compute with int
+    // and double directly instead of boxing every intermediate value.
+    public static final int OTHER = 0;
+    public static final int INT = 1;
+    public static final int DOUBLE = 2;
+
+    // Works out whether expr is a pure number expression and if its result
+    // is an int or a double. Declarations and assignments are type checked,
+    // so the declared type of a variable says what it holds unless it is
+    // still null, which the evaluate methods check.
+    public static int numericKind(Expr expr) {
+        if (expr instanceof Expr.Literal literal) {
+            Object value = literal.getValue();
+            if (value instanceof Integer) return INT;
+            if (value instanceof Double) return DOUBLE;
+            return OTHER;
+        }
+        if (expr instanceof Expr.Variable variable) {
+            if (variable.getDeclaredType() == TokenType.INTEGER) return INT;
+            if (variable.getDeclaredType() == TokenType.FLOAT) return DOUBLE;
+            return OTHER;
+        }
+        if (expr instanceof Expr.Grouping grouping) {
+            return numericKind(grouping.getExpression());
+        }
+        if (expr instanceof Expr.Unary unary && unary.getOperator().getType() == TokenType.MINUS) {
+            return numericKind(unary.getRight());
+        }
+        if (expr instanceof Expr.Binary binary) {
+            switch (binary.getOperator().getType()) {
+                case PLUS, MINUS, MULTIPLY, DIVIDE, MODULO -> {
+                    int left = numericKind(binary.getLeft());
+                    if (left == OTHER) return OTHER;
+                    int right = numericKind(binary.getRight());
+                    if (right == OTHER) return OTHER;
+                    return left == INT && right == INT ? INT : DOUBLE;
+                }
+                default -> {
+                    return OTHER;
+                }
+            }
+        }
+        return OTHER;
+    }
+
+    // Binary operator on two already evaluated operands
+    public static Object binary(Object left, Object right, Token operator) {
+        // Left     Right   Result
+        // Integer	Integer	Integer
+        // Integer	Double	Double
+        // Double	Integer	Double
+        // Double	Double	Double
+
+        switch (operator.getType()) {
+            case PLUS:
+                if (left instanceof String || right instanceof String) {
+                    if (!(left instanceof String) || !(right instanceof String)) {
+                        throw new RunTimeError(operator,
+                        "Type mismatch: Cannot concatenate " + left.getClass().getSimpleName() +
+                        " with " + right.getClass().getSimpleName());
+                    }
+                    return (String) left + (String) right;
+                }
+                if (left instanceof Character && right instanceof Character) {
+                    return (char) ((Character) left + (Character) right);
+                }
+                return numberArithmetic(left, right, operator);
+            case MINUS,MULTIPLY,DIVIDE,MODULO,GREATER,GREATER_EQUAL,LESS,LESS_EQUAL:
+                return numberArithmetic(left, right, operator);
+            case EQUAL:
+                return isEqual(left, right);
+            case NOT_EQUAL:
+                return !isEqual(left, right);
+            case CONCAT:
+                return stringify(left) + stringify(right);
+            case NEW_LINE:
+                // System.out.print("Stringify NEW_LINE: " + stringify(left) + stringify(right));
+                String leftString = stringify(left).stripTrailing();
+                String rightString = stringify(right).stripLeading();
+                return leftString + rightString;
+            case ESCAPE:
+                // Insert the escape sequence literal between left and right parts.
+                String escapeValue = operator.getLiteral() != null
+                ? (String) operator.getLiteral()
+                : ""; // default to "&" if none provided
+                return stringify(left) + escapeValue + stringify(right);
+            default:
+                throw new RunTimeError(operator, "Unknown operator: " + operator.getLexeme());
+            }
+    }
+
+    // Unary operator on an already evaluated operand
+    public static Object unary(Token operator, Object right) {
+        switch (operator.getType()) {
+            case MINUS:
+                checkNumberOperand(operator, right);
+                if (right instanceof Integer) {
+                    return - (Integer) right;
+                } else {
+                    return - (Double) right;
+                }
+            case NOT:
+                return !(boolean) isTruthy(right);
+        }
+
+        return null;
+    }
+
+    // New value of a ++ or -- on the variable name currently holding value
+    public static Object increment(Token operator, Token name, Object value) {
+        if (!(value instanceof Integer || value instanceof Double)) {
+            throw new RunTimeError(name, "Variable must be a number.");
+        }
+
+        if (operator.getType() == TokenType.INCREMENT) {
+            return (value instanceof Integer) ?
+                (Integer) value + 1 :
+                (Double) value + 1.0;
+        } else if (operator.getType() == TokenType.DECREMENT) {
+            return (value instanceof Integer) ?
+                (Integer) value - 1 :
+                (Double) value - 1.0;
+        }
+        throw new RunTimeError(name, "Invalid increment/decrement operator.");
+    }
+
+    public static void checkNumberOperand(Token operator, Object operand) {
+        if (operand instanceof Number) return;
+        throw new RunTimeError(operator, "Operand must be a number.");
+    }
+
+    public static boolean isTruthy(Object object) {
+        if (object == null) return false;
+        if (object instanceof Boolean) return (boolean)object;
+        return true;
+    }
+
+    public static boolean isEqual(Object left, Object right) {
+        if (left == null && right == null) return true;
+        if (left == null) return false;
+        return left.equals(right);
+    }
+
+    public static String stringify(Object object) {
+        // System.out.println("Stringifying object: " + object + " (Type: " + (object != null ? object.getClass().getName() : "null") + ")");
+
+        if (object == null) return "null";
+
+        // maybe change this to OO or DILI??
+        if (object instanceof Boolean) return (boolean) object ? "OO" : "DILI";
+
+        if (object instanceof Double) {
+            // 4 and not 4.0, see NumberFormatter
+            StringBuilder text = new StringBuilder(24);
+            NumberFormatter.format((double) object, text);
+            return text.toString();
+        }
+
+        if (object instanceof Integer) return object.toString();
+        if (object instanceof Character) return object.toString();
+        if (object instanceof String) return (String) object;
+
+        return object.toString();
+    }
+
+    // stringify(object) written into builder, numbers and characters go in
+    // without a String of their own
+    public static void stringify(Object object, StringBuilder builder) {
+        if (object instanceof Integer number) {
+            builder.append(number.intValue());
+        } else if (object instanceof Double number) {
+            stringify(number.doubleValue(), builder);
+        } else if (object instanceof Character character) {
+            builder.append(character.charValue());
+        } else {
+            builder.append(stringify(object));
+        }
+    }
+
+    // the same text as stringify gives a Double, 4 and not 4.0
+    public static void stringify(double number, StringBuilder builder) {
+        NumberFormatter.format(number, builder);
+    }
+
+    // Used for type fidelity
+    public static Object numberArithmetic(Object left, Object right, Token operator) {
+        TokenType type = operator.getType();
+
+        // Check if both operands are numbers
+        if (!(left instanceof Number) || !(right instanceof Number)) {
+            throw new RunTimeError(operator, "Operands must be numbers.");
+        }
+
+        boolean leftIsInt = left instanceof Integer;
+        boolean rightIsInt = right instanceof Integer;
+
+        // Integer + Integer = Integer
+        if (leftIsInt && rightIsInt) {
+            int l = (int) left;
+            int r = (int) right;
+            return switch (type) {
+                case PLUS -> l + r;
+                case MINUS -> l - r;
+                case MULTIPLY -> l * r;
+                case DIVIDE -> {
+                    if (r == 0) throw new RunTimeError(operator, "Division by zero.");
+                    yield l / r;
+                }
+                case MODULO -> {
+                    if (r == 0) throw new RunTimeError(operator, "Division by zero.");
+                    yield l % r;
+                }
+                case GREATER -> l > r;
+                case GREATER_EQUAL -> l >= r;
+                case LESS -> l < r;
+                case LESS_EQUAL -> l <= r;
+                default -> throw new RunTimeError(operator, "Unsupported operator for integers.");
+            };
+        }
+
+        // Otherwise, convert both to double
+        double l = toDouble(left);
+        double r = toDouble(right);
+        return switch (type) {
+            case PLUS -> l + r;
+            case MINUS -> l - r;
+            case MULTIPLY -> l * r;
+            case DIVIDE -> {
+                if (r == 0) throw new RunTimeError(operator, "Division by zero.");
+                yield l / r;
+            }
+            case MODULO -> {
+                if (r == 0) throw new RunTimeError(operator, "Division by zero.");
+                yield l % r;
+            }
+            case GREATER -> l > r;
+            case GREATER_EQUAL -> l >= r;
+            case LESS -> l < r;
+            case LESS_EQUAL -> l <= r;
+            default -> throw new RunTimeError(operator, "Unsupported operator for doubles.");
+        };
+    }
+
+    public static int intArithmetic(int l, int r, Token operator) {
+        return switch (operator.getType()) {
+            case PLUS -> l + r;
+            case MINUS -> l - r;
+            case MULTIPLY -> l * r;
+            case DIVIDE -> {
+                if (r == 0) throw new RunTimeError(operator, "Division by zero.");
+                yield l / r;
+            }
+            case MODULO -> {
+                if (r == 0) throw new RunTimeError(operator, "Division by zero.");
+                yield l % r;
+            }
+            default -> throw new RunTimeError(operator, "Unsupported operator for integers.");
+        };
+    }
+
+    public static double doubleArithmetic(double l, double r, Token operator) {
+        return switch (operator.getType()) {
+            case PLUS -> l + r;
+            case MINUS -> l - r;
+            case MULTIPLY -> l * r;
+            case DIVIDE -> {
+                if (r == 0) throw new RunTimeError(operator, "Division by zero.");
+                yield l / r;
+            }
+            case MODULO -> {
+                if (r == 0) throw new RunTimeError(operator, "Division by zero.");
+                yield l % r;
+            }
+            default -> throw new RunTimeError(operator, "Unsupported operator for doubles.");
+        };
+    }
+
+    public static boolean compare(int l, int r, Token operator) {
+        return switch (operator.getType()) {
+            case GREATER -> l > r;
+            case GREATER_EQUAL -> l >= r;
+            case LESS -> l < r;
+            default -> l <= r;
+        };
+    }
+
+    public static boolean compare(double l, double r, Token operator) {
+        return switch (operator.getType()) {
+            case GREATER -> l > r;
+            case GREATER_EQUAL -> l >= r;
+            case LESS -> l < r;
+            default -> l <= r;
+        };
+    }
+
+    public static double toDouble(Object number) {
+        if (number instanceof Integer) return ((Integer) number).doubleValue();
+        if (number instanceof Double) return (Double) number;
+        throw new RuntimeException("Expected number, got: " + number.getClass().getSimpleName());
+    }
+}
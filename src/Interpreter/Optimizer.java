@@ -0,0 +1,1029 @@
+/*
+ * Optimizer
+ * This class walks the AST once, after parsing and before resolving, and
+ * folds the parts of expressions that are the same on every run:
+ * - operators on literals, e.g. (10 + 5) * -1 becomes -15 and "a" & $ becomes "a\n"
+ * - & chains, they become one Concat whose neighbouring literals are joined,
+ *   e.g. x & "-" & $ becomes Concat(x, "-\n")
+ * - UG and O with a literal on the left, e.g. DILI UG x becomes DILI
+ * - identities on operands that are always numbers, e.g. (a * b) * 1 becomes a * b
+ * - variables declared with a literal and never assigned, they become the literal
+ *
+ * With those folded it also removes what can never run:
+ * - KUNG / KUNG DILI branches whose condition is a literal
+ * - empty PUNDOK blocks, KUNG (x > 5) {} KUNG WALA {...} becomes KUNG (DILI (x > 5)) {...}
+ * - MINTRAS loops whose condition is false
+ * and hoists the parts of conditions inside loops that cannot change while
+ * the loop runs into a TINUOD declared right before the loop.
+ *
+ * Arithmetic and comparisons that a run of statements in one block computes
+ * more than once on the same operands are computed once, into a variable
+ * declared before the first statement that needs it. Any statement that
+ * assigns, increments or DAWATs an operand ends the run for that one.
+ *
+ * Folding uses Operations, so a folded value is exactly what the engines
+ * would compute. An operator whose folding throws (division by zero, a
+ * type mismatch) is left in the tree, the error is then reported when the
+ * program runs like before. Hoisted conditions and shared subexpressions
+ * are only ones that cannot throw, so computing them early is never visible.
+ */
+package Interpreter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import Lexers.Token;
+import Lexers.TokenType;
+import Main.Environment;
+import Parsers.Expr;
+import Parsers.Stmt;
+
+public class Optimizer implements Expr.Visitor<Expr>
+                                  ,Stmt.Visitor<Stmt> {
+    // What the Optimizer knows about a declared variable: its value when
+    // it never changes, its type and whether it always holds a number
+    private record Declaration(Object constant, TokenType type, boolean number) {}
+
+    // Scope stack of the declarations seen so far, the innermost scope is last
+    private final List<Map<String, Declaration>> scopes = new ArrayList<>();
+
+    // names assigned, incremented or read with DAWAT anywhere in the program,
+    // and how often each name is declared
+    private final Set<String> written = new HashSet<>();
+    private final Map<String, Integer> declarations = new HashMap<>();
+
+    // The innermost loop being optimized and what gets declared before it
+    private static final class Loop {
+        // the scopes from this index on are inside the loop
+        final int depth;
+        // names the loop assigns, its invariant conditions may not use them
+        final Set<String> written = new HashSet<>();
+        final List<Stmt> hoisted = new ArrayList<>();
+
+        Loop(int depth) {
+            this.depth = depth;
+        }
+    }
+    private Loop loop;
+    // numbers the names of the hoisted conditions and shared subexpressions
+    private int hoistedCount = 0;
+    private int commonCount = 0;
+
+    public List<Stmt> optimize(List<Stmt> statements) {
+        for (Stmt statement : statements) {
+            collectWrites(statement, written, declarations);
+        }
+
+        scopes.add(new HashMap<>());
+        List<Stmt> optimized = optimizeAll(statements);
+        scopes.remove(scopes.size() - 1);
+        return optimized;
+    }
+
+    // Statements that turned out to do nothing are left out
+    private List<Stmt> optimizeAll(List<Stmt> statements) {
+        List<Stmt> optimized = new ArrayList<>(statements.size());
+        CommonSubexpressions commons = new CommonSubexpressions();
+        for (Stmt statement : statements) {
+            Stmt result = optimize(statement);
+            if (isEmpty(result)) continue;
+            // seen right after it is optimized, while the scopes are the ones it runs in
+            commons.add(result);
+            optimized.add(result);
+        }
+        return commons.share(optimized);
+    }
+
+    private static boolean isEmpty(Stmt stmt) {
+        return stmt == null || stmt instanceof Stmt.Block block && block.getStatements().isEmpty();
+    }
+
+    private static Stmt nothing() {
+        return new Stmt.Block(new ArrayList<>());
+    }
+
+    private Stmt optimize(Stmt stmt) {
+        return stmt == null ? null : stmt.accept(this);
+    }
+
+    private Expr optimize(Expr expr) {
+        return expr == null ? null : expr.accept(this);
+    }
+
+    // Expressions -----------------------------------------------------------
+
+    @Override
+    public Expr visitAssignExpr(Expr.Assign expr) {
+        Expr value = optimize(expr.getValue());
+        if (value == expr.getValue()) return expr;
+        return new Expr.Assign(expr.getName(), value);
+    }
+
+    @Override
+    public Expr visitCompoundAssignExpr(Expr.CompoundAssign expr) {
+        Expr value = optimize(expr.getValue());
+        if (value == expr.getValue()) return expr;
+        return new Expr.CompoundAssign(expr.getName(), expr.getOperator(), value);
+    }
+
+    @Override
+    public Expr visitUnaryExpr(Expr.Unary expr) {
+        Expr right = optimize(expr.getRight());
+        if (right instanceof Expr.Literal literal) {
+            try {
+                return new Expr.Literal(Operations.unary(expr.getOperator(), literal.getValue()));
+            } catch (RunTimeError error) {
+                // -"text" still has to fail when it runs
+            }
+        }
+        if (right == expr.getRight()) return expr;
+        return new Expr.Unary(expr.getOperator(), right);
+    }
+
+    @Override
+    public Expr visitBinaryExpr(Expr.Binary expr) {
+        Expr left = optimize(expr.getLeft());
+        Expr right = optimize(expr.getRight());
+        TokenType operator = expr.getOperator().getType();
+
+        if (left instanceof Expr.Literal l && right instanceof Expr.Literal r) {
+            try {
+                return new Expr.Literal(Operations.binary(l.getValue(), r.getValue(), expr.getOperator()));
+            } catch (RunTimeError error) {
+                // left for the engines to report
+            }
+        }
+
+        if (operator == TokenType.CONCAT) {
+            List<Expr> parts = new ArrayList<>();
+            addParts(parts, left);
+            addParts(parts, right);
+            return new Expr.Concat(parts);
+        }
+
+        Expr identity = identity(left, operator, right);
+        if (identity != null) return identity;
+
+        if (left == expr.getLeft() && right == expr.getRight()) return expr;
+        return new Expr.Binary(left, expr.getOperator(), right);
+    }
+
+    @Override
+    public Expr visitConcatExpr(Expr.Concat expr) {
+        List<Expr> parts = new ArrayList<>(expr.getParts().size());
+        for (Expr part : expr.getParts()) {
+            addParts(parts, optimize(part));
+        }
+        return new Expr.Concat(parts);
+    }
+
+    // The parts of a & chain, (a & b) & c and a & (b & c) are both a, b, c.
+    // & turns every part into text, so two literals next to each other are
+    // joined into one, x & "a" & "b" is x & "ab".
+    private static void addParts(List<Expr> parts, Expr expr) {
+        Expr inner = expr;
+        while (inner instanceof Expr.Grouping grouping) inner = grouping.getExpression();
+        if (inner instanceof Expr.Concat concat) {
+            for (Expr part : concat.getParts()) {
+                addParts(parts, part);
+            }
+            return;
+        }
+
+        int last = parts.size() - 1;
+        if (expr instanceof Expr.Literal literal && last >= 0 && parts.get(last) instanceof Expr.Literal previous) {
+            String text = Operations.stringify(previous.getValue()) + Operations.stringify(literal.getValue());
+            parts.set(last, new Expr.Literal(text));
+            return;
+        }
+        parts.add(expr);
+    }
+
+    // x * 1, 1 * x, x / 1, x - 0 and, for ints, x + 0 and 0 + x. Only when x
+    // is always a number, a variable can still be null or a string and then
+    // the operator has to fail like before.
+    private static Expr identity(Expr left, TokenType operator, Expr right) {
+        switch (operator) {
+            case MULTIPLY -> {
+                if (isInt(right, 1) && isNumber(left)) return left;
+                if (isInt(left, 1) && isNumber(right)) return right;
+            }
+            case DIVIDE -> {
+                if (isInt(right, 1) && isNumber(left)) return left;
+            }
+            case MINUS -> {
+                if (isInt(right, 0) && isNumber(left)) return left;
+            }
+            // -0.0 + 0 is 0.0, so this one is only for ints
+            case PLUS -> {
+                if (isInt(right, 0) && Operations.numericKind(left) == Operations.INT && isNumber(left)) return left;
+                if (isInt(left, 0) && Operations.numericKind(right) == Operations.INT && isNumber(right)) return right;
+            }
+            default -> {}
+        }
+        return null;
+    }
+
+    private static boolean isInt(Expr expr, int value) {
+        return expr instanceof Expr.Literal literal
+            && literal.getValue() instanceof Integer number
+            && number == value;
+    }
+
+    // Expressions whose value is a number whenever they do not throw.
+    // + is not one of them, it also joins strings and characters.
+    private static boolean isNumber(Expr expr) {
+        if (expr instanceof Expr.Literal literal) {
+            return literal.getValue() instanceof Integer || literal.getValue() instanceof Double;
+        }
+        if (expr instanceof Expr.Grouping grouping) {
+            return isNumber(grouping.getExpression());
+        }
+        if (expr instanceof Expr.Unary unary) {
+            return unary.getOperator().getType() == TokenType.MINUS;
+        }
+        if (expr instanceof Expr.Binary binary) {
+            return switch (binary.getOperator().getType()) {
+                case MINUS, MULTIPLY, DIVIDE, MODULO -> true;
+                default -> false;
+            };
+        }
+        return false;
+    }
+
+    @Override
+    public Expr visitGroupingExpr(Expr.Grouping expr) {
+        Expr inner = optimize(expr.getExpression());
+        if (inner instanceof Expr.Literal) return inner;
+        if (inner == expr.getExpression()) return expr;
+        return new Expr.Grouping(inner);
+    }
+
+    @Override
+    public Expr visitLiteralExpr(Expr.Literal expr) {
+        return expr;
+    }
+
+    @Override
+    public Expr visitLogicalExpr(Expr.Logical expr) {
+        Expr left = optimize(expr.getLeft());
+        Expr right = optimize(expr.getRight());
+
+        // the left operand decides whether the right one is the result
+        if (left instanceof Expr.Literal literal) {
+            boolean truthy = Operations.isTruthy(literal.getValue());
+            boolean or = expr.getOperator().getType() == TokenType.OR;
+            return truthy == or ? left : right;
+        }
+        // c UG OO and c O DILI are c when c is always a TINUOD
+        if (right instanceof Expr.Literal literal && isCondition(left)
+                && Operations.isTruthy(literal.getValue()) == (expr.getOperator().getType() == TokenType.AND)) {
+            return left;
+        }
+
+        if (left == expr.getLeft() && right == expr.getRight()) return expr;
+        return new Expr.Logical(left, expr.getOperator(), right);
+    }
+
+    @Override
+    public Expr visitVariableExpr(Expr.Variable expr) {
+        Declaration declaration = lookUp(expr.getName().getLexeme());
+        if (declaration != null && declaration.constant() != null) {
+            return new Expr.Literal(declaration.constant());
+        }
+        return expr;
+    }
+
+    @Override
+    public Expr visitIncrementOrDecrementExpr(Expr.IncrementOrDecrement expr) {
+        return expr;
+    }
+
+    // Statements ------------------------------------------------------------
+
+    @Override
+    public Stmt visitExpressionStmt(Stmt.Expression stmt) {
+        Expr expression = optimize(stmt.getExpression());
+        if (expression == stmt.getExpression()) return stmt;
+        return new Stmt.Expression(expression);
+    }
+
+    @Override
+    public Stmt visitPrintStmt(Stmt.Print stmt) {
+        Expr expression = optimize(stmt.getExpression());
+        if (expression == stmt.getExpression()) return stmt;
+        Stmt.Print print = new Stmt.Print(expression);
+        print.setLast(stmt.isLast());
+        return print;
+    }
+
+    @Override
+    public Stmt visitVarStmt(Stmt.Var stmt) {
+        Expr initializer = optimize(stmt.getInitializer());
+        declare(stmt.getName(), stmt.getDeclaredType(), initializer);
+        if (initializer == stmt.getInitializer()) return stmt;
+        return new Stmt.Var(stmt.getName(), initializer, stmt.getDeclaredType());
+    }
+
+    @Override
+    public Stmt visitBlockStmt(Stmt.Block stmt) {
+        scopes.add(new HashMap<>());
+        List<Stmt> statements = optimizeAll(stmt.getStatements());
+        scopes.remove(scopes.size() - 1);
+        return new Stmt.Block(statements);
+    }
+
+    @Override
+    public Stmt visitMultiVar(Stmt.MultiVar stmt) {
+        List<Expr> initializers = new ArrayList<>(stmt.getInitializers().size());
+        for (int i = 0; i < stmt.getNames().size(); i++) {
+            Expr initializer = optimize(stmt.getInitializers().get(i));
+            declare(stmt.getNames().get(i), stmt.getDeclaredType(), initializer);
+            initializers.add(initializer);
+        }
+        return new Stmt.MultiVar(stmt.getNames(), initializers, stmt.getDeclaredType());
+    }
+
+    @Override
+    public Stmt visitIfStmt(Stmt.If stmt) {
+        // the branches in order, the ones whose condition is a literal are decided now
+        List<Stmt.ElseIf> branches = new ArrayList<>();
+        branches.add(new Stmt.ElseIf(stmt.getCondition(), stmt.getThenBranch()));
+        if (stmt.getElseIfBranches() != null) branches.addAll(stmt.getElseIfBranches());
+
+        List<Stmt.ElseIf> kept = new ArrayList<>();
+        Stmt elseBranch = null;
+        boolean decided = false;
+        for (Stmt.ElseIf branch : branches) {
+            Expr condition = optimize(branch.getCondition());
+            if (condition instanceof Expr.Literal literal) {
+                if (!Operations.isTruthy(literal.getValue())) continue;
+                // always taken, the branches after it never run
+                elseBranch = optimize(branch.getBlock());
+                decided = true;
+                break;
+            }
+            kept.add(new Stmt.ElseIf(hoist(condition), optimize(branch.getBlock())));
+        }
+        if (!decided) elseBranch = optimize(stmt.getElseBranch());
+        if (isEmpty(elseBranch)) elseBranch = null;
+
+        if (kept.isEmpty()) return elseBranch == null ? nothing() : elseBranch;
+
+        Stmt.ElseIf first = kept.remove(0);
+        if (kept.isEmpty() && isEmpty(first.getBlock())) {
+            // KUNG (c) {} only evaluates c, KUNG (c) {} KUNG WALA {...} is KUNG (DILI c) {...}
+            if (elseBranch == null) return new Stmt.Expression(first.getCondition());
+            Token not = new Token(TokenType.NOT, "DILI", null, 0);
+            return new Stmt.If(new Expr.Unary(not, first.getCondition()), elseBranch, null, null);
+        }
+        return new Stmt.If(first.getCondition(), first.getBlock(), kept.isEmpty() ? null : kept, elseBranch);
+    }
+
+    @Override
+    public Stmt visitElseIfStmt(Stmt.ElseIf stmt) {
+        // optimized as part of its KUNG
+        return stmt;
+    }
+
+    @Override
+    public Stmt visitWhileStmt(Stmt.While stmt) {
+        Expr condition = optimize(stmt.getCondition());
+        if (condition instanceof Expr.Literal literal && !Operations.isTruthy(literal.getValue())) {
+            return nothing();
+        }
+
+        Loop outer = enterLoop(stmt, scopes.size());
+        condition = hoist(condition);
+        Stmt body = optimize(stmt.getBody());
+        return exitLoop(outer, new Stmt.While(condition, body));
+    }
+
+    @Override
+    public Stmt visitScanStmt(Stmt.Scan stmt) {
+        return stmt;
+    }
+
+    @Override
+    public Stmt visitDoWhileStmt(Stmt.DoWhile stmt) {
+        Loop outer = enterLoop(stmt, scopes.size());
+        Stmt body = optimize(stmt.getBody());
+        Expr condition = hoist(optimize(stmt.getCondition()));
+        return exitLoop(outer, new Stmt.DoWhile(condition, body));
+    }
+
+    @Override
+    public Stmt visitForStmt(Stmt.For stmt) {
+        // the counter declared in the initializer is only visible in the loop
+        scopes.add(new HashMap<>());
+        Stmt initializer = optimize(stmt.getInitializer());
+        Loop outer = enterLoop(stmt, scopes.size() - 1);
+        Expr condition = hoist(optimize(stmt.getCondition()));
+        Stmt increment = optimize(stmt.getIncrement());
+        Stmt body = optimize(stmt.getBody());
+        Stmt result = exitLoop(outer, new Stmt.For(initializer, condition, increment, body));
+        scopes.remove(scopes.size() - 1);
+        return result;
+    }
+
+    @Override
+    public Stmt visitBreakStmt(Stmt.Break stmt) {
+        return stmt;
+    }
+
+    @Override
+    public Stmt visitContinueStmt(Stmt.Continue stmt) {
+        return stmt;
+    }
+
+    // Declarations ----------------------------------------------------------
+
+    private void declare(Token name, TokenType type, Expr initializer) {
+        Object constant = null;
+        // declared once and never written, so every use sees the initializer
+        if (initializer instanceof Expr.Literal literal
+                && literal.getValue() != null
+                && declarations.getOrDefault(name.getLexeme(), 0) == 1
+                && !written.contains(name.getLexeme())) {
+            try {
+                constant = Environment.checkType(name, type, literal.getValue());
+            } catch (RuntimeException error) {
+                // the declaration reports it when it runs
+            }
+        }
+
+        // assignments are type checked, so a number variable that starts
+        // with a number never holds anything else
+        boolean number = (type == TokenType.INTEGER || type == TokenType.FLOAT)
+            && initializer != null
+            && (isNumber(initializer) || initializer instanceof Expr.Literal literal && literal.getValue() != null);
+
+        scopes.get(scopes.size() - 1).put(name.getLexeme(), new Declaration(constant, type, number));
+    }
+
+    private Declaration lookUp(String name) {
+        return scopeOf(name) < 0 ? null : scopes.get(scopeOf(name)).get(name);
+    }
+
+    // index of the innermost scope that declares name, -1 when it is not declared
+    private int scopeOf(String name) {
+        for (int i = scopes.size() - 1; i >= 0; i--) {
+            if (scopes.get(i).containsKey(name)) return i;
+        }
+        return -1;
+    }
+
+    // Loop invariant conditions ---------------------------------------------
+
+    // depth is the first scope that belongs to the loop
+    private Loop enterLoop(Stmt stmt, int depth) {
+        Loop outer = loop;
+        loop = new Loop(depth);
+        collectWrites(stmt, loop.written, null);
+        return outer;
+    }
+
+    // The loop, after the declarations of its hoisted conditions. The block
+    // keeps them out of the scope around the loop.
+    private Stmt exitLoop(Loop outer, Stmt result) {
+        Loop done = loop;
+        loop = outer;
+        if (done.hoisted.isEmpty()) return result;
+
+        List<Stmt> statements = new ArrayList<>(done.hoisted);
+        statements.add(result);
+        return new Stmt.Block(statements);
+    }
+
+    // Replaces the parts of a condition in the current loop that cannot
+    // change while it runs with a variable set before the loop
+    private Expr hoist(Expr expr) {
+        if (loop == null || expr == null) return expr;
+
+        if (isCondition(expr) && !(expr instanceof Expr.Literal) && isInvariant(expr)) {
+            Token name = new Token(TokenType.IDENTIFIER, "$condition" + hoistedCount++, null, 0);
+            loop.hoisted.add(new Stmt.Var(name, expr, TokenType.BOOLEAN));
+            return new Expr.Variable(name);
+        }
+
+        if (expr instanceof Expr.Grouping grouping) {
+            Expr inner = hoist(grouping.getExpression());
+            return inner == grouping.getExpression() ? expr : new Expr.Grouping(inner);
+        }
+        if (expr instanceof Expr.Unary unary && unary.getOperator().getType() == TokenType.NOT) {
+            Expr right = hoist(unary.getRight());
+            return right == unary.getRight() ? expr : new Expr.Unary(unary.getOperator(), right);
+        }
+        if (expr instanceof Expr.Logical logical) {
+            Expr left = hoist(logical.getLeft());
+            Expr right = hoist(logical.getRight());
+            if (left == logical.getLeft() && right == logical.getRight()) return expr;
+            return new Expr.Logical(left, logical.getOperator(), right);
+        }
+        return expr;
+    }
+
+    // Comparisons, equality and DILI always give a TINUOD
+    private static boolean isCondition(Expr expr) {
+        if (expr instanceof Expr.Grouping grouping) return isCondition(grouping.getExpression());
+        if (expr instanceof Expr.Unary unary) return unary.getOperator().getType() == TokenType.NOT;
+        if (expr instanceof Expr.Binary binary) {
+            return switch (binary.getOperator().getType()) {
+                case EQUAL, NOT_EQUAL, LESS, LESS_EQUAL, GREATER, GREATER_EQUAL -> true;
+                default -> false;
+            };
+        }
+        return false;
+    }
+
+    // Whether expr gives the same value on every run of the current loop
+    // and cannot throw, so computing it once before the loop is the same
+    private boolean isInvariant(Expr expr) {
+        // declared outside of the loop, so it is defined when the loop starts
+        return isPure(expr, name -> {
+            int scope = scopeOf(name);
+            return scope >= 0 && scope < loop.depth && !loop.written.contains(name);
+        });
+    }
+
+    // Whether expr only reads variables, the ones readable allows, and
+    // cannot throw
+    private boolean isPure(Expr expr, Predicate<String> readable) {
+        if (expr instanceof Expr.Literal) return true;
+        if (expr instanceof Expr.Variable variable) return readable.test(variable.getName().getLexeme());
+        if (expr instanceof Expr.Grouping grouping) return isPure(grouping.getExpression(), readable);
+        if (expr instanceof Expr.Logical logical) {
+            return isPure(logical.getLeft(), readable) && isPure(logical.getRight(), readable);
+        }
+        if (expr instanceof Expr.Unary unary) {
+            if (unary.getOperator().getType() == TokenType.MINUS && !isKnownNumber(unary.getRight())) return false;
+            return isPure(unary.getRight(), readable);
+        }
+        if (expr instanceof Expr.Binary binary) {
+            switch (binary.getOperator().getType()) {
+                case EQUAL, NOT_EQUAL -> {}
+                case PLUS, MINUS, MULTIPLY, LESS, LESS_EQUAL, GREATER, GREATER_EQUAL -> {
+                    if (!isKnownNumber(binary.getLeft()) || !isKnownNumber(binary.getRight())) return false;
+                }
+                // only by a literal that is not 0
+                case DIVIDE, MODULO -> {
+                    if (!isKnownNumber(binary.getLeft())
+                            || !(binary.getRight() instanceof Expr.Literal literal)
+                            || !(literal.getValue() instanceof Number number)
+                            || number.doubleValue() == 0) {
+                        return false;
+                    }
+                }
+                default -> {
+                    return false;
+                }
+            }
+            return isPure(binary.getLeft(), readable) && isPure(binary.getRight(), readable);
+        }
+        // assignments and ++ change variables
+        return false;
+    }
+
+    // Whether expr is always a number, not null and not a string
+    private boolean isKnownNumber(Expr expr) {
+        if (expr instanceof Expr.Literal literal) {
+            return literal.getValue() instanceof Integer || literal.getValue() instanceof Double;
+        }
+        if (expr instanceof Expr.Variable variable) {
+            Declaration declaration = lookUp(variable.getName().getLexeme());
+            return declaration != null && declaration.number();
+        }
+        if (expr instanceof Expr.Grouping grouping) return isKnownNumber(grouping.getExpression());
+        if (expr instanceof Expr.Unary unary) {
+            return unary.getOperator().getType() == TokenType.MINUS && isKnownNumber(unary.getRight());
+        }
+        if (expr instanceof Expr.Binary binary) {
+            return switch (binary.getOperator().getType()) {
+                case PLUS, MINUS, MULTIPLY, DIVIDE, MODULO ->
+                    isKnownNumber(binary.getLeft()) && isKnownNumber(binary.getRight());
+                default -> false;
+            };
+        }
+        return false;
+    }
+
+    // Common subexpressions -------------------------------------------------
+
+    // An arithmetic or comparison computed by more than one statement
+    private static final class Common {
+        final Expr expr;
+        final TokenType type;
+        // the statement that computes it first and the variables it reads
+        final int first;
+        final Set<String> operands = new HashSet<>();
+        int uses = 0;
+        Token name;
+
+        Common(Expr expr, TokenType type, int first) {
+            this.expr = expr;
+            this.type = type;
+            this.first = first;
+        }
+    }
+
+    // The common subexpressions of one run of statements. Each statement is
+    // added right after it is optimized, share() then declares the ones
+    // computed more than once and reads them in every statement after.
+    private final class CommonSubexpressions {
+        // what each statement computes, by key
+        private final List<Map<String, Common>> computed = new ArrayList<>();
+        // the ones whose operands nothing has written since
+        private final Map<String, Common> available = new HashMap<>();
+        private final List<Common> all = new ArrayList<>();
+
+        void add(Stmt stmt) {
+            Set<String> declared = new HashSet<>();
+            collectDeclarations(stmt, declared);
+
+            Map<String, Common> here = new HashMap<>();
+            for (Expr expr : evaluated(stmt)) {
+                collect(expr, declared, here);
+            }
+            computed.add(here);
+
+            Set<String> writes = new HashSet<>(declared);
+            collectWrites(stmt, writes, null);
+            available.values().removeIf(common -> !Collections.disjoint(common.operands, writes));
+        }
+
+        private void collect(Expr expr, Set<String> declared, Map<String, Common> here) {
+            String key = key(expr);
+            TokenType type = commonType(expr, declared);
+            if (type != null) {
+                Common common = available.get(key);
+                if (common == null) {
+                    common = new Common(expr, type, computed.size());
+                    collectReads(expr, common.operands);
+                    available.put(key, common);
+                    all.add(common);
+                }
+                common.uses++;
+                here.put(key, common);
+            }
+
+            if (expr instanceof Expr.Binary binary) {
+                collect(binary.getLeft(), declared, here);
+                collect(binary.getRight(), declared, here);
+            } else if (expr instanceof Expr.Concat concat) {
+                for (Expr part : concat.getParts()) {
+                    collect(part, declared, here);
+                }
+            } else if (expr instanceof Expr.Logical logical) {
+                collect(logical.getLeft(), declared, here);
+                collect(logical.getRight(), declared, here);
+            } else if (expr instanceof Expr.Unary unary) {
+                collect(unary.getRight(), declared, here);
+            } else if (expr instanceof Expr.Grouping grouping) {
+                collect(grouping.getExpression(), declared, here);
+            }
+        }
+
+        // The type of the variable that can hold expr, null when expr is not
+        // worth sharing or the statement could see it change
+        private TokenType commonType(Expr expr, Set<String> declared) {
+            if (!(expr instanceof Expr.Binary binary)) return null;
+            boolean comparison = isCondition(binary);
+            boolean arithmetic = switch (binary.getOperator().getType()) {
+                case PLUS, MINUS, MULTIPLY, DIVIDE, MODULO -> isKnownNumber(binary);
+                default -> false;
+            };
+            if (!comparison && !arithmetic) return null;
+            // a variable declared by the statement itself is not there yet
+            if (!isPure(expr, name -> scopeOf(name) >= 0 && !declared.contains(name))) return null;
+            // only literals left means folding it throws
+            Set<String> reads = new HashSet<>();
+            collectReads(expr, reads);
+            if (reads.isEmpty()) return null;
+
+            if (comparison) return TokenType.BOOLEAN;
+            return isKnownInt(expr) ? TokenType.INTEGER : TokenType.FLOAT;
+        }
+
+        // The statements with the common subexpressions computed once
+        List<Stmt> share(List<Stmt> statements) {
+            List<Common> shared = new ArrayList<>();
+            for (Common common : all) {
+                if (common.uses > 1) shared.add(common);
+            }
+            // one that is only used inside another shared one is not worth a variable
+            boolean changed = true;
+            while (changed && !shared.isEmpty()) {
+                for (Common common : shared) {
+                    common.uses = 0;
+                }
+                for (int i = 0; i < statements.size(); i++) {
+                    for (Expr expr : evaluated(statements.get(i))) {
+                        countUses(expr, computed.get(i), shared);
+                    }
+                }
+                for (Common common : shared) {
+                    countUses(common.expr, computed.get(common.first), shared, true);
+                }
+                changed = shared.removeIf(common -> common.uses < 2);
+            }
+            if (shared.isEmpty()) return statements;
+
+            // smaller ones first, the bigger ones read them
+            shared.sort(Comparator.comparingInt(common -> key(common.expr).length()));
+            for (Common common : shared) {
+                common.name = new Token(TokenType.IDENTIFIER, "$common" + commonCount++, null, 0);
+            }
+
+            List<Stmt> result = new ArrayList<>(statements.size() + shared.size());
+            for (int i = 0; i < statements.size(); i++) {
+                Map<String, Common> here = computed.get(i);
+                for (Common common : shared) {
+                    if (common.first != i) continue;
+                    Expr initializer = replaceInside(common.expr, here, shared);
+                    result.add(new Stmt.Var(common.name, initializer, common.type));
+                }
+                result.add(replace(statements.get(i), here, shared));
+            }
+            return result;
+        }
+
+        private void countUses(Expr expr, Map<String, Common> here, List<Common> shared) {
+            countUses(expr, here, shared, false);
+        }
+
+        // Counts the shared ones expr reads, the outermost ones only. inside
+        // skips expr itself, for the initializer of its own variable.
+        private void countUses(Expr expr, Map<String, Common> here, List<Common> shared, boolean inside) {
+            Common common = inside ? null : here.get(key(expr));
+            if (common != null && shared.contains(common)) {
+                common.uses++;
+                return;
+            }
+            if (expr instanceof Expr.Binary binary) {
+                countUses(binary.getLeft(), here, shared);
+                countUses(binary.getRight(), here, shared);
+            } else if (expr instanceof Expr.Concat concat) {
+                for (Expr part : concat.getParts()) {
+                    countUses(part, here, shared);
+                }
+            } else if (expr instanceof Expr.Logical logical) {
+                countUses(logical.getLeft(), here, shared);
+                countUses(logical.getRight(), here, shared);
+            } else if (expr instanceof Expr.Unary unary) {
+                countUses(unary.getRight(), here, shared);
+            } else if (expr instanceof Expr.Grouping grouping) {
+                countUses(grouping.getExpression(), here, shared);
+            }
+        }
+
+        private Expr replace(Expr expr, Map<String, Common> here, List<Common> shared) {
+            Common common = here.get(key(expr));
+            if (common != null && shared.contains(common)) return new Expr.Variable(common.name);
+            return replaceInside(expr, here, shared);
+        }
+
+        private Expr replaceInside(Expr expr, Map<String, Common> here, List<Common> shared) {
+            if (expr instanceof Expr.Binary binary) {
+                Expr left = replace(binary.getLeft(), here, shared);
+                Expr right = replace(binary.getRight(), here, shared);
+                if (left == binary.getLeft() && right == binary.getRight()) return expr;
+                return new Expr.Binary(left, binary.getOperator(), right);
+            }
+            if (expr instanceof Expr.Concat concat) {
+                List<Expr> parts = new ArrayList<>(concat.getParts().size());
+                boolean changed = false;
+                for (Expr part : concat.getParts()) {
+                    Expr replaced = replace(part, here, shared);
+                    changed |= replaced != part;
+                    parts.add(replaced);
+                }
+                return changed ? new Expr.Concat(parts) : expr;
+            }
+            if (expr instanceof Expr.Logical logical) {
+                Expr left = replace(logical.getLeft(), here, shared);
+                Expr right = replace(logical.getRight(), here, shared);
+                if (left == logical.getLeft() && right == logical.getRight()) return expr;
+                return new Expr.Logical(left, logical.getOperator(), right);
+            }
+            if (expr instanceof Expr.Unary unary) {
+                Expr right = replace(unary.getRight(), here, shared);
+                return right == unary.getRight() ? expr : new Expr.Unary(unary.getOperator(), right);
+            }
+            if (expr instanceof Expr.Grouping grouping) {
+                Expr inner = replace(grouping.getExpression(), here, shared);
+                return inner == grouping.getExpression() ? expr : new Expr.Grouping(inner);
+            }
+            return expr;
+        }
+
+        // stmt with the expressions evaluated() gives replaced
+        private Stmt replace(Stmt stmt, Map<String, Common> here, List<Common> shared) {
+            if (here.isEmpty()) return stmt;
+
+            if (stmt instanceof Stmt.Print print) {
+                Stmt.Print replaced = new Stmt.Print(replace(print.getExpression(), here, shared));
+                replaced.setLast(print.isLast());
+                return replaced;
+            }
+            if (stmt instanceof Stmt.Expression expression) {
+                if (expression.getExpression() instanceof Expr.Assign assign) {
+                    return new Stmt.Expression(new Expr.Assign(assign.getName(), replace(assign.getValue(), here, shared)));
+                }
+                return new Stmt.Expression(replace(expression.getExpression(), here, shared));
+            }
+            if (stmt instanceof Stmt.Var var) {
+                return new Stmt.Var(var.getName(), replace(var.getInitializer(), here, shared), var.getDeclaredType());
+            }
+            if (stmt instanceof Stmt.MultiVar multiVar) {
+                List<Expr> initializers = new ArrayList<>(multiVar.getInitializers().size());
+                for (Expr initializer : multiVar.getInitializers()) {
+                    initializers.add(initializer == null ? null : replace(initializer, here, shared));
+                }
+                return new Stmt.MultiVar(multiVar.getNames(), initializers, multiVar.getDeclaredType());
+            }
+            if (stmt instanceof Stmt.If ifStmt) {
+                return new Stmt.If(replace(ifStmt.getCondition(), here, shared), ifStmt.getThenBranch(),
+                    ifStmt.getElseIfBranches(), ifStmt.getElseBranch());
+            }
+            return stmt;
+        }
+    }
+
+    // The expressions stmt evaluates before anything it writes, only the
+    // KUNG condition for a KUNG, which always runs
+    private static List<Expr> evaluated(Stmt stmt) {
+        List<Expr> evaluated = new ArrayList<>();
+        if (stmt instanceof Stmt.Print print) {
+            evaluated.add(print.getExpression());
+        } else if (stmt instanceof Stmt.Expression expression) {
+            // x = value writes x after the value is computed
+            Expr expr = expression.getExpression();
+            evaluated.add(expr instanceof Expr.Assign assign ? assign.getValue() : expr);
+        } else if (stmt instanceof Stmt.Var var) {
+            if (var.getInitializer() != null) evaluated.add(var.getInitializer());
+        } else if (stmt instanceof Stmt.MultiVar multiVar) {
+            for (Expr initializer : multiVar.getInitializers()) {
+                if (initializer != null) evaluated.add(initializer);
+            }
+        } else if (stmt instanceof Stmt.If ifStmt) {
+            evaluated.add(ifStmt.getCondition());
+        }
+
+        // an assignment or ++ inside can change an operand halfway through
+        Set<String> writes = new HashSet<>();
+        for (Expr expr : evaluated) {
+            collectWrites(expr, writes);
+        }
+        return writes.isEmpty() ? evaluated : List.of();
+    }
+
+    // Identifies an expression by what it computes, literals by their type
+    // as well since 1 == "1" is not 1 == 1
+    private static String key(Expr expr) {
+        if (expr instanceof Expr.Literal literal) {
+            Object value = literal.getValue();
+            if (value == null) return "nil";
+            String text = value.toString();
+            return value.getClass().getSimpleName() + text.length() + ":" + text;
+        }
+        if (expr instanceof Expr.Variable variable) return variable.getName().getLexeme();
+        if (expr instanceof Expr.Grouping grouping) return key(grouping.getExpression());
+        if (expr instanceof Expr.Unary unary) return "(" + unary.getOperator().getType() + " " + key(unary.getRight()) + ")";
+        if (expr instanceof Expr.Binary binary) {
+            return "(" + binary.getOperator().getType() + " " + key(binary.getLeft()) + " " + key(binary.getRight()) + ")";
+        }
+        if (expr instanceof Expr.Logical logical) {
+            return "(" + logical.getOperator().getType() + " " + key(logical.getLeft()) + " " + key(logical.getRight()) + ")";
+        }
+        // never shared, identity is enough
+        return expr.getClass().getSimpleName() + "@" + System.identityHashCode(expr);
+    }
+
+    // Whether expr, known to be a number, is always a NUMERO
+    private boolean isKnownInt(Expr expr) {
+        if (expr instanceof Expr.Literal literal) return literal.getValue() instanceof Integer;
+        if (expr instanceof Expr.Variable variable) {
+            Declaration declaration = lookUp(variable.getName().getLexeme());
+            return declaration != null && declaration.type() == TokenType.INTEGER;
+        }
+        if (expr instanceof Expr.Grouping grouping) return isKnownInt(grouping.getExpression());
+        if (expr instanceof Expr.Unary unary) return isKnownInt(unary.getRight());
+        if (expr instanceof Expr.Binary binary) return isKnownInt(binary.getLeft()) && isKnownInt(binary.getRight());
+        return false;
+    }
+
+    private static void collectReads(Expr expr, Set<String> reads) {
+        if (expr instanceof Expr.Variable variable) {
+            reads.add(variable.getName().getLexeme());
+        } else if (expr instanceof Expr.Binary binary) {
+            collectReads(binary.getLeft(), reads);
+            collectReads(binary.getRight(), reads);
+        } else if (expr instanceof Expr.Concat concat) {
+            for (Expr part : concat.getParts()) {
+                collectReads(part, reads);
+            }
+        } else if (expr instanceof Expr.Logical logical) {
+            collectReads(logical.getLeft(), reads);
+            collectReads(logical.getRight(), reads);
+        } else if (expr instanceof Expr.Unary unary) {
+            collectReads(unary.getRight(), reads);
+        } else if (expr instanceof Expr.Grouping grouping) {
+            collectReads(grouping.getExpression(), reads);
+        }
+    }
+
+    // The names stmt declares in the scope it runs in
+    private static void collectDeclarations(Stmt stmt, Set<String> declared) {
+        if (stmt instanceof Stmt.Var var) {
+            declared.add(var.getName().getLexeme());
+        } else if (stmt instanceof Stmt.MultiVar multiVar) {
+            for (Token name : multiVar.getNames()) {
+                declared.add(name.getLexeme());
+            }
+        }
+    }
+
+    // Writes ----------------------------------------------------------------
+
+    // Adds the names stmt assigns to written and counts the names it
+    // declares in declared, which may be null
+    private static void collectWrites(Stmt stmt, Set<String> written, Map<String, Integer> declared) {
+        if (stmt instanceof Stmt.Expression expression) {
+            collectWrites(expression.getExpression(), written);
+        } else if (stmt instanceof Stmt.Print print) {
+            collectWrites(print.getExpression(), written);
+        } else if (stmt instanceof Stmt.Var var) {
+            if (declared != null) declared.merge(var.getName().getLexeme(), 1, Integer::sum);
+            collectWrites(var.getInitializer(), written);
+        } else if (stmt instanceof Stmt.MultiVar multiVar) {
+            for (Token name : multiVar.getNames()) {
+                if (declared != null) declared.merge(name.getLexeme(), 1, Integer::sum);
+            }
+            for (Expr initializer : multiVar.getInitializers()) {
+                collectWrites(initializer, written);
+            }
+        } else if (stmt instanceof Stmt.Block block) {
+            for (Stmt statement : block.getStatements()) {
+                collectWrites(statement, written, declared);
+            }
+        } else if (stmt instanceof Stmt.If ifStmt) {
+            collectWrites(ifStmt.getCondition(), written);
+            collectWrites(ifStmt.getThenBranch(), written, declared);
+            if (ifStmt.getElseIfBranches() != null) {
+                for (Stmt.ElseIf elseIf : ifStmt.getElseIfBranches()) {
+                    collectWrites(elseIf.getCondition(), written);
+                    collectWrites(elseIf.getBlock(), written, declared);
+                }
+            }
+            collectWrites(ifStmt.getElseBranch(), written, declared);
+        } else if (stmt instanceof Stmt.While whileStmt) {
+            collectWrites(whileStmt.getCondition(), written);
+            collectWrites(whileStmt.getBody(), written, declared);
+        } else if (stmt instanceof Stmt.DoWhile doWhile) {
+            collectWrites(doWhile.getCondition(), written);
+            collectWrites(doWhile.getBody(), written, declared);
+        } else if (stmt instanceof Stmt.For forStmt) {
+            collectWrites(forStmt.getInitializer(), written, declared);
+            collectWrites(forStmt.getCondition(), written);
+            collectWrites(forStmt.getIncrement(), written, declared);
+            collectWrites(forStmt.getBody(), written, declared);
+        } else if (stmt instanceof Stmt.Scan scan) {
+            for (Token name : scan.getNames()) {
+                written.add(name.getLexeme());
+            }
+        }
+    }
+
+    private static void collectWrites(Expr expr, Set<String> written) {
+        if (expr instanceof Expr.Assign assign) {
+            written.add(assign.getName().getLexeme());
+            collectWrites(assign.getValue(), written);
+        } else if (expr instanceof Expr.CompoundAssign compound) {
+            written.add(compound.getName().getLexeme());
+            collectWrites(compound.getValue(), written);
+        } else if (expr instanceof Expr.IncrementOrDecrement update) {
+            written.add(update.getVariable().getName().getLexeme());
+        } else if (expr instanceof Expr.Binary binary) {
+            collectWrites(binary.getLeft(), written);
+            collectWrites(binary.getRight(), written);
+        } else if (expr instanceof Expr.Concat concat) {
+            for (Expr part : concat.getParts()) {
+                collectWrites(part, written);
+            }
+        } else if (expr instanceof Expr.Logical logical) {
+            collectWrites(logical.getLeft(), written);
+            collectWrites(logical.getRight(), written);
+        } else if (expr instanceof Expr.Unary unary) {
+            collectWrites(unary.getRight(), written);
+        } else if (expr instanceof Expr.Grouping grouping) {
+            collectWrites(grouping.getExpression(), written);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Output
+ * Where IPAKITA writes, shared by every engine. A print writes its value,
+ * or each part of a & chain one after the other, encoded as UTF-8 straight
+ * into one large byte buffer. Numbers and characters go in without a String
+ * of their own and the joined text of a & chain is never built.
+ *
+ * The buffer goes to System.out, or to a file (--output) through its
+ * FileChannel, only when
+ * - it is full
+ * - DAWAT is about to read, so a question shows up before its answer
+ * - the program ends or reports an error (flush)
+ */
+package Interpreter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public final class Output {
+    private Output() {}
+
+    private static final int SIZE = 1 << 16;
+
+    private static final byte[] buffer = new byte[SIZE];
+    private static final ByteBuffer wrapped = ByteBuffer.wrap(buffer);
+    private static int position = 0;
+    // where the print being written started, for discard
+    private static int printStart = 0;
+
+    // --output, null writes to System.out (looked up on every flush, Bench swaps it)
+    private static FileChannel file;
+
+    // the doubles NumberFormatter leaves to Double.toString
+    private static final StringBuilder scratch = new StringBuilder();
+
+    // Sends the rest of the output to the file at path instead, replacing it
+    public static void toFile(Path path) throws IOException {
+        flush();
+        file = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    public static void write(Object value) {
+        if (value instanceof Integer number) {
+            write(number.intValue());
+        } else if (value instanceof Double number) {
+            write(number.doubleValue());
+        } else if (value instanceof Character character) {
+            write(character.charValue());
+        } else {
+            write(Operations.stringify(value));
+        }
+    }
+
+    public static void write(int value) {
+        if (position + 11 > SIZE) spill();
+        position = NumberFormatter.format(value, buffer, position);
+    }
+
+    public static void write(double value) {
+        if (position + 24 > SIZE) spill();
+        int end = NumberFormatter.format(value, buffer, position);
+        if (end >= 0) {
+            position = end;
+        } else {
+            scratch.setLength(0);
+            Operations.stringify(value, scratch);
+            write(scratch);
+        }
+    }
+
+    public static void write(char c) {
+        if (position + 3 > SIZE) spill();
+        encode(c);
+    }
+
+    public static void write(CharSequence text) {
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            if (position + 4 > SIZE) spill();
+
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                buffer[position++] = (byte) c;
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(text.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, text.charAt(++i));
+                buffer[position++] = (byte) (0xF0 | codePoint >> 18);
+                buffer[position++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+                buffer[position++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+                buffer[position++] = (byte) (0x80 | codePoint & 0x3F);
+            } else {
+                encode(c);
+            }
+        }
+    }
+
+    // The end of one IPAKITA, it stays in the buffer until the next flush
+    public static void end() {
+        printStart = position;
+    }
+
+    // Drops what a print that failed halfway had written, the other
+    // engines would not have printed any of it. Only the part still in the
+    // buffer can be taken back.
+    public static void discard() {
+        position = printStart;
+    }
+
+    public static void flush() {
+        spill();
+        // a FileChannel keeps nothing back, System.out can
+        if (file == null) System.out.flush();
+    }
+
+    // Writes out the buffer
+    private static void spill() {
+        try {
+            if (file != null) {
+                wrapped.limit(position).position(0);
+                while (wrapped.hasRemaining()) {
+                    file.write(wrapped);
+                }
+                wrapped.clear();
+            } else {
+                System.out.write(buffer, 0, position);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        position = 0;
+        printStart = 0;
+    }
+
+    // a char that is not a surrogate pair, a lone surrogate becomes ? like
+    // the JDK's own encoder does
+    private static void encode(char c) {
+        if (c < 0x80) {
+            buffer[position++] = (byte) c;
+        } else if (c < 0x800) {
+            buffer[position++] = (byte) (0xC0 | c >> 6);
+            buffer[position++] = (byte) (0x80 | c & 0x3F);
+        } else if (Character.isSurrogate(c)) {
+            buffer[position++] = '?';
+        } else {
+            buffer[position++] = (byte) (0xE0 | c >> 12);
+            buffer[position++] = (byte) (0x80 | c >> 6 & 0x3F);
+            buffer[position++] = (byte) (0x80 | c & 0x3F);
+        }
+    }
+}
@@ -0,0 +1,486 @@
+/*
+ * Resolver
+ * This class walks the AST once, after parsing and before interpreting,
+ * and works out where every variable lives.
+ * Each variable reference gets an address made of:
+ * - depth: how many scopes up from the current one the variable was declared
+ * - slot: the position of the variable inside that scope
+ * The interpreter then jumps straight to the right scope instead of
+ * searching the whole scope chain by name on every access.
+ *
+ * Redeclaring a variable that is already visible is reported here,
+ * before the program runs.
+ */
+package Interpreter;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import Lexers.Token;
+import Lexers.TokenType;
+import Main.Baithon;
+import Parsers.Expr;
+import Parsers.Stmt;
+
+public class Resolver implements Expr.Visitor<Void>
+                                 ,Stmt.Visitor<Void> {
+    // Scope stack, the innermost scope is last.
+    // Index 0 is the global scope.
+    private final List<Map<String, Local>> scopes = new ArrayList<>();
+
+    // What the Resolver knows about a declared variable
+    private record Local(int slot, TokenType type) {}
+
+    // KUNG chains with fewer branches are tested in turn
+    private static final int MIN_DISPATCH_BRANCHES = 3;
+
+    // blocks that declare nothing do not get a scope
+    private boolean scopeElision = true;
+
+    // names of the variables assigned inside the loop body being resolved,
+    // null outside of ALANG SA bodies
+    private Set<String> written;
+
+    public Resolver() {
+        scopes.add(new HashMap<>());
+    }
+
+    public void setScopeElision(boolean scopeElision) {
+        this.scopeElision = scopeElision;
+    }
+
+    public void resolve(List<Stmt> statements) {
+        for (Stmt statement : statements) {
+            resolve(statement);
+        }
+    }
+
+    private void resolve(Stmt stmt) {
+        stmt.accept(this);
+    }
+
+    private void resolve(Expr expr) {
+        expr.accept(this);
+    }
+
+    private void beginScope() {
+        scopes.add(new HashMap<>());
+    }
+
+    private void endScope() {
+        scopes.remove(scopes.size() - 1);
+    }
+
+    // Declares the variable in the innermost scope and returns its slot
+    private int declare(Token name, TokenType type) {
+        String lexeme = name.getLexeme();
+
+        // Variables cannot be redeclared, not even in an inner scope
+        for (Map<String, Local> scope : scopes) {
+            if (scope.containsKey(lexeme)) {
+                Baithon.error(name.getLine(), "Variable '" + lexeme + "' already declared in this scope.");
+                return -1;
+            }
+        }
+
+        Map<String, Local> scope = scopes.get(scopes.size() - 1);
+        int slot = scope.size();
+        scope.put(lexeme, new Local(slot, type));
+        return slot;
+    }
+
+    // Looks for the variable starting from the innermost scope.
+    // Returns the scope distance or -1 if the variable is not declared (yet),
+    // in which case the interpreter reports it at runtime like before.
+    private int depthOf(Token name) {
+        for (int i = scopes.size() - 1; i >= 0; i--) {
+            if (scopes.get(i).containsKey(name.getLexeme())) {
+                return scopes.size() - 1 - i;
+            }
+        }
+        return -1;
+    }
+
+    // Remembers that the variable is assigned inside the current loop body
+    private void write(Token name) {
+        if (written != null) written.add(name.getLexeme());
+    }
+
+    private Local local(Token name, int depth) {
+        return scopes.get(scopes.size() - 1 - depth).get(name.getLexeme());
+    }
+
+    // Expressions -----------------------------------------------------------
+
+    @Override
+    public Void visitAssignExpr(Expr.Assign expr) {
+        resolve(expr.getValue());
+        write(expr.getName());
+
+        int depth = depthOf(expr.getName());
+        if (depth >= 0) {
+            Local local = local(expr.getName(), depth);
+            expr.resolve(depth, local.slot(), local.type());
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitCompoundAssignExpr(Expr.CompoundAssign expr) {
+        resolve(expr.getValue());
+        write(expr.getName());
+
+        int depth = depthOf(expr.getName());
+        if (depth >= 0) {
+            Local local = local(expr.getName(), depth);
+            expr.resolve(depth, local.slot(), local.type());
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitUnaryExpr(Expr.Unary expr) {
+        resolve(expr.getRight());
+        return null;
+    }
+
+    @Override
+    public Void visitBinaryExpr(Expr.Binary expr) {
+        resolve(expr.getLeft());
+        resolve(expr.getRight());
+        return null;
+    }
+
+    @Override
+    public Void visitConcatExpr(Expr.Concat expr) {
+        for (Expr part : expr.getParts()) {
+            resolve(part);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitGroupingExpr(Expr.Grouping expr) {
+        resolve(expr.getExpression());
+        return null;
+    }
+
+    @Override
+    public Void visitLiteralExpr(Expr.Literal expr) {
+        return null;
+    }
+
+    @Override
+    public Void visitLogicalExpr(Expr.Logical expr) {
+        resolve(expr.getLeft());
+        resolve(expr.getRight());
+        return null;
+    }
+
+    @Override
+    public Void visitVariableExpr(Expr.Variable expr) {
+        int depth = depthOf(expr.getName());
+        if (depth >= 0) {
+            Local local = local(expr.getName(), depth);
+            expr.resolve(depth, local.slot(), local.type());
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitIncrementOrDecrementExpr(Expr.IncrementOrDecrement expr) {
+        resolve(expr.getVariable());
+        write(expr.getVariable().getName());
+        return null;
+    }
+
+    // Statements ------------------------------------------------------------
+
+    @Override
+    public Void visitExpressionStmt(Stmt.Expression stmt) {
+        resolve(stmt.getExpression());
+        return null;
+    }
+
+    @Override
+    public Void visitPrintStmt(Stmt.Print stmt) {
+        resolve(stmt.getExpression());
+        return null;
+    }
+
+    @Override
+    public Void visitVarStmt(Stmt.Var stmt) {
+        if (stmt.getInitializer() != null) {
+            resolve(stmt.getInitializer());
+        }
+        stmt.setSlot(declare(stmt.getName(), stmt.getDeclaredType()));
+        return null;
+    }
+
+    @Override
+    public Void visitBlockStmt(Stmt.Block stmt) {
+        if (scopeElision && !declaresVariables(stmt.getStatements())) {
+            // the interpreter runs it in the enclosing scope
+            stmt.setScope(false, 0);
+            resolve(stmt.getStatements());
+            return null;
+        }
+
+        beginScope();
+        resolve(stmt.getStatements());
+        // the block's frame is sized from this
+        stmt.setScope(true, scopes.get(scopes.size() - 1).size());
+        endScope();
+        return null;
+    }
+
+    // Checks if any of the statements declares a variable in the block's own
+    // scope. Nested blocks have their own scope, but a bare declaration under
+    // KUNG or MINTRAS without PUNDOK still lands in this one.
+    private boolean declaresVariables(List<Stmt> statements) {
+        for (Stmt statement : statements) {
+            if (declaresVariable(statement)) return true;
+        }
+        return false;
+    }
+
+    private boolean declaresVariable(Stmt stmt) {
+        if (stmt instanceof Stmt.MultiVar || stmt instanceof Stmt.Var) return true;
+        if (stmt instanceof Stmt.If ifStmt) {
+            if (declaresVariable(ifStmt.getThenBranch())) return true;
+            if (ifStmt.getElseIfBranches() != null) {
+                for (Stmt.ElseIf elifBranch : ifStmt.getElseIfBranches()) {
+                    if (declaresVariable(elifBranch.getBlock())) return true;
+                }
+            }
+            return ifStmt.getElseBranch() != null && declaresVariable(ifStmt.getElseBranch());
+        }
+        if (stmt instanceof Stmt.While whileStmt) return declaresVariable(whileStmt.getBody());
+        if (stmt instanceof Stmt.DoWhile doWhile) return declaresVariable(doWhile.getBody());
+        if (stmt instanceof Stmt.For forStmt) return declaresVariable(forStmt.getBody());
+        return false;
+    }
+
+    @Override
+    public Void visitMultiVar(Stmt.MultiVar stmt) {
+        List<Token> names = stmt.getNames();
+
+        for (int i = 0; i < names.size(); i++) {
+            // the initializer cannot see the variable it initializes
+            Expr initializer = stmt.getInitializers().get(i);
+            if (initializer != null) {
+                resolve(initializer);
+            }
+            stmt.setSlot(i, declare(names.get(i), stmt.getDeclaredType()));
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitIfStmt(Stmt.If stmt) {
+        resolve(stmt.getCondition());
+        resolve(stmt.getThenBranch());
+
+        if (stmt.getElseIfBranches() != null) {
+            for (Stmt.ElseIf elifBranch : stmt.getElseIfBranches()) {
+                resolve(elifBranch);
+            }
+        }
+
+        if (stmt.getElseBranch() != null) {
+            resolve(stmt.getElseBranch());
+        }
+
+        resolveDispatch(stmt);
+        return null;
+    }
+
+    // Checks if the chain has the shape of a switch:
+    //   KUNG (x == 1) ... KUNG DILI (x == 2) ... KUNG DILI (x == 3) ...
+    // x is a NUMERO or LETRA and the literals have its type and are all
+    // different, so the branch can be looked up instead of testing each
+    // condition. Shorter chains are left as they are.
+    private void resolveDispatch(Stmt.If stmt) {
+        int branches = stmt.getBranchCount();
+        if (branches < MIN_DISPATCH_BRANCHES) return;
+
+        Expr.Variable subject = null;
+        Map<Object, Integer> cases = new LinkedHashMap<>();
+        for (int i = 0; i < branches; i++) {
+            Expr condition = stmt.getBranchCondition(i);
+            while (condition instanceof Expr.Grouping grouping) condition = grouping.getExpression();
+            if (!(condition instanceof Expr.Binary binary) || binary.getOperator().getType() != TokenType.EQUAL) return;
+
+            // x == 1 or 1 == x
+            Expr.Variable variable;
+            Expr.Literal literal;
+            if (binary.getLeft() instanceof Expr.Variable v && binary.getRight() instanceof Expr.Literal l) {
+                variable = v;
+                literal = l;
+            } else if (binary.getLeft() instanceof Expr.Literal l && binary.getRight() instanceof Expr.Variable v) {
+                variable = v;
+                literal = l;
+            } else {
+                return;
+            }
+
+            if (!variable.isResolved()) return;
+            if (subject == null) {
+                if (variable.getDeclaredType() != TokenType.INTEGER && variable.getDeclaredType() != TokenType.CHARACTER) return;
+                subject = variable;
+            } else if (!variable.getName().getLexeme().equals(subject.getName().getLexeme())) {
+                return;
+            }
+
+            Object value = literal.getValue();
+            boolean typed = subject.getDeclaredType() == TokenType.INTEGER ? value instanceof Integer : value instanceof Character;
+            if (!typed || cases.putIfAbsent(value, i) != null) return;
+        }
+        stmt.setDispatch(subject, cases);
+    }
+
+    @Override
+    public Void visitElseIfStmt(Stmt.ElseIf stmt) {
+        resolve(stmt.getCondition());
+        resolve(stmt.getBlock());
+        return null;
+    }
+
+    @Override
+    public Void visitWhileStmt(Stmt.While stmt) {
+        resolve(stmt.getCondition());
+        resolve(stmt.getBody());
+        return null;
+    }
+
+    @Override
+    public Void visitScanStmt(Stmt.Scan stmt) {
+        List<Token> names = stmt.getNames();
+
+        for (int i = 0; i < names.size(); i++) {
+            write(names.get(i));
+            int depth = depthOf(names.get(i));
+            if (depth >= 0) {
+                Local local = local(names.get(i), depth);
+                stmt.resolve(i, depth, local.slot(), local.type());
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitDoWhileStmt(Stmt.DoWhile stmt) {
+        // the body comes first in the source so it is resolved first
+        resolve(stmt.getBody());
+        resolve(stmt.getCondition());
+        return null;
+    }
+
+    @Override
+    public Void visitForStmt(Stmt.For stmt) {
+        Stmt initializer = stmt.getInitializer();
+        // MUGNA in the initializer declares the counter in the loop's own scope
+        boolean scoped = initializer instanceof Stmt.MultiVar || initializer instanceof Stmt.Var;
+        if (scoped) beginScope();
+
+        if (initializer != null) resolve(initializer);
+        if (stmt.getCondition() != null) resolve(stmt.getCondition());
+
+        // collect what the body assigns, nested loops add theirs to ours
+        Set<String> outer = written;
+        written = new HashSet<>();
+        resolve(stmt.getBody());
+        Set<String> writtenInBody = written;
+        written = outer;
+        if (outer != null) outer.addAll(writtenInBody);
+
+        if (stmt.getIncrement() != null) resolve(stmt.getIncrement());
+        resolveCounted(stmt, writtenInBody);
+
+        if (scoped) {
+            stmt.setScope(true, scopes.get(scopes.size() - 1).size());
+            endScope();
+        }
+        return null;
+    }
+
+    // Checks if the loop has the shape of a counted loop:
+    //   ALANG SA (i = ..., i <= bound, i++)
+    // i is a NUMERO the body never assigns, bound is a NUMERO literal or
+    // variable the body never assigns, and the step is ++, --, += or -= by
+    // a NUMERO literal.
+    private void resolveCounted(Stmt.For stmt, Set<String> writtenInBody) {
+        if (!(stmt.getCondition() instanceof Expr.Binary condition)) return;
+        switch (condition.getOperator().getType()) {
+            case LESS, LESS_EQUAL, GREATER, GREATER_EQUAL -> {}
+            default -> { return; }
+        }
+
+        if (!(condition.getLeft() instanceof Expr.Variable counter)) return;
+        if (!isIntVariable(counter) || writtenInBody.contains(counter.getName().getLexeme())) return;
+
+        Expr bound = condition.getRight();
+        if (bound instanceof Expr.Variable variable) {
+            if (!isIntVariable(variable) || writtenInBody.contains(variable.getName().getLexeme())) return;
+        } else if (!(bound instanceof Expr.Literal literal && literal.getValue() instanceof Integer)) {
+            return;
+        }
+
+        int step = stepOf(stmt.getIncrement(), counter.getName().getLexeme());
+        if (step != 0) stmt.setCounted(counter, bound, step);
+    }
+
+    private boolean isIntVariable(Expr.Variable variable) {
+        return variable.isResolved() && variable.getDeclaredType() == TokenType.INTEGER;
+    }
+
+    // Returns how much the increment adds to the counter, 0 if it is not a constant step
+    private int stepOf(Stmt increment, String counter) {
+        if (!(increment instanceof Stmt.Expression statement)) return 0;
+        Expr expr = statement.getExpression();
+
+        // i++ and i--
+        if (expr instanceof Expr.IncrementOrDecrement update) {
+            if (!update.getVariable().getName().getLexeme().equals(counter)) return 0;
+            return update.getOperator().getType() == TokenType.INCREMENT ? 1 : -1;
+        }
+
+        // i += n and i -= n
+        if (expr instanceof Expr.CompoundAssign compound
+                && compound.getName().getLexeme().equals(counter)
+                && compound.getValue() instanceof Expr.Literal literal
+                && literal.getValue() instanceof Integer n) {
+            if (compound.getOperator().getType() == TokenType.PLUS) return n;
+            if (compound.getOperator().getType() == TokenType.MINUS) return -n;
+            return 0;
+        }
+
+        // the same written out, i = i + n and i = i - n
+        if (expr instanceof Expr.Assign assign
+                && assign.getName().getLexeme().equals(counter)
+                && assign.getValue() instanceof Expr.Binary binary
+                && binary.getLeft() instanceof Expr.Variable variable
+                && variable.getName().getLexeme().equals(counter)
+                && binary.getRight() instanceof Expr.Literal literal
+                && literal.getValue() instanceof Integer n) {
+            if (binary.getOperator().getType() == TokenType.PLUS) return n;
+            if (binary.getOperator().getType() == TokenType.MINUS) return -n;
+        }
+        return 0;
+    }
+
+    @Override
+    public Void visitBreakStmt(Stmt.Break stmt) {
+        return null;
+    }
+
+    @Override
+    public Void visitContinueStmt(Stmt.Continue stmt) {
+        return null;
+    }
+}
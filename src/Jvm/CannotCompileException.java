@@ -0,0 +1,11 @@
+package Jvm;
+
+// Thrown when a program cannot be turned into a class, the JvmEngine then
+// runs it on the node engine instead
+class CannotCompileException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    CannotCompileException(String message) {
+        super(message);
+    }
+}
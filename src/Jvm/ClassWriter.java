@@ -0,0 +1,178 @@
+package Jvm;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * ClassWriter
+ * Just enough of the class file format to write one class with static
+ * methods: the constant pool, the methods and their Code attribute.
+ *
+ * The classes are version 49 (Java 5) so the JVM infers the types of the
+ * stack and the locals itself and no StackMapTable has to be written.
+ */
+final class ClassWriter {
+    private static final int VERSION = 49;
+    private static final int ACC_PUBLIC = 0x0001;
+    private static final int ACC_STATIC = 0x0008;
+    private static final int ACC_FINAL = 0x0010;
+    private static final int ACC_SUPER = 0x0020;
+
+    private final ByteArrayOutputStream poolBytes = new ByteArrayOutputStream();
+    private final DataOutputStream pool = new DataOutputStream(poolBytes);
+    private final Map<String, Integer> entries = new HashMap<>();
+    private int poolCount = 1;
+
+    private final List<byte[]> methods = new ArrayList<>();
+
+    // Constant pool ----------------------------------------------------------
+
+    int utf8(String value) {
+        return entry("U" + value, () -> {
+            pool.writeByte(1);
+            pool.writeUTF(value);
+        }, 1);
+    }
+
+    int classRef(String internalName) {
+        int name = utf8(internalName);
+        return entry("C" + internalName, () -> {
+            pool.writeByte(7);
+            pool.writeShort(name);
+        }, 1);
+    }
+
+    int string(String value) {
+        int utf = utf8(value);
+        return entry("S" + value, () -> {
+            pool.writeByte(8);
+            pool.writeShort(utf);
+        }, 1);
+    }
+
+    int integer(int value) {
+        return entry("I" + value, () -> {
+            pool.writeByte(3);
+            pool.writeInt(value);
+        }, 1);
+    }
+
+    // doubles take two entries of the pool
+    int doubleValue(double value) {
+        return entry("D" + Double.doubleToRawLongBits(value), () -> {
+            pool.writeByte(6);
+            pool.writeDouble(value);
+        }, 2);
+    }
+
+    int methodRef(String owner, String name, String descriptor) {
+        int ownerIndex = classRef(owner);
+        int nameAndType = nameAndType(name, descriptor);
+        return entry("M" + owner + "." + name + descriptor, () -> {
+            pool.writeByte(10);
+            pool.writeShort(ownerIndex);
+            pool.writeShort(nameAndType);
+        }, 1);
+    }
+
+    private int nameAndType(String name, String descriptor) {
+        int nameIndex = utf8(name);
+        int descriptorIndex = utf8(descriptor);
+        return entry("N" + name + ":" + descriptor, () -> {
+            pool.writeByte(12);
+            pool.writeShort(nameIndex);
+            pool.writeShort(descriptorIndex);
+        }, 1);
+    }
+
+    private interface Writer {
+        void write() throws IOException;
+    }
+
+    private int entry(String key, Writer writer, int size) {
+        Integer index = entries.get(key);
+        if (index != null) return index;
+
+        if (poolCount + size > 0xFFFF) {
+            throw new CannotCompileException("Too many constants for one class.");
+        }
+        try {
+            writer.write();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        index = poolCount;
+        poolCount += size;
+        entries.put(key, index);
+        return index;
+    }
+
+    // Methods ----------------------------------------------------------------
+
+    void addStaticMethod(String name, String descriptor, Code code, int maxLocals) {
+        if (code.length() > 0xFFFF || maxLocals > 0xFFFF) {
+            throw new CannotCompileException("Method " + name + " is too big.");
+        }
+        int nameIndex = utf8(name);
+        int descriptorIndex = utf8(descriptor);
+        int codeName = utf8("Code");
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeShort(ACC_PUBLIC | ACC_STATIC);
+            out.writeShort(nameIndex);
+            out.writeShort(descriptorIndex);
+            out.writeShort(1);
+
+            List<int[]> handlers = code.handlers();
+            out.writeShort(codeName);
+            out.writeInt(12 + code.length() + handlers.size() * 8);
+            out.writeShort(code.maxStack());
+            out.writeShort(maxLocals);
+            out.writeInt(code.length());
+            out.write(code.bytes(), 0, code.length());
+            out.writeShort(handlers.size());
+            for (int[] handler : handlers) {
+                for (int value : handler) {
+                    out.writeShort(value);
+                }
+            }
+            out.writeShort(0);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        methods.add(bytes.toByteArray());
+    }
+
+    byte[] toByteArray(String internalName) {
+        int thisClass = classRef(internalName);
+        int superClass = classRef("java/lang/Object");
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(VERSION);
+            out.writeShort(poolCount);
+            poolBytes.writeTo(out);
+            out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(0);
+            out.writeShort(0);
+            out.writeShort(methods.size());
+            for (byte[] method : methods) {
+                out.write(method);
+            }
+            out.writeShort(0);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,300 @@
+package Jvm;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Code
+ * The bytecode of one method while it is being written. Keeps track of the
+ * depth of the operand stack so the Code attribute gets its max_stack, and
+ * of the jumps to labels that are not placed yet.
+ */
+final class Code {
+    static final int ACONST_NULL = 0x01;
+    static final int DCONST_0 = 0x0e;
+    static final int DCONST_1 = 0x0f;
+    static final int ILOAD = 0x15;
+    static final int DLOAD = 0x18;
+    static final int ALOAD = 0x19;
+    static final int AALOAD = 0x32;
+    static final int ISTORE = 0x36;
+    static final int DSTORE = 0x39;
+    static final int ASTORE = 0x3a;
+    static final int POP = 0x57;
+    static final int POP2 = 0x58;
+    static final int DUP = 0x59;
+    static final int DUP2 = 0x5c;
+    static final int SWAP = 0x5f;
+    static final int IADD = 0x60;
+    static final int DADD = 0x63;
+    static final int ISUB = 0x64;
+    static final int DSUB = 0x67;
+    static final int IMUL = 0x68;
+    static final int DMUL = 0x6b;
+    static final int IDIV = 0x6c;
+    static final int IREM = 0x70;
+    static final int INEG = 0x74;
+    static final int DNEG = 0x77;
+    static final int IXOR = 0x82;
+    static final int IINC = 0x84;
+    static final int I2D = 0x87;
+    static final int DCMPL = 0x97;
+    static final int DCMPG = 0x98;
+    static final int IFEQ = 0x99;
+    static final int IFNE = 0x9a;
+    static final int IFLT = 0x9b;
+    static final int IFGE = 0x9c;
+    static final int IFGT = 0x9d;
+    static final int IFLE = 0x9e;
+    static final int IF_ICMPEQ = 0x9f;
+    static final int IF_ICMPNE = 0xa0;
+    static final int IF_ICMPLT = 0xa1;
+    static final int IF_ICMPGE = 0xa2;
+    static final int IF_ICMPGT = 0xa3;
+    static final int IF_ICMPLE = 0xa4;
+    static final int GOTO = 0xa7;
+    static final int RETURN = 0xb1;
+    static final int INVOKESTATIC = 0xb8;
+    static final int ATHROW = 0xbf;
+    static final int CHECKCAST = 0xc0;
+    static final int WIDE = 0xc4;
+    static final int IFNULL = 0xc6;
+    static final int IFNONNULL = 0xc7;
+
+    // A place in the code that jumps can go to
+    static final class Label {
+        private int position = -1;
+        // stack depth when the label is reached
+        private int stack = -1;
+        // where the jumps to the label start, patched when it is placed
+        private final List<Integer> jumps = new ArrayList<>();
+    }
+
+    private byte[] bytes = new byte[256];
+    private int length = 0;
+    private int stack = 0;
+    private int maxStack = 0;
+    // start, end, handler, catch type of each exception handler
+    private final List<int[]> handlers = new ArrayList<>();
+
+    int length() {
+        return length;
+    }
+
+    byte[] bytes() {
+        return bytes;
+    }
+
+    int maxStack() {
+        return maxStack;
+    }
+
+    List<int[]> handlers() {
+        return handlers;
+    }
+
+    // Raw bytes --------------------------------------------------------------
+
+    private void u1(int value) {
+        if (length == bytes.length) {
+            byte[] bigger = new byte[bytes.length * 2];
+            System.arraycopy(bytes, 0, bigger, 0, length);
+            bytes = bigger;
+        }
+        bytes[length++] = (byte) value;
+    }
+
+    private void u2(int value) {
+        u1(value >> 8);
+        u1(value);
+    }
+
+    private void adjust(int delta) {
+        stack += delta;
+        if (stack > maxStack) maxStack = stack;
+    }
+
+    // Instructions -----------------------------------------------------------
+
+    // An instruction without operands that changes the stack depth by delta
+    void op(int opcode, int delta) {
+        u1(opcode);
+        adjust(delta);
+    }
+
+    void iconst(int value) {
+        if (value >= -1 && value <= 5) {
+            u1(0x03 + value);
+        } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+            u1(0x10);
+            u1(value);
+        } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+            u1(0x11);
+            u2(value);
+        } else {
+            throw new IllegalArgumentException("Use ldc for " + value + ".");
+        }
+        adjust(1);
+    }
+
+    // pushes a one slot constant of the pool
+    void ldc(int index) {
+        if (index <= 0xFF) {
+            u1(0x12);
+            u1(index);
+        } else {
+            u1(0x13);
+            u2(index);
+        }
+        adjust(1);
+    }
+
+    // pushes a double constant of the pool
+    void ldc2(int index) {
+        u1(0x14);
+        u2(index);
+        adjust(2);
+    }
+
+    // ILOAD, DLOAD, ALOAD, ISTORE, DSTORE or ASTORE of a local
+    void local(int opcode, int index) {
+        if (index <= 0xFF) {
+            u1(opcode);
+            u1(index);
+        } else {
+            u1(WIDE);
+            u1(opcode);
+            u2(index);
+        }
+        switch (opcode) {
+            case ILOAD, ALOAD -> adjust(1);
+            case DLOAD -> adjust(2);
+            case ISTORE, ASTORE -> adjust(-1);
+            case DSTORE -> adjust(-2);
+            default -> throw new IllegalArgumentException("Not a local instruction: " + opcode);
+        }
+    }
+
+    void iinc(int index, int amount) {
+        if (index <= 0xFF && amount >= Byte.MIN_VALUE && amount <= Byte.MAX_VALUE) {
+            u1(IINC);
+            u1(index);
+            u1(amount);
+        } else {
+            u1(WIDE);
+            u1(IINC);
+            u2(index);
+            u2(amount);
+        }
+    }
+
+    void invokestatic(int methodRef, String descriptor) {
+        u1(INVOKESTATIC);
+        u2(methodRef);
+        adjust(slots(descriptor.substring(descriptor.indexOf(')') + 1)) - argumentSlots(descriptor));
+    }
+
+    void checkcast(int classRef) {
+        u1(CHECKCAST);
+        u2(classRef);
+    }
+
+    // Jumps ------------------------------------------------------------------
+
+    // A GOTO or one of the IF instructions, delta is what the test pops
+    void jump(int opcode, Label target, int delta) {
+        adjust(delta);
+        if (target.stack < 0) target.stack = stack;
+
+        int at = length;
+        u1(opcode);
+        if (target.position >= 0) {
+            u2(offset(at, target.position));
+        } else {
+            target.jumps.add(at);
+            u2(0);
+        }
+    }
+
+    void jump(int opcode, Label target) {
+        jump(opcode, target, opcode == GOTO ? 0 : opcode >= IF_ICMPEQ && opcode <= IF_ICMPLE ? -2 : -1);
+    }
+
+    // Places the label at the current end of the code
+    void place(Label label) {
+        label.position = length;
+        for (int at : label.jumps) {
+            int offset = offset(at, length);
+            bytes[at + 1] = (byte) (offset >> 8);
+            bytes[at + 2] = (byte) offset;
+        }
+        label.jumps.clear();
+
+        // after a GOTO the depth is the one the jumps bring
+        if (label.stack >= 0) stack = label.stack;
+        else label.stack = stack;
+    }
+
+    private static int offset(int from, int to) {
+        int offset = to - from;
+        if (offset < Short.MIN_VALUE || offset > Short.MAX_VALUE) {
+            throw new CannotCompileException("Jump is too far.");
+        }
+        return offset;
+    }
+
+    // Runs handler when anything is thrown between start and end. The
+    // handler starts with the exception on an otherwise empty stack.
+    void handler(Label start, Label end, Label handler) {
+        // nothing to cover
+        if (start.position == end.position) return;
+        handlers.add(new int[] { start.position, end.position, handler.position, 0 });
+    }
+
+    // The code starts with the exception already pushed at a handler
+    void startHandler(Label handler) {
+        stack = 0;
+        place(handler);
+        adjust(1);
+    }
+
+    // Appends the other code after this one, its jumps are relative so only
+    // the handlers move
+    void append(Code other) {
+        for (int i = 0; i < other.length; i++) {
+            u1(other.bytes[i]);
+        }
+        int shift = length - other.length;
+        for (int[] handler : other.handlers) {
+            handlers.add(new int[] { handler[0] + shift, handler[1] + shift, handler[2] + shift, handler[3] });
+        }
+        maxStack = Math.max(maxStack, stack + other.maxStack);
+    }
+
+    // Descriptors ------------------------------------------------------------
+
+    private static int argumentSlots(String descriptor) {
+        int slots = 0;
+        int i = 1;
+        while (descriptor.charAt(i) != ')') {
+            char c = descriptor.charAt(i);
+            if (c == 'J' || c == 'D') {
+                slots += 2;
+                i++;
+            } else {
+                slots++;
+                while (descriptor.charAt(i) == '[') i++;
+                i = descriptor.charAt(i) == 'L' ? descriptor.indexOf(';', i) + 1 : i + 1;
+            }
+        }
+        return slots;
+    }
+
+    private static int slots(String type) {
+        return switch (type.charAt(0)) {
+            case 'V' -> 0;
+            case 'J', 'D' -> 2;
+            default -> 1;
+        };
+    }
+}
@@ -0,0 +1,33 @@
+package Jvm;
+
+import java.lang.invoke.MethodHandle;
+import java.util.Scanner;
+
+import Main.Environment;
+
+// A program compiled into a class by the JvmCompiler. It can be run any
+// number of times, every run starts with fresh variables.
+public final class CompiledScript {
+    private final MethodHandle run;
+    private final Object[] constants;
+
+    CompiledScript(MethodHandle run, Object[] constants) {
+        this.run = run;
+        this.constants = constants;
+    }
+
+    public void run(Scanner input) {
+        run(input, null);
+    }
+
+    // Also copies the top level variables into globals when it ends
+    void run(Scanner input, Environment globals) {
+        try {
+            run.invokeExact(constants, input, globals);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
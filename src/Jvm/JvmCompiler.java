@@ -0,0 +1,1076 @@
+/*
+ * JvmCompiler
+ * Compiles resolved statements into a class with one static method
+ *
+ *     run(Object[] constants, Scanner input, Environment globals)
+ *
+ * that HotSpot can then compile like any other Java code.
+ *
+ * Every declaration gets its own JVM local. NUMERO and TIPIK are int and
+ * double locals, the other types are Object locals holding the same boxed
+ * values the other engines use. A NUMERO or TIPIK declared without a number
+ * can still be null, so it also gets an int flag local that says if a
+ * number was stored. Where the compiler can tell the variable has been
+ * assigned on every path (the assigned set) the flag is not looked at.
+ *
+ * Expressions are compiled into one of four kinds of stack values: int,
+ * double, int 0/1 for booleans, or Object. Operators on numbers become the
+ * JVM instructions, everything else calls Operations or ScriptSupport
+ * with the boxed values, so output and errors match the tree walker.
+ * Tokens for the errors are passed in through the constants array.
+ *
+ * Top level variables are copied into the globals Environment when the
+ * method ends, even by an error, so the next line of the prompt can use
+ * them. A program that uses variables of an earlier run cannot be compiled.
+ */
+package Jvm;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Scanner;
+
+import Interpreter.Operations;
+import Lexers.Token;
+import Lexers.TokenType;
+import Main.Environment;
+import Parsers.Expr;
+import Parsers.Stmt;
+
+class JvmCompiler implements Expr.Visitor<Integer>
+                           ,Stmt.Visitor<Void> {
+    // kinds of values on the operand stack
+    private static final int OBJECT = Operations.OTHER;
+    private static final int INT = Operations.INT;
+    private static final int DOUBLE = Operations.DOUBLE;
+    private static final int BOOLEAN = 3;
+
+    private static final String SUPPORT = "Jvm/ScriptSupport";
+    private static final String OPERATIONS = "Interpreter/Operations";
+    private static final String TOKEN = "Lexers/Token";
+    private static final String TOKEN_TYPE = "Lexers/TokenType";
+    private static final String RUN = "([Ljava/lang/Object;Ljava/util/Scanner;LMain/Environment;)V";
+    private static final MethodType RUN_TYPE =
+        MethodType.methodType(void.class, Object[].class, Scanner.class, Environment.class);
+
+    // the parameters of run and the number of top level declarations run so far
+    private static final int CONSTANTS = 0;
+    private static final int INPUT = 1;
+    private static final int GLOBALS = 2;
+    private static final int PROGRESS = 3;
+
+    // A declared variable
+    private static final class Local {
+        final Token name;
+        final TokenType type;
+        // INT, DOUBLE or OBJECT
+        final int kind;
+        final int index;
+        // -1 when the variable always holds a number
+        final int flag;
+        // bit in the assigned set
+        final int id;
+        // slot in the globals, -1 when it is not a top level variable
+        int slot = -1;
+
+        Local(Token name, TokenType type, int kind, int index, int flag, int id) {
+            this.name = name;
+            this.type = type;
+            this.kind = kind;
+            this.index = index;
+            this.flag = flag;
+            this.id = id;
+        }
+    }
+
+    // Labels of HUNONG and PADAYON in a loop
+    private static final class Loop {
+        final Code.Label exit;
+        final Code.Label next;
+        boolean broken = false;
+        boolean continued = false;
+
+        Loop(Code.Label exit, Code.Label next) {
+            this.exit = exit;
+            this.next = next;
+        }
+    }
+
+    private final ClassWriter classWriter = new ClassWriter();
+    private final Code code = new Code();
+
+    private final List<Object> constants = new ArrayList<>();
+    private final Map<Object, Integer> constantIndexes = new IdentityHashMap<>();
+
+    // kinds of the JVM locals, index 4 onwards, so they can all be set up front
+    private final List<Integer> localKinds = new ArrayList<>();
+    private int nextLocal = PROGRESS + 1;
+
+    private final List<Local[]> scopes = new ArrayList<>();
+    private final List<Local> topLevel = new ArrayList<>();
+    private int localCount = 0;
+    // the variables with a flag that are assigned on every path to here
+    private BitSet assigned = new BitSet();
+    private final List<Loop> loops = new ArrayList<>();
+
+    // global slots below this were declared by earlier runs
+    private final int inheritedGlobals;
+
+    private JvmCompiler(int inheritedGlobals) {
+        this.inheritedGlobals = inheritedGlobals;
+    }
+
+    static CompiledScript compile(List<Stmt> statements, int inheritedGlobals) {
+        return new JvmCompiler(inheritedGlobals).compileScript(statements);
+    }
+
+    private CompiledScript compileScript(List<Stmt> statements) {
+        scopes.add(new Local[0]);
+
+        Code.Label start = new Code.Label();
+        Code.Label end = new Code.Label();
+        Code.Label handler = new Code.Label();
+
+        code.place(start);
+        for (Stmt statement : statements) {
+            compile(statement);
+        }
+        code.place(end);
+        keepTopLevel();
+        code.op(Code.RETURN, 0);
+
+        // an error still keeps the variables declared before it, which
+        // can be anywhere, so none of them is known to be assigned
+        int exception = newLocal(OBJECT);
+        assigned = new BitSet();
+        code.startHandler(handler);
+        code.local(Code.ASTORE, exception);
+        keepTopLevel();
+        code.local(Code.ALOAD, exception);
+        code.op(Code.ATHROW, -1);
+        code.handler(start, end, handler);
+
+        classWriter.addStaticMethod("run", RUN, prologue(), nextLocal);
+        byte[] bytes = classWriter.toByteArray("Jvm/Script");
+
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(bytes, true);
+            MethodHandle run = lookup.findStatic(lookup.lookupClass(), "run", RUN_TYPE);
+            return new CompiledScript(run, constants.toArray());
+        } catch (IllegalAccessException | NoSuchMethodException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Gives every local a value first so the JVM sees them all assigned
+    private Code prologue() {
+        Code prologue = new Code();
+        prologue.iconst(0);
+        prologue.local(Code.ISTORE, PROGRESS);
+
+        int index = PROGRESS + 1;
+        for (int kind : localKinds) {
+            switch (kind) {
+                case INT -> {
+                    prologue.iconst(0);
+                    prologue.local(Code.ISTORE, index);
+                }
+                case DOUBLE -> {
+                    prologue.op(Code.DCONST_0, 2);
+                    prologue.local(Code.DSTORE, index);
+                }
+                default -> {
+                    prologue.op(Code.ACONST_NULL, 1);
+                    prologue.local(Code.ASTORE, index);
+                }
+            }
+            index += kind == DOUBLE ? 2 : 1;
+        }
+        prologue.append(code);
+        return prologue;
+    }
+
+    // Copies the top level variables declared so far into the globals
+    private void keepTopLevel() {
+        if (topLevel.isEmpty()) return;
+
+        Code.Label done = new Code.Label();
+        code.local(Code.ALOAD, GLOBALS);
+        code.jump(Code.IFNULL, done);
+        for (int i = 0; i < topLevel.size(); i++) {
+            Local local = topLevel.get(i);
+            Code.Label next = new Code.Label();
+            code.local(Code.ILOAD, PROGRESS);
+            pushInt(i + 1);
+            code.jump(Code.IF_ICMPLT, next);
+
+            code.local(Code.ALOAD, GLOBALS);
+            convert(read(local), OBJECT);
+            pushToken(local.name);
+            pushInt(local.slot);
+            pushConstant(local.type, TOKEN_TYPE);
+            invoke(SUPPORT, "keep", "(LMain/Environment;Ljava/lang/Object;L" + TOKEN + ";IL" + TOKEN_TYPE + ";)V");
+            code.place(next);
+        }
+        code.place(done);
+    }
+
+    private void compile(Stmt stmt) {
+        stmt.accept(this);
+    }
+
+    private int compile(Expr expr) {
+        return expr.accept(this);
+    }
+
+    // Compiles the expression and converts its value to the given kind
+    private void compile(Expr expr, int kind) {
+        convert(compile(expr), kind);
+    }
+
+    // Emitting -----------------------------------------------------------------
+
+    private int newLocal(int kind) {
+        int index = nextLocal;
+        localKinds.add(kind);
+        nextLocal += kind == DOUBLE ? 2 : 1;
+        return index;
+    }
+
+    private void invoke(String owner, String name, String descriptor) {
+        code.invokestatic(classWriter.methodRef(owner, name, descriptor), descriptor);
+    }
+
+    private void pushInt(int value) {
+        if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+            code.iconst(value);
+        } else {
+            code.ldc(classWriter.integer(value));
+        }
+    }
+
+    // Pushes a value of the constants array, cast to the given class
+    private void pushConstant(Object value, String internalName) {
+        Integer index = constantIndexes.get(value);
+        if (index == null) {
+            index = constants.size();
+            constants.add(value);
+            constantIndexes.put(value, index);
+        }
+        code.local(Code.ALOAD, CONSTANTS);
+        pushInt(index);
+        code.op(Code.AALOAD, -1);
+        if (internalName != null) code.checkcast(classWriter.classRef(internalName));
+    }
+
+    private void pushToken(Token token) {
+        pushConstant(token, TOKEN);
+    }
+
+    private void convert(int from, int to) {
+        if (from == to) return;
+        if (from == INT && to == DOUBLE) {
+            code.op(Code.I2D, 1);
+        } else if (to == OBJECT) {
+            switch (from) {
+                case INT -> invoke("java/lang/Integer", "valueOf", "(I)Ljava/lang/Integer;");
+                case DOUBLE -> invoke("java/lang/Double", "valueOf", "(D)Ljava/lang/Double;");
+                default -> invoke("java/lang/Boolean", "valueOf", "(Z)Ljava/lang/Boolean;");
+            }
+        } else {
+            throw new IllegalStateException("Cannot convert kind " + from + " to " + to + ".");
+        }
+    }
+
+    private void pop(int kind) {
+        if (kind == DOUBLE) code.op(Code.POP2, -2);
+        else code.op(Code.POP, -1);
+    }
+
+    private void dup(int kind) {
+        if (kind == DOUBLE) code.op(Code.DUP2, 2);
+        else code.op(Code.DUP, 1);
+    }
+
+    // Jumps to target when the value of the condition is falsy, or truthy
+    private void jumpIf(boolean truthy, Expr condition, Code.Label target) {
+        switch (compile(condition)) {
+            case BOOLEAN -> code.jump(truthy ? Code.IFNE : Code.IFEQ, target);
+            case OBJECT -> {
+                invoke(OPERATIONS, "isTruthy", "(Ljava/lang/Object;)Z");
+                code.jump(truthy ? Code.IFNE : Code.IFEQ, target);
+            }
+            // numbers are always truthy
+            case DOUBLE -> {
+                pop(DOUBLE);
+                if (truthy) code.jump(Code.GOTO, target);
+            }
+            default -> {
+                pop(INT);
+                if (truthy) code.jump(Code.GOTO, target);
+            }
+        }
+    }
+
+    // Pushes 1 when the jump is not taken and 0 when it is
+    private void booleanFromJump(int opcode) {
+        Code.Label no = new Code.Label();
+        Code.Label end = new Code.Label();
+        code.jump(opcode, no);
+        code.iconst(1);
+        code.jump(Code.GOTO, end);
+        code.place(no);
+        code.iconst(0);
+        code.place(end);
+    }
+
+    // Variables ----------------------------------------------------------------
+
+    private Local local(int depth, int slot) {
+        int scope = scopes.size() - 1 - depth;
+        if (scope == 0 && slot < inheritedGlobals) {
+            throw new CannotCompileException("Uses a variable declared by an earlier run.");
+        }
+        Local[] locals = scopes.get(scope);
+        if (slot >= locals.length || locals[slot] == null) {
+            throw new CannotCompileException("Uses a variable before its declaration.");
+        }
+        return locals[slot];
+    }
+
+    private void declare(int slot, Local local) {
+        int scope = scopes.size() - 1;
+        Local[] locals = scopes.get(scope);
+        if (slot >= locals.length) {
+            Local[] bigger = new Local[Math.max(slot + 1, locals.length * 2)];
+            System.arraycopy(locals, 0, bigger, 0, locals.length);
+            locals = bigger;
+            scopes.set(scope, locals);
+        }
+        locals[slot] = local;
+
+        if (scope == 0) {
+            local.slot = slot;
+            topLevel.add(local);
+            pushInt(topLevel.size());
+            code.local(Code.ISTORE, PROGRESS);
+        }
+    }
+
+    // whether the variable holds a number here, so it can be used unboxed
+    private boolean isNumber(Local local) {
+        return local.kind != OBJECT && (local.flag < 0 || assigned.get(local.id));
+    }
+
+    private int read(Local local) {
+        if (local.kind == OBJECT) {
+            code.local(Code.ALOAD, local.index);
+            return OBJECT;
+        }
+        int load = local.kind == INT ? Code.ILOAD : Code.DLOAD;
+        if (isNumber(local)) {
+            code.local(load, local.index);
+            return local.kind;
+        }
+
+        // null until a number is stored
+        Code.Label isNull = new Code.Label();
+        Code.Label end = new Code.Label();
+        code.local(Code.ILOAD, local.flag);
+        code.jump(Code.IFEQ, isNull);
+        code.local(load, local.index);
+        convert(local.kind, OBJECT);
+        code.jump(Code.GOTO, end);
+        code.place(isNull);
+        code.op(Code.ACONST_NULL, 1);
+        code.place(end);
+        return OBJECT;
+    }
+
+    // Stores the value like an assignment to name does, type checking it
+    private void store(Local local, int kind, Token name) {
+        switch (local.kind) {
+            case INT -> {
+                if (kind != INT) {
+                    convert(kind, OBJECT);
+                    pushToken(name);
+                    invoke(SUPPORT, "toInt", "(Ljava/lang/Object;L" + TOKEN + ";)I");
+                }
+                code.local(Code.ISTORE, local.index);
+            }
+            case DOUBLE -> {
+                if (kind == INT) {
+                    convert(INT, DOUBLE);
+                } else if (kind != DOUBLE) {
+                    convert(kind, OBJECT);
+                    pushToken(name);
+                    invoke(SUPPORT, "toDouble", "(Ljava/lang/Object;L" + TOKEN + ";)D");
+                }
+                code.local(Code.DSTORE, local.index);
+            }
+            default -> {
+                convert(kind, OBJECT);
+                pushToken(name);
+                pushConstant(local.type, TOKEN_TYPE);
+                invoke(SUPPORT, "checkType", "(Ljava/lang/Object;L" + TOKEN + ";L" + TOKEN_TYPE + ";)Ljava/lang/Object;");
+                code.local(Code.ASTORE, local.index);
+            }
+        }
+        if (local.flag >= 0) {
+            code.iconst(1);
+            code.local(Code.ISTORE, local.flag);
+        }
+        assigned.set(local.id);
+    }
+
+    private void define(Token name, int slot, TokenType type, Expr initializer) {
+        int kind = type == TokenType.INTEGER ? INT : type == TokenType.FLOAT ? DOUBLE : OBJECT;
+        int value = initializer == null ? -1 : compile(initializer);
+        // an Object initializer can be a variable that is still null
+        boolean number = value == INT || value == DOUBLE || value == BOOLEAN;
+        int flag = kind == OBJECT || number ? -1 : newLocal(INT);
+        Local local = new Local(name, type, kind, newLocal(kind), flag, localCount++);
+
+        if (kind == OBJECT) {
+            if (value < 0) {
+                code.op(Code.ACONST_NULL, 1);
+            } else {
+                convert(value, OBJECT);
+                pushToken(name);
+                pushConstant(type, TOKEN_TYPE);
+                invoke(SUPPORT, "define", "(Ljava/lang/Object;L" + TOKEN + ";L" + TOKEN_TYPE + ";)Ljava/lang/Object;");
+            }
+            code.local(Code.ASTORE, local.index);
+        } else if (number) {
+            store(local, value, name);
+        } else {
+            Code.Label isNull = new Code.Label();
+            Code.Label end = new Code.Label();
+            if (value >= 0) {
+                code.op(Code.DUP, 1);
+                code.jump(Code.IFNULL, isNull);
+                store(local, OBJECT, name);
+                code.jump(Code.GOTO, end);
+                code.place(isNull);
+                code.op(Code.POP, -1);
+            }
+            if (kind == INT) {
+                code.iconst(0);
+                code.local(Code.ISTORE, local.index);
+            } else {
+                code.op(Code.DCONST_0, 2);
+                code.local(Code.DSTORE, local.index);
+            }
+            code.iconst(0);
+            code.local(Code.ISTORE, flag);
+            code.place(end);
+            assigned.clear(local.id);
+        }
+
+        declare(slot, local);
+    }
+
+    // Kinds ---------------------------------------------------------------------
+
+    // The kind compile gives the expression if it is compiled now. Assignments
+    // inside the expression can only make the kinds after them more exact,
+    // and compile(expr, kind) converts those back.
+    private int predict(Expr expr) {
+        if (expr instanceof Expr.Literal literal) {
+            Object value = literal.getValue();
+            if (value instanceof Integer) return INT;
+            if (value instanceof Double) return DOUBLE;
+            if (value instanceof Boolean) return BOOLEAN;
+            return OBJECT;
+        }
+        if (expr instanceof Expr.Variable variable) {
+            if (!variable.isResolved()) return OBJECT;
+            Local local = local(variable.getDepth(), variable.getSlot());
+            return isNumber(local) ? local.kind : OBJECT;
+        }
+        if (expr instanceof Expr.Grouping grouping) {
+            return predict(grouping.getExpression());
+        }
+        if (expr instanceof Expr.Assign assign) {
+            return predict(assign.getValue());
+        }
+        if (expr instanceof Expr.CompoundAssign compound) {
+            return predict(expand(compound));
+        }
+        if (expr instanceof Expr.IncrementOrDecrement update) {
+            return predict(update.getVariable());
+        }
+        if (expr instanceof Expr.Unary unary) {
+            if (unary.getOperator().getType() == TokenType.NOT) return BOOLEAN;
+            int right = predict(unary.getRight());
+            return right == INT || right == DOUBLE ? right : OBJECT;
+        }
+        if (expr instanceof Expr.Logical logical) {
+            return predict(logical.getLeft()) == BOOLEAN && predict(logical.getRight()) == BOOLEAN ? BOOLEAN : OBJECT;
+        }
+        if (expr instanceof Expr.Binary binary) {
+            return binaryKind(binary.getOperator().getType(), predict(binary.getLeft()), predict(binary.getRight()));
+        }
+        return OBJECT;
+    }
+
+    private static int binaryKind(TokenType operator, int left, int right) {
+        boolean numbers = (left == INT || left == DOUBLE) && (right == INT || right == DOUBLE);
+        return switch (operator) {
+            case PLUS, MINUS, MULTIPLY, DIVIDE, MODULO -> !numbers ? OBJECT : left == INT && right == INT ? INT : DOUBLE;
+            case GREATER, GREATER_EQUAL, LESS, LESS_EQUAL -> numbers ? BOOLEAN : OBJECT;
+            case EQUAL, NOT_EQUAL -> BOOLEAN;
+            default -> OBJECT;
+        };
+    }
+
+    // Expressions ---------------------------------------------------------------
+
+    @Override
+    public Integer visitAssignExpr(Expr.Assign expr) {
+        return assign(expr, true);
+    }
+
+    // Leaves the assigned value, from before its type check, when keep is set
+    private int assign(Expr.Assign expr, boolean keep) {
+        int kind = compile(expr.getValue());
+        if (keep) dup(kind);
+
+        if (expr.isResolved()) {
+            store(local(expr.getDepth(), expr.getSlot()), kind, expr.getName());
+        } else {
+            if (!keep) pop(kind);
+            pushToken(expr.getName());
+            invoke(SUPPORT, "notDefined", "(L" + TOKEN + ";)V");
+        }
+        return kind;
+    }
+
+    @Override
+    public Integer visitCompoundAssignExpr(Expr.CompoundAssign expr) {
+        return assign(expand(expr), true);
+    }
+
+    // x += v is compiled as x = x + v, a local is found once either way
+    private static Expr.Assign expand(Expr.CompoundAssign expr) {
+        Expr.Variable variable = new Expr.Variable(expr.getName());
+        Expr.Assign assign = new Expr.Assign(expr.getName(), new Expr.Binary(variable, expr.getOperator(), expr.getValue()));
+        if (expr.isResolved()) {
+            variable.resolve(expr.getDepth(), expr.getSlot(), expr.getDeclaredType());
+            assign.resolve(expr.getDepth(), expr.getSlot(), expr.getDeclaredType());
+        }
+        return assign;
+    }
+
+    @Override
+    public Integer visitBinaryExpr(Expr.Binary expr) {
+        Token operator = expr.getOperator();
+        TokenType type = operator.getType();
+        int left = predict(expr.getLeft());
+        int right = predict(expr.getRight());
+        int kind = binaryKind(type, left, right);
+
+        switch (type) {
+            case PLUS, MINUS, MULTIPLY, DIVIDE, MODULO -> {
+                if (kind == INT) {
+                    compile(expr.getLeft(), INT);
+                    compile(expr.getRight(), INT);
+                    intArithmetic(type, operator);
+                    return INT;
+                }
+                if (kind == DOUBLE) {
+                    compile(expr.getLeft(), DOUBLE);
+                    compile(expr.getRight(), DOUBLE);
+                    doubleArithmetic(type, operator);
+                    return DOUBLE;
+                }
+            }
+            case GREATER, GREATER_EQUAL, LESS, LESS_EQUAL -> {
+                if (kind == BOOLEAN) {
+                    int operands = left == INT && right == INT ? INT : DOUBLE;
+                    compile(expr.getLeft(), operands);
+                    compile(expr.getRight(), operands);
+                    compare(type, operands);
+                    return BOOLEAN;
+                }
+            }
+            case EQUAL, NOT_EQUAL -> {
+                if (left == right && (left == INT || left == BOOLEAN)) {
+                    compile(expr.getLeft(), left);
+                    compile(expr.getRight(), left);
+                    compare(type, INT);
+                } else {
+                    compile(expr.getLeft(), OBJECT);
+                    compile(expr.getRight(), OBJECT);
+                    invoke(OPERATIONS, "isEqual", "(Ljava/lang/Object;Ljava/lang/Object;)Z");
+                    if (type == TokenType.NOT_EQUAL) {
+                        code.iconst(1);
+                        code.op(Code.IXOR, -1);
+                    }
+                }
+                return BOOLEAN;
+            }
+            case CONCAT -> {
+                compile(expr.getLeft(), OBJECT);
+                compile(expr.getRight(), OBJECT);
+                invoke(SUPPORT, "concat", "(Ljava/lang/Object;Ljava/lang/Object;)Ljava/lang/String;");
+                return OBJECT;
+            }
+            default -> {}
+        }
+
+        compile(expr.getLeft(), OBJECT);
+        compile(expr.getRight(), OBJECT);
+        pushToken(operator);
+        invoke(OPERATIONS, "binary", "(Ljava/lang/Object;Ljava/lang/Object;L" + TOKEN + ";)Ljava/lang/Object;");
+        return OBJECT;
+    }
+
+    private void intArithmetic(TokenType type, Token operator) {
+        switch (type) {
+            case PLUS -> code.op(Code.IADD, -1);
+            case MINUS -> code.op(Code.ISUB, -1);
+            case MULTIPLY -> code.op(Code.IMUL, -1);
+            default -> {
+                Code.Label divisor = new Code.Label();
+                code.op(Code.DUP, 1);
+                code.jump(Code.IFNE, divisor);
+                pushToken(operator);
+                invoke(SUPPORT, "divisionByZero", "(L" + TOKEN + ";)V");
+                code.place(divisor);
+                code.op(type == TokenType.DIVIDE ? Code.IDIV : Code.IREM, -1);
+            }
+        }
+    }
+
+    private void doubleArithmetic(TokenType type, Token operator) {
+        switch (type) {
+            case PLUS -> code.op(Code.DADD, -2);
+            case MINUS -> code.op(Code.DSUB, -2);
+            case MULTIPLY -> code.op(Code.DMUL, -2);
+            default -> {
+                // checks for division by zero
+                pushToken(operator);
+                invoke(OPERATIONS, "doubleArithmetic", "(DDL" + TOKEN + ";)D");
+            }
+        }
+    }
+
+    // Compares two ints or two doubles into a boolean
+    private void compare(TokenType type, int operands) {
+        if (operands == INT) {
+            booleanFromJump(switch (type) {
+                case GREATER -> Code.IF_ICMPLE;
+                case GREATER_EQUAL -> Code.IF_ICMPLT;
+                case LESS -> Code.IF_ICMPGE;
+                case LESS_EQUAL -> Code.IF_ICMPGT;
+                case EQUAL -> Code.IF_ICMPNE;
+                default -> Code.IF_ICMPEQ;
+            });
+            return;
+        }
+        // NaN makes every comparison false
+        boolean greater = type == TokenType.GREATER || type == TokenType.GREATER_EQUAL;
+        code.op(greater ? Code.DCMPL : Code.DCMPG, -3);
+        booleanFromJump(switch (type) {
+            case GREATER -> Code.IFLE;
+            case GREATER_EQUAL -> Code.IFLT;
+            case LESS -> Code.IFGE;
+            default -> Code.IFGT;
+        });
+    }
+
+    @Override
+    public Integer visitConcatExpr(Expr.Concat expr) {
+        String builder = "Ljava/lang/StringBuilder;";
+        invoke(SUPPORT, "builder", "()" + builder);
+        for (Expr part : expr.getParts()) {
+            switch (compile(part)) {
+                case INT -> invoke(SUPPORT, "append", "(" + builder + "I)" + builder);
+                case DOUBLE -> invoke(SUPPORT, "append", "(" + builder + "D)" + builder);
+                case BOOLEAN -> {
+                    convert(BOOLEAN, OBJECT);
+                    invoke(SUPPORT, "append", "(" + builder + "Ljava/lang/Object;)" + builder);
+                }
+                default -> invoke(SUPPORT, "append", "(" + builder + "Ljava/lang/Object;)" + builder);
+            }
+        }
+        invoke(SUPPORT, "joined", "(" + builder + ")Ljava/lang/String;");
+        return OBJECT;
+    }
+
+    @Override
+    public Integer visitGroupingExpr(Expr.Grouping expr) {
+        return compile(expr.getExpression());
+    }
+
+    @Override
+    public Integer visitLiteralExpr(Expr.Literal expr) {
+        Object value = expr.getValue();
+        if (value instanceof Integer number) {
+            pushInt(number);
+            return INT;
+        }
+        if (value instanceof Double number) {
+            code.ldc2(classWriter.doubleValue(number));
+            return DOUBLE;
+        }
+        if (value instanceof Boolean bool) {
+            code.iconst(bool ? 1 : 0);
+            return BOOLEAN;
+        }
+        if (value instanceof String string) {
+            code.ldc(classWriter.string(string));
+            return OBJECT;
+        }
+        if (value == null) {
+            code.op(Code.ACONST_NULL, 1);
+            return OBJECT;
+        }
+        pushConstant(value, null);
+        return OBJECT;
+    }
+
+    @Override
+    public Integer visitLogicalExpr(Expr.Logical expr) {
+        // the left operand is the result when it decides it
+        boolean or = expr.getOperator().getType() == TokenType.OR;
+        int kind = predict(expr.getLeft()) == BOOLEAN && predict(expr.getRight()) == BOOLEAN ? BOOLEAN : OBJECT;
+        Code.Label end = new Code.Label();
+
+        compile(expr.getLeft(), kind);
+        code.op(Code.DUP, 1);
+        if (kind == OBJECT) invoke(OPERATIONS, "isTruthy", "(Ljava/lang/Object;)Z");
+        code.jump(or ? Code.IFNE : Code.IFEQ, end);
+        code.op(Code.POP, -1);
+
+        // the right operand might not run, so what it assigns does not count
+        BitSet before = (BitSet) assigned.clone();
+        compile(expr.getRight(), kind);
+        assigned = before;
+
+        code.place(end);
+        return kind;
+    }
+
+    @Override
+    public Integer visitUnaryExpr(Expr.Unary expr) {
+        Token operator = expr.getOperator();
+        if (operator.getType() == TokenType.NOT) {
+            switch (compile(expr.getRight())) {
+                case BOOLEAN -> {}
+                case OBJECT -> invoke(OPERATIONS, "isTruthy", "(Ljava/lang/Object;)Z");
+                // a number is truthy
+                case DOUBLE -> {
+                    pop(DOUBLE);
+                    code.iconst(1);
+                }
+                default -> {
+                    pop(INT);
+                    code.iconst(1);
+                }
+            }
+            code.iconst(1);
+            code.op(Code.IXOR, -1);
+            return BOOLEAN;
+        }
+
+        int kind = predict(expr.getRight());
+        if (kind == INT || kind == DOUBLE) {
+            compile(expr.getRight(), kind);
+            code.op(kind == INT ? Code.INEG : Code.DNEG, 0);
+            return kind;
+        }
+        compile(expr.getRight(), OBJECT);
+        pushToken(operator);
+        code.op(Code.SWAP, 0);
+        invoke(OPERATIONS, "unary", "(L" + TOKEN + ";Ljava/lang/Object;)Ljava/lang/Object;");
+        return OBJECT;
+    }
+
+    @Override
+    public Integer visitVariableExpr(Expr.Variable expr) {
+        if (!expr.isResolved()) {
+            pushToken(expr.getName());
+            invoke(SUPPORT, "undefined", "(L" + TOKEN + ";)Ljava/lang/Object;");
+            return OBJECT;
+        }
+        return read(local(expr.getDepth(), expr.getSlot()));
+    }
+
+    @Override
+    public Integer visitIncrementOrDecrementExpr(Expr.IncrementOrDecrement expr) {
+        return increment(expr, true);
+    }
+
+    // Leaves the old value of x++ or the new value of ++x when keep is set
+    private int increment(Expr.IncrementOrDecrement expr, boolean keep) {
+        Expr.Variable variable = expr.getVariable();
+        if (!variable.isResolved()) {
+            pushToken(variable.getName());
+            invoke(SUPPORT, "undefined", "(L" + TOKEN + ";)Ljava/lang/Object;");
+            if (!keep) pop(OBJECT);
+            return OBJECT;
+        }
+
+        Local local = local(variable.getDepth(), variable.getSlot());
+        boolean up = expr.getOperator().getType() == TokenType.INCREMENT;
+        boolean prefix = expr.isPrefix();
+
+        if (isNumber(local) && local.kind == INT) {
+            if (keep && !prefix) code.local(Code.ILOAD, local.index);
+            code.iinc(local.index, up ? 1 : -1);
+            if (keep && prefix) code.local(Code.ILOAD, local.index);
+            return INT;
+        }
+        if (isNumber(local)) {
+            code.local(Code.DLOAD, local.index);
+            if (keep && !prefix) dup(DOUBLE);
+            code.op(Code.DCONST_1, 2);
+            code.op(up ? Code.DADD : Code.DSUB, -2);
+            if (keep && prefix) dup(DOUBLE);
+            code.local(Code.DSTORE, local.index);
+            return DOUBLE;
+        }
+
+        // not known to hold a number, Operations reports it
+        read(local);
+        if (keep && !prefix) dup(OBJECT);
+        pushToken(expr.getOperator());
+        pushToken(variable.getName());
+        invoke(SUPPORT, "increment", "(Ljava/lang/Object;L" + TOKEN + ";L" + TOKEN + ";)Ljava/lang/Object;");
+        if (keep && prefix) dup(OBJECT);
+        store(local, OBJECT, variable.getName());
+        return OBJECT;
+    }
+
+    // Statements ----------------------------------------------------------------
+
+    @Override
+    public Void visitExpressionStmt(Stmt.Expression stmt) {
+        // the value is dropped, so it does not have to be kept
+        Expr expr = stmt.getExpression();
+        if (expr instanceof Expr.Assign assign) {
+            assign(assign, false);
+        } else if (expr instanceof Expr.CompoundAssign compound) {
+            assign(expand(compound), false);
+        } else if (expr instanceof Expr.IncrementOrDecrement update) {
+            increment(update, false);
+        } else {
+            pop(compile(expr));
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitPrintStmt(Stmt.Print stmt) {
+        // a & chain is printed part by part, its joined text is never built
+        List<Expr> parts = stmt.getExpression() instanceof Expr.Concat concat
+            ? concat.getParts()
+            : List.of(stmt.getExpression());
+        for (Expr part : parts) {
+            switch (compile(part)) {
+                case INT -> invoke(SUPPORT, "write", "(I)V");
+                case DOUBLE -> invoke(SUPPORT, "write", "(D)V");
+                case BOOLEAN -> {
+                    convert(BOOLEAN, OBJECT);
+                    invoke(SUPPORT, "write", "(Ljava/lang/Object;)V");
+                }
+                default -> invoke(SUPPORT, "write", "(Ljava/lang/Object;)V");
+            }
+        }
+        invoke(SUPPORT, "printed", "()V");
+        return null;
+    }
+
+    @Override
+    public Void visitVarStmt(Stmt.Var stmt) {
+        define(stmt.getName(), stmt.getSlot(), stmt.getDeclaredType(), stmt.getInitializer());
+        return null;
+    }
+
+    @Override
+    public Void visitMultiVar(Stmt.MultiVar stmt) {
+        List<Token> names = stmt.getNames();
+        for (int i = 0; i < names.size(); i++) {
+            define(names.get(i), stmt.getSlot(i), stmt.getDeclaredType(), stmt.getInitializers().get(i));
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitBlockStmt(Stmt.Block stmt) {
+        if (stmt.isScoped()) scopes.add(new Local[stmt.getSlotCount()]);
+        for (Stmt statement : stmt.getStatements()) {
+            compile(statement);
+        }
+        if (stmt.isScoped()) scopes.remove(scopes.size() - 1);
+        return null;
+    }
+
+    @Override
+    public Void visitIfStmt(Stmt.If stmt) {
+        Code.Label end = new Code.Label();
+        // what is assigned at the end of each way through
+        List<BitSet> outcomes = new ArrayList<>();
+
+        branch(stmt.getCondition(), stmt.getThenBranch(), end, outcomes);
+        if (stmt.getElseIfBranches() != null) {
+            for (Stmt.ElseIf elifBranch : stmt.getElseIfBranches()) {
+                branch(elifBranch.getCondition(), elifBranch.getBlock(), end, outcomes);
+            }
+        }
+        if (stmt.getElseBranch() != null) {
+            compile(stmt.getElseBranch());
+        }
+        outcomes.add(assigned);
+
+        code.place(end);
+        assigned = outcomes.get(0);
+        for (BitSet outcome : outcomes) {
+            assigned.and(outcome);
+        }
+        return null;
+    }
+
+    // Runs the body when the condition holds, then jumps to end
+    private void branch(Expr condition, Stmt body, Code.Label end, List<BitSet> outcomes) {
+        Code.Label next = new Code.Label();
+        jumpIf(false, condition, next);
+        BitSet skipped = (BitSet) assigned.clone();
+
+        compile(body);
+        outcomes.add(assigned);
+        code.jump(Code.GOTO, end);
+
+        code.place(next);
+        assigned = skipped;
+    }
+
+    @Override
+    public Void visitElseIfStmt(Stmt.ElseIf stmt) {
+        // only reached through visitIfStmt
+        Code.Label end = new Code.Label();
+        List<BitSet> outcomes = new ArrayList<>();
+        branch(stmt.getCondition(), stmt.getBlock(), end, outcomes);
+        code.place(end);
+        return null;
+    }
+
+    @Override
+    public Void visitWhileStmt(Stmt.While stmt) {
+        Code.Label top = new Code.Label();
+        Code.Label exit = new Code.Label();
+
+        code.place(top);
+        jumpIf(false, stmt.getCondition(), exit);
+        BitSet entered = (BitSet) assigned.clone();
+
+        body(stmt.getBody(), new Loop(exit, top));
+        code.jump(Code.GOTO, top);
+
+        code.place(exit);
+        assigned = entered;
+        return null;
+    }
+
+    @Override
+    public Void visitDoWhileStmt(Stmt.DoWhile stmt) {
+        Code.Label top = new Code.Label();
+        Code.Label condition = new Code.Label();
+        Code.Label exit = new Code.Label();
+        BitSet before = (BitSet) assigned.clone();
+
+        code.place(top);
+        Loop loop = body(stmt.getBody(), new Loop(exit, condition));
+
+        // PADAYON can skip the assignments at the end of the body
+        code.place(condition);
+        if (loop.continued) assigned = (BitSet) before.clone();
+        jumpIf(true, stmt.getCondition(), top);
+
+        code.place(exit);
+        if (loop.broken) assigned = before;
+        return null;
+    }
+
+    @Override
+    public Void visitForStmt(Stmt.For stmt) {
+        if (stmt.isScoped()) scopes.add(new Local[stmt.getSlotCount()]);
+        if (stmt.getInitializer() != null) compile(stmt.getInitializer());
+
+        Code.Label top = new Code.Label();
+        Code.Label next = new Code.Label();
+        Code.Label exit = new Code.Label();
+
+        code.place(top);
+        if (stmt.getCondition() != null) jumpIf(false, stmt.getCondition(), exit);
+        BitSet entered = (BitSet) assigned.clone();
+
+        Loop loop = body(stmt.getBody(), new Loop(exit, next));
+
+        // PADAYON still runs the increment
+        code.place(next);
+        if (loop.continued) assigned = (BitSet) entered.clone();
+        if (stmt.getIncrement() != null) compile(stmt.getIncrement());
+        code.jump(Code.GOTO, top);
+
+        code.place(exit);
+        assigned = entered;
+        if (stmt.isScoped()) scopes.remove(scopes.size() - 1);
+        return null;
+    }
+
+    private Loop body(Stmt body, Loop loop) {
+        loops.add(loop);
+        compile(body);
+        loops.remove(loops.size() - 1);
+        return loop;
+    }
+
+    @Override
+    public Void visitBreakStmt(Stmt.Break stmt) {
+        Loop loop = loops.get(loops.size() - 1);
+        loop.broken = true;
+        code.jump(Code.GOTO, loop.exit);
+        return null;
+    }
+
+    @Override
+    public Void visitContinueStmt(Stmt.Continue stmt) {
+        Loop loop = loops.get(loops.size() - 1);
+        loop.continued = true;
+        code.jump(Code.GOTO, loop.next);
+        return null;
+    }
+
+    @Override
+    public Void visitScanStmt(Stmt.Scan stmt) {
+        List<Token> names = stmt.getNames();
+        int parts = newLocal(OBJECT);
+
+        code.local(Code.ALOAD, INPUT);
+        pushInt(names.size());
+        pushToken(names.get(0));
+        invoke(SUPPORT, "read", "(Ljava/util/Scanner;IL" + TOKEN + ";)[Ljava/lang/String;");
+        code.local(Code.ASTORE, parts);
+
+        for (int i = 0; i < names.size(); i++) {
+            if (stmt.isResolved(i)) {
+                code.local(Code.ALOAD, parts);
+                pushInt(i);
+                code.op(Code.AALOAD, -1);
+                store(local(stmt.getDepth(i), stmt.getSlot(i)), OBJECT, names.get(i));
+            } else {
+                pushToken(names.get(i));
+                invoke(SUPPORT, "notDefined", "(L" + TOKEN + ";)V");
+            }
+        }
+        return null;
+    }
+}
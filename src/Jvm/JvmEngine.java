@@ -0,0 +1,70 @@
+package Jvm;
+
+import java.util.List;
+import java.util.Scanner;
+
+import Interpreter.RunTimeError;
+import Main.Baithon;
+import Main.Engine;
+import Main.Environment;
+import Nodes.NodeEngine;
+import Parsers.Stmt;
+
+// Engine that compiles the statements into a JVM class and runs that. What
+// the JvmCompiler cannot handle, like the prompt using a variable of an
+// earlier line, runs on the node engine with the same globals.
+public class JvmEngine implements Engine {
+    // the global scope is created on the first run so the frame kind
+    // picked on the command line is used
+    private Environment globals;
+    private NodeEngine fallback;
+    private final Scanner input = new Scanner(System.in);
+    // global slots declared by earlier runs
+    private int globalCount = 0;
+
+    // Compiles a program on its own, to be run as often as needed
+    public static CompiledScript compile(List<Stmt> statements) {
+        return JvmCompiler.compile(statements, 0);
+    }
+
+    @Override
+    public void interpret(List<Stmt> statements) {
+        if (globals == null) {
+            globals = Environment.create(null, 0);
+            fallback = new NodeEngine(globals, input);
+        }
+
+        int inherited = globalCount;
+        globalCount = Math.max(globalCount, topLevelSlots(statements));
+
+        CompiledScript script;
+        try {
+            script = JvmCompiler.compile(statements, inherited);
+        } catch (CannotCompileException e) {
+            fallback.interpret(statements);
+            return;
+        }
+
+        try {
+            script.run(input, globals);
+        } catch (RunTimeError error) {
+            Baithon.runTimeError(error);
+            throw new RuntimeException();
+        }
+    }
+
+    // One more than the highest global slot the statements declare
+    private static int topLevelSlots(List<Stmt> statements) {
+        int count = 0;
+        for (Stmt statement : statements) {
+            if (statement instanceof Stmt.Var var) {
+                count = Math.max(count, var.getSlot() + 1);
+            } else if (statement instanceof Stmt.MultiVar multiVar) {
+                for (int i = 0; i < multiVar.getNames().size(); i++) {
+                    count = Math.max(count, multiVar.getSlot(i) + 1);
+                }
+            }
+        }
+        return count;
+    }
+}
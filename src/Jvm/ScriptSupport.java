@@ -0,0 +1,123 @@
+package Jvm;
+
+import java.util.Scanner;
+
+import Interpreter.Operations;
+import Interpreter.Output;
+import Interpreter.RunTimeError;
+import Lexers.Token;
+import Lexers.TokenType;
+import Main.Environment;
+
+/*
+ * ScriptSupport
+ * The runtime the generated classes call into: printing, DAWAT, the type
+ * checks of the variables and the errors, so they behave like the other
+ * engines. Operators on values that are not plain numbers go straight to
+ * Operations.
+ *
+ * The methods that always throw still return a value, so the code that
+ * calls them looks like it goes on and the JVM can check it like any other.
+ */
+public final class ScriptSupport {
+    private ScriptSupport() {}
+
+    // IPAKITA, a write per part and then printed
+    public static void write(Object value) {
+        Output.write(value);
+    }
+
+    public static void write(int value) {
+        Output.write(value);
+    }
+
+    public static void write(double value) {
+        Output.write(value);
+    }
+
+    public static void printed() {
+        Output.end();
+    }
+
+    public static String concat(Object left, Object right) {
+        return Operations.stringify(left) + Operations.stringify(right);
+    }
+
+    // A & chain: builder, an append per part, then joined
+    public static StringBuilder builder() {
+        return new StringBuilder();
+    }
+
+    public static StringBuilder append(StringBuilder builder, Object value) {
+        Operations.stringify(value, builder);
+        return builder;
+    }
+
+    public static StringBuilder append(StringBuilder builder, int value) {
+        return builder.append(value);
+    }
+
+    public static StringBuilder append(StringBuilder builder, double value) {
+        Operations.stringify(value, builder);
+        return builder;
+    }
+
+    public static String joined(StringBuilder builder) {
+        return builder.toString();
+    }
+
+    // DAWAT, the trimmed parts of one input line
+    public static String[] read(Scanner input, int count, Token first) {
+        Output.flush();
+        String[] parts = input.nextLine().split(",");
+        if (count != parts.length) {
+            throw new RunTimeError(first, "Number of variables does not match number of inputs.");
+        }
+        for (int i = 0; i < parts.length; i++) {
+            parts[i] = parts[i].trim();
+        }
+        return parts;
+    }
+
+    public static Object increment(Object value, Token operator, Token name) {
+        return Operations.increment(operator, name, value);
+    }
+
+    // Type checks -------------------------------------------------------------
+
+    public static int toInt(Object value, Token name) {
+        return (Integer) Environment.checkType(name, TokenType.INTEGER, value);
+    }
+
+    public static double toDouble(Object value, Token name) {
+        return (Double) Environment.checkType(name, TokenType.FLOAT, value);
+    }
+
+    public static Object checkType(Object value, Token name, TokenType type) {
+        return Environment.checkType(name, type, value);
+    }
+
+    // a declaration keeps a null initial value as it is
+    public static Object define(Object value, Token name, TokenType type) {
+        return value == null ? null : Environment.checkType(name, type, value);
+    }
+
+    // Copies a top level variable into the globals for the next run of the prompt
+    public static void keep(Environment globals, Object value, Token name, int slot, TokenType type) {
+        globals.define(name.getLexeme(), slot, value, type);
+    }
+
+    // Errors ------------------------------------------------------------------
+
+    public static Object undefined(Token name) {
+        throw new RunTimeError(name, "Undefined variable '" + name.getLexeme() + "'.");
+    }
+
+    public static void notDefined(Token name) {
+        throw new RunTimeError(name, "Variable '" + name.getLexeme() + "' is not defined.");
+    }
+
+    public static void divisionByZero(Token operator) {
+        throw new RunTimeError(operator, "Division by zero.");
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Keywords
+ * The Scanner's keyword lookup, built once from Scanner.keywords. A word is
+ * looked up by the hash the Scanner computes while it consumes the word's
+ * chars (hash = 31 * hash + c, like String.hashCode), which picks its one
+ * possible slot in a perfect hash table, then the chars are compared. No
+ * String is made for the word.
+ *
+ * A two word keyword (ALANG SA, KUNG DILI, KUNG WALA) is found from its
+ * first word, whose entry lists the second words that can follow it after
+ * one space, so the Scanner only looks ahead after ALANG and KUNG.
+ */
+package Lexers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+final class Keywords {
+  static final class Entry {
+    final String word;
+    // null for a word that only starts a two word keyword (ALANG)
+    TokenType type;
+    final List<String> seconds = new ArrayList<>();
+    final List<TokenType> secondTypes = new ArrayList<>();
+
+    Entry(String word) {
+      this.word = word;
+    }
+  }
+
+  private final Entry[] table;
+  private final int multiplier;
+  private final int shift;
+
+  Keywords(Map<String, TokenType> keywords) {
+    // one entry per first word
+    List<Entry> entries = new ArrayList<>();
+    for (Map.Entry<String, TokenType> keyword : keywords.entrySet()) {
+      String text = keyword.getKey();
+      int space = text.indexOf(' ');
+      Entry entry = entry(entries, space < 0 ? text : text.substring(0, space));
+      if (space < 0) {
+        entry.type = keyword.getValue();
+      } else {
+        entry.seconds.add(text.substring(space + 1));
+        entry.secondTypes.add(keyword.getValue());
+      }
+    }
+
+    // the smallest table, at least twice the entries, and the first odd
+    // multiplier that gives every entry a slot of its own
+    int bits = 32 - Integer.numberOfLeadingZeros(entries.size() * 2 - 1);
+    for (;;) {
+      for (int multiplier = 1; multiplier < 1 << 16; multiplier += 2) {
+        Entry[] table = place(entries, multiplier, 32 - bits);
+        if (table != null) {
+          this.table = table;
+          this.multiplier = multiplier;
+          this.shift = 32 - bits;
+          return;
+        }
+      }
+      bits++;
+    }
+  }
+
+  // the only entry a word with this hash can be, null if none
+  Entry find(int hash) {
+    return table[(hash * multiplier) >>> shift];
+  }
+
+  private static Entry entry(List<Entry> entries, String word) {
+    for (Entry entry : entries) {
+      if (entry.word.equals(word)) return entry;
+    }
+    Entry entry = new Entry(word);
+    entries.add(entry);
+    return entry;
+  }
+
+  private static Entry[] place(List<Entry> entries, int multiplier, int shift) {
+    Entry[] table = new Entry[1 << (32 - shift)];
+    for (Entry entry : entries) {
+      int slot = (entry.word.hashCode() * multiplier) >>> shift;
+      if (table[slot] != null) return null;
+      table[slot] = entry;
+    }
+    return table;
+  }
+}
@@ -0,0 +1,115 @@
+/*
+ * ParallelScanner
+ * Scans a big program in chunks at the same time (--parallel-scan), each
+ * chunk with a Scanner of its own on the common fork-join pool, then joins
+ * their tokens into one TokenBuffer that is token for token what
+ * Scanner.scanBuffer gives.
+ *
+ * A chunk starts right after a '\n'. Nothing but a string or a [..] escape
+ * goes on past a line end (a -- comment stops at it, so does a char), so a
+ * chunk that did not end inside one of those ended where the sequential
+ * Scanner would have finished a token too. One that did is scanned again
+ * together with the next chunk. Every chunk counts its lines from 1 and
+ * keeps its errors, they get the lines of the chunks before them added
+ * when the chunks are joined, in order.
+ */
+package Lexers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import Main.Baithon;
+
+public final class ParallelScanner {
+  // smaller chunks are not worth a task of their own, and there is one
+  // chunk per worker at most
+  static final int MIN_CHUNK = 1 << 20;
+  static final int MAX_CHUNKS = ForkJoinPool.getCommonPoolParallelism();
+
+  private static int minChunk = MIN_CHUNK;
+  private static int maxChunks = MAX_CHUNKS;
+
+  private final String source;
+
+  public ParallelScanner(String source) {
+    this.source = source;
+  }
+
+  // For tests, chunks of at least minChunk chars and at most maxChunks of
+  // them, so small programs get split too
+  static void setChunking(int minChunk, int maxChunks) {
+    ParallelScanner.minChunk = minChunk;
+    ParallelScanner.maxChunks = maxChunks;
+  }
+
+  private record Chunk(Scanner scanner, List<Scanner.ScanError> errors) {}
+
+  public List<Token> scanTokens() {
+    return scanBuffer().toList();
+  }
+
+  public TokenBuffer scanBuffer() {
+    int[] bounds = bounds();
+    if (bounds.length == 2) return new Scanner(source).scanBuffer();
+
+    ForkJoinPool pool = ForkJoinPool.commonPool();
+    List<ForkJoinTask<Chunk>> tasks = new ArrayList<>();
+    for (int i = 0; i + 1 < bounds.length; i++) {
+      int from = bounds[i];
+      int to = bounds[i + 1];
+      tasks.add(pool.submit(() -> scan(from, to)));
+    }
+
+    TokenBuffer tokens = new TokenBuffer(source);
+    int lineOffset = 0;
+    int first = 0;
+    while (first < tasks.size()) {
+      Chunk chunk = tasks.get(first).join();
+
+      // ended inside a string or an escape, scan on through the next chunk
+      int last = first;
+      while (chunk.scanner().endedInside() && last + 1 < tasks.size()) {
+        last++;
+        tasks.get(last).cancel(false);
+        chunk = scan(bounds[first], bounds[last + 1]);
+      }
+
+      tokens.append(chunk.scanner().tokens(), lineOffset, last + 1 == tasks.size());
+      for (Scanner.ScanError error : chunk.errors()) {
+        Baithon.error(error.line() + lineOffset, error.message());
+      }
+      lineOffset += chunk.scanner().line() - 1;
+      first = last + 1;
+    }
+    return tokens;
+  }
+
+  private Chunk scan(int from, int to) {
+    List<Scanner.ScanError> errors = new ArrayList<>();
+    Scanner scanner = new Scanner(source, from, to, errors);
+    scanner.scanBuffer();
+    return new Chunk(scanner, errors);
+  }
+
+  // Where the chunks start, maxChunks at most, each boundary just after the
+  // first line end from an even split on. The last one is the source's
+  // length.
+  int[] bounds() {
+    int length = source.length();
+    int count = Math.min(maxChunks, length / minChunk);
+
+    List<Integer> bounds = new ArrayList<>();
+    bounds.add(0);
+    for (int i = 1; i < count; i++) {
+      int target = Math.max((int) ((long) length * i / count), bounds.get(bounds.size() - 1));
+      int newline = source.indexOf('\n', target);
+      if (newline < 0 || newline + 1 >= length) break;
+      if (newline + 1 > bounds.get(bounds.size() - 1)) bounds.add(newline + 1);
+    }
+    bounds.add(length);
+
+    return bounds.stream().mapToInt(Integer::intValue).toArray();
+  }
+}
@@ -0,0 +1,21 @@
+/*
+ * RunSearch
+ * The searches the Scanner's --vector-scan fast paths make over a String:
+ * the end of a run of blanks and the next of one or two chars. VectorScan
+ * does them with the jdk.incubator.vector API. It is built from src-vector
+ * only with the vector profile, so the default build compiles without the
+ * incubating module and the Scanner loads it by name, see
+ * Scanner.setVectorScan.
+ */
+package Lexers;
+
+interface RunSearch {
+  // the first index from from on whose char is not a space or a tab, end if none
+  int skipBlanks(int from, int end);
+
+  // the first index from from on whose char is target, end if none
+  int indexOf(int from, int end, char target);
+
+  // the first index from from on whose char is either a or b, end if none
+  int indexOf(int from, int end, char a, char b);
+}
@@ -17,10 +17,12 @@
  */
 package Lexers;
 
-import java.util.ArrayList;
+import java.io.Reader;
+import java.lang.reflect.Constructor;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
 
 import static Lexers.TokenType.COLON;
 import static Lexers.TokenType.COMMA;
@@ -56,11 +58,18 @@ import static Lexers.TokenType.SEMICOLON;
 import Main.Baithon;
 
 public class Scanner {
-  // This is the file we will be scanning
+  // This is the file we will be scanning, or the window over it when it is
+  // read from a Reader (one of the two is null)
   private final String source;
+  private final SourceWindow window;
+  // where scanning the String stops, its length unless it is a chunk
+  private final int end;
+  // the vector fast paths over the String, null unless --vector-scan
+  private final RunSearch vector;
 
-  // This is the list of tokens we will be returning
-  private final List<Token> tokens = new ArrayList<>();
+  // This is where the tokens we will be returning go, see TokenBuffer. A
+  // streamed one needs this Scanner, so it is made by scanBuffer.
+  private TokenBuffer tokens;
 
   // This is the reserved keywords in the language
   public static final Map<String, TokenType> keywords;
@@ -109,25 +118,116 @@ public class Scanner {
     keywords.put("NULL",TokenType.NULL);
   }
 
+  // keywords for the identifier scanner, see Keywords
+  private static final Keywords KEYWORDS = new Keywords(keywords);
+
+  // makes the VectorScan a String is scanned with, null unless setVectorScan
+  private static Function<String, RunSearch> vectorScan = null;
+
   // Constructor
   public Scanner(String source) {
+    this(source, 0, source.length(), null);
+  }
+
+  // Chunk constructor for ParallelScanner, scans source from from to to
+  // with lines counted from 1 and keeps its errors in errors instead of
+  // reporting them
+  Scanner(String source, int from, int to, List<ScanError> errors) {
     this.source = source;
+    this.window = null;
+    this.end = to;
+    this.vector = vectorScan != null ? vectorScan.apply(source) : null;
+    this.errors = errors;
+    this.tokens = new TokenBuffer(source, to - from);
+    this.start = from;
+    this.current = from;
+  }
+
+  // Streaming constructor, the program is read from reader in chunks while
+  // the parser asks for tokens, see scanBuffer
+  public Scanner(Reader reader) {
+    this.source = null;
+    this.window = new SourceWindow(reader);
+    this.end = 0;
+    this.vector = null;
+    this.errors = null;
   }
 
   // Scanner variables
   private int start = 0;
   private int current = 0;
   private int line = 1; 
+  private boolean scannedEof = false;
+
+  // an error found while scanning a chunk, reported once the chunks are joined
+  record ScanError(int line, String message) {}
+  private final List<ScanError> errors;
+  // whether a string or an escape was still open at the end of the source
+  private boolean endedInside = false;
+
+  // Turns the vector fast paths for blanks, comments, strings and escapes
+  // on or off, see RunSearch. Returns false and leaves them off when the
+  // JVM was started without --add-modules jdk.incubator.vector or the build
+  // has no VectorScan (it is only compiled with the vector profile).
+  public static boolean setVectorScan(boolean enabled) {
+    if (!enabled) {
+      vectorScan = null;
+      return true;
+    }
+    if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) return false;
 
-  // This function will scan the tokens
+    Constructor<? extends RunSearch> make;
+    try {
+      make = Class.forName("Lexers.VectorScan").asSubclass(RunSearch.class).getDeclaredConstructor(String.class);
+    } catch (ClassNotFoundException | NoSuchMethodException e) {
+      return false;
+    }
+    vectorScan = source -> {
+      try {
+        return make.newInstance(source);
+      } catch (ReflectiveOperationException e) {
+        throw new IllegalStateException("cannot make a VectorScan", e);
+      }
+    };
+    return true;
+  }
+
+  // This function will scan the tokens, one Token object each
   public List<Token> scanTokens() {
-    while (!isAtEnd()) {
+    return scanBuffer().toList();
+  }
+
+  // This function will scan the tokens into a TokenBuffer, what the Parser reads.
+  // A Scanner over a Reader returns it right away, its tokens are scanned
+  // when the parser gets to them.
+  public TokenBuffer scanBuffer() {
+    if (window == null) {
+      while (scanNext()) {
+        // scan everything
+      }
+    } else if (tokens == null) {
+      tokens = new TokenBuffer(this, window);
+    }
+    return tokens;
+  }
+
+  // This function will scan until there is one more token in the buffer,
+  // false once the EOF token is in
+  boolean scanNext() {
+    if (scannedEof) return false;
+
+    int size = tokens.size();
+    while (tokens.size() == size) {
+      if (isAtEnd()) {
+        tokens.add(TokenType.EOF, current, current, line);
+        scannedEof = true;
+        return true;
+      }
       start = current;
+      if (window != null) window.release(start);
       scanToken();
     }
-
-    tokens.add(new Token(TokenType.EOF, "", null, line));
-    return tokens;
+    return true;
   }
 
   // This function will scan the current token
@@ -144,8 +244,14 @@ public class Scanner {
       case '}': addToken(RIGHT_BRACE); break;
       case '[':
         StringBuilder escapeContent = new StringBuilder();
-        while (!isAtEnd() && peek() != ']') {
-            escapeContent.append(advance());
+        if (vector != null) {
+            int close = vector.indexOf(current, end, ']');
+            escapeContent.append(source, current, close);
+            current = close;
+        } else {
+            while (!isAtEnd() && peek() != ']') {
+                escapeContent.append(advance());
+            }
         }
 
         if (peek() == ']') {
@@ -154,7 +260,7 @@ public class Scanner {
 
             // more than one character == bad
             if (content.length() > 1) {
-                Baithon.error(line, "Invalid escape sequence: " + content);
+                error(line, "Invalid escape sequence: " + content);
                 return;
             }
 
@@ -179,7 +285,8 @@ public class Scanner {
                 addToken(TokenType.STRING, content); // Treat the content as a STRING token
             }
         } else {
-            Baithon.error(line, "Unterminated escape sequence. Missing ']'.");
+            endedInside = true;
+            error(line, "Unterminated escape sequence. Missing ']'.");
         }
         break;
       case ',': addToken(COMMA); break;
@@ -231,14 +338,16 @@ public class Scanner {
         break;
       case '>': addToken(match('=') ? GREATER_EQUAL : GREATER); break;
 
-      // Whitespaces
-      case ' ': break;
+      // Whitespaces, with VectorScan the rest of the run too
+      case ' ':
+      case '\t':
+        if (vector != null) current = vector.skipBlanks(current, end);
+        break;
       case '\r':
         if (match('\n')) {
           addToken(TokenType.NEW_LINE);
           line++;}
         break;
-      case '\t': break;
       case '\n': 
         addToken(NEW_LINE);
         line++; 
@@ -251,7 +360,11 @@ public class Scanner {
           // if (isDecrementOperator()) {
             // addToken(DECREMENT);
           // } else {
-            while (peek() != '\n' && !isAtEnd()) advance();
+            if (vector != null) {
+              current = vector.indexOf(current, end, '\n');
+            } else {
+              while (peek() != '\n' && !isAtEnd()) advance();
+            }
             // consume the new line
             if (peek() == '\n') {
               line++;
@@ -273,7 +386,7 @@ public class Scanner {
         } else if (Character.isLetter(c)) {
           identifier();
         } else {
-          Baithon.error(line, "Unexpected character: " + c);
+          error(line, "Unexpected character: " + c);
         }     
     }
   }
@@ -281,19 +394,19 @@ public class Scanner {
   // This function will add the token to the list of tokens
   private void addToken(TokenType type) {
     // System.out.println("scanner/addToken: " + type);
-    tokens.add(new Token(type, source.substring(start, current), null, line));
+    tokens.add(type, start, current, line);
   }
 
   // This function will add the token to the list of tokens with a literal value
   private void addToken(TokenType type, Object literal) {
     // System.out.println("scanner/addToken: " + type + " " + literal);
-    tokens.add(new Token(type, source.substring(start, current), literal, line));
+    tokens.add(type, start, current, line, literal);
   }
 
   // This function will scan the character and add it to the list of tokens
   void character () {
     if (isAtEnd() || peek() == '\n') {
-      Baithon.error(line, "Unterminated character literal.");
+      error(line, "Unterminated character literal.");
       return;
     }
 
@@ -303,7 +416,7 @@ public class Scanner {
       advance(); // consume the closing quote
       addToken(TokenType.CHARACTER, value);
     } else {
-      Baithon.error(line, "Unterminated character literal.");
+      error(line, "Unterminated character literal.");
     }
 
     // debugging
@@ -313,14 +426,24 @@ public class Scanner {
   // This function will scan the string and add it to the list of tokens
   void string() {
     // consume string
-    while (peek() != '"' && !isAtEnd()) {
-      if (peek() == '\n') line++;
-      advance();
+    if (vector != null) {
+      int at = vector.indexOf(current, end, '"', '\n');
+      while (at < end && source.charAt(at) == '\n') {
+        line++;
+        at = vector.indexOf(at + 1, end, '"', '\n');
+      }
+      current = at;
+    } else {
+      while (peek() != '"' && !isAtEnd()) {
+        if (peek() == '\n') line++;
+        advance();
+      }
     }
 
     // check if the string is closed properly
     if (isAtEnd()) {
-      Baithon.error(line, "Unterminated string.");
+      endedInside = true;
+      error(line, "Unterminated string.");
       return;
     }
 
@@ -328,7 +451,7 @@ public class Scanner {
     advance();
 
     // get the string value
-    String value = source.substring(start + 1, current - 1);
+    String value = text(start + 1, current - 1);
     if (value.equals("OO")) {
       addToken(TokenType.TRUE, true);
     } else if (value.equals("DILI")) {
@@ -345,7 +468,7 @@ public class Scanner {
     boolean isDouble = false;
 
     // Check if number starts with a dot, e.g., .5
-    if (source.charAt(start) == '.' && Character.isDigit(peek())) {
+    if (charAt(start) == '.' && Character.isDigit(peek())) {
       isDouble = true;
       while (Character.isDigit(peek())) advance();
     } else {
@@ -371,14 +494,14 @@ public class Scanner {
 
       // must have at least one digit after 'e'
       if (!Character.isDigit(peek())) {
-        Baithon.error(line, "Invalid scientific notation: expected digit after 'e'");
+        error(line, "Invalid scientific notation: expected digit after 'e'");
         return;
       }
 
       while (Character.isDigit(peek())) advance();
     }
 
-    String numberAsString = source.substring(start, current);
+    String numberAsString = text(start, current);
     Object numberValue;
 
     try {
@@ -391,87 +514,130 @@ public class Scanner {
       }
 
     } catch (NumberFormatException e) {
-      Baithon.error(line, "Invalid number format: " + numberAsString);
+      error(line, "Invalid number format: " + numberAsString);
     }
   }
 
 
   // this function will scan the identifier and add it to the list of tokens
-  // it will also check if the identifier is a reserved word
+  // it will also check if the identifier is a reserved word, see Keywords
   private void identifier() {
-    // Consume the whole identifier/variable name
+    // Consume the whole identifier/variable name, hashing it on the way
     // no need to check if first character is a digit since na cover na sha sa scanToken
-    while (Character.isLetterOrDigit(peek()) || peek() == '_') {
-      advance();
+    int hash = charAt(start);
+    while (isIdentifierPart(peek())) {
+      hash = 31 * hash + advance();
     }
 
-    // Check if the identifier is a reserved word
-    String text = source.substring(start, current);
-    TokenType type = keywords.getOrDefault(text, null);
-
-    // If the identifier has a space in it, we need to check if the next character is a space
-    // and if it is, we need to consume it
-    if (peek() == ' ') {
-      int currentIndex = current;
-      advance(); // go to the next character
-      
-      // read the next identifier
-      int secondStart = current;
-      while (Character.isLetterOrDigit(peek()) || peek() == '_') {
-        advance();
-      }
-      
-      // combine the two identifiers
-      String secondText = source.substring(secondStart, current);
-      TokenType concatTokenType = keywords.getOrDefault(text + " " + secondText, null);
-      
-      // if the combined identifier is a reserved word, add it to the list of tokens
-      // else go back to the previous character
-      if (concatTokenType != null) {
-        addToken(concatTokenType);
+    Keywords.Entry keyword = KEYWORDS.find(hash);
+    if (keyword == null || !matches(keyword.word, start, current)) {
+      // base case, one word token
+      addToken(IDENTIFIER);
+      return;
+    }
+
+    // A first word of a two word keyword, followed by one space and the
+    // whole second word
+    for (int i = 0; i < keyword.seconds.size(); i++) {
+      String second = keyword.seconds.get(i);
+      int end = current + 1 + second.length();
+      if (peek() == ' ' && matches(second, current + 1, end) && !isIdentifierPart(charOrEnd(end))) {
+        current = end;
+        addToken(keyword.secondTypes.get(i));
         return;
-      } else {
-        current = currentIndex;
       }
     }
+
     // If the identifier is a reserved word, add it to the list of tokens
-    if (type != null) {
-      addToken(type);
-      return;
-    } 
-    
-    // base case, one word token
-    addToken(IDENTIFIER);
+    addToken(keyword.type != null ? keyword.type : IDENTIFIER);
+  }
+
+  // whether the source from start to end is word
+  private boolean matches(String word, int start, int end) {
+    if (end - start != word.length()) return false;
+    for (int i = 0; i < word.length(); i++) {
+      if (charOrEnd(start + i) != word.charAt(i)) return false;
+    }
+    return true;
+  }
+
+  // the chars an identifier goes on with, ASCII ones from a table
+  private static boolean isIdentifierPart(char c) {
+    if (c < 128) return IDENTIFIER_PARTS[c];
+    return Character.isLetterOrDigit(c);
+  }
+
+  private static final boolean[] IDENTIFIER_PARTS = new boolean[128];
+  static {
+    for (char c = 0; c < 128; c++) {
+      IDENTIFIER_PARTS[c] = Character.isLetterOrDigit(c) || c == '_';
+    }
   }
 
 // ------------------------ UTIL FUNCTIONS -------------------------
 
+  private void error(int line, String message) {
+    if (errors != null) {
+      errors.add(new ScanError(line, message));
+    } else {
+      Baithon.error(line, message);
+    }
+  }
+
+  // For ParallelScanner, what a scanned chunk ended with
+  TokenBuffer tokens() {
+    return tokens;
+  }
+
+  int line() {
+    return line;
+  }
+
+  boolean endedInside() {
+    return endedInside;
+  }
+
   private char peek() {
-    return isAtEnd() ? '\0' : source.charAt(current);
+    return isAtEnd() ? '\0' : charAt(current);
   }
   
   private boolean match(char expected) {
-      if (isAtEnd() || source.charAt(current) != expected) return false;
+      if (isAtEnd() || charAt(current) != expected) return false;
       current++; // Consume the expected character
       return true;
   }
 
   private boolean isAtEnd() {
-    return current >= source.length();
+    return window != null ? !window.has(current) : current >= end;
   }
 
   private char advance() {
-    return source.charAt(current++);
+    return charAt(current++);
   }
 
   private char peekNext() {
-    if (current + 1 >= source.length()) return '\0';
-    return source.charAt(current + 1);
+    return charOrEnd(current + 1);
+  }
+
+  // the char at index, or '\0' past the end of the source
+  private char charOrEnd(int index) {
+    if (window != null ? !window.has(index) : index >= end) return '\0';
+    return charAt(index);
+  }
+
+  // the char at index, read from the window when streaming
+  private char charAt(int index) {
+    return window != null ? window.charAt(index) : source.charAt(index);
+  }
+
+  // the source between from and to
+  private String text(int from, int to) {
+    return window != null ? window.text(from, to) : source.substring(from, to);
   }
 
   private boolean isDecrementOperator() {
     // Check if the previous character is part of a variable or expression
-    boolean isBeforeVariable = start > 0 && Character.isLetterOrDigit(source.charAt(start - 1));
+    boolean isBeforeVariable = start > 0 && Character.isLetterOrDigit(charAt(start - 1));
 
     // Check if the next character is part of a variable or expression
     boolean isAfterVariable = !isAtEnd() && Character.isLetterOrDigit(peek());
@@ -0,0 +1,82 @@
+/*
+ * SourceWindow
+ * The part of a program the Scanner is looking at when it reads from a
+ * Reader instead of a String (--stream). Positions are counted from the
+ * start of the program like in a String, but only the chars from the
+ * start of the token being scanned on are kept, read in chunks as the
+ * Scanner gets to them. A token longer than the window makes it grow.
+ */
+package Lexers;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
+final class SourceWindow {
+  static final int SIZE = 1 << 16;
+
+  private final Reader reader;
+  private char[] chars = new char[SIZE];
+  // position of chars[0] in the program, and how many chars are loaded
+  private int offset = 0;
+  private int length = 0;
+  private boolean ended = false;
+  // chars before this position are not needed anymore
+  private int released = 0;
+
+  SourceWindow(Reader reader) {
+    this.reader = reader;
+  }
+
+  // whether the program has a char at position, reading up to it if needed
+  boolean has(int position) {
+    return position < offset + length || fill(position);
+  }
+
+  // only for positions has said yes to
+  char charAt(int position) {
+    return chars[position - offset];
+  }
+
+  String text(int start, int end) {
+    return new String(chars, start - offset, end - start);
+  }
+
+  void appendTo(StringBuilder builder, int start, int end) {
+    builder.append(chars, start - offset, end - start);
+  }
+
+  // the Scanner starts a new token at position
+  void release(int position) {
+    released = position;
+  }
+
+  private boolean fill(int position) {
+    while (position >= offset + length) {
+      if (ended) return false;
+
+      // make room by dropping what was released, or by growing
+      int drop = released - offset;
+      if (drop > 0) {
+        System.arraycopy(chars, drop, chars, 0, length - drop);
+        offset += drop;
+        length -= drop;
+      }
+      if (length == chars.length) chars = Arrays.copyOf(chars, chars.length * 2);
+
+      int read;
+      try {
+        read = reader.read(chars, length, chars.length - length);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      if (read < 0) {
+        ended = true;
+        return false;
+      }
+      length += read;
+    }
+    return true;
+  }
+}
@@ -4,30 +4,49 @@ public class Token {
   // Token class
   final TokenType type;
   // Lexeme is the string representation of the token
-  final String lexeme;
+  private String lexeme;
   // Literal is the value of the token
   final Object literal;
   // Line number of the token
-  final int line; 
+  final int line;
+
+  // where the lexeme is in the source, for tokens made from a TokenBuffer
+  // that only cut it out when it is asked for
+  private final String source;
+  private final int start;
+  private final int end;
 
   public Token(TokenType type, String lexeme, Object literal, int line) {
     this.type = type;
     this.lexeme = lexeme;
     this.literal = literal;
     this.line = line;
+    this.source = null;
+    this.start = 0;
+    this.end = 0;
+  }
+
+  Token(TokenType type, String source, int start, int end, Object literal, int line) {
+    this.type = type;
+    this.literal = literal;
+    this.line = line;
+    this.source = source;
+    this.start = start;
+    this.end = end;
   }
 
   @Override
   public String toString() {
-    return type + " " + lexeme + " " + literal;
+    return type + " " + getLexeme() + " " + literal;
   }
-  
+
   public TokenType getType() {
     return type;
   }
 
   // Getters
   public String getLexeme() {
+    if (lexeme == null && source != null) lexeme = source.substring(start, end);
     return this.lexeme;
   }
 
@@ -39,4 +58,3 @@ public class Token {
     return this.line;
   }
 }
-
@@ -0,0 +1,245 @@
+/*
+ * TokenBuffer
+ * The tokens of a program kept as columns instead of one Token object each:
+ * the type (its ordinal), where the lexeme starts in the source, how long
+ * it is and the line, all in int arrays. Literal values are in a side table
+ * of their own since most tokens (operators, NEW_LINE) have none.
+ *
+ * Nothing is made per token until the parser asks for it, token(index)
+ * makes a Token whose lexeme is only cut out of the source when something
+ * reads it (names for the Resolver, the text of an error message).
+ *
+ * A buffer of a Scanner reading a Reader (--stream) is filled as the
+ * parser asks for tokens and only keeps the last few of them, the parser
+ * never looks further back than the token before the current one. Their
+ * lexemes are copied into the buffer since the Scanner's window moves on.
+ */
+package Lexers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public final class TokenBuffer {
+  private static final TokenType[] TYPES = TokenType.values();
+  private static final int WINDOW = 1 << 10;
+
+  // where the lexemes are, the program or for a stream the copied ones
+  private final CharSequence source;
+  // the Scanner that fills a streamed buffer, null when it is complete
+  private final Scanner scanner;
+  private final SourceWindow window;
+
+  // index of the first token kept, the columns start there
+  private int base = 0;
+  // a streamed buffer can forget the tokens before this one
+  private int needed = 0;
+  private int size = 0;
+  private int[] types;
+  private int[] starts;
+  private int[] lengths;
+  private int[] lines;
+
+  // indexes of the tokens that have a literal, in order, and their values
+  private int literalCount = 0;
+  private int[] literalTokens = new int[16];
+  private Object[] literalValues = new Object[16];
+
+  TokenBuffer(String source) {
+    this(source, source.length());
+  }
+
+  // a buffer for length chars of source
+  TokenBuffer(String source, int length) {
+    // about one token per four characters of source
+    this(source, null, null, Math.max(16, length / 4));
+  }
+
+  TokenBuffer(Scanner scanner, SourceWindow window) {
+    this(new StringBuilder(), scanner, window, WINDOW);
+  }
+
+  private TokenBuffer(CharSequence source, Scanner scanner, SourceWindow window, int capacity) {
+    this.source = source;
+    this.scanner = scanner;
+    this.window = window;
+    types = new int[capacity];
+    starts = new int[capacity];
+    lengths = new int[capacity];
+    lines = new int[capacity];
+  }
+
+  // A buffer over tokens that were already made, for a Parser given a
+  // List<Token>. Their lexemes are laid out one after the other as its source.
+  public static TokenBuffer of(List<Token> tokens) {
+    StringBuilder source = new StringBuilder();
+    for (Token token : tokens) {
+      source.append(token.getLexeme());
+    }
+
+    TokenBuffer buffer = new TokenBuffer(source.toString());
+    int start = 0;
+    for (Token token : tokens) {
+      int end = start + token.getLexeme().length();
+      buffer.add(token.getType(), start, end, token.getLine(), token.getLiteral());
+      start = end;
+    }
+    return buffer;
+  }
+
+  void add(TokenType type, int start, int end, int line) {
+    if (size - base == types.length) {
+      if (needed > base) {
+        forget(needed);
+      } else {
+        grow();
+      }
+    }
+    int at = size - base;
+
+    if (window != null) {
+      StringBuilder text = (StringBuilder) source;
+      int copied = text.length();
+      window.appendTo(text, start, end);
+      end = copied + end - start;
+      start = copied;
+    }
+
+    types[at] = type.ordinal();
+    starts[at] = start;
+    lengths[at] = end - start;
+    lines[at] = line;
+    size++;
+  }
+
+  void add(TokenType type, int start, int end, int line, Object literal) {
+    if (literal != null) {
+      if (literalCount == literalTokens.length) {
+        literalTokens = Arrays.copyOf(literalTokens, literalCount * 2);
+        literalValues = Arrays.copyOf(literalValues, literalCount * 2);
+      }
+      literalTokens[literalCount] = size;
+      literalValues[literalCount] = literal;
+      literalCount++;
+    }
+    add(type, start, end, line);
+  }
+
+  // Adds the tokens of a chunk of the same source, scanned with its lines
+  // counted from 1, all but its EOF unless it is the last one
+  void append(TokenBuffer chunk, int lineOffset, boolean last) {
+    int count = last ? chunk.size : chunk.size - 1;
+    int first = size;
+
+    while (size - base + count > types.length) grow();
+    System.arraycopy(chunk.types, 0, types, size, count);
+    System.arraycopy(chunk.starts, 0, starts, size, count);
+    System.arraycopy(chunk.lengths, 0, lengths, size, count);
+    for (int i = 0; i < count; i++) {
+      lines[size + i] = chunk.lines[i] + lineOffset;
+    }
+    size += count;
+
+    for (int i = 0; i < chunk.literalCount && chunk.literalTokens[i] < count; i++) {
+      if (literalCount == literalTokens.length) {
+        literalTokens = Arrays.copyOf(literalTokens, literalCount * 2);
+        literalValues = Arrays.copyOf(literalValues, literalCount * 2);
+      }
+      literalTokens[literalCount] = first + chunk.literalTokens[i];
+      literalValues[literalCount] = chunk.literalValues[i];
+      literalCount++;
+    }
+  }
+
+  // number of tokens scanned so far, all of them unless streamed
+  public int size() {
+    return size;
+  }
+
+  public TokenType type(int index) {
+    return TYPES[types[at(index)]];
+  }
+
+  public int line(int index) {
+    return lines[at(index)];
+  }
+
+  public Object literal(int index) {
+    at(index);
+    int found = Arrays.binarySearch(literalTokens, 0, literalCount, index);
+    return found >= 0 ? literalValues[found] : null;
+  }
+
+  public String lexeme(int index) {
+    int at = at(index);
+    return source.subSequence(starts[at], starts[at] + lengths[at]).toString();
+  }
+
+  public Token token(int index) {
+    int at = at(index);
+    if (source instanceof String program) {
+      int start = starts[at];
+      return new Token(type(index), program, start, start + lengths[at], literal(index), lines[at]);
+    }
+    return new Token(type(index), lexeme(index), literal(index), lines[at]);
+  }
+
+  // Every token kept as a Token, what Scanner.scanTokens returns
+  public List<Token> toList() {
+    List<Token> tokens = new ArrayList<>(size - base);
+    for (int i = base; i < size; i++) {
+      tokens.add(new Token(type(i), lexeme(i), literal(i), line(i)));
+    }
+    return tokens;
+  }
+
+  @Override
+  public String toString() {
+    return toList().toString();
+  }
+
+  // Where token index is in the columns, a streamed buffer scans up to it
+  // first, from then on the tokens before the one ahead of it can go
+  private int at(int index) {
+    if (index >= size && scanner != null) {
+      needed = index - 1;
+      while (index >= size && scanner.scanNext()) {
+        // scanned one more
+      }
+    }
+    return index - base;
+  }
+
+  private void forget(int first) {
+    int count = first - base;
+    int kept = size - first;
+    System.arraycopy(types, count, types, 0, kept);
+    System.arraycopy(lengths, count, lengths, 0, kept);
+    System.arraycopy(lines, count, lines, 0, kept);
+
+    // the copied lexemes before the first kept token go too
+    StringBuilder text = (StringBuilder) source;
+    int chars = kept > 0 ? starts[count] : text.length();
+    text.delete(0, chars);
+    for (int i = 0; i < kept; i++) {
+      starts[i] = starts[count + i] - chars;
+    }
+
+    int literals = 0;
+    while (literals < literalCount && literalTokens[literals] < first) literals++;
+    System.arraycopy(literalTokens, literals, literalTokens, 0, literalCount - literals);
+    System.arraycopy(literalValues, literals, literalValues, 0, literalCount - literals);
+    Arrays.fill(literalValues, literalCount - literals, literalCount, null);
+    literalCount -= literals;
+
+    base = first;
+  }
+
+  private void grow() {
+    int capacity = types.length * 2;
+    types = Arrays.copyOf(types, capacity);
+    starts = Arrays.copyOf(starts, capacity);
+    lengths = Arrays.copyOf(lengths, capacity);
+    lines = Arrays.copyOf(lines, capacity);
+  }
+}
@@ -0,0 +1,204 @@
+package Main;
+
+import java.util.Arrays;
+
+import Interpreter.RunTimeError;
+import Lexers.Token;
+import Lexers.TokenType;
+
+// Array based frame, variables are kept in parallel arrays indexed by the
+// slot the Resolver gave each variable. The arrays are sized from the number
+// of declarations in the block.
+//
+// NUMERO, TIPIK, TINUOD and LETRA values are stored unboxed in prims,
+// kinds says what each slot currently holds. Only other values (strings)
+// go into the refs array, which is created the first time one is stored.
+public class ArrayEnvironment extends Environment {
+    private static final long[] NO_PRIMS = new long[0];
+    private static final byte[] NO_KINDS = new byte[0];
+    private static final TokenType[] NO_TYPES = new TokenType[0];
+    private static final String[] NO_NAMES = new String[0];
+
+    private long[] prims;
+    private Object[] refs;
+    // UNDEFINED means the variable is not defined (yet)
+    private byte[] kinds;
+    private TokenType[] types;
+    // only used by the name based lookups
+    private String[] names;
+
+    public ArrayEnvironment(Environment enclosing, int size) {
+        super(enclosing);
+        prims = size == 0 ? NO_PRIMS : new long[size];
+        kinds = size == 0 ? NO_KINDS : new byte[size];
+        types = size == 0 ? NO_TYPES : new TokenType[size];
+        names = size == 0 ? NO_NAMES : new String[size];
+    }
+
+    @Override
+    public Object get(Token name) {
+        int slot = indexOf(name.getLexeme());
+        if (slot >= 0) {
+            return box(slot);
+        }
+        if (enclosing != null) {
+            return enclosing.get(name);
+        }
+        throw new RunTimeError(name, "Undefined variable '" + name.getLexeme() + "'.");
+    }
+
+    @Override
+    protected Object getLocal(int slot, Token name) {
+        if (slot < kinds.length && kinds[slot] != UNDEFINED) {
+            return box(slot);
+        }
+        // declared in this scope but the declaration has not run (yet)
+        throw new RunTimeError(name, "Undefined variable '" + name.getLexeme() + "'.");
+    }
+
+    @Override
+    public void define(String name, int slot, Object value, TokenType type) {
+        // only the global scope grows, its size is not known up front
+        if (slot >= kinds.length) {
+            int size = Math.max(slot + 1, kinds.length * 2);
+            prims = Arrays.copyOf(prims, size);
+            kinds = Arrays.copyOf(kinds, size);
+            types = Arrays.copyOf(types, size);
+            names = Arrays.copyOf(names, size);
+            if (refs != null) refs = Arrays.copyOf(refs, size);
+        }
+        types[slot] = type;
+        names[slot] = name;
+        store(slot, value);
+    }
+
+    @Override
+    public void reset() {
+        Arrays.fill(kinds, (byte) UNDEFINED);
+        if (refs != null) Arrays.fill(refs, null);
+    }
+
+    @Override
+    public void assign(Token name, Object value) {
+        int slot = indexOf(name.getLexeme());
+        if (slot >= 0) {
+            assignLocal(slot, name, value);
+        } else if (enclosing != null) {
+            enclosing.assign(name, value);
+        } else {
+            throw new RunTimeError(name, "Variable '" + name.getLexeme() + "' is not defined.");
+        }
+    }
+
+    @Override
+    protected void assignLocal(int slot, Token name, Object value) {
+        checkDefined(slot, name);
+        store(slot, checkType(name, types[slot], value));
+    }
+
+    @Override
+    public int kindOf(int slot, Token name) {
+        return slot < kinds.length ? kinds[slot] : UNDEFINED;
+    }
+
+    @Override
+    public int getInt(int slot, Token name) {
+        return (int) prims[slot];
+    }
+
+    @Override
+    public double getDouble(int slot, Token name) {
+        if (kinds[slot] == INT) return (int) prims[slot];
+        return Double.longBitsToDouble(prims[slot]);
+    }
+
+    @Override
+    public void setInt(int slot, Token name, int value) {
+        checkDefined(slot, name);
+        switch (types[slot]) {
+            case INTEGER -> {
+                prims[slot] = value;
+                kinds[slot] = INT;
+            }
+            case FLOAT -> {
+                prims[slot] = Double.doubleToRawLongBits(value);
+                kinds[slot] = DOUBLE;
+            }
+            // the other types box and go through the usual type checks
+            default -> store(slot, checkType(name, types[slot], value));
+        }
+    }
+
+    @Override
+    public void setDouble(int slot, Token name, double value) {
+        checkDefined(slot, name);
+        if (types[slot] == TokenType.FLOAT) {
+            prims[slot] = Double.doubleToRawLongBits(value);
+            kinds[slot] = DOUBLE;
+        } else if (types[slot] == TokenType.INTEGER && value == (int) value) {
+            prims[slot] = (int) value;
+            kinds[slot] = INT;
+        } else {
+            store(slot, checkType(name, types[slot], value));
+        }
+    }
+
+    @Override
+    public boolean isDefined(Token name) {
+        if (indexOf(name.getLexeme()) >= 0) {
+            return true;
+        }
+        if (enclosing != null) {
+            return enclosing.isDefined(name);
+        }
+        return false;
+    }
+
+    @Override
+    public boolean existsInCurrentScope(String name) {
+        return indexOf(name) >= 0;
+    }
+
+    private void checkDefined(int slot, Token name) {
+        if (slot >= kinds.length || kinds[slot] == UNDEFINED) {
+            throw new RunTimeError(name, "Variable '" + name.getLexeme() + "' is not defined.");
+        }
+    }
+
+    // Stores a value that already passed the type checks
+    private void store(int slot, Object value) {
+        int kind = kindOf(value);
+        kinds[slot] = (byte) kind;
+        switch (kind) {
+            case INT -> prims[slot] = (Integer) value;
+            case DOUBLE -> prims[slot] = Double.doubleToRawLongBits((Double) value);
+            case BOOLEAN -> prims[slot] = (Boolean) value ? 1 : 0;
+            case CHAR -> prims[slot] = (Character) value;
+            case REF -> {
+                if (refs == null) refs = new Object[kinds.length];
+                refs[slot] = value;
+            }
+            default -> {
+                // NULL, nothing to store
+            }
+        }
+    }
+
+    private Object box(int slot) {
+        return switch (kinds[slot]) {
+            case INT -> (int) prims[slot];
+            case DOUBLE -> Double.longBitsToDouble(prims[slot]);
+            case BOOLEAN -> prims[slot] != 0;
+            case CHAR -> (char) prims[slot];
+            case REF -> refs[slot];
+            default -> null;
+        };
+    }
+
+    private int indexOf(String name) {
+        for (int i = 0; i < names.length; i++) {
+            if (kinds[i] != UNDEFINED && name.equals(names[i])) return i;
+        }
+        return -1;
+    }
+}
@@ -3,41 +3,117 @@ package Main;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.Reader;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.List;
+import java.util.function.Supplier;
 
 import Interpreter.Interpreter;
+import Interpreter.Optimizer;
+import Interpreter.Output;
+import Interpreter.Resolver;
 import Interpreter.RunTimeError;
+import Jvm.JvmEngine;
+import Lexers.ParallelScanner;
 import Lexers.Scanner;
 import Lexers.Token;
+import Lexers.TokenBuffer;
+import Nodes.BinarySpecialization;
+import Nodes.NodeCompiler;
+import Nodes.NodeEngine;
 import Parsers.Parser;
 import Parsers.Stmt;
+import Vm.VirtualMachine;
 public class Baithon {
   // checks if there are any errors
   static boolean hadError = false;
   // checks if there are any runtime errors
   static boolean hadRuntimeError = false;
 
-  // Interpreter instance
-  public static final Interpreter interpreter = new Interpreter();
+  // Engine that runs the program, the node engine unless --engine says otherwise
+  static Engine engine;
+  // prints how the node engine's binary sites specialized after the program, --stats
+  static boolean printStats = false;
+  // file the program's output goes to instead of stdout, --output=path
+  static String outputPath = null;
+  // scans the script while parsing it instead of reading it all first, --stream
+  static boolean streamSource = false;
+  // scans a big script in chunks on all cores, --parallel-scan
+  static boolean parallelScan = false;
 
   // This is the main function that runs the program
   // It takes the command line arguments and runs the program
   public static void main(String[] args) throws IOException {
-    if (args.length > 1) {
-      System.out.println("Usage: jlox [script]");
-      System.exit(64); 
-    } else if (args.length == 1) {
-      runFile(args[0]);
+    String script = null;
+
+    for (String arg : args) {
+      if (arg.startsWith("--")) {
+        if (!setOption(arg)) usage();
+      } else if (script == null) {
+        script = arg;
+      } else {
+        usage();
+      }
+    }
+
+    if (engine == null) engine = new NodeEngine();
+    if (outputPath != null) Output.toFile(Paths.get(outputPath));
+
+    if (script != null) {
+      runFile(script);
     } else {
       runPrompt();
     }
+
+    if (printStats) System.err.println(BinarySpecialization.report());
+  }
+
+  private static void usage() {
+    System.out.println("Usage: baithon [--frames=map|array] [--engine=nodes|tree|vm|jvm] [--profile-branches] [--stats] [--output=path] [--stream] [--parallel-scan] [--vector-scan] [script]");
+    System.exit(64);
+  }
+
+  // This function applies a command line option, returns false if it is unknown
+  private static boolean setOption(String option) {
+    if (option.startsWith("--output=") && option.length() > "--output=".length()) {
+      outputPath = option.substring("--output=".length());
+      return true;
+    }
+
+    switch (option) {
+      case "--frames=map" -> Environment.setFrameKind(Environment.FrameKind.MAP);
+      case "--frames=array" -> Environment.setFrameKind(Environment.FrameKind.ARRAY);
+      case "--engine=nodes" -> engine = new NodeEngine();
+      case "--engine=tree" -> engine = new Interpreter();
+      case "--engine=vm" -> engine = new VirtualMachine();
+      case "--engine=jvm" -> engine = new JvmEngine();
+      case "--stats" -> printStats = true;
+      case "--stream" -> streamSource = true;
+      case "--parallel-scan" -> parallelScan = true;
+      case "--vector-scan" -> {
+        if (!Scanner.setVectorScan(true)) {
+          System.err.println("--vector-scan needs a build with VectorScan (mvn -Pvector) and java --add-modules jdk.incubator.vector, scanning without it.");
+        }
+      }
+      case "--profile-branches" -> NodeCompiler.setBranchProfiling(true);
+      default -> {
+        return false;
+      }
+    }
+    return true;
   }
 
   // This function runs the file passed as an argument
   private static void runFile(String path) throws IOException {
+    if (streamSource) {
+      try (Reader reader = new InputStreamReader(Files.newInputStream(Paths.get(path)), Charset.defaultCharset())) {
+        run(new Scanner(reader)::scanBuffer);
+      }
+      return;
+    }
+
     byte[] bytes = Files.readAllBytes(Paths.get(path));
     run(new String(bytes, Charset.defaultCharset()));
   }
@@ -58,14 +134,18 @@ public class Baithon {
 
   // This function runs the source code passed as an argument
   private static void run(String source) {
+    run(parallelScan ? new ParallelScanner(source)::scanBuffer : new Scanner(source)::scanBuffer);
+  }
+
+  // This function runs the tokens scan gives
+  private static void run(Supplier<TokenBuffer> scan) {
     if (hadError) System.exit(65);
     if (hadRuntimeError) System.exit(70);
     
 
     try {
-      // Lexical Analysis
-      Scanner scanner = new Scanner(source);
-      List<Token> tokens = scanner.scanTokens();
+      // Lexical Analysis, a streaming scanner does it while parsing
+      TokenBuffer tokens = scan.get();
   
       // debugging
       // for (Token token : tokens) {
@@ -83,9 +163,16 @@ public class Baithon {
 
       // if any errors were found, stop printing tokens
       if (hadError) return;
+
+      // Fold the constant parts of expressions
+      statements = new Optimizer().optimize(statements);
+
+      // Resolve variable addresses, this also reports redeclarations
+      new Resolver().resolve(statements);
+      if (hadError) return;
   
       // Interpret the expression
-      interpreter.interpret(statements); 
+      engine.interpret(statements); 
   
       // System.out.println(new AstPrinter().print(expression));
   
@@ -94,10 +181,15 @@ public class Baithon {
         // System.out.println(token);
       // }
     } catch (Exception e) {
-      // Handle any exceptions that occur during parsing or interpretation
+      // Handle any exceptions that occur during parsing or interpretation,
+      // what the program printed before it goes out first
+      Output.flush();
       System.err.println("An error occurred");
       return;
-    }    
+    } finally {
+      // whatever the program printed is still in the output buffer
+      Output.flush();
+    }
       System.out.println("\nprogram finished");
   }
 
@@ -107,6 +199,8 @@ public class Baithon {
 
 
   public static void runTimeError(RunTimeError error) {
+    Output.discard();
+    Output.flush();
     System.err.println("[line " + error.token.getLine() + "] " +
         error.getMessage());
 
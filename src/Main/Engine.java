@@ -0,0 +1,19 @@
+package Main;
+
+import java.util.List;
+
+import Parsers.Stmt;
+
+/*
+ * Engine
+ * Runs resolved statements. Picked with --engine on the command line:
+ * - Nodes.NodeEngine: compiles the AST into a tree of executable nodes first (default)
+ * - Interpreter.Interpreter: walks the AST directly with the visitors
+ * - Vm.VirtualMachine: compiles the AST into bytecode and runs it in a dispatch loop
+ * - Jvm.JvmEngine: compiles the AST into a JVM class that HotSpot compiles further
+ * Engines keep their global scope between calls so the prompt remembers
+ * the variables declared on earlier lines.
+ */
+public interface Engine {
+    void interpret(List<Stmt> statements);
+}
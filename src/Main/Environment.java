@@ -1,145 +1,198 @@
 package Main;
 
-import java.util.HashMap;
-import java.util.Map;
-
 import Interpreter.RunTimeError;
 import Lexers.Token;
 import Lexers.TokenType;
-// import Parsers.Expr;
 
-public class Environment {
+/*
+ * Environment
+ * A single scope of variables, linked to the scope that encloses it.
+ * There are two kinds of frames:
+ * - MapEnvironment: the original one, values and types keyed by name in HashMaps
+ * - ArrayEnvironment: values and types in arrays indexed by the slot from the Resolver
+ * Which one is used for new scopes is picked with --frames on the command line.
+ */
+public abstract class Environment {
+    public enum FrameKind { MAP, ARRAY }
+
+    // What a variable currently holds, used by the unboxed paths
+    public static final int UNDEFINED = 0;
+    public static final int NULL = 1;
+    public static final int INT = 2;
+    public static final int DOUBLE = 3;
+    public static final int BOOLEAN = 4;
+    public static final int CHAR = 5;
+    public static final int REF = 6;
+
+    // frame kind used by create(), array frames unless told otherwise
+    private static FrameKind frameKind = FrameKind.ARRAY;
+
     final Environment enclosing;
-    private final Map<String,Object> values = new HashMap<>();
-    private final Map<String,TokenType> types = new HashMap<>();
 
-    public Environment() {
-        enclosing = null;
+    protected Environment(Environment enclosing) {
+        this.enclosing = enclosing;
     }
 
-    public Environment(Environment enclosing) {
-        this.enclosing = enclosing;
+    public static void setFrameKind(FrameKind kind) {
+        frameKind = kind;
     }
 
-    public Object get(Token name) {
-        if (values.containsKey(name.getLexeme())) {
-            return values.get(name.getLexeme());
+    // Creates a new scope, size is the number of variables declared in it
+    public static Environment create(Environment enclosing, int size) {
+        if (frameKind == FrameKind.MAP) {
+            return new MapEnvironment(enclosing);
         }
+        return new ArrayEnvironment(enclosing, size);
+    }
+
+    // Name based lookups, only used for variables the Resolver could not resolve
+    public abstract Object get(Token name);
+    public abstract void assign(Token name, Object value);
+    public abstract boolean isDefined(Token name);
+    public abstract boolean existsInCurrentScope(String name);
+
+    public abstract void define(String name, int slot, Object value, TokenType type);
+
+    // Forgets every variable in this scope so the frame can be used again
+    public abstract void reset();
+
+    // Slot based access within this scope
+    protected abstract Object getLocal(int slot, Token name);
+    protected abstract void assignLocal(int slot, Token name, Object value);
+
+    // Typed access within this scope, these let the interpreter read and
+    // write numbers without boxing them. Frames that store everything boxed
+    // can rely on these defaults.
+    public abstract int kindOf(int slot, Token name);
+
+    // only valid when kindOf is INT
+    public int getInt(int slot, Token name) {
+        return (Integer) getLocal(slot, name);
+    }
+
+    // only valid when kindOf is INT or DOUBLE
+    public double getDouble(int slot, Token name) {
+        return ((Number) getLocal(slot, name)).doubleValue();
+    }
+
+    public void setInt(int slot, Token name, int value) {
+        assignLocal(slot, name, value);
+    }
+
+    public void setDouble(int slot, Token name, double value) {
+        assignLocal(slot, name, value);
+    }
+
+    // Gets a variable using the address computed by the Resolver
+    public Object getAt(int depth, int slot, Token name) {
+        return ancestor(depth).getLocal(slot, name);
+    }
+
+    // Assigns a variable using the address computed by the Resolver
+    public void assignAt(int depth, int slot, Token name, Object value) {
+        ancestor(depth).assignLocal(slot, name, value);
+    }
+
+    public boolean existsInAnyScope(String name) {
+        if (existsInCurrentScope(name)) return true;
+
         if (enclosing != null) {
-            return enclosing.get(name);
+            return enclosing.existsInAnyScope(name);
         }
-        throw new RunTimeError(name, "Undefined variable '" + name.getLexeme() + "'.");
+
+        return false;
     }
 
+    // Walks up exactly depth scopes, no name lookups on the way
+    public Environment ancestor(int depth) {
+        Environment environment = this;
+        for (int i = 0; i < depth; i++) {
+            environment = environment.enclosing;
+        }
+        return environment;
+    }
 
-    public void define(String name, Object value, TokenType type) {
-        // System.out.println("Defining variable: " + name + ", value: " + value + ", type: " + type);
-        values.put(name, value);
-        types.put(name, type);
+    // Tells what kind of value a boxed value is
+    protected static int kindOf(Object value) {
+        if (value == null) return NULL;
+        if (value instanceof Integer) return INT;
+        if (value instanceof Double) return DOUBLE;
+        if (value instanceof Boolean) return BOOLEAN;
+        if (value instanceof Character) return CHAR;
+        return REF;
     }
 
-    public void assign(Token name, Object value) {
-        if (types.containsKey(name.getLexeme())) {
-            TokenType varType = types.get(name.getLexeme());
-
-            // If value is a String (from SCAN), attempt conversion based on expected type
-            if (value instanceof String && varType != TokenType.STRING) {
-                String str = (String) value;
-
-                try {
-                    switch (varType) {
-                        case INTEGER -> value = Integer.parseInt(str);
-                        case FLOAT -> value = Double.parseDouble(str);
-                        case BOOLEAN -> {
-                            if (str.equalsIgnoreCase("OO")) value = true;
-                            else if (str.equalsIgnoreCase("DILI")) value = false;
-                            else throw new RunTimeError(name, "Invalid BOOLEAN input: " + str);
-                        }
-                        case CHARACTER -> {
-                            if (str.length() != 1) {
-                                throw new RunTimeError(name, "Expected single character but got: " + str);
-                            }
-                            value = str.charAt(0);
+    // Type checks the value against the declared type of the variable.
+    // Returns the value to store, converted if needed.
+    public static Object checkType(Token name, TokenType varType, Object value) {
+        // If value is a String (from SCAN), attempt conversion based on expected type
+        if (value instanceof String && varType != TokenType.STRING) {
+            String str = (String) value;
+
+            try {
+                switch (varType) {
+                    case INTEGER -> value = Integer.parseInt(str);
+                    case FLOAT -> value = Double.parseDouble(str);
+                    case BOOLEAN -> {
+                        if (str.equalsIgnoreCase("OO")) value = true;
+                        else if (str.equalsIgnoreCase("DILI")) value = false;
+                        else throw new RunTimeError(name, "Invalid BOOLEAN input: " + str);
+                    }
+                    case CHARACTER -> {
+                        if (str.length() != 1) {
+                            throw new RunTimeError(name, "Expected single character but got: " + str);
                         }
-                        default -> throw new RunTimeError(name, "Unsupported type conversion for " + varType);
+                        value = str.charAt(0);
                     }
-                } catch (NumberFormatException e) {
-                    throw new RunTimeError(name, "Invalid input for " + varType + ": Expected a number but got: " + str);
+                    default -> throw new RunTimeError(name, "Unsupported type conversion for " + varType);
                 }
+            } catch (NumberFormatException e) {
+                throw new RunTimeError(name, "Invalid input for " + varType + ": Expected a number but got: " + str);
             }
-            
-            // Type checking for INTEGER
-            if (varType == TokenType.INTEGER) {
-                if (value instanceof Integer) {
-                    // OK
-                } else if (value instanceof Double) {
-                    double d = (Double) value;
-                    if (d == (int) d) {
-                        value = (int) d; // Convert to Integer
-                    } else {
-                        throw new RunTimeError(name, "Type mismatch: Expected INTEGER but got Double.");
-                    }
+        }
+        
+        // Type checking for INTEGER
+        if (varType == TokenType.INTEGER) {
+            if (value instanceof Integer) {
+                // OK
+            } else if (value instanceof Double) {
+                double d = (Double) value;
+                if (d == (int) d) {
+                    value = (int) d; // Convert to Integer
                 } else {
-                    throw new RunTimeError(name, "Type mismatch: Expected INTEGER but got " + value.getClass().getSimpleName());
+                    throw new RunTimeError(name, "Type mismatch: Expected INTEGER but got Double.");
                 }
+            } else {
+                throw new RunTimeError(name, "Type mismatch: Expected INTEGER but got " + value.getClass().getSimpleName());
             }
+        }
 
-            if (varType == TokenType.FLOAT) {
-                if (value instanceof Double) {
-                    // OK
-                } else if (value instanceof Integer) {
-                    value = ((Integer) value).doubleValue(); // Convert to Double
-                } else {
-                    throw new RunTimeError(name, "Type mismatch: Expected FLOAT but got " + value.getClass().getSimpleName());
-                }
+        if (varType == TokenType.FLOAT) {
+            if (value instanceof Double) {
+                // OK
+            } else if (value instanceof Integer) {
+                value = ((Integer) value).doubleValue(); // Convert to Double
+            } else {
+                throw new RunTimeError(name, "Type mismatch: Expected FLOAT but got " + value.getClass().getSimpleName());
             }
+        }
 
-            if (varType == TokenType.BOOLEAN) {
-                if (value instanceof String) {
-                    if (value.equals("OO")) {
-                        value = true;
-                    } else if (value.equals("DILI")) {
-                        value = false;
-                    } else {
-                        throw new RunTimeError(name, "Type mismatch: Expected BOOLEAN but got String.");
-                    }
-                } else if (!(value instanceof Boolean)) {
-                    throw new RunTimeError(name, "Type mismatch: Expected BOOLEAN but got " + value.getClass().getSimpleName());
+        if (varType == TokenType.BOOLEAN) {
+            if (value instanceof String) {
+                if (value.equals("OO")) {
+                    value = true;
+                } else if (value.equals("DILI")) {
+                    value = false;
+                } else {
+                    throw new RunTimeError(name, "Type mismatch: Expected BOOLEAN but got String.");
                 }
+            } else if (!(value instanceof Boolean)) {
+                throw new RunTimeError(name, "Type mismatch: Expected BOOLEAN but got " + value.getClass().getSimpleName());
             }
-
-            // else string so.. whatever goes?? 
-
-            values.put(name.getLexeme(), value);
-        } else if (enclosing != null) {
-            // If the variable is not found in the current environment, check the enclosing environment
-            enclosing.assign(name, value); // Delegate to enclosing environment
-        } else {
-            throw new RunTimeError(name, "Variable '" + name.getLexeme() + "' is not defined.");
         }
-    }
 
-    public boolean isDefined (Token name) {
-        if (types.containsKey(name.getLexeme())) {
-            return true;
-        }
-        if (enclosing != null) {
-            return enclosing.isDefined(name);
-        }
-        return false;
-    }
-
-    public boolean existsInCurrentScope(String name) {
-        return values.containsKey(name);
-    }
+        // else string so.. whatever goes?? 
 
-    public boolean existsInAnyScope(String name) {
-        if (values.containsKey(name)) return true;
-
-        if (enclosing != null) {
-            return enclosing.existsInAnyScope(name);
-        }
-        
-        return false;
+        return value;
     }
 }
@@ -0,0 +1,99 @@
+package Main;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import Interpreter.RunTimeError;
+import Lexers.Token;
+import Lexers.TokenType;
+
+// Map based frame, values and types are keyed by the variable name.
+// Slots from the Resolver are ignored, the name is used instead.
+public class MapEnvironment extends Environment {
+    private final Map<String,Object> values = new HashMap<>();
+    private final Map<String,TokenType> types = new HashMap<>();
+
+    public MapEnvironment() {
+        super(null);
+    }
+
+    public MapEnvironment(Environment enclosing) {
+        super(enclosing);
+    }
+
+    @Override
+    public Object get(Token name) {
+        if (values.containsKey(name.getLexeme())) {
+            return values.get(name.getLexeme());
+        }
+        if (enclosing != null) {
+            return enclosing.get(name);
+        }
+        throw new RunTimeError(name, "Undefined variable '" + name.getLexeme() + "'.");
+    }
+
+    @Override
+    protected Object getLocal(int slot, Token name) {
+        if (values.containsKey(name.getLexeme())) {
+            return values.get(name.getLexeme());
+        }
+        // declared in this scope but the declaration has not run (yet)
+        throw new RunTimeError(name, "Undefined variable '" + name.getLexeme() + "'.");
+    }
+
+    @Override
+    public int kindOf(int slot, Token name) {
+        if (!values.containsKey(name.getLexeme())) return UNDEFINED;
+        return kindOf(values.get(name.getLexeme()));
+    }
+
+    @Override
+    public void define(String name, int slot, Object value, TokenType type) {
+        // System.out.println("Defining variable: " + name + ", value: " + value + ", type: " + type);
+        values.put(name, value);
+        types.put(name, type);
+    }
+
+    @Override
+    public void reset() {
+        values.clear();
+        types.clear();
+    }
+
+    @Override
+    public void assign(Token name, Object value) {
+        if (types.containsKey(name.getLexeme())) {
+            assignLocal(-1, name, value);
+        } else if (enclosing != null) {
+            // If the variable is not found in the current environment, check the enclosing environment
+            enclosing.assign(name, value); // Delegate to enclosing environment
+        } else {
+            throw new RunTimeError(name, "Variable '" + name.getLexeme() + "' is not defined.");
+        }
+    }
+
+    @Override
+    protected void assignLocal(int slot, Token name, Object value) {
+        TokenType varType = types.get(name.getLexeme());
+        if (varType == null) {
+            throw new RunTimeError(name, "Variable '" + name.getLexeme() + "' is not defined.");
+        }
+        values.put(name.getLexeme(), checkType(name, varType, value));
+    }
+
+    @Override
+    public boolean isDefined (Token name) {
+        if (types.containsKey(name.getLexeme())) {
+            return true;
+        }
+        if (enclosing != null) {
+            return enclosing.isDefined(name);
+        }
+        return false;
+    }
+
+    @Override
+    public boolean existsInCurrentScope(String name) {
+        return values.containsKey(name);
+    }
+}
@@ -0,0 +1,392 @@
+package Nodes;
+
+import Interpreter.Operations;
+import Interpreter.RunTimeError;
+import Lexers.Token;
+import Lexers.TokenType;
+
+/*
+ * BinarySpecialization
+ * What a Binary node does with its two evaluated operands. The NodeCompiler
+ * only picks typed nodes (IntAdd, DoubleCompare, ...) when the declared
+ * types say what the operands are, every other site gets a Binary node that
+ * starts Uninitialized. On its first run the site looks at the operands and
+ * rewrites itself to the specialization for them (IntAdd, DoubleLess,
+ * StringConcat, ...), which from then on only checks that they still have
+ * those types.
+ *
+ * When the check fails the site goes polymorphic: it rewrites itself to
+ * Generic, which is the full Operations.binary cascade, and stays there.
+ * The counters say how many sites ended up where, see report().
+ */
+public abstract class BinarySpecialization {
+    // sites that picked a specialization, went polymorphic later and that
+    // were generic from their first run on
+    private static int specializedSites = 0;
+    private static int polymorphicSites = 0;
+    private static int genericSites = 0;
+
+    abstract Object execute(ExprNode.Binary site, Object l, Object r);
+
+    // The specialization for the first operands a site sees
+    static BinarySpecialization forOperands(Token operator, Object l, Object r) {
+        boolean ints = l instanceof Integer && r instanceof Integer;
+        boolean doubles = !ints && isNumber(l) && isNumber(r);
+
+        switch (operator.getType()) {
+            case PLUS -> {
+                if (ints) return INT_ADD;
+                if (doubles) return DOUBLE_ADD;
+                if (l instanceof String && r instanceof String) return STRING_CONCAT;
+            }
+            case MINUS -> {
+                if (ints) return INT_SUBTRACT;
+                if (doubles) return DOUBLE_SUBTRACT;
+            }
+            case MULTIPLY -> {
+                if (ints) return INT_MULTIPLY;
+                if (doubles) return DOUBLE_MULTIPLY;
+            }
+            case DIVIDE -> {
+                if (ints) return INT_DIVIDE;
+                if (doubles) return DOUBLE_DIVIDE;
+            }
+            case MODULO -> {
+                if (ints) return INT_MODULO;
+                if (doubles) return DOUBLE_MODULO;
+            }
+            case LESS -> {
+                if (ints) return INT_LESS;
+                if (doubles) return DOUBLE_LESS;
+            }
+            case LESS_EQUAL -> {
+                if (ints) return INT_LESS_EQUAL;
+                if (doubles) return DOUBLE_LESS_EQUAL;
+            }
+            case GREATER -> {
+                if (ints) return INT_GREATER;
+                if (doubles) return DOUBLE_GREATER;
+            }
+            case GREATER_EQUAL -> {
+                if (ints) return INT_GREATER_EQUAL;
+                if (doubles) return DOUBLE_GREATER_EQUAL;
+            }
+            // equality works the same on every type, so it never needs the generic case
+            case EQUAL -> {
+                return ints ? INT_EQUAL : EQUAL;
+            }
+            case NOT_EQUAL -> {
+                return ints ? INT_NOT_EQUAL : NOT_EQUAL;
+            }
+            default -> {}
+        }
+        return GENERIC;
+    }
+
+    private static boolean isNumber(Object value) {
+        return value instanceof Integer || value instanceof Double;
+    }
+
+    // Counters --------------------------------------------------------------
+
+    static void countSpecialized(BinarySpecialization specialization) {
+        if (specialization == GENERIC) genericSites++;
+        else specializedSites++;
+    }
+
+    static void countPolymorphic() {
+        polymorphicSites++;
+    }
+
+    public static int specializedSites() {
+        return specializedSites;
+    }
+
+    public static int polymorphicSites() {
+        return polymorphicSites;
+    }
+
+    public static int genericSites() {
+        return genericSites;
+    }
+
+    public static void resetCounters() {
+        specializedSites = 0;
+        polymorphicSites = 0;
+        genericSites = 0;
+    }
+
+    public static String report() {
+        return "binary sites: " + specializedSites + " specialized, "
+            + polymorphicSites + " of them went polymorphic, "
+            + genericSites + " generic from the start";
+    }
+
+    // Specializations -------------------------------------------------------
+
+    static final BinarySpecialization UNINITIALIZED = new Uninitialized();
+    static final BinarySpecialization GENERIC = new Generic();
+
+    static final BinarySpecialization INT_ADD = new IntAdd();
+    static final BinarySpecialization INT_SUBTRACT = new IntSubtract();
+    static final BinarySpecialization INT_MULTIPLY = new IntMultiply();
+    static final BinarySpecialization INT_DIVIDE = new IntDivide();
+    static final BinarySpecialization INT_MODULO = new IntModulo();
+    static final BinarySpecialization DOUBLE_ADD = new DoubleAdd();
+    static final BinarySpecialization DOUBLE_SUBTRACT = new DoubleSubtract();
+    static final BinarySpecialization DOUBLE_MULTIPLY = new DoubleMultiply();
+    static final BinarySpecialization DOUBLE_DIVIDE = new DoubleDivide();
+    static final BinarySpecialization DOUBLE_MODULO = new DoubleModulo();
+
+    static final BinarySpecialization INT_LESS = new IntLess();
+    static final BinarySpecialization INT_LESS_EQUAL = new IntLessEqual();
+    static final BinarySpecialization INT_GREATER = new IntGreater();
+    static final BinarySpecialization INT_GREATER_EQUAL = new IntGreaterEqual();
+    static final BinarySpecialization DOUBLE_LESS = new DoubleLess();
+    static final BinarySpecialization DOUBLE_LESS_EQUAL = new DoubleLessEqual();
+    static final BinarySpecialization DOUBLE_GREATER = new DoubleGreater();
+    static final BinarySpecialization DOUBLE_GREATER_EQUAL = new DoubleGreaterEqual();
+
+    static final BinarySpecialization INT_EQUAL = new IntEqual();
+    static final BinarySpecialization INT_NOT_EQUAL = new IntNotEqual();
+    static final BinarySpecialization EQUAL = new Equal();
+    static final BinarySpecialization NOT_EQUAL = new NotEqual();
+    static final BinarySpecialization STRING_CONCAT = new StringConcat();
+
+    // Not run yet
+    static final class Uninitialized extends BinarySpecialization {
+        @Override
+        Object execute(ExprNode.Binary site, Object l, Object r) {
+            return site.specialize(l, r);
+        }
+    }
+
+    // Any operands, the way the tree walker does it
+    static final class Generic extends BinarySpecialization {
+        @Override
+        Object execute(ExprNode.Binary site, Object l, Object r) {
+            return Operations.binary(l, r, site.operator);
+        }
+    }
+
+    // Both operands NUMERO
+    abstract static class IntArithmetic extends BinarySpecialization {
+        abstract int apply(int l, int r, Token operator);
+
+        @Override
+        final Object execute(ExprNode.Binary site, Object l, Object r) {
+            if (l instanceof Integer a && r instanceof Integer b) return apply(a, b, site.operator);
+            return site.generalize(l, r);
+        }
+    }
+
+    // At least one operand TIPIK, the other one NUMERO or TIPIK
+    abstract static class DoubleArithmetic extends BinarySpecialization {
+        abstract double apply(double l, double r, Token operator);
+
+        @Override
+        final Object execute(ExprNode.Binary site, Object l, Object r) {
+            if (l instanceof Double a) {
+                if (r instanceof Double b) return apply(a, b, site.operator);
+                if (r instanceof Integer b) return apply(a, b, site.operator);
+            } else if (l instanceof Integer a && r instanceof Double b) {
+                return apply(a, b, site.operator);
+            }
+            return site.generalize(l, r);
+        }
+    }
+
+    abstract static class IntCompare extends BinarySpecialization {
+        abstract boolean test(int l, int r);
+
+        @Override
+        final Object execute(ExprNode.Binary site, Object l, Object r) {
+            if (l instanceof Integer a && r instanceof Integer b) return test(a, b);
+            return site.generalize(l, r);
+        }
+    }
+
+    abstract static class DoubleCompare extends BinarySpecialization {
+        abstract boolean test(double l, double r);
+
+        @Override
+        final Object execute(ExprNode.Binary site, Object l, Object r) {
+            if (l instanceof Double a) {
+                if (r instanceof Double b) return test(a, b);
+                if (r instanceof Integer b) return test(a, b);
+            } else if (l instanceof Integer a && r instanceof Double b) {
+                return test(a, b);
+            }
+            return site.generalize(l, r);
+        }
+    }
+
+    static final class IntAdd extends IntArithmetic {
+        @Override
+        int apply(int l, int r, Token operator) {
+            return l + r;
+        }
+    }
+
+    static final class IntSubtract extends IntArithmetic {
+        @Override
+        int apply(int l, int r, Token operator) {
+            return l - r;
+        }
+    }
+
+    static final class IntMultiply extends IntArithmetic {
+        @Override
+        int apply(int l, int r, Token operator) {
+            return l * r;
+        }
+    }
+
+    static final class IntDivide extends IntArithmetic {
+        @Override
+        int apply(int l, int r, Token operator) {
+            if (r == 0) throw new RunTimeError(operator, "Division by zero.");
+            return l / r;
+        }
+    }
+
+    static final class IntModulo extends IntArithmetic {
+        @Override
+        int apply(int l, int r, Token operator) {
+            if (r == 0) throw new RunTimeError(operator, "Division by zero.");
+            return l % r;
+        }
+    }
+
+    static final class DoubleAdd extends DoubleArithmetic {
+        @Override
+        double apply(double l, double r, Token operator) {
+            return l + r;
+        }
+    }
+
+    static final class DoubleSubtract extends DoubleArithmetic {
+        @Override
+        double apply(double l, double r, Token operator) {
+            return l - r;
+        }
+    }
+
+    static final class DoubleMultiply extends DoubleArithmetic {
+        @Override
+        double apply(double l, double r, Token operator) {
+            return l * r;
+        }
+    }
+
+    static final class DoubleDivide extends DoubleArithmetic {
+        @Override
+        double apply(double l, double r, Token operator) {
+            if (r == 0) throw new RunTimeError(operator, "Division by zero.");
+            return l / r;
+        }
+    }
+
+    static final class DoubleModulo extends DoubleArithmetic {
+        @Override
+        double apply(double l, double r, Token operator) {
+            if (r == 0) throw new RunTimeError(operator, "Division by zero.");
+            return l % r;
+        }
+    }
+
+    static final class IntLess extends IntCompare {
+        @Override
+        boolean test(int l, int r) {
+            return l < r;
+        }
+    }
+
+    static final class IntLessEqual extends IntCompare {
+        @Override
+        boolean test(int l, int r) {
+            return l <= r;
+        }
+    }
+
+    static final class IntGreater extends IntCompare {
+        @Override
+        boolean test(int l, int r) {
+            return l > r;
+        }
+    }
+
+    static final class IntGreaterEqual extends IntCompare {
+        @Override
+        boolean test(int l, int r) {
+            return l >= r;
+        }
+    }
+
+    static final class DoubleLess extends DoubleCompare {
+        @Override
+        boolean test(double l, double r) {
+            return l < r;
+        }
+    }
+
+    static final class DoubleLessEqual extends DoubleCompare {
+        @Override
+        boolean test(double l, double r) {
+            return l <= r;
+        }
+    }
+
+    static final class DoubleGreater extends DoubleCompare {
+        @Override
+        boolean test(double l, double r) {
+            return l > r;
+        }
+    }
+
+    static final class DoubleGreaterEqual extends DoubleCompare {
+        @Override
+        boolean test(double l, double r) {
+            return l >= r;
+        }
+    }
+
+    static final class IntEqual extends BinarySpecialization {
+        @Override
+        Object execute(ExprNode.Binary site, Object l, Object r) {
+            if (l instanceof Integer a && r instanceof Integer b) return a.intValue() == b.intValue();
+            return site.generalize(l, r);
+        }
+    }
+
+    static final class IntNotEqual extends BinarySpecialization {
+        @Override
+        Object execute(ExprNode.Binary site, Object l, Object r) {
+            if (l instanceof Integer a && r instanceof Integer b) return a.intValue() != b.intValue();
+            return site.generalize(l, r);
+        }
+    }
+
+    static final class Equal extends BinarySpecialization {
+        @Override
+        Object execute(ExprNode.Binary site, Object l, Object r) {
+            return Operations.isEqual(l, r);
+        }
+    }
+
+    static final class NotEqual extends BinarySpecialization {
+        @Override
+        Object execute(ExprNode.Binary site, Object l, Object r) {
+            return !Operations.isEqual(l, r);
+        }
+    }
+
+    // + on two strings
+    static final class StringConcat extends BinarySpecialization {
+        @Override
+        Object execute(ExprNode.Binary site, Object l, Object r) {
+            if (l instanceof String a && r instanceof String b) return a + b;
+            return site.generalize(l, r);
+        }
+    }
+}
@@ -0,0 +1,719 @@
+package Nodes;
+
+import Interpreter.NotUnboxedException;
+import Interpreter.Operations;
+import Interpreter.RunTimeError;
+import Lexers.Token;
+import Lexers.TokenType;
+import Main.Environment;
+
+/*
+ * ExprNode
+ * An expression compiled by the NodeCompiler. Every node knows what it
+ * computes, so executing it is a plain virtual call with no visitor and
+ * no switch on the operator token.
+ *
+ * Number nodes also compute their value unboxed with executeInt and
+ * executeDouble. These throw NotUnboxedException when a variable is still
+ * null, whoever asked for the unboxed value then evaluates the (pure)
+ * expression again the boxed way, which reports the error like before.
+ */
+public abstract class ExprNode {
+    public abstract Object execute(Environment env);
+
+    // only called on nodes whose numericKind is INT
+    public int executeInt(Environment env) {
+        Object value = execute(env);
+        if (value instanceof Integer) return (Integer) value;
+        throw NotUnboxedException.INSTANCE;
+    }
+
+    // only called on nodes whose numericKind is INT or DOUBLE
+    public double executeDouble(Environment env) {
+        Object value = execute(env);
+        if (value instanceof Integer) return (Integer) value;
+        if (value instanceof Double) return (Double) value;
+        throw NotUnboxedException.INSTANCE;
+    }
+
+    // conditions of KUNG and the loops
+    public boolean executeBoolean(Environment env) {
+        return Operations.isTruthy(execute(env));
+    }
+
+    // Values ----------------------------------------------------------------
+
+    public static class Constant extends ExprNode {
+        final Object value;
+
+        Constant(Object value) {
+            this.value = value;
+        }
+
+        @Override
+        public Object execute(Environment env) {
+            return value;
+        }
+    }
+
+    public static class IntConstant extends ExprNode {
+        final int value;
+        final Integer boxed;
+
+        IntConstant(int value) {
+            this.value = value;
+            this.boxed = value;
+        }
+
+        @Override
+        public Object execute(Environment env) {
+            return boxed;
+        }
+
+        @Override
+        public int executeInt(Environment env) {
+            return value;
+        }
+
+        @Override
+        public double executeDouble(Environment env) {
+            return value;
+        }
+    }
+
+    public static class DoubleConstant extends ExprNode {
+        final double value;
+        final Double boxed;
+
+        DoubleConstant(double value) {
+            this.value = value;
+            this.boxed = value;
+        }
+
+        @Override
+        public Object execute(Environment env) {
+            return boxed;
+        }
+
+        @Override
+        public double executeDouble(Environment env) {
+            return value;
+        }
+    }
+
+    // Variable at the address computed by the Resolver
+    public static class Local extends ExprNode {
+        final Token name;
+        final int depth;
+        final int slot;
+
+        Local(Token name, int depth, int slot) {
+            this.name = name;
+            this.depth = depth;
+            this.slot = slot;
+        }
+
+        @Override
+        public Object execute(Environment env) {
+            return env.getAt(depth, slot, name);
+        }
+
+        @Override
+        public int executeInt(Environment env) {
+            Environment frame = env.ancestor(depth);
+            if (frame.kindOf(slot, name) != Environment.INT) throw NotUnboxedException.INSTANCE;
+            return frame.getInt(slot, name);
+        }
+
+        @Override
+        public double executeDouble(Environment env) {
+            Environment frame = env.ancestor(depth);
+            int kind = frame.kindOf(slot, name);
+            if (kind != Environment.INT && kind != Environment.DOUBLE) throw NotUnboxedException.INSTANCE;
+            return frame.getDouble(slot, name);
+        }
+    }
+
+    // Variable the Resolver could not find, looked up by name so the
+    // undefined variable is reported at runtime
+    public static class Global extends ExprNode {
+        final Token name;
+
+        Global(Token name) {
+            this.name = name;
+        }
+
+        @Override
+        public Object execute(Environment env) {
+            return env.get(name);
+        }
+    }
+
+    // Int arithmetic --------------------------------------------------------
+
+    abstract static class IntBinary extends ExprNode {
+        final ExprNode left;
+        final ExprNode right;
+        final Token operator;
+
+        IntBinary(ExprNode left, ExprNode right, Token operator) {
+            this.left = left;
+            this.right = right;
+            this.operator = operator;
+        }
+
+        abstract int apply(int l, int r);
+
+        @Override
+        public Object execute(Environment env) {
+            try {
+                return executeInt(env);
+            } catch (NotUnboxedException e) {
+                return Operations.binary(left.execute(env), right.execute(env), operator);
+            }
+        }
+
+        @Override
+        public int executeInt(Environment env) {
+            return apply(left.executeInt(env), right.executeInt(env));
+        }
+
+        // an int expression stays an int, even inside a double expression
+        @Override
+        public double executeDouble(Environment env) {
+            return executeInt(env);
+        }
+    }
+
+    public static class IntAdd extends IntBinary {
+        IntAdd(ExprNode left, ExprNode right, Token operator) {
+            super(left, right, operator);
+        }
+
+        @Override
+        int apply(int l, int r) {
+            return l + r;
+        }
+    }
+
+    public static class IntSubtract extends IntBinary {
+        IntSubtract(ExprNode left, ExprNode right, Token operator) {
+            super(left, right, operator);
+        }
+
+        @Override
+        int apply(int l, int r) {
+            return l - r;
+        }
+    }
+
+    public static class IntMultiply extends IntBinary {
+        IntMultiply(ExprNode left, ExprNode right, Token operator) {
+            super(left, right, operator);
+        }
+
+        @Override
+        int apply(int l, int r) {
+            return l * r;
+        }
+    }
+
+    public static class IntDivide extends IntBinary {
+        IntDivide(ExprNode left, ExprNode right, Token operator) {
+            super(left, right, operator);
+        }
+
+        @Override
+        int apply(int l, int r) {
+            if (r == 0) throw new RunTimeError(operator, "Division by zero.");
+            return l / r;
+        }
+    }
+
+    public static class IntModulo extends IntBinary {
+        IntModulo(ExprNode left, ExprNode right, Token operator) {
+            super(left, right, operator);
+        }
+
+        @Override
+        int apply(int l, int r) {
+            if (r == 0) throw new RunTimeError(operator, "Division by zero.");
+            return l % r;
+        }
+    }
+
+    public static class IntNegate extends ExprNode {
+        final ExprNode right;
+        final Token operator;
+
+        IntNegate(ExprNode right, Token operator) {
+            this.right = right;
+            this.operator = operator;
+        }
+
+        @Override
+        public Object execute(Environment env) {
+            try {
+                return executeInt(env);
+            } catch (NotUnboxedException e) {
+                return Operations.unary(operator, right.execute(env));
+            }
+        }
+
+        @Override
+        public int executeInt(Environment env) {
+            return -right.executeInt(env);
+        }
+
+        @Override
+        public double executeDouble(Environment env) {
+            return executeInt(env);
+        }
+    }
+
+    // Double arithmetic -----------------------------------------------------
+
+    public static class DoubleArithmetic extends ExprNode {
+        final ExprNode left;
+        final ExprNode right;
+        final Token operator;
+
+        DoubleArithmetic(ExprNode left, ExprNode right, Token operator) {
+            this.left = left;
+            this.right = right;
+            this.operator = operator;
+        }
+
+        @Override
+        public Object execute(Environment env) {
+            try {
+                return executeDouble(env);
+            } catch (NotUnboxedException e) {
+                return Operations.binary(left.execute(env), right.execute(env), operator);
+            }
+        }
+
+        @Override
+        public double executeDouble(Environment env) {
+            return Operations.doubleArithmetic(left.executeDouble(env), right.executeDouble(env), operator);
+        }
+    }
+
+    public static class DoubleNegate extends ExprNode {
+        final ExprNode right;
+        final Token operator;
+
+        DoubleNegate(ExprNode right, Token operator) {
+            this.right = right;
+            this.operator = operator;
+        }
+
+        @Override
+        public Object execute(Environment env) {
+            try {
+                return executeDouble(env);
+            } catch (NotUnboxedException e) {
+                return Operations.unary(operator, right.execute(env));
+            }
+        }
+
+        @Override
+        public double executeDouble(Environment env) {
+            return -right.executeDouble(env);
+        }
+    }
+
+    // Comparisons -----------------------------------------------------------
+
+    abstract static class IntCompare extends ExprNode {
+        final ExprNode left;
+        final ExprNode right;
+        final Token operator;
+
+        IntCompare(ExprNode left, ExprNode right, Token operator) {
+            this.left = left;
+            this.right = right;
+            this.operator = operator;
+        }
+
+        abstract boolean test(int l, int r);
+
+        @Override
+        public Object execute(Environment env) {
+            return executeBoolean(env);
+        }
+
+        @Override
+        public boolean executeBoolean(Environment env) {
+            try {
+                return test(left.executeInt(env), right.executeInt(env));
+            } catch (NotUnboxedException e) {
+                return (Boolean) Operations.binary(left.execute(env), right.execute(env), operator);
+            }
+        }
+    }
+
+    public static class IntLess extends IntCompare {
+        IntLess(ExprNode left, ExprNode right, Token operator) {
+            super(left, right, operator);
+        }
+
+        @Override
+        boolean test(int l, int r) {
+            return l < r;
+        }
+    }
+
+    public static class IntLessEqual extends IntCompare {
+        IntLessEqual(ExprNode left, ExprNode right, Token operator) {
+            super(left, right, operator);
+        }
+
+        @Override
+        boolean test(int l, int r) {
+            return l <= r;
+        }
+    }
+
+    public static class IntGreater extends IntCompare {
+        IntGreater(ExprNode left, ExprNode right, Token operator) {
+            super(left, right, operator);
+        }
+
+        @Override
+        boolean test(int l, int r) {
+            return l > r;
+        }
+    }
+
+    public static class IntGreaterEqual extends IntCompare {
+        IntGreaterEqual(ExprNode left, ExprNode right, Token operator) {
+            super(left, right, operator);
+        }
+
+        @Override
+        boolean test(int l, int r) {
+            return l >= r;
+        }
+    }
+
+    public static class IntEqual extends IntCompare {
+        IntEqual(ExprNode left, ExprNode right, Token operator) {
+            super(left, right, operator);
+        }
+
+        @Override
+        boolean test(int l, int r) {
+            return l == r;
+        }
+    }
+
+    public static class IntNotEqual extends IntCompare {
+        IntNotEqual(ExprNode left, ExprNode right, Token operator) {
+            super(left, right, operator);
+        }
+
+        @Override
+        boolean test(int l, int r) {
+            return l != r;
+        }
+    }
+
+    // <, <=, > and >= with at least one TIPIK operand
+    public static class DoubleCompare extends ExprNode {
+        final ExprNode left;
+        final ExprNode right;
+        final Token operator;
+
+        DoubleCompare(ExprNode left, ExprNode right, Token operator) {
+            this.left = left;
+            this.right = right;
+            this.operator = operator;
+        }
+
+        @Override
+        public Object execute(Environment env) {
+            return executeBoolean(env);
+        }
+
+        @Override
+        public boolean executeBoolean(Environment env) {
+            try {
+                return Operations.compare(left.executeDouble(env), right.executeDouble(env), operator);
+            } catch (NotUnboxedException e) {
+                return (Boolean) Operations.binary(left.execute(env), right.execute(env), operator);
+            }
+        }
+    }
+
+    // Everything else -------------------------------------------------------
+
+    // a & chain, the parts are joined in a builder the node keeps. A node
+    // is never run again while it runs, there are no functions.
+    public static class Concat extends ExprNode {
+        private static final int MAX_KEPT_BUILDER = 1 << 16;
+
+        final ExprNode[] parts;
+        private StringBuilder builder = new StringBuilder();
+
+        Concat(ExprNode[] parts) {
+            this.parts = parts;
+        }
+
+        @Override
+        public Object execute(Environment env) {
+            StringBuilder builder = this.builder;
+            builder.setLength(0);
+            for (ExprNode part : parts) {
+                Operations.stringify(part.execute(env), builder);
+            }
+            String result = builder.toString();
+            // a huge one is not kept around
+            if (builder.capacity() > MAX_KEPT_BUILDER) this.builder = new StringBuilder();
+            return result;
+        }
+    }
+
+    // Binary operator on values whose types are only known at runtime, it
+    // specializes itself on the types it sees (see BinarySpecialization)
+    public static class Binary extends ExprNode {
+        final ExprNode left;
+        final ExprNode right;
+        final Token operator;
+        BinarySpecialization specialization = BinarySpecialization.UNINITIALIZED;
+
+        Binary(ExprNode left, ExprNode right, Token operator) {
+            this.left = left;
+            this.right = right;
+            this.operator = operator;
+        }
+
+        @Override
+        public Object execute(Environment env) {
+            Object l = left.execute(env);
+            Object r = right.execute(env);
+            return specialization.execute(this, l, r);
+        }
+
+        // first run, picks what the site does from now on
+        Object specialize(Object l, Object r) {
+            specialization = BinarySpecialization.forOperands(operator, l, r);
+            BinarySpecialization.countSpecialized(specialization);
+            return specialization.execute(this, l, r);
+        }
+
+        // the operands no longer fit the specialization
+        Object generalize(Object l, Object r) {
+            specialization = BinarySpecialization.GENERIC;
+            BinarySpecialization.countPolymorphic();
+            return Operations.binary(l, r, operator);
+        }
+    }
+
+    public static class Unary extends ExprNode {
+        final ExprNode right;
+        final Token operator;
+
+        Unary(ExprNode right, Token operator) {
+            this.right = right;
+            this.operator = operator;
+        }
+
+        @Override
+        public Object execute(Environment env) {
+            return Operations.unary(operator, right.execute(env));
+        }
+    }
+
+    public static class Not extends ExprNode {
+        final ExprNode right;
+
+        Not(ExprNode right) {
+            this.right = right;
+        }
+
+        @Override
+        public Object execute(Environment env) {
+            return executeBoolean(env);
+        }
+
+        @Override
+        public boolean executeBoolean(Environment env) {
+            return !right.executeBoolean(env);
+        }
+    }
+
+    // UG, returns the first operand that decides the result like the tree walker
+    public static class And extends ExprNode {
+        final ExprNode left;
+        final ExprNode right;
+
+        And(ExprNode left, ExprNode right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public Object execute(Environment env) {
+            Object value = left.execute(env);
+            if (!Operations.isTruthy(value)) return value;
+            return right.execute(env);
+        }
+
+        @Override
+        public boolean executeBoolean(Environment env) {
+            return left.executeBoolean(env) && right.executeBoolean(env);
+        }
+    }
+
+    // O
+    public static class Or extends ExprNode {
+        final ExprNode left;
+        final ExprNode right;
+
+        Or(ExprNode left, ExprNode right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public Object execute(Environment env) {
+            Object value = left.execute(env);
+            if (Operations.isTruthy(value)) return value;
+            return right.execute(env);
+        }
+
+        @Override
+        public boolean executeBoolean(Environment env) {
+            return left.executeBoolean(env) || right.executeBoolean(env);
+        }
+    }
+
+    // Assignments -----------------------------------------------------------
+
+    public static class AssignLocal extends ExprNode {
+        final Token name;
+        final int depth;
+        final int slot;
+        final ExprNode value;
+
+        AssignLocal(Token name, int depth, int slot, ExprNode value) {
+            this.name = name;
+            this.depth = depth;
+            this.slot = slot;
+            this.value = value;
+        }
+
+        @Override
+        public Object execute(Environment env) {
+            Object result = value.execute(env);
+            env.assignAt(depth, slot, name, result);
+            return result;
+        }
+    }
+
+    public static class AssignGlobal extends ExprNode {
+        final Token name;
+        final ExprNode value;
+
+        AssignGlobal(Token name, ExprNode value) {
+            this.name = name;
+            this.value = value;
+        }
+
+        @Override
+        public Object execute(Environment env) {
+            Object result = value.execute(env);
+            if (!env.isDefined(name)) {
+                throw new RunTimeError(name, "Variable '" + name.getLexeme() + "' is not defined.");
+            }
+            env.assign(name, result);
+            return result;
+        }
+    }
+
+    // x += v and the others used as a value, the scope is found once for
+    // the read and the write
+    public static class CompoundAssign extends ExprNode {
+        final Token name;
+        final Token operator;
+        // -1 when the Resolver could not find the variable
+        final int depth;
+        final int slot;
+        final ExprNode value;
+
+        CompoundAssign(Token name, Token operator, int depth, int slot, ExprNode value) {
+            this.name = name;
+            this.operator = operator;
+            this.depth = depth;
+            this.slot = slot;
+            this.value = value;
+        }
+
+        @Override
+        public Object execute(Environment env) {
+            if (depth < 0) {
+                Object current = env.get(name);
+                Object result = Operations.binary(current, value.execute(env), operator);
+                env.assign(name, result);
+                return result;
+            }
+
+            Environment frame = env.ancestor(depth);
+            Object current = frame.getAt(0, slot, name);
+            Object result = Operations.binary(current, value.execute(env), operator);
+            frame.assignAt(0, slot, name, result);
+            return result;
+        }
+    }
+
+    // ++ and -- used as a value
+    public static class Update extends ExprNode {
+        final Token operator;
+        final Token name;
+        // -1 when the Resolver could not find the variable
+        final int depth;
+        final int slot;
+        final boolean prefix;
+
+        Update(Token operator, Token name, int depth, int slot, boolean prefix) {
+            this.operator = operator;
+            this.name = name;
+            this.depth = depth;
+            this.slot = slot;
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Object execute(Environment env) {
+            if (depth < 0) {
+                Object value = env.get(name);
+                Object newValue = Operations.increment(operator, name, value);
+                env.assign(name, newValue);
+                return prefix ? newValue : value;
+            }
+
+            // the scope is found once, numbers are updated in their slot
+            Environment frame = env.ancestor(depth);
+            int delta = operator.getType() == TokenType.INCREMENT ? 1 : -1;
+            switch (frame.kindOf(slot, name)) {
+                case Environment.INT -> {
+                    int value = frame.getInt(slot, name);
+                    frame.setInt(slot, name, value + delta);
+                    return prefix ? value + delta : value;
+                }
+                case Environment.DOUBLE -> {
+                    double value = frame.getDouble(slot, name);
+                    frame.setDouble(slot, name, value + delta);
+                    return prefix ? value + delta : value;
+                }
+                default -> {
+                    Object value = frame.getAt(0, slot, name);
+                    Object newValue = Operations.increment(operator, name, value);
+                    frame.assignAt(0, slot, name, newValue);
+                    return prefix ? newValue : value;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,401 @@
+/*
+ * NodeCompiler
+ * Turns the resolved AST into a tree of executable nodes (ExprNode and
+ * StmtNode). All the decisions the tree walker makes again on every visit
+ * are made once here:
+ * - which operator a Binary is, so e.g. NUMERO < NUMERO becomes an IntLess node
+ * - whether an expression can be computed unboxed (Operations.numericKind)
+ * - whether a variable was resolved, so it is read by slot or by name
+ * - whether an ALANG SA is a counted loop
+ * - whether a KUNG chain can jump straight to its branch
+ * The JIT then sees one small execute method per kind of node instead of
+ * one big visitor shared by every expression in the program.
+ */
+package Nodes;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Scanner;
+
+import Interpreter.Operations;
+import Lexers.Token;
+import Lexers.TokenType;
+import Parsers.Expr;
+import Parsers.Stmt;
+
+public class NodeCompiler implements Expr.Visitor<ExprNode>
+                                    ,Stmt.Visitor<StmtNode> {
+    // a KUNG chain gets a table when it has at least one branch for every
+    // this many values between its smallest and largest literal
+    private static final int MAX_TABLE_SPREAD = 4;
+
+    // whether KUNG chains on one number variable test their branches in the
+    // order they are hit most, see StmtNode.ProfiledChain
+    private static boolean branchProfiling = false;
+
+    // where DAWAT reads from
+    private final Scanner input;
+
+    public NodeCompiler(Scanner input) {
+        this.input = input;
+    }
+
+    public static void setBranchProfiling(boolean enabled) {
+        branchProfiling = enabled;
+    }
+
+    // Compiles a whole program, it runs in the scope it is given
+    public StmtNode compile(List<Stmt> statements) {
+        return new StmtNode.Block(compileAll(statements), false, 0);
+    }
+
+    private StmtNode[] compileAll(List<Stmt> statements) {
+        StmtNode[] nodes = new StmtNode[statements.size()];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = compile(statements.get(i));
+        }
+        return nodes;
+    }
+
+    private StmtNode compile(Stmt stmt) {
+        return stmt.accept(this);
+    }
+
+    private ExprNode compile(Expr expr) {
+        return expr.accept(this);
+    }
+
+    // Expressions -----------------------------------------------------------
+
+    @Override
+    public ExprNode visitAssignExpr(Expr.Assign expr) {
+        ExprNode value = compile(expr.getValue());
+        if (expr.isResolved()) {
+            return new ExprNode.AssignLocal(expr.getName(), expr.getDepth(), expr.getSlot(), value);
+        }
+        return new ExprNode.AssignGlobal(expr.getName(), value);
+    }
+
+    @Override
+    public ExprNode visitCompoundAssignExpr(Expr.CompoundAssign expr) {
+        return new ExprNode.CompoundAssign(expr.getName(), expr.getOperator(),
+            expr.isResolved() ? expr.getDepth() : -1, expr.getSlot(), compile(expr.getValue()));
+    }
+
+    @Override
+    public ExprNode visitBinaryExpr(Expr.Binary expr) {
+        Token operator = expr.getOperator();
+        ExprNode left = compile(expr.getLeft());
+        ExprNode right = compile(expr.getRight());
+
+        int leftKind = Operations.numericKind(expr.getLeft());
+        int rightKind = Operations.numericKind(expr.getRight());
+        if (leftKind != Operations.OTHER && rightKind != Operations.OTHER) {
+            boolean ints = leftKind == Operations.INT && rightKind == Operations.INT;
+
+            switch (operator.getType()) {
+                case PLUS -> {
+                    return ints ? new ExprNode.IntAdd(left, right, operator) : new ExprNode.DoubleArithmetic(left, right, operator);
+                }
+                case MINUS -> {
+                    return ints ? new ExprNode.IntSubtract(left, right, operator) : new ExprNode.DoubleArithmetic(left, right, operator);
+                }
+                case MULTIPLY -> {
+                    return ints ? new ExprNode.IntMultiply(left, right, operator) : new ExprNode.DoubleArithmetic(left, right, operator);
+                }
+                case DIVIDE -> {
+                    return ints ? new ExprNode.IntDivide(left, right, operator) : new ExprNode.DoubleArithmetic(left, right, operator);
+                }
+                case MODULO -> {
+                    return ints ? new ExprNode.IntModulo(left, right, operator) : new ExprNode.DoubleArithmetic(left, right, operator);
+                }
+                case LESS -> {
+                    return ints ? new ExprNode.IntLess(left, right, operator) : new ExprNode.DoubleCompare(left, right, operator);
+                }
+                case LESS_EQUAL -> {
+                    return ints ? new ExprNode.IntLessEqual(left, right, operator) : new ExprNode.DoubleCompare(left, right, operator);
+                }
+                case GREATER -> {
+                    return ints ? new ExprNode.IntGreater(left, right, operator) : new ExprNode.DoubleCompare(left, right, operator);
+                }
+                case GREATER_EQUAL -> {
+                    return ints ? new ExprNode.IntGreaterEqual(left, right, operator) : new ExprNode.DoubleCompare(left, right, operator);
+                }
+                // an Integer is never equal to a Double, those are left to the Binary node
+                case EQUAL -> {
+                    if (ints) return new ExprNode.IntEqual(left, right, operator);
+                }
+                case NOT_EQUAL -> {
+                    if (ints) return new ExprNode.IntNotEqual(left, right, operator);
+                }
+                default -> {}
+            }
+        }
+
+        if (operator.getType() == TokenType.CONCAT) {
+            return new ExprNode.Concat(new ExprNode[] {left, right});
+        }
+        return new ExprNode.Binary(left, right, operator);
+    }
+
+    @Override
+    public ExprNode visitConcatExpr(Expr.Concat expr) {
+        ExprNode[] parts = new ExprNode[expr.getParts().size()];
+        for (int i = 0; i < parts.length; i++) {
+            parts[i] = compile(expr.getParts().get(i));
+        }
+        return new ExprNode.Concat(parts);
+    }
+
+    @Override
+    public ExprNode visitGroupingExpr(Expr.Grouping expr) {
+        return compile(expr.getExpression());
+    }
+
+    @Override
+    public ExprNode visitLiteralExpr(Expr.Literal expr) {
+        Object value = expr.getValue();
+        if (value instanceof Integer) return new ExprNode.IntConstant((Integer) value);
+        if (value instanceof Double) return new ExprNode.DoubleConstant((Double) value);
+        return new ExprNode.Constant(value);
+    }
+
+    @Override
+    public ExprNode visitLogicalExpr(Expr.Logical expr) {
+        ExprNode left = compile(expr.getLeft());
+        ExprNode right = compile(expr.getRight());
+        if (expr.getOperator().getType() == TokenType.OR) {
+            return new ExprNode.Or(left, right);
+        }
+        return new ExprNode.And(left, right);
+    }
+
+    @Override
+    public ExprNode visitUnaryExpr(Expr.Unary expr) {
+        Token operator = expr.getOperator();
+        ExprNode right = compile(expr.getRight());
+
+        if (operator.getType() == TokenType.NOT) {
+            return new ExprNode.Not(right);
+        }
+        if (operator.getType() == TokenType.MINUS) {
+            int kind = Operations.numericKind(expr.getRight());
+            if (kind == Operations.INT) return new ExprNode.IntNegate(right, operator);
+            if (kind == Operations.DOUBLE) return new ExprNode.DoubleNegate(right, operator);
+        }
+        return new ExprNode.Unary(right, operator);
+    }
+
+    @Override
+    public ExprNode visitVariableExpr(Expr.Variable expr) {
+        if (expr.isResolved()) {
+            return new ExprNode.Local(expr.getName(), expr.getDepth(), expr.getSlot());
+        }
+        return new ExprNode.Global(expr.getName());
+    }
+
+    @Override
+    public ExprNode visitIncrementOrDecrementExpr(Expr.IncrementOrDecrement expr) {
+        Expr.Variable variable = expr.getVariable();
+        return new ExprNode.Update(expr.getOperator(), variable.getName(),
+            variable.isResolved() ? variable.getDepth() : -1, variable.getSlot(), expr.isPrefix());
+    }
+
+    // Statements ------------------------------------------------------------
+
+    @Override
+    public StmtNode visitExpressionStmt(Stmt.Expression stmt) {
+        Expr expr = stmt.getExpression();
+
+        // x = x + 1, x += 1 and x++ as statements do not need their value,
+        // so the new value can be stored without boxing it
+        if (expr instanceof Expr.Assign assign && assign.isResolved()) {
+            int kind = Operations.numericKind(assign.getValue());
+            if (kind == Operations.INT) {
+                return new StmtNode.AssignInt(assign.getName(), assign.getDepth(), assign.getSlot(),
+                    compile(assign.getValue()), compile(assign));
+            }
+            if (kind == Operations.DOUBLE) {
+                return new StmtNode.AssignDouble(assign.getName(), assign.getDepth(), assign.getSlot(),
+                    compile(assign.getValue()), compile(assign));
+            }
+        }
+        if (expr instanceof Expr.CompoundAssign compound && compound.isResolved()) {
+            int kind = Operations.numericKind(compound.getValue());
+            if (kind != Operations.OTHER) {
+                return new StmtNode.CompoundAssign(compound.getName(), compound.getOperator(), compound.getDepth(),
+                    compound.getSlot(), compile(compound.getValue()), kind == Operations.INT, compile(compound));
+            }
+        }
+        if (expr instanceof Expr.IncrementOrDecrement update && update.getVariable().isResolved()) {
+            Expr.Variable variable = update.getVariable();
+            int delta = update.getOperator().getType() == TokenType.INCREMENT ? 1 : -1;
+            return new StmtNode.Update(variable.getName(), variable.getDepth(), variable.getSlot(),
+                delta, compile(update));
+        }
+
+        return new StmtNode.Expression(compile(expr));
+    }
+
+    @Override
+    public StmtNode visitPrintStmt(Stmt.Print stmt) {
+        // a & chain is printed part by part, its joined text is never built
+        List<Expr> parts = stmt.getExpression() instanceof Expr.Concat concat
+            ? concat.getParts()
+            : List.of(stmt.getExpression());
+        ExprNode[] nodes = new ExprNode[parts.size()];
+        int[] kinds = new int[parts.size()];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = compile(parts.get(i));
+            kinds[i] = Operations.numericKind(parts.get(i));
+        }
+        return new StmtNode.Print(nodes, kinds);
+    }
+
+    @Override
+    public StmtNode visitVarStmt(Stmt.Var stmt) {
+        ExprNode initializer = stmt.getInitializer() != null ? compile(stmt.getInitializer()) : null;
+        return new StmtNode.Define(stmt.getName(), stmt.getSlot(), stmt.getDeclaredType(), initializer);
+    }
+
+    @Override
+    public StmtNode visitMultiVar(Stmt.MultiVar stmt) {
+        List<Token> names = stmt.getNames();
+        StmtNode[] defines = new StmtNode[names.size()];
+
+        for (int i = 0; i < defines.length; i++) {
+            Expr initializer = stmt.getInitializers().get(i);
+            defines[i] = new StmtNode.Define(names.get(i), stmt.getSlot(i), stmt.getDeclaredType(),
+                initializer != null ? compile(initializer) : null);
+        }
+        if (defines.length == 1) return defines[0];
+        // the variables belong to the enclosing scope
+        return new StmtNode.Block(defines, false, 0);
+    }
+
+    @Override
+    public StmtNode visitBlockStmt(Stmt.Block stmt) {
+        return new StmtNode.Block(compileAll(stmt.getStatements()), stmt.isScoped(), stmt.getSlotCount());
+    }
+
+    @Override
+    public StmtNode visitIfStmt(Stmt.If stmt) {
+        // KUNG DILI and KUNG WALA become a chain of ifs in the else branches
+        StmtNode elseBranch = stmt.getElseBranch() != null ? compile(stmt.getElseBranch()) : null;
+        if (stmt.isDispatch()) return compileSwitch(stmt, elseBranch);
+
+        StmtNode[] branches = new StmtNode[stmt.getBranchCount()];
+        StmtNode chain = elseBranch;
+        for (int i = branches.length - 1; i >= 0; i--) {
+            branches[i] = compile(stmt.getBranch(i));
+            chain = new StmtNode.If(compile(stmt.getBranchCondition(i)), branches[i], chain);
+        }
+
+        if (branchProfiling && branches.length > 1) {
+            StmtNode profiled = compileProfiledChain(stmt, branches, elseBranch, chain);
+            if (profiled != null) return profiled;
+        }
+        return chain;
+    }
+
+    // A chain whose conditions only compare one NUMERO or TIPIK variable to
+    // literals. Each branch takes the values its condition allows and the
+    // ones before it do not, so the branches never overlap and can be tested
+    // in the order they are hit most. Returns null for any other chain.
+    private StmtNode compileProfiledChain(Stmt.If stmt, StmtNode[] branches, StmtNode elseBranch, StmtNode chain) {
+        Expr.Variable[] subject = new Expr.Variable[1];
+        ValueRanges[] ranges = new ValueRanges[branches.length];
+        ValueRanges before = ValueRanges.none();
+        for (int i = 0; i < branches.length; i++) {
+            ValueRanges condition = ValueRanges.of(stmt.getBranchCondition(i), subject);
+            if (condition == null) return null;
+            ranges[i] = condition.minus(before);
+            before = before.union(condition);
+        }
+        return new StmtNode.ProfiledChain(compile(subject[0]), ranges, branches, elseBranch, chain);
+    }
+
+    // The literals are all NUMERO or all LETRA, both are ints for the table
+    private StmtNode compileSwitch(Stmt.If stmt, StmtNode elseBranch) {
+        Map<Object, StmtNode> branches = new HashMap<>();
+        long lowest = Long.MAX_VALUE;
+        long highest = Long.MIN_VALUE;
+        for (Map.Entry<Object, Integer> entry : stmt.getCases().entrySet()) {
+            branches.put(entry.getKey(), compile(stmt.getBranch(entry.getValue())));
+            long key = entry.getKey() instanceof Character character ? character : (Integer) entry.getKey();
+            lowest = Math.min(lowest, key);
+            highest = Math.max(highest, key);
+        }
+
+        ExprNode subject = compile(stmt.getSubject());
+        if (highest - lowest >= MAX_TABLE_SPREAD * branches.size()) {
+            return new StmtNode.Switch(subject, 0, null, branches, elseBranch);
+        }
+
+        StmtNode[] table = new StmtNode[(int) (highest - lowest + 1)];
+        for (Map.Entry<Object, StmtNode> entry : branches.entrySet()) {
+            long key = entry.getKey() instanceof Character character ? character : (Integer) entry.getKey();
+            table[(int) (key - lowest)] = entry.getValue();
+        }
+        return new StmtNode.Switch(subject, (int) lowest, table, null, elseBranch);
+    }
+
+    @Override
+    public StmtNode visitElseIfStmt(Stmt.ElseIf stmt) {
+        // only reached through visitIfStmt
+        return new StmtNode.If(compile(stmt.getCondition()), compile(stmt.getBlock()), null);
+    }
+
+    @Override
+    public StmtNode visitWhileStmt(Stmt.While stmt) {
+        return new StmtNode.While(compile(stmt.getCondition()), compile(stmt.getBody()));
+    }
+
+    @Override
+    public StmtNode visitDoWhileStmt(Stmt.DoWhile stmt) {
+        return new StmtNode.DoWhile(compile(stmt.getCondition()), compile(stmt.getBody()));
+    }
+
+    @Override
+    public StmtNode visitForStmt(Stmt.For stmt) {
+        StmtNode initializer = stmt.getInitializer() != null ? compile(stmt.getInitializer()) : null;
+        ExprNode condition = stmt.getCondition() != null ? compile(stmt.getCondition()) : null;
+        StmtNode increment = stmt.getIncrement() != null ? compile(stmt.getIncrement()) : null;
+        StmtNode body = compile(stmt.getBody());
+
+        if (stmt.isCounted()) {
+            Expr.Variable counter = stmt.getCounter();
+            Token comparison = ((Expr.Binary) stmt.getCondition()).getOperator();
+            return new StmtNode.CountedFor(initializer, condition, increment, body,
+                stmt.isScoped(), stmt.getSlotCount(),
+                counter.getName(), counter.getDepth(), counter.getSlot(),
+                compile(stmt.getBound()), comparison, stmt.getStep());
+        }
+        return new StmtNode.For(initializer, condition, increment, body, stmt.isScoped(), stmt.getSlotCount());
+    }
+
+    @Override
+    public StmtNode visitBreakStmt(Stmt.Break stmt) {
+        return new StmtNode.Break();
+    }
+
+    @Override
+    public StmtNode visitContinueStmt(Stmt.Continue stmt) {
+        return new StmtNode.Continue();
+    }
+
+    @Override
+    public StmtNode visitScanStmt(Stmt.Scan stmt) {
+        List<Token> names = stmt.getNames();
+        int[] depths = new int[names.size()];
+        int[] slots = new int[names.size()];
+
+        for (int i = 0; i < depths.length; i++) {
+            depths[i] = stmt.isResolved(i) ? stmt.getDepth(i) : -1;
+            slots[i] = stmt.getSlot(i);
+        }
+        return new StmtNode.Scan(input, names, depths, slots);
+    }
+}
@@ -0,0 +1,43 @@
+package Nodes;
+
+import java.util.List;
+import java.util.Scanner;
+
+import Interpreter.RunTimeError;
+import Main.Baithon;
+import Main.Engine;
+import Main.Environment;
+import Parsers.Stmt;
+
+// Engine that compiles the statements into executable nodes and runs those
+public class NodeEngine implements Engine {
+    // the global scope is created on the first run so the frame kind
+    // picked on the command line is used
+    private Environment globals;
+    private final Scanner input;
+
+    public NodeEngine() {
+        this(null, new Scanner(System.in));
+    }
+
+    // Runs in the given global scope, reading DAWAT from input
+    public NodeEngine(Environment globals, Scanner input) {
+        this.globals = globals;
+        this.input = input;
+    }
+
+    @Override
+    public void interpret(List<Stmt> statements) {
+        if (globals == null) {
+            globals = Environment.create(null, 0);
+        }
+
+        StmtNode program = new NodeCompiler(input).compile(statements);
+        try {
+            program.execute(globals);
+        } catch (RunTimeError error) {
+            Baithon.runTimeError(error);
+            throw new RuntimeException();
+        }
+    }
+}
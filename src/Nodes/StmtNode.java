@@ -0,0 +1,611 @@
+package Nodes;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Scanner;
+
+import Interpreter.Completion;
+import Interpreter.NotUnboxedException;
+import Interpreter.Operations;
+import Interpreter.Output;
+import Interpreter.RunTimeError;
+import Lexers.Token;
+import Lexers.TokenType;
+import Main.Environment;
+
+/*
+ * StmtNode
+ * A statement compiled by the NodeCompiler. execute returns how the
+ * statement finished, null when it completed normally, or the HUNONG or
+ * PADAYON signal for the enclosing loop (see Interpreter.Completion).
+ * The scope to run in is passed along instead of being kept in a field.
+ */
+public abstract class StmtNode {
+    public abstract Completion execute(Environment env);
+
+    public static class Expression extends StmtNode {
+        final ExprNode expression;
+
+        Expression(ExprNode expression) {
+            this.expression = expression;
+        }
+
+        @Override
+        public Completion execute(Environment env) {
+            expression.execute(env);
+            return null;
+        }
+    }
+
+    // x = <NUMERO expression> as a statement, stored without boxing
+    public static class AssignInt extends StmtNode {
+        final Token name;
+        final int depth;
+        final int slot;
+        final ExprNode value;
+        // the boxed assignment, used when a variable in value is still null
+        final ExprNode fallback;
+
+        AssignInt(Token name, int depth, int slot, ExprNode value, ExprNode fallback) {
+            this.name = name;
+            this.depth = depth;
+            this.slot = slot;
+            this.value = value;
+            this.fallback = fallback;
+        }
+
+        @Override
+        public Completion execute(Environment env) {
+            int result;
+            try {
+                result = value.executeInt(env);
+            } catch (NotUnboxedException e) {
+                fallback.execute(env);
+                return null;
+            }
+            env.ancestor(depth).setInt(slot, name, result);
+            return null;
+        }
+    }
+
+    // x = <TIPIK expression> as a statement, stored without boxing
+    public static class AssignDouble extends StmtNode {
+        final Token name;
+        final int depth;
+        final int slot;
+        final ExprNode value;
+        final ExprNode fallback;
+
+        AssignDouble(Token name, int depth, int slot, ExprNode value, ExprNode fallback) {
+            this.name = name;
+            this.depth = depth;
+            this.slot = slot;
+            this.value = value;
+            this.fallback = fallback;
+        }
+
+        @Override
+        public Completion execute(Environment env) {
+            double result;
+            try {
+                result = value.executeDouble(env);
+            } catch (NotUnboxedException e) {
+                fallback.execute(env);
+                return null;
+            }
+            env.ancestor(depth).setDouble(slot, name, result);
+            return null;
+        }
+    }
+
+    // x += v and the others as a statement, a NUMERO updated by a NUMERO
+    // or a TIPIK updated by any number is stored without boxing
+    public static class CompoundAssign extends StmtNode {
+        final Token name;
+        final Token operator;
+        final int depth;
+        final int slot;
+        final ExprNode value;
+        // whether value is a NUMERO expression
+        final boolean ints;
+        final ExprNode fallback;
+
+        CompoundAssign(Token name, Token operator, int depth, int slot, ExprNode value, boolean ints, ExprNode fallback) {
+            this.name = name;
+            this.operator = operator;
+            this.depth = depth;
+            this.slot = slot;
+            this.value = value;
+            this.ints = ints;
+            this.fallback = fallback;
+        }
+
+        @Override
+        public Completion execute(Environment env) {
+            Environment frame = env.ancestor(depth);
+            try {
+                switch (frame.kindOf(slot, name)) {
+                    case Environment.INT -> {
+                        if (ints) {
+                            int result = value.executeInt(env);
+                            frame.setInt(slot, name, Operations.intArithmetic(frame.getInt(slot, name), result, operator));
+                            return null;
+                        }
+                    }
+                    case Environment.DOUBLE -> {
+                        double result = value.executeDouble(env);
+                        frame.setDouble(slot, name, Operations.doubleArithmetic(frame.getDouble(slot, name), result, operator));
+                        return null;
+                    }
+                    default -> {}
+                }
+            } catch (NotUnboxedException e) {
+                // a variable in value is still null
+            }
+            fallback.execute(env);
+            return null;
+        }
+    }
+
+    // x++ and x-- as a statement, the old value is not needed
+    public static class Update extends StmtNode {
+        final Token name;
+        final int depth;
+        final int slot;
+        final int delta;
+        final ExprNode fallback;
+
+        Update(Token name, int depth, int slot, int delta, ExprNode fallback) {
+            this.name = name;
+            this.depth = depth;
+            this.slot = slot;
+            this.delta = delta;
+            this.fallback = fallback;
+        }
+
+        @Override
+        public Completion execute(Environment env) {
+            Environment frame = env.ancestor(depth);
+            int kind = frame.kindOf(slot, name);
+
+            if (kind == Environment.INT) {
+                frame.setInt(slot, name, frame.getInt(slot, name) + delta);
+            } else if (kind == Environment.DOUBLE) {
+                frame.setDouble(slot, name, frame.getDouble(slot, name) + delta);
+            } else {
+                fallback.execute(env);
+            }
+            return null;
+        }
+    }
+
+    // IPAKITA, the parts of a & chain are written one after the other and
+    // the number ones without boxing them (kinds from Operations.numericKind)
+    public static class Print extends StmtNode {
+        final ExprNode[] parts;
+        final int[] kinds;
+
+        Print(ExprNode[] parts, int[] kinds) {
+            this.parts = parts;
+            this.kinds = kinds;
+        }
+
+        @Override
+        public Completion execute(Environment env) {
+            for (int i = 0; i < parts.length; i++) {
+                write(parts[i], kinds[i], env);
+            }
+            Output.end();
+            return null;
+        }
+
+        private static void write(ExprNode part, int kind, Environment env) {
+            try {
+                if (kind == Operations.INT) {
+                    Output.write(part.executeInt(env));
+                    return;
+                }
+                if (kind == Operations.DOUBLE) {
+                    Output.write(part.executeDouble(env));
+                    return;
+                }
+            } catch (NotUnboxedException e) {
+                // pure expression, safe to run again the boxed way
+            }
+            Output.write(part.execute(env));
+        }
+    }
+
+    // One variable of a MUGNA declaration
+    public static class Define extends StmtNode {
+        final Token name;
+        final int slot;
+        final TokenType type;
+        // null when the variable has no initial value
+        final ExprNode initializer;
+
+        Define(Token name, int slot, TokenType type, ExprNode initializer) {
+            this.name = name;
+            this.slot = slot;
+            this.type = type;
+            this.initializer = initializer;
+        }
+
+        @Override
+        public Completion execute(Environment env) {
+            Object value = null;
+            if (initializer != null) {
+                value = initializer.execute(env);
+            }
+            if (value != null) {
+                value = Environment.checkType(name, type, value);
+            }
+            env.define(name.getLexeme(), slot, value, type);
+            return null;
+        }
+    }
+
+    public static class Block extends StmtNode {
+        final StmtNode[] statements;
+        // whether the block gets a scope of its own and how big it is
+        final boolean scoped;
+        final int size;
+
+        Block(StmtNode[] statements, boolean scoped, int size) {
+            this.statements = statements;
+            this.scoped = scoped;
+            this.size = size;
+        }
+
+        @Override
+        public Completion execute(Environment env) {
+            return executeIn(scoped ? Environment.create(env, size) : env);
+        }
+
+        // Runs the statements in the given scope, stops at the first HUNONG or PADAYON
+        Completion executeIn(Environment env) {
+            for (StmtNode statement : statements) {
+                Completion completion = statement.execute(env);
+                if (completion != null) return completion;
+            }
+            return null;
+        }
+    }
+
+    // KUNG, the KUNG DILI branches are chained in the else branch
+    public static class If extends StmtNode {
+        final ExprNode condition;
+        final StmtNode thenBranch;
+        // null when there is no else
+        final StmtNode elseBranch;
+
+        If(ExprNode condition, StmtNode thenBranch, StmtNode elseBranch) {
+            this.condition = condition;
+            this.thenBranch = thenBranch;
+            this.elseBranch = elseBranch;
+        }
+
+        @Override
+        public Completion execute(Environment env) {
+            if (condition.executeBoolean(env)) {
+                return thenBranch.execute(env);
+            }
+            if (elseBranch != null) {
+                return elseBranch.execute(env);
+            }
+            return null;
+        }
+    }
+
+    // KUNG chain comparing one NUMERO or LETRA variable to literals. The
+    // branch is looked up in one step, in a table indexed by the value when
+    // the literals are close together and in a map otherwise.
+    public static class Switch extends StmtNode {
+        final ExprNode subject;
+        // the table starts at the smallest literal, null entries take the else
+        final int lowest;
+        final StmtNode[] table;
+        final Map<Object, StmtNode> branches;
+        // null when there is no else
+        final StmtNode elseBranch;
+
+        Switch(ExprNode subject, int lowest, StmtNode[] table, Map<Object, StmtNode> branches, StmtNode elseBranch) {
+            this.subject = subject;
+            this.lowest = lowest;
+            this.table = table;
+            this.branches = branches;
+            this.elseBranch = elseBranch;
+        }
+
+        @Override
+        public Completion execute(Environment env) {
+            StmtNode branch = table != null ? fromTable(subject.execute(env)) : branches.get(subject.execute(env));
+            if (branch != null) return branch.execute(env);
+            if (elseBranch != null) return elseBranch.execute(env);
+            return null;
+        }
+
+        // a null variable matches no literal
+        private StmtNode fromTable(Object value) {
+            long key;
+            if (value instanceof Integer number) key = number;
+            else if (value instanceof Character character) key = character;
+            else return null;
+
+            long index = key - lowest;
+            return index >= 0 && index < table.length ? table[(int) index] : null;
+        }
+    }
+
+    // KUNG chain on one NUMERO or TIPIK variable whose branches never
+    // overlap (see ValueRanges). It counts which branch each run takes and,
+    // after WARMUP runs, tests the branches in the order they were hit most,
+    // so the branch taken most often costs one test.
+    public static class ProfiledChain extends StmtNode {
+        static final int WARMUP = 1000;
+
+        final ExprNode subject;
+        final ValueRanges[] ranges;
+        final StmtNode[] branches;
+        // null when there is no else
+        final StmtNode elseBranch;
+        // the chain as written, for a variable that is not a number
+        final StmtNode chain;
+
+        // the branches in the order they are tested, and how often each was
+        // taken, the else last
+        int[] order;
+        final int[] hits;
+        int runs = 0;
+
+        ProfiledChain(ExprNode subject, ValueRanges[] ranges, StmtNode[] branches, StmtNode elseBranch, StmtNode chain) {
+            this.subject = subject;
+            this.ranges = ranges;
+            this.branches = branches;
+            this.elseBranch = elseBranch;
+            this.chain = chain;
+            this.order = new int[branches.length];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            this.hits = new int[branches.length + 1];
+        }
+
+        @Override
+        public Completion execute(Environment env) {
+            double value;
+            Object boxed = subject.execute(env);
+            if (boxed instanceof Integer number) value = number;
+            else if (boxed instanceof Double number) value = number;
+            // null, the conditions report it in their order
+            else return chain.execute(env);
+
+            for (int branch : order) {
+                if (ranges[branch].contains(value)) {
+                    if (runs < WARMUP) count(branch);
+                    return branches[branch].execute(env);
+                }
+            }
+            if (runs < WARMUP) count(branches.length);
+            if (elseBranch != null) return elseBranch.execute(env);
+            return null;
+        }
+
+        private void count(int branch) {
+            hits[branch]++;
+            if (++runs < WARMUP) return;
+
+            // most hit first, ties keep the order they were written in
+            Integer[] sorted = new Integer[branches.length];
+            for (int i = 0; i < sorted.length; i++) {
+                sorted[i] = i;
+            }
+            Arrays.sort(sorted, (a, b) -> Integer.compare(hits[b], hits[a]));
+
+            int[] reordered = new int[sorted.length];
+            for (int i = 0; i < sorted.length; i++) {
+                reordered[i] = sorted[i];
+            }
+            order = reordered;
+        }
+    }
+
+    // Loop body, a body with its own scope gets one frame for the whole loop
+    // which is cleared at the start of every iteration
+    abstract static class Loop extends StmtNode {
+        final StmtNode body;
+
+        Loop(StmtNode body) {
+            this.body = body;
+        }
+
+        // null when the body runs in the loop's scope
+        Environment frame(Environment env) {
+            if (body instanceof Block block && block.scoped) {
+                return Environment.create(env, block.size);
+            }
+            return null;
+        }
+
+        Completion executeBody(Environment env, Environment frame) {
+            if (frame == null) {
+                return body.execute(env);
+            }
+            frame.reset();
+            return ((Block) body).executeIn(frame);
+        }
+    }
+
+    public static class While extends Loop {
+        final ExprNode condition;
+
+        While(ExprNode condition, StmtNode body) {
+            super(body);
+            this.condition = condition;
+        }
+
+        @Override
+        public Completion execute(Environment env) {
+            Environment frame = frame(env);
+            while (condition.executeBoolean(env)) {
+                if (executeBody(env, frame) == Completion.BREAK) break;
+            }
+            return null;
+        }
+    }
+
+    public static class DoWhile extends Loop {
+        final ExprNode condition;
+
+        DoWhile(ExprNode condition, StmtNode body) {
+            super(body);
+            this.condition = condition;
+        }
+
+        @Override
+        public Completion execute(Environment env) {
+            Environment frame = frame(env);
+            do {
+                if (executeBody(env, frame) == Completion.BREAK) break;
+            } while (condition.executeBoolean(env));
+            return null;
+        }
+    }
+
+    // ALANG SA
+    public static class For extends Loop {
+        // any of these can be null
+        final StmtNode initializer;
+        final ExprNode condition;
+        final StmtNode increment;
+        // the loop's own scope, only when the initializer declares the counter
+        final boolean scoped;
+        final int size;
+
+        For(StmtNode initializer, ExprNode condition, StmtNode increment, StmtNode body,
+                boolean scoped, int size) {
+            super(body);
+            this.initializer = initializer;
+            this.condition = condition;
+            this.increment = increment;
+            this.scoped = scoped;
+            this.size = size;
+        }
+
+        @Override
+        public Completion execute(Environment env) {
+            if (scoped) env = Environment.create(env, size);
+            if (initializer != null) initializer.execute(env);
+            run(env);
+            return null;
+        }
+
+        void run(Environment env) {
+            Environment frame = frame(env);
+            while (condition == null || condition.executeBoolean(env)) {
+                // PADAYON still runs the increment
+                if (executeBody(env, frame) == Completion.BREAK) break;
+                if (increment != null) increment.execute(env);
+            }
+        }
+    }
+
+    // ALANG SA that the Resolver found to be a counted loop, the counter is
+    // kept in a local int and written back to its variable after every step
+    public static class CountedFor extends For {
+        final Token name;
+        final int depth;
+        final int slot;
+        final ExprNode bound;
+        final Token comparison;
+        final int step;
+
+        CountedFor(StmtNode initializer, ExprNode condition, StmtNode increment, StmtNode body,
+                boolean scoped, int size,
+                Token name, int depth, int slot, ExprNode bound, Token comparison, int step) {
+            super(initializer, condition, increment, body, scoped, size);
+            this.name = name;
+            this.depth = depth;
+            this.slot = slot;
+            this.bound = bound;
+            this.comparison = comparison;
+            this.step = step;
+        }
+
+        @Override
+        void run(Environment env) {
+            Environment scope = env.ancestor(depth);
+
+            // the counter could still be null, the generic loop reports it
+            if (scope.kindOf(slot, name) != Environment.INT) {
+                super.run(env);
+                return;
+            }
+            Object limit = bound.execute(env);
+            if (!(limit instanceof Integer)) {
+                super.run(env);
+                return;
+            }
+
+            int max = (Integer) limit;
+            Environment frame = frame(env);
+            int i = scope.getInt(slot, name);
+            while (Operations.compare(i, max, comparison)) {
+                if (executeBody(env, frame) == Completion.BREAK) break;
+                i += step;
+                scope.setInt(slot, name, i);
+            }
+        }
+    }
+
+    public static class Break extends StmtNode {
+        @Override
+        public Completion execute(Environment env) {
+            return Completion.BREAK;
+        }
+    }
+
+    public static class Continue extends StmtNode {
+        @Override
+        public Completion execute(Environment env) {
+            return Completion.CONTINUE;
+        }
+    }
+
+    // DAWAT
+    public static class Scan extends StmtNode {
+        final Scanner input;
+        final List<Token> names;
+        // -1 depth when the Resolver could not find the variable
+        final int[] depths;
+        final int[] slots;
+
+        Scan(Scanner input, List<Token> names, int[] depths, int[] slots) {
+            this.input = input;
+            this.names = names;
+            this.depths = depths;
+            this.slots = slots;
+        }
+
+        @Override
+        public Completion execute(Environment env) {
+            Output.flush();
+            String[] parts = input.nextLine().split(",");
+
+            if (names.size() != parts.length) {
+                throw new RunTimeError(names.get(0), "Number of variables does not match number of inputs.");
+            }
+
+            for (int i = 0; i < names.size(); i++) {
+                String part = parts[i].trim();
+                if (depths[i] >= 0) {
+                    env.assignAt(depths[i], slots[i], names.get(i), part);
+                } else {
+                    env.assign(names.get(i), part);
+                }
+            }
+            return null;
+        }
+    }
+}
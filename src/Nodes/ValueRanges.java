@@ -0,0 +1,171 @@
+package Nodes;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import Lexers.TokenType;
+import Parsers.Expr;
+
+/*
+ * ValueRanges
+ * The values of one NUMERO or TIPIK variable for which a condition holds,
+ * as a list of intervals. A KUNG chain whose conditions all compare the
+ * same variable to literals can be turned into one ValueRanges per branch
+ * (its own condition minus the ones of the branches before it). Those
+ * never overlap, so the branches can then be tested in any order.
+ */
+final class ValueRanges {
+    private record Interval(double low, boolean lowOpen, double high, boolean highOpen) {
+        boolean contains(double value) {
+            return (lowOpen ? value > low : value >= low) && (highOpen ? value < high : value <= high);
+        }
+
+        boolean isEmpty() {
+            return low > high || low == high && (lowOpen || highOpen);
+        }
+    }
+
+    private final Interval[] intervals;
+
+    private ValueRanges(List<Interval> intervals) {
+        this.intervals = intervals.toArray(new Interval[0]);
+    }
+
+    // Comparisons give false for NaN, so no interval contains it
+    boolean contains(double value) {
+        for (Interval interval : intervals) {
+            if (interval.contains(value)) return true;
+        }
+        return false;
+    }
+
+    boolean isEmpty() {
+        return intervals.length == 0;
+    }
+
+    ValueRanges minus(ValueRanges other) {
+        List<Interval> result = List.of(intervals);
+        for (Interval removed : other.intervals) {
+            List<Interval> remaining = new ArrayList<>();
+            for (Interval interval : result) {
+                // the parts below and above the removed interval
+                boolean highOpen = interval.high < removed.low ? interval.highOpen
+                    : interval.high == removed.low ? interval.highOpen || !removed.lowOpen
+                    : !removed.lowOpen;
+                add(remaining, new Interval(interval.low, interval.lowOpen, Math.min(interval.high, removed.low), highOpen));
+
+                boolean lowOpen = interval.low > removed.high ? interval.lowOpen
+                    : interval.low == removed.high ? interval.lowOpen || !removed.highOpen
+                    : !removed.highOpen;
+                add(remaining, new Interval(Math.max(interval.low, removed.high), lowOpen, interval.high, interval.highOpen));
+            }
+            result = remaining;
+        }
+        return new ValueRanges(result);
+    }
+
+    private ValueRanges intersect(ValueRanges other) {
+        List<Interval> result = new ArrayList<>();
+        for (Interval a : intervals) {
+            for (Interval b : other.intervals) {
+                boolean lowOpen = a.low == b.low ? a.lowOpen || b.lowOpen : a.low > b.low ? a.lowOpen : b.lowOpen;
+                boolean highOpen = a.high == b.high ? a.highOpen || b.highOpen : a.high < b.high ? a.highOpen : b.highOpen;
+                add(result, new Interval(Math.max(a.low, b.low), lowOpen, Math.min(a.high, b.high), highOpen));
+            }
+        }
+        return new ValueRanges(result);
+    }
+
+    ValueRanges union(ValueRanges other) {
+        List<Interval> result = new ArrayList<>(List.of(intervals));
+        result.addAll(List.of(other.intervals));
+        return new ValueRanges(result);
+    }
+
+    private static void add(List<Interval> intervals, Interval interval) {
+        if (!interval.isEmpty()) intervals.add(interval);
+    }
+
+    static ValueRanges none() {
+        return new ValueRanges(List.of());
+    }
+
+    // Conditions ------------------------------------------------------------
+
+    // The values of subject for which condition holds, null when the
+    // condition is anything but comparisons of subject with number literals
+    // joined by UG and O. subject[0] is set to the first variable seen,
+    // all the others have to be the same one.
+    static ValueRanges of(Expr condition, Expr.Variable[] subject) {
+        while (condition instanceof Expr.Grouping grouping) condition = grouping.getExpression();
+
+        if (condition instanceof Expr.Logical logical) {
+            ValueRanges left = of(logical.getLeft(), subject);
+            ValueRanges right = left != null ? of(logical.getRight(), subject) : null;
+            if (right == null) return null;
+            return logical.getOperator().getType() == TokenType.AND ? left.intersect(right) : left.union(right);
+        }
+        if (!(condition instanceof Expr.Binary binary)) return null;
+
+        // the variable on the left, 5 < x is x > 5
+        TokenType operator = binary.getOperator().getType();
+        Expr.Variable variable;
+        Expr.Literal literal;
+        if (binary.getLeft() instanceof Expr.Variable v && binary.getRight() instanceof Expr.Literal l) {
+            variable = v;
+            literal = l;
+        } else if (binary.getLeft() instanceof Expr.Literal l && binary.getRight() instanceof Expr.Variable v) {
+            variable = v;
+            literal = l;
+            operator = switch (operator) {
+                case LESS -> TokenType.GREATER;
+                case LESS_EQUAL -> TokenType.GREATER_EQUAL;
+                case GREATER -> TokenType.LESS;
+                case GREATER_EQUAL -> TokenType.LESS_EQUAL;
+                default -> operator;
+            };
+        } else {
+            return null;
+        }
+
+        if (!variable.isResolved()) return null;
+        TokenType type = variable.getDeclaredType();
+        if (type != TokenType.INTEGER && type != TokenType.FLOAT) return null;
+        if (subject[0] == null) {
+            subject[0] = variable;
+        } else if (!subject[0].getName().getLexeme().equals(variable.getName().getLexeme())) {
+            return null;
+        }
+
+        double value;
+        if (literal.getValue() instanceof Integer number) value = number;
+        else if (literal.getValue() instanceof Double number) value = number;
+        else return null;
+
+        double low = Double.NEGATIVE_INFINITY;
+        double high = Double.POSITIVE_INFINITY;
+        switch (operator) {
+            case LESS -> {
+                return new ValueRanges(List.of(new Interval(low, false, value, true)));
+            }
+            case LESS_EQUAL -> {
+                return new ValueRanges(List.of(new Interval(low, false, value, false)));
+            }
+            case GREATER -> {
+                return new ValueRanges(List.of(new Interval(value, true, high, false)));
+            }
+            case GREATER_EQUAL -> {
+                return new ValueRanges(List.of(new Interval(value, false, high, false)));
+            }
+            // == compares with equals, so only a NUMERO against a NUMERO literal
+            // is the same as comparing the numbers
+            case EQUAL -> {
+                if (type != TokenType.INTEGER || !(literal.getValue() instanceof Integer)) return null;
+                return new ValueRanges(List.of(new Interval(value, false, value, false)));
+            }
+            default -> {
+                return null;
+            }
+        }
+    }
+}
@@ -12,6 +12,11 @@ public class AstPrinter implements Expr.Visitor<String> {
         return parenthesize("assign " + expr.name.getLexeme(), expr.value);
     }
 
+    @Override
+    public String visitCompoundAssignExpr(Expr.CompoundAssign expr) {
+        return parenthesize("assign " + expr.name.getLexeme() + " " + expr.operator.getLexeme() + "=", expr.value);
+    }
+
     @Override
     public String visitUnaryExpr(Expr.Unary expr) {
         return parenthesize(expr.operator.getLexeme(), expr.right);
@@ -23,6 +28,11 @@ public class AstPrinter implements Expr.Visitor<String> {
         expr.left, expr.right);
     }
     
+    @Override
+    public String visitConcatExpr(Expr.Concat expr) {
+        return parenthesize("&", expr.getParts().toArray(new Expr[0]));
+    }
+
     @Override
     public String visitGroupingExpr(Expr.Grouping expr) {
         return parenthesize("group", expr.expression);
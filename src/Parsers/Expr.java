@@ -6,7 +6,9 @@
  * 
  * Expression types:
  * - Assign: Represents an assignment expression. X = 5
+ * - CompoundAssign: Represents a compound assignment expression. X += 5
  * - Binary: Represents a binary expression. X + Y, X - Y, etc.
+ * - Concat: Represents a whole & chain. X & " " & Y
  * - Grouping: Represents a grouping expression. (X + Y) * 5
  * - Literal: Represents a literal expression. 5, "Hello", etc.
  * - Logical: Represents a logical expression. X && Y, X || Y, etc.
@@ -18,15 +20,20 @@
  */
 package Parsers;
 
+import java.util.List;
+
 import Lexers.Token;
+import Lexers.TokenType;
 
 abstract public class Expr {
 
     // The base class for all expression types
     public interface Visitor<R> {
         R visitAssignExpr(Assign expr);
+        R visitCompoundAssignExpr(CompoundAssign expr);
         R visitUnaryExpr(Unary expr);
         R visitBinaryExpr(Binary expr);
+        R visitConcatExpr(Concat expr);
         R visitGroupingExpr(Grouping expr);
         R visitLiteralExpr(Literal expr);
         R visitLogicalExpr(Logical expr);
@@ -42,6 +49,10 @@ abstract public class Expr {
     public static class Assign extends Expr {
         final Token name;
         final Expr value;
+        // filled in by the Resolver, -1 means not resolved
+        int depth = -1;
+        int slot = -1;
+        TokenType declaredType;
 
         public Assign(Token name, Expr value) {
             this.name = name;
@@ -53,6 +64,13 @@ abstract public class Expr {
             return visitor.visitAssignExpr(this);
         }
 
+        // setter
+        public void resolve(int depth, int slot, TokenType declaredType) {
+            this.depth = depth;
+            this.slot = slot;
+            this.declaredType = declaredType;
+        }
+
         // getter
         public Token getName() {
             return name;
@@ -60,6 +78,73 @@ abstract public class Expr {
         public Expr getValue() {
             return value;
         }
+        public boolean isResolved() {
+            return depth >= 0;
+        }
+        public int getDepth() {
+            return depth;
+        }
+        public int getSlot() {
+            return slot;
+        }
+        public TokenType getDeclaredType() {
+            return declaredType;
+        }
+    }
+
+    // Compound assignment expression
+    // This is used to represent x += v, x -= v, x *= v, x /= v and x %= v.
+    // operator is the binary operator, + for +=, so it works like
+    // x = x + v but finds the variable only once.
+    public static class CompoundAssign extends Expr {
+        final Token name;
+        final Token operator;
+        final Expr value;
+        // filled in by the Resolver, -1 means not resolved
+        int depth = -1;
+        int slot = -1;
+        TokenType declaredType;
+
+        public CompoundAssign(Token name, Token operator, Expr value) {
+            this.name = name;
+            this.operator = operator;
+            this.value = value;
+        }
+
+        @Override
+        public <R> R accept(Visitor<R> visitor) {
+            return visitor.visitCompoundAssignExpr(this);
+        }
+
+        // setter
+        public void resolve(int depth, int slot, TokenType declaredType) {
+            this.depth = depth;
+            this.slot = slot;
+            this.declaredType = declaredType;
+        }
+
+        // getter
+        public Token getName() {
+            return name;
+        }
+        public Token getOperator() {
+            return operator;
+        }
+        public Expr getValue() {
+            return value;
+        }
+        public boolean isResolved() {
+            return depth >= 0;
+        }
+        public int getDepth() {
+            return depth;
+        }
+        public int getSlot() {
+            return slot;
+        }
+        public TokenType getDeclaredType() {
+            return declaredType;
+        }
     }
 
     // Binary expression
@@ -133,6 +218,28 @@ abstract public class Expr {
         }
     }
 
+    // Concatenation expression
+    // This is used to represent a & chain as one node, the Optimizer turns
+    // a & b & c into Concat(a, b, c) so the parts are joined in one go
+    // instead of one String per &.
+    public static class Concat extends Expr {
+        final List<Expr> parts;
+
+        public Concat(List<Expr> parts) {
+            this.parts = parts;
+        }
+
+        @Override
+        public <R> R accept(Visitor<R> visitor) {
+            return visitor.visitConcatExpr(this);
+        }
+
+        // getter
+        public List<Expr> getParts() {
+            return parts;
+        }
+    }
+
     // Logical expression
     // This is used to represent logical operations like AND, OR, etc.
     public static class Logical extends Expr {
@@ -192,6 +299,10 @@ abstract public class Expr {
     // This is used to represent variables in the language
     public static class Variable extends Expr {
         final Token name;
+        // filled in by the Resolver, -1 means not resolved
+        int depth = -1;
+        int slot = -1;
+        TokenType declaredType;
 
         public Variable(Token name) {
             this.name = name;
@@ -202,10 +313,29 @@ abstract public class Expr {
             return visitor.visitVariableExpr(this);
         }
 
+        // setter
+        public void resolve(int depth, int slot, TokenType declaredType) {
+            this.depth = depth;
+            this.slot = slot;
+            this.declaredType = declaredType;
+        }
+
         // getter
         public Token getName() {
             return name;
         }
+        public boolean isResolved() {
+            return depth >= 0;
+        }
+        public int getDepth() {
+            return depth;
+        }
+        public int getSlot() {
+            return slot;
+        }
+        public TokenType getDeclaredType() {
+            return declaredType;
+        }
     }
 
     // Increment or Decrement expression
@@ -19,10 +19,10 @@
 package Parsers;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 
 import Lexers.Token;
+import Lexers.TokenBuffer;
 import Lexers.TokenType;
 import static Lexers.TokenType.BOOLEAN;
 import static Lexers.TokenType.CHARACTER;
@@ -68,14 +68,20 @@ import static Lexers.TokenType.WHILE;
 */
 
 public class Parser {
-    private final List<Token> tokens;
+    // tokens are read by index from the buffer, a Token object is only made
+    // for the ones the AST keeps or an error message names (see TokenBuffer)
+    private final TokenBuffer tokens;
     private int current = 0;
 
     // Constructor
-    public Parser(List<Token> tokens) {
+    public Parser(TokenBuffer tokens) {
         this.tokens = tokens;
     }
 
+    public Parser(List<Token> tokens) {
+        this(TokenBuffer.of(tokens));
+    }
+
     // Parse the tokens and return an expression
     // main function
     public List<Stmt> parse() {
@@ -169,7 +175,7 @@ public class Parser {
 
     private Stmt varDeclaration(boolean isLoop) {
         // need to consume data types
-        TokenType dataType = peek().getType();
+        TokenType dataType = tokens.type(current);
         // System.out.println("Parser: declared dataType: " + dataType);
 
         if (dataType != INTEGER 
@@ -187,8 +193,8 @@ public class Parser {
 
         // get variable names
         do { 
-            Token name = consume(TokenType.IDENTIFIER, "Expected variable name.");
-            names.add(name);
+            consume(TokenType.IDENTIFIER, "Expected variable name.");
+            names.add(previous());
 
             Expr initializer = null;
 
@@ -314,21 +320,8 @@ public class Parser {
         Stmt body = statement();
         loopDepth--;
 
-        if (increment != null) {
-        body = new Stmt.Block(
-            Arrays.asList(
-                body,
-                new Stmt.Expression(increment)));
-        }
-
-        if (condition == null) condition = new Expr.Literal(true);
-        body = new Stmt.While(condition, body);
-
-        if (initializer != null) {
-            body = new Stmt.Block(Arrays.asList(initializer, body));
-        }
-
-        return body;
+        return new Stmt.For(initializer, condition,
+            increment != null ? new Stmt.Expression(increment) : null, body);
     }
 
     private int loopDepth = 0;    
@@ -390,8 +383,8 @@ public class Parser {
 
         List<Token> names = new ArrayList<>();
         do {
-            Token name = consume(TokenType.IDENTIFIER, "Expected variable name after 'DAWAT'.");
-            names.add(name);
+            consume(TokenType.IDENTIFIER, "Expected variable name after 'DAWAT'.");
+            names.add(previous());
         } while (match(TokenType.COMMA));
 
         return new Stmt.Scan(names);
@@ -432,13 +425,8 @@ public class Parser {
                     throw error(operator, "Unknown operator: " + operator.getLexeme());
                 }
                 
-            Expr binary = new Expr.Binary(
-                new Expr.Variable(var.getName()),
-                new Token(simpleOp, operator.getLexeme().substring(0,1), null, operator.getLine()),
-                value
-                );
-                
-            return new Expr.Assign(var.getName(), binary);
+            Token binaryOperator = new Token(simpleOp, operator.getLexeme().substring(0,1), null, operator.getLine());
+            return new Expr.CompoundAssign(var.getName(), binaryOperator, value);
         }
 
         // Simple assignment
@@ -571,7 +559,7 @@ public class Parser {
 
         if (match(TokenType.INTEGER, TokenType.FLOAT, TokenType.CHARACTER, TokenType.STRING)) {
             // Return a literal expression for numbers, strings, etc.
-            return new Expr.Literal(previous().getLiteral());
+            return new Expr.Literal(tokens.literal(current - 1));
         }
 
         if (match(TokenType.NEW_LINE_LITERAL)) {
@@ -610,8 +598,11 @@ public class Parser {
     private static class ParseError extends RuntimeException {}
 
     // this function is used to consume the token
-    private Token consume(TokenType type, String message) {
-        if (check(type)) return advance();
+    private void consume(TokenType type, String message) {
+        if (check(type)) {
+            advance();
+            return;
+        }
 
         throw error(peek(), message);
     }
@@ -641,9 +632,9 @@ public class Parser {
         advance();
 
         while (!isAtEnd()) {
-        if (previous().getType() == TokenType.NEW_LINE) return;
+        if (tokens.type(current - 1) == TokenType.NEW_LINE) return;
 
-        switch (peek().getType()) {
+        switch (tokens.type(current)) {
             // TODO
             // case CLASS:
             // case FUN:
@@ -677,29 +668,28 @@ public class Parser {
     // this function is used to check if the token is of the type
     private boolean check(TokenType type) {
         if (isAtEnd()) return false;
-        return peek().getType() == type;
+        return tokens.type(current) == type;
     }
 
     // Helper functions
     private boolean isAtEnd() {
-        return peek().getType() == TokenType.EOF;
+        return tokens.type(current) == TokenType.EOF;
     }
 
     private Token peek() {
-        return tokens.get(current);
+        return tokens.token(current);
     }
     
-    private Token advance() {
+    private void advance() {
         if (!isAtEnd()) {
             // DEBUGGING
             // System.out.println("Parser: advancing token: " + peek());
             current++;
         }
-        return previous();
     }
 
     private Token previous() {
-        return tokens.get(current - 1);
+        return tokens.token(current - 1);
     }
 
     private boolean isTypeCompatible(TokenType declaredType, Expr initializer) {
@@ -1,6 +1,8 @@
 package Parsers;
 
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 import Lexers.Token;
 import Lexers.TokenType;
@@ -17,6 +19,7 @@ public abstract class Stmt {
         R visitWhileStmt(While stmt);
         R visitScanStmt(Scan stmt);
         R visitDoWhileStmt(DoWhile stmt);
+        R visitForStmt(For stmt);
         R visitBreakStmt(Break stmt);
         R visitContinueStmt(Continue stmt);
     }
@@ -75,6 +78,8 @@ public abstract class Stmt {
         final Token name;
         final Expr initializer;
         final TokenType declaredType;
+        // filled in by the Resolver
+        int slot = -1;
 
         @Override
         public <R> R accept(Visitor<R> visitor) {
@@ -92,6 +97,13 @@ public abstract class Stmt {
         public TokenType getDeclaredType() {
             return declaredType;
         }
+        public int getSlot() {
+            return slot;
+        }
+        // setter
+        public void setSlot(int slot) {
+            this.slot = slot;
+        }
     }
 
     public static class Block extends Stmt {
@@ -105,11 +117,26 @@ public abstract class Stmt {
         }
 
         final List<Stmt> statements;
+        // filled in by the Resolver: whether the block gets a scope of its own
+        // and how many variables are declared directly in it
+        boolean scoped = true;
+        int slotCount = 0;
 
         // getter
         public List<Stmt> getStatements() {
             return statements;
         }
+        public boolean isScoped() {
+            return scoped;
+        }
+        public int getSlotCount() {
+            return slotCount;
+        }
+        // setter
+        public void setScope(boolean scoped, int slotCount) {
+            this.scoped = scoped;
+            this.slotCount = slotCount;
+        }
     }
 
     public static class MultiVar extends Stmt {
@@ -117,10 +144,15 @@ public abstract class Stmt {
         public final List<Expr> initializers;
         public final TokenType declaredType;
 
+        // filled in by the Resolver
+        private final int[] slots;
+
         public MultiVar(List<Token> names, List<Expr> initializers, TokenType declaredType) {
             this.names = names;
             this.initializers = initializers;
             this.declaredType = declaredType;
+            this.slots = new int[names.size()];
+            Arrays.fill(slots, -1);
         }
 
         @Override
@@ -138,6 +170,13 @@ public abstract class Stmt {
         public TokenType getDeclaredType() {
             return declaredType;
         }
+        public int getSlot(int index) {
+            return slots[index];
+        }
+        // setter
+        public void setSlot(int index, int slot) {
+            slots[index] = slot;
+        }
     }
 
     public static class If extends Stmt {
@@ -153,6 +192,12 @@ public abstract class Stmt {
         final List<ElseIf> elseIfBranches;
         final Stmt elseBranch;
 
+        // filled in by the Resolver when every condition compares the same
+        // NUMERO or LETRA variable to a different literal with ==: the
+        // branch of each literal, 0 for KUNG and 1.. for the KUNG DILIs
+        Expr.Variable subject;
+        Map<Object, Integer> cases;
+
         @Override
         public <R> R accept(Visitor<R> visitor) {
             return visitor.visitIfStmt(this);
@@ -171,6 +216,31 @@ public abstract class Stmt {
         public Stmt getElseBranch() {
             return elseBranch;
         }
+        public boolean isDispatch() {
+            return subject != null;
+        }
+        public Expr.Variable getSubject() {
+            return subject;
+        }
+        public Map<Object, Integer> getCases() {
+            return cases;
+        }
+        // number of branches with a condition, the KUNG and its KUNG DILIs
+        public int getBranchCount() {
+            return 1 + (elseIfBranches != null ? elseIfBranches.size() : 0);
+        }
+        // the condition and the block of branch, 0 for KUNG and 1.. for the KUNG DILIs
+        public Expr getBranchCondition(int branch) {
+            return branch == 0 ? condition : elseIfBranches.get(branch - 1).getCondition();
+        }
+        public Stmt getBranch(int branch) {
+            return branch == 0 ? thenBranch : elseIfBranches.get(branch - 1).getBlock();
+        }
+        // setter
+        public void setDispatch(Expr.Variable subject, Map<Object, Integer> cases) {
+            this.subject = subject;
+            this.cases = cases;
+        }
     }
 
     public static class ElseIf extends Stmt {
@@ -243,6 +313,81 @@ public abstract class Stmt {
         }
     }
 
+    // ALANG SA (initializer, condition, increment)
+    public static class For extends Stmt {
+        public For(Stmt initializer, Expr condition, Stmt increment, Stmt body) {
+            this.initializer = initializer;
+            this.condition = condition;
+            this.increment = increment;
+            this.body = body;
+        }
+
+        @Override
+        public <R> R accept(Visitor<R> visitor) {
+            return visitor.visitForStmt(this);
+        }
+
+        // any of these except the body can be null
+        final Stmt initializer;
+        final Expr condition;
+        final Stmt increment;
+        final Stmt body;
+
+        // filled in by the Resolver: the loop only gets a scope of its own
+        // when the initializer declares the counter
+        boolean scoped = false;
+        int slotCount = 0;
+
+        // filled in by the Resolver when the loop is a counted loop:
+        // a NUMERO counter compared against a bound that does not change
+        // in the body, stepped by a constant
+        Expr.Variable counter;
+        Expr bound;
+        int step;
+
+        // getters
+        public Stmt getInitializer() {
+            return initializer;
+        }
+        public Expr getCondition() {
+            return condition;
+        }
+        public Stmt getIncrement() {
+            return increment;
+        }
+        public Stmt getBody() {
+            return body;
+        }
+        public boolean isScoped() {
+            return scoped;
+        }
+        public int getSlotCount() {
+            return slotCount;
+        }
+        public boolean isCounted() {
+            return counter != null;
+        }
+        public Expr.Variable getCounter() {
+            return counter;
+        }
+        public Expr getBound() {
+            return bound;
+        }
+        public int getStep() {
+            return step;
+        }
+        // setters
+        public void setScope(boolean scoped, int slotCount) {
+            this.scoped = scoped;
+            this.slotCount = slotCount;
+        }
+        public void setCounted(Expr.Variable counter, Expr bound, int step) {
+            this.counter = counter;
+            this.bound = bound;
+            this.step = step;
+        }
+    }
+
     public static class Break extends Stmt {
         public Break() {}
 
@@ -263,9 +408,18 @@ public abstract class Stmt {
 
     public static class Scan extends Stmt {
         private final List<Token> names;
+        // filled in by the Resolver, -1 means not resolved
+        private final int[] depths;
+        private final int[] slots;
+        private final TokenType[] declaredTypes;
 
         public Scan( List<Token> names) {
             this.names = names;
+            this.depths = new int[names.size()];
+            this.slots = new int[names.size()];
+            this.declaredTypes = new TokenType[names.size()];
+            Arrays.fill(depths, -1);
+            Arrays.fill(slots, -1);
         }
 
         @Override
@@ -273,10 +427,29 @@ public abstract class Stmt {
             return visitor.visitScanStmt(this);
         }
 
+        // setter
+        public void resolve(int index, int depth, int slot, TokenType declaredType) {
+            depths[index] = depth;
+            slots[index] = slot;
+            declaredTypes[index] = declaredType;
+        }
+
         // getters
         public List<Token> getNames() {
             return names;
         }
+        public boolean isResolved(int index) {
+            return depths[index] >= 0;
+        }
+        public int getDepth(int index) {
+            return depths[index];
+        }
+        public int getSlot(int index) {
+            return slots[index];
+        }
+        public TokenType getDeclaredType(int index) {
+            return declaredTypes[index];
+        }
     }
 
     public abstract <R> R accept(Visitor<R> visitor);
@@ -0,0 +1,31 @@
+package Vm;
+
+import Lexers.Token;
+import Lexers.TokenType;
+
+// A compiled program: the bytecode and the tables its operands point into
+final class Chunk {
+    // What the VM needs to know about a variable to report errors and
+    // type check assignments
+    record Variable(Token name, TokenType type) {}
+
+    final byte[] code;
+    final Object[] constants;
+    final Token[] tokens;
+    final Variable[] variables;
+    // sizes of the locals, globals and value stack the program needs
+    final int localCount;
+    final int globalCount;
+    final int maxStack;
+
+    Chunk(byte[] code, Object[] constants, Token[] tokens, Variable[] variables,
+            int localCount, int globalCount, int maxStack) {
+        this.code = code;
+        this.constants = constants;
+        this.tokens = tokens;
+        this.variables = variables;
+        this.localCount = localCount;
+        this.globalCount = globalCount;
+        this.maxStack = maxStack;
+    }
+}
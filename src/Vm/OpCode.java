@@ -0,0 +1,94 @@
+package Vm;
+
+/*
+ * OpCode
+ * The instructions of the Baithon VM. Every instruction is one byte
+ * followed by its operands, each operand is an unsigned 16 bit number
+ * (high byte first). The comments say what the operands are and what the
+ * instruction does to the value stack.
+ *
+ * Operand kinds:
+ * - constant: index into Chunk.constants
+ * - token: index into Chunk.tokens, the operator used for errors
+ * - variable: index into Chunk.variables (name and declared type)
+ * - slot: index into the globals or the locals of the VM
+ * - target: absolute code offset to jump to
+ */
+final class OpCode {
+    private OpCode() {}
+
+    // constant                         -> value
+    static final byte CONSTANT = 0;
+    // value ->
+    static final byte POP = 1;
+    // value                            -> value value
+    static final byte DUP = 2;
+
+    // Variables ------------------------------------------------------------
+    // Globals live in the top scope and are kept between runs of the prompt,
+    // locals are every other scope, flattened into one array by the compiler.
+
+    // slot variable                    -> value
+    static final byte GET_GLOBAL = 3;
+    static final byte GET_LOCAL = 4;
+    // slot variable, value             -> value (type checked copy is stored)
+    static final byte SET_GLOBAL = 5;
+    static final byte SET_LOCAL = 6;
+    // slot variable, value             ->
+    static final byte DEFINE_GLOBAL = 7;
+    static final byte DEFINE_LOCAL = 8;
+    // slot count, marks the slots of a scope that is entered as undefined
+    static final byte CLEAR_LOCALS = 9;
+    // variable, reports a variable the Resolver could not find
+    static final byte UNDEFINED = 10;
+    static final byte NOT_DEFINED = 11;
+
+    // Operators ------------------------------------------------------------
+
+    // token, left right                -> result of Operations.binary
+    static final byte BINARY = 12;
+    // token, left right                -> left & right
+    static final byte CONCAT = 13;
+    // token, left right on two NUMERO expressions, falls back to
+    // Operations.binary when one of them is still null
+    static final byte ADD_INT = 14;
+    static final byte SUBTRACT_INT = 15;
+    static final byte MULTIPLY_INT = 16;
+    static final byte DIVIDE_INT = 17;
+    static final byte MODULO_INT = 18;
+    static final byte LESS_INT = 19;
+    static final byte LESS_EQUAL_INT = 20;
+    static final byte GREATER_INT = 21;
+    static final byte GREATER_EQUAL_INT = 22;
+    static final byte EQUAL_INT = 23;
+    static final byte NOT_EQUAL_INT = 24;
+    // token, value                     -> Operations.unary
+    static final byte UNARY = 25;
+    // value                            -> !isTruthy(value)
+    static final byte NOT = 26;
+    // token variable, value            -> value after ++ or --
+    static final byte INCREMENT = 27;
+
+    // Jumps ----------------------------------------------------------------
+
+    // target
+    static final byte JUMP = 28;
+    // target, value ->                 jumps when the value is falsy / truthy
+    static final byte JUMP_IF_FALSE = 29;
+    static final byte JUMP_IF_TRUE = 30;
+    // target, value                    -> value, jumps keeping the value (UG / O)
+    static final byte JUMP_IF_FALSE_KEEP = 31;
+    static final byte JUMP_IF_TRUE_KEEP = 32;
+
+    // Statements -----------------------------------------------------------
+
+    // count, count values ->           prints them one after the other
+    static final byte PRINT = 33;
+    // count token                      -> the count parts of an input line, last part first
+    static final byte READ = 34;
+    // ends the program
+    static final byte RETURN = 35;
+
+    // count, count values              -> all of them joined like &
+    static final byte CONCAT_ALL = 36;
+}
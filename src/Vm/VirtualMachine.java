@@ -0,0 +1,347 @@
+/*
+ * VirtualMachine
+ * Engine that compiles the statements into bytecode (see VmCompiler and
+ * OpCode) and runs it in a single dispatch loop with a value stack.
+ * Variables live in two arrays instead of Environment frames:
+ * - globals: the top scope, kept between runs so the prompt remembers them
+ * - locals: every other scope, at the slots the VmCompiler gave them
+ * Numbers are not boxed: the stack and the variables each have a long[]
+ * next to their Object[], and a slot holding INT or DOUBLE keeps the
+ * number itself in the long[] (a double as its bits).
+ * Operators, type checks and printing go through the same code as the
+ * other engines, so the output is the same.
+ */
+package Vm;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Scanner;
+
+import Interpreter.Operations;
+import Interpreter.Output;
+import Interpreter.RunTimeError;
+import Lexers.Token;
+import Lexers.TokenType;
+import Main.Baithon;
+import Main.Engine;
+import Main.Environment;
+import Parsers.Stmt;
+
+
+public class VirtualMachine implements Engine {
+    // what a slot holds before its declaration has run
+    private static final Object UNDEFINED = new Object();
+    // tags of a slot whose number is in the long[] next to it
+    private static final Object INT = new Object();
+    private static final Object DOUBLE = new Object();
+
+    private Object[] globals = new Object[0];
+    private long[] globalBits = new long[0];
+    private final Scanner input = new Scanner(System.in);
+
+    @Override
+    public void interpret(List<Stmt> statements) {
+        Chunk chunk = new VmCompiler(globals.length).compile(statements);
+
+        if (chunk.globalCount > globals.length) {
+            int size = globals.length;
+            globals = Arrays.copyOf(globals, chunk.globalCount);
+            globalBits = Arrays.copyOf(globalBits, chunk.globalCount);
+            Arrays.fill(globals, size, globals.length, UNDEFINED);
+        }
+
+        try {
+            run(chunk);
+        } catch (RunTimeError error) {
+            Baithon.runTimeError(error);
+            throw new RuntimeException();
+        }
+    }
+
+    private void run(Chunk chunk) {
+        final byte[] code = chunk.code;
+        final Object[] constants = new Object[chunk.constants.length];
+        final long[] constantBits = new long[constants.length];
+        for (int i = 0; i < constants.length; i++) {
+            put(constants, constantBits, i, chunk.constants[i]);
+        }
+        final Token[] tokens = chunk.tokens;
+        final Chunk.Variable[] variables = chunk.variables;
+        final Object[] globals = this.globals;
+        final long[] globalBits = this.globalBits;
+        final Object[] locals = new Object[chunk.localCount];
+        final long[] localBits = new long[chunk.localCount];
+        final Object[] stack = new Object[chunk.maxStack];
+        final long[] bits = new long[chunk.maxStack];
+        // joins the parts of CONCAT_ALL
+        final StringBuilder builder = new StringBuilder();
+        int sp = 0;
+        int pc = 0;
+
+        for (;;) {
+            byte op = code[pc++];
+            switch (op) {
+                case OpCode.CONSTANT -> {
+                    int index = operand(code, pc);
+                    stack[sp] = constants[index];
+                    bits[sp++] = constantBits[index];
+                    pc += 2;
+                }
+                case OpCode.POP -> sp--;
+                case OpCode.DUP -> {
+                    stack[sp] = stack[sp - 1];
+                    bits[sp] = bits[sp - 1];
+                    sp++;
+                }
+
+                case OpCode.GET_GLOBAL, OpCode.GET_LOCAL -> {
+                    int slot = operand(code, pc);
+                    boolean global = op == OpCode.GET_GLOBAL;
+                    Object value = global ? globals[slot] : locals[slot];
+                    if (value == UNDEFINED) throw undefined(variables[operand(code, pc + 2)]);
+                    stack[sp] = value;
+                    bits[sp++] = global ? globalBits[slot] : localBits[slot];
+                    pc += 4;
+                }
+                case OpCode.SET_GLOBAL, OpCode.SET_LOCAL -> {
+                    int slot = operand(code, pc);
+                    Chunk.Variable variable = variables[operand(code, pc + 2)];
+                    boolean global = op == OpCode.SET_GLOBAL;
+                    Object[] scope = global ? globals : locals;
+                    if (scope[slot] == UNDEFINED) throw notDefined(variable);
+                    // the assignment is worth the value before the type conversion
+                    store(scope, global ? globalBits : localBits, slot, variable, stack[sp - 1], bits[sp - 1]);
+                    pc += 4;
+                }
+                case OpCode.DEFINE_GLOBAL, OpCode.DEFINE_LOCAL -> {
+                    int slot = operand(code, pc);
+                    boolean global = op == OpCode.DEFINE_GLOBAL;
+                    Object[] scope = global ? globals : locals;
+                    sp--;
+                    if (stack[sp] == null) {
+                        scope[slot] = null;
+                    } else {
+                        store(scope, global ? globalBits : localBits, slot, variables[operand(code, pc + 2)], stack[sp], bits[sp]);
+                    }
+                    pc += 4;
+                }
+                case OpCode.CLEAR_LOCALS -> {
+                    int base = operand(code, pc);
+                    Arrays.fill(locals, base, base + operand(code, pc + 2), UNDEFINED);
+                    pc += 4;
+                }
+                case OpCode.UNDEFINED -> throw undefined(variables[operand(code, pc)]);
+                case OpCode.NOT_DEFINED -> throw notDefined(variables[operand(code, pc)]);
+
+                case OpCode.BINARY -> {
+                    Token operator = tokens[operand(code, pc)];
+                    sp--;
+                    Object left = stack[sp - 1];
+                    Object right = stack[sp];
+                    // numbers are worked out in place
+                    if (!(isNumber(left) && isNumber(right) && numberOperation(operator, stack, bits, sp - 1))) {
+                        put(stack, bits, sp - 1, Operations.binary(box(left, bits[sp - 1]), box(right, bits[sp]), operator));
+                    }
+                    pc += 2;
+                }
+                case OpCode.CONCAT -> {
+                    sp--;
+                    String left = Operations.stringify(box(stack[sp - 1], bits[sp - 1]));
+                    stack[sp - 1] = left + Operations.stringify(box(stack[sp], bits[sp]));
+                    pc += 2;
+                }
+                case OpCode.CONCAT_ALL -> {
+                    int count = operand(code, pc);
+                    builder.setLength(0);
+                    for (int i = sp - count; i < sp; i++) {
+                        if (stack[i] == INT) builder.append((int) bits[i]);
+                        else if (stack[i] == DOUBLE) Operations.stringify(Double.longBitsToDouble(bits[i]), builder);
+                        else Operations.stringify(stack[i], builder);
+                    }
+                    sp -= count;
+                    stack[sp++] = builder.toString();
+                    pc += 2;
+                }
+                case OpCode.ADD_INT, OpCode.SUBTRACT_INT, OpCode.MULTIPLY_INT, OpCode.DIVIDE_INT,
+                        OpCode.MODULO_INT, OpCode.LESS_INT, OpCode.LESS_EQUAL_INT, OpCode.GREATER_INT,
+                        OpCode.GREATER_EQUAL_INT, OpCode.EQUAL_INT, OpCode.NOT_EQUAL_INT -> {
+                    sp--;
+                    if (stack[sp - 1] == INT && stack[sp] == INT) {
+                        int l = (int) bits[sp - 1];
+                        int r = (int) bits[sp];
+                        switch (op) {
+                            case OpCode.ADD_INT -> bits[sp - 1] = l + r;
+                            case OpCode.SUBTRACT_INT -> bits[sp - 1] = l - r;
+                            case OpCode.MULTIPLY_INT -> bits[sp - 1] = l * r;
+                            case OpCode.DIVIDE_INT, OpCode.MODULO_INT -> {
+                                if (r == 0) throw new RunTimeError(tokens[operand(code, pc)], "Division by zero.");
+                                bits[sp - 1] = op == OpCode.DIVIDE_INT ? l / r : l % r;
+                            }
+                            case OpCode.LESS_INT -> stack[sp - 1] = l < r;
+                            case OpCode.LESS_EQUAL_INT -> stack[sp - 1] = l <= r;
+                            case OpCode.GREATER_INT -> stack[sp - 1] = l > r;
+                            case OpCode.GREATER_EQUAL_INT -> stack[sp - 1] = l >= r;
+                            case OpCode.EQUAL_INT -> stack[sp - 1] = l == r;
+                            default -> stack[sp - 1] = l != r;
+                        }
+                    } else {
+                        // a NUMERO that is still null, reported like the other engines do
+                        Object result = Operations.binary(box(stack[sp - 1], bits[sp - 1]), box(stack[sp], bits[sp]),
+                            tokens[operand(code, pc)]);
+                        put(stack, bits, sp - 1, result);
+                    }
+                    pc += 2;
+                }
+                case OpCode.UNARY -> {
+                    Token operator = tokens[operand(code, pc)];
+                    Object value = stack[sp - 1];
+                    if (value == INT) {
+                        bits[sp - 1] = -(int) bits[sp - 1];
+                    } else if (value == DOUBLE) {
+                        bits[sp - 1] = Double.doubleToRawLongBits(-Double.longBitsToDouble(bits[sp - 1]));
+                    } else {
+                        put(stack, bits, sp - 1, Operations.unary(operator, value));
+                    }
+                    pc += 2;
+                }
+                case OpCode.NOT -> stack[sp - 1] = !isTruthy(stack[sp - 1]);
+                case OpCode.INCREMENT -> {
+                    Token operator = tokens[operand(code, pc)];
+                    Chunk.Variable variable = variables[operand(code, pc + 2)];
+                    Object value = stack[sp - 1];
+                    if (value == INT && operator.getType() == TokenType.INCREMENT) {
+                        bits[sp - 1] = (int) bits[sp - 1] + 1;
+                    } else {
+                        put(stack, bits, sp - 1, Operations.increment(operator, variable.name(), box(value, bits[sp - 1])));
+                    }
+                    pc += 4;
+                }
+
+                case OpCode.JUMP -> pc = operand(code, pc);
+                case OpCode.JUMP_IF_FALSE -> pc = !isTruthy(stack[--sp]) ? operand(code, pc) : pc + 2;
+                case OpCode.JUMP_IF_TRUE -> pc = isTruthy(stack[--sp]) ? operand(code, pc) : pc + 2;
+                case OpCode.JUMP_IF_FALSE_KEEP -> pc = !isTruthy(stack[sp - 1]) ? operand(code, pc) : pc + 2;
+                case OpCode.JUMP_IF_TRUE_KEEP -> pc = isTruthy(stack[sp - 1]) ? operand(code, pc) : pc + 2;
+
+                case OpCode.PRINT -> {
+                    int count = operand(code, pc);
+                    for (int i = sp - count; i < sp; i++) {
+                        if (stack[i] == INT) Output.write((int) bits[i]);
+                        else if (stack[i] == DOUBLE) Output.write(Double.longBitsToDouble(bits[i]));
+                        else Output.write(stack[i]);
+                    }
+                    Output.end();
+                    sp -= count;
+                    pc += 2;
+                }
+                case OpCode.READ -> {
+                    int count = operand(code, pc);
+                    Output.flush();
+                    String[] parts = input.nextLine().split(",");
+                    if (count != parts.length) {
+                        throw new RunTimeError(tokens[operand(code, pc + 2)], "Number of variables does not match number of inputs.");
+                    }
+                    for (int i = count - 1; i >= 0; i--) {
+                        stack[sp++] = parts[i].trim();
+                    }
+                    pc += 4;
+                }
+                case OpCode.RETURN -> {
+                    return;
+                }
+                default -> throw new IllegalStateException("Unknown opcode " + op + " at " + (pc - 1) + ".");
+            }
+        }
+    }
+
+    private static int operand(byte[] code, int at) {
+        return ((code[at] & 0xFF) << 8) | (code[at + 1] & 0xFF);
+    }
+
+    // Unboxed slots ---------------------------------------------------------
+
+    private static boolean isNumber(Object tag) {
+        return tag == INT || tag == DOUBLE;
+    }
+
+    // The value of a slot as the rest of the code knows it
+    private static Object box(Object tag, long bits) {
+        if (tag == INT) return (int) bits;
+        if (tag == DOUBLE) return Double.longBitsToDouble(bits);
+        return tag;
+    }
+
+    private static void put(Object[] values, long[] bits, int index, Object value) {
+        if (value instanceof Integer i) {
+            values[index] = INT;
+            bits[index] = i;
+        } else if (value instanceof Double d) {
+            values[index] = DOUBLE;
+            bits[index] = Double.doubleToRawLongBits(d);
+        } else {
+            values[index] = value;
+        }
+    }
+
+    private static boolean isTruthy(Object tag) {
+        if (tag == null) return false;
+        if (tag instanceof Boolean) return (boolean) tag;
+        return true;
+    }
+
+    // Type checks the value against the variable and stores it, the common
+    // number cases without boxing
+    private static void store(Object[] scope, long[] scopeBits, int slot, Chunk.Variable variable,
+            Object tag, long bits) {
+        TokenType type = variable.type();
+        if (tag == INT && type == TokenType.INTEGER || tag == DOUBLE && type == TokenType.FLOAT) {
+            scope[slot] = tag;
+            scopeBits[slot] = bits;
+        } else if (tag == INT && type == TokenType.FLOAT) {
+            scope[slot] = DOUBLE;
+            scopeBits[slot] = Double.doubleToRawLongBits((int) bits);
+        } else {
+            put(scope, scopeBits, slot, Environment.checkType(variable.name(), type, box(tag, bits)));
+        }
+    }
+
+    // Arithmetic and ordering on two numbers, the left one at index and the
+    // right one after it. Returns false for the operators it leaves to
+    // Operations.binary.
+    private static boolean numberOperation(Token operator, Object[] stack, long[] bits, int index) {
+        boolean ordering;
+        switch (operator.getType()) {
+            case PLUS, MINUS, MULTIPLY, DIVIDE, MODULO -> ordering = false;
+            case GREATER, GREATER_EQUAL, LESS, LESS_EQUAL -> ordering = true;
+            default -> {
+                return false;
+            }
+        }
+
+        if (stack[index] == INT && stack[index + 1] == INT) {
+            int l = (int) bits[index];
+            int r = (int) bits[index + 1];
+            if (ordering) stack[index] = Operations.compare(l, r, operator);
+            else bits[index] = Operations.intArithmetic(l, r, operator);
+            return true;
+        }
+
+        double l = stack[index] == INT ? (int) bits[index] : Double.longBitsToDouble(bits[index]);
+        double r = stack[index + 1] == INT ? (int) bits[index + 1] : Double.longBitsToDouble(bits[index + 1]);
+        if (ordering) {
+            stack[index] = Operations.compare(l, r, operator);
+        } else {
+            stack[index] = DOUBLE;
+            bits[index] = Double.doubleToRawLongBits(Operations.doubleArithmetic(l, r, operator));
+        }
+        return true;
+    }
+
+    private static RunTimeError undefined(Chunk.Variable variable) {
+        return new RunTimeError(variable.name(), "Undefined variable '" + variable.name().getLexeme() + "'.");
+    }
+
+    private static RunTimeError notDefined(Chunk.Variable variable) {
+        return new RunTimeError(variable.name(), "Variable '" + variable.name().getLexeme() + "' is not defined.");
+    }
+}
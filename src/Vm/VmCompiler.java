@@ -0,0 +1,563 @@
+/*
+ * VmCompiler
+ * Compiles resolved statements into a Chunk of bytecode for the VM.
+ *
+ * Scopes do not exist at runtime. The top scope is the globals, every
+ * other scope gets a range of the VM's locals array: a scope starts right
+ * after the scope that encloses it, so sibling blocks share their slots.
+ * Entering a scope marks its slots as undefined again, like a new frame.
+ *
+ * KUNG, the loops, HUNONG and PADAYON all become jumps.
+ */
+package Vm;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import Interpreter.Operations;
+import Lexers.Token;
+import Lexers.TokenType;
+import Parsers.Expr;
+import Parsers.Stmt;
+
+class VmCompiler implements Expr.Visitor<Void>
+                           ,Stmt.Visitor<Void> {
+    private byte[] code = new byte[256];
+    private int length = 0;
+
+    private final List<Object> constants = new ArrayList<>();
+    private final List<Token> tokens = new ArrayList<>();
+    private final Map<Token, Integer> tokenIndexes = new IdentityHashMap<>();
+    private final List<Chunk.Variable> variables = new ArrayList<>();
+    private final Map<Token, Integer> variableIndexes = new IdentityHashMap<>();
+
+    // where each scope starts in the locals, index 0 is the globals
+    private final List<Integer> scopeBases = new ArrayList<>();
+    private int localTop = 0;
+    private int localCount = 0;
+    private int globalCount;
+
+    // value stack depth at this point of the code
+    private int stack = 0;
+    private int maxStack = 0;
+
+    // Jumps of HUNONG and PADAYON waiting for their target
+    private static class Loop {
+        final List<Integer> breaks = new ArrayList<>();
+        final List<Integer> continues = new ArrayList<>();
+    }
+    private final List<Loop> loops = new ArrayList<>();
+
+    // globalCount is the number of globals declared by earlier runs
+    VmCompiler(int globalCount) {
+        this.globalCount = globalCount;
+        scopeBases.add(0);
+    }
+
+    Chunk compile(List<Stmt> statements) {
+        for (Stmt statement : statements) {
+            compile(statement);
+        }
+        emit(OpCode.RETURN);
+
+        byte[] bytes = new byte[length];
+        System.arraycopy(code, 0, bytes, 0, length);
+        return new Chunk(bytes, constants.toArray(), tokens.toArray(new Token[0]),
+            variables.toArray(new Chunk.Variable[0]), localCount, globalCount, maxStack);
+    }
+
+    private void compile(Stmt stmt) {
+        stmt.accept(this);
+    }
+
+    private void compile(Expr expr) {
+        expr.accept(this);
+    }
+
+    // Emitting --------------------------------------------------------------
+
+    private void emit(byte op) {
+        if (length == code.length) {
+            byte[] bigger = new byte[code.length * 2];
+            System.arraycopy(code, 0, bigger, 0, length);
+            code = bigger;
+        }
+        code[length++] = op;
+    }
+
+    private void emit(byte op, int operand) {
+        emit(op);
+        emitOperand(operand);
+    }
+
+    private void emit(byte op, int first, int second) {
+        emit(op);
+        emitOperand(first);
+        emitOperand(second);
+    }
+
+    private void emitOperand(int operand) {
+        if (operand < 0 || operand > 0xFFFF) {
+            throw new IllegalStateException("Program is too big for the VM.");
+        }
+        emit((byte) (operand >> 8));
+        emit((byte) operand);
+    }
+
+    // Emits a forward jump and returns where its target goes, see patch
+    private int emitJump(byte op) {
+        emit(op, 0);
+        return length - 2;
+    }
+
+    // Points the jump at the current end of the code
+    private void patch(int operand) {
+        int target = length;
+        if (target > 0xFFFF) {
+            throw new IllegalStateException("Program is too big for the VM.");
+        }
+        code[operand] = (byte) (target >> 8);
+        code[operand + 1] = (byte) target;
+    }
+
+    private void push(int count) {
+        stack += count;
+        if (stack > maxStack) maxStack = stack;
+    }
+
+    private void pop(int count) {
+        stack -= count;
+    }
+
+    private int constant(Object value) {
+        constants.add(value);
+        return constants.size() - 1;
+    }
+
+    private int token(Token token) {
+        return tokenIndexes.computeIfAbsent(token, t -> {
+            tokens.add(t);
+            return tokens.size() - 1;
+        });
+    }
+
+    private int variable(Token name, TokenType type) {
+        return variableIndexes.computeIfAbsent(name, n -> {
+            variables.add(new Chunk.Variable(n, type));
+            return variables.size() - 1;
+        });
+    }
+
+    // Scopes ----------------------------------------------------------------
+
+    private void beginScope(int size) {
+        scopeBases.add(localTop);
+        if (size > 0) emit(OpCode.CLEAR_LOCALS, localTop, size);
+        localTop += size;
+        if (localTop > localCount) localCount = localTop;
+    }
+
+    private void endScope() {
+        localTop = scopeBases.remove(scopeBases.size() - 1);
+    }
+
+    private boolean isGlobal(int depth) {
+        return scopeBases.size() - 1 - depth == 0;
+    }
+
+    // Slot in the globals or the locals of a variable the Resolver found
+    private int slotOf(int depth, int slot) {
+        if (isGlobal(depth)) {
+            if (slot >= globalCount) globalCount = slot + 1;
+            return slot;
+        }
+        return scopeBases.get(scopeBases.size() - 1 - depth) + slot;
+    }
+
+    private void emitGet(Token name, int depth, int slot, TokenType type) {
+        byte op = isGlobal(depth) ? OpCode.GET_GLOBAL : OpCode.GET_LOCAL;
+        emit(op, slotOf(depth, slot), variable(name, type));
+        push(1);
+    }
+
+    // leaves the value on the stack
+    private void emitSet(Token name, int depth, int slot, TokenType type) {
+        byte op = isGlobal(depth) ? OpCode.SET_GLOBAL : OpCode.SET_LOCAL;
+        emit(op, slotOf(depth, slot), variable(name, type));
+    }
+
+    // Declares a variable of the innermost scope with the value on the stack
+    private void emitDefine(Token name, int slot, TokenType type) {
+        byte op = isGlobal(0) ? OpCode.DEFINE_GLOBAL : OpCode.DEFINE_LOCAL;
+        emit(op, slotOf(0, slot), variable(name, type));
+        pop(1);
+    }
+
+    // Expressions -----------------------------------------------------------
+
+    @Override
+    public Void visitAssignExpr(Expr.Assign expr) {
+        compile(expr.getValue());
+        if (expr.isResolved()) {
+            emitSet(expr.getName(), expr.getDepth(), expr.getSlot(), expr.getDeclaredType());
+        } else {
+            emit(OpCode.NOT_DEFINED, variable(expr.getName(), null));
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitCompoundAssignExpr(Expr.CompoundAssign expr) {
+        if (!expr.isResolved()) {
+            emit(OpCode.UNDEFINED, variable(expr.getName(), null));
+            push(1);
+            return null;
+        }
+
+        Token name = expr.getName();
+        emitGet(name, expr.getDepth(), expr.getSlot(), expr.getDeclaredType());
+        compile(expr.getValue());
+        boolean ints = expr.getDeclaredType() == TokenType.INTEGER
+            && Operations.numericKind(expr.getValue()) == Operations.INT;
+        emitBinary(expr.getOperator(), ints);
+        emitSet(name, expr.getDepth(), expr.getSlot(), expr.getDeclaredType());
+        return null;
+    }
+
+    @Override
+    public Void visitBinaryExpr(Expr.Binary expr) {
+        compile(expr.getLeft());
+        compile(expr.getRight());
+
+        boolean ints = Operations.numericKind(expr.getLeft()) == Operations.INT
+            && Operations.numericKind(expr.getRight()) == Operations.INT;
+        emitBinary(expr.getOperator(), ints);
+        return null;
+    }
+
+    // Operator on the two values on top of the stack
+    private void emitBinary(Token operator, boolean ints) {
+        byte op = OpCode.BINARY;
+        if (ints) {
+            switch (operator.getType()) {
+                case PLUS -> op = OpCode.ADD_INT;
+                case MINUS -> op = OpCode.SUBTRACT_INT;
+                case MULTIPLY -> op = OpCode.MULTIPLY_INT;
+                case DIVIDE -> op = OpCode.DIVIDE_INT;
+                case MODULO -> op = OpCode.MODULO_INT;
+                case LESS -> op = OpCode.LESS_INT;
+                case LESS_EQUAL -> op = OpCode.LESS_EQUAL_INT;
+                case GREATER -> op = OpCode.GREATER_INT;
+                case GREATER_EQUAL -> op = OpCode.GREATER_EQUAL_INT;
+                case EQUAL -> op = OpCode.EQUAL_INT;
+                case NOT_EQUAL -> op = OpCode.NOT_EQUAL_INT;
+                default -> {}
+            }
+        } else if (operator.getType() == TokenType.CONCAT) {
+            op = OpCode.CONCAT;
+        }
+
+        emit(op, token(operator));
+        pop(1);
+    }
+
+    @Override
+    public Void visitConcatExpr(Expr.Concat expr) {
+        for (Expr part : expr.getParts()) {
+            compile(part);
+        }
+        emit(OpCode.CONCAT_ALL, expr.getParts().size());
+        pop(expr.getParts().size() - 1);
+        return null;
+    }
+
+    @Override
+    public Void visitGroupingExpr(Expr.Grouping expr) {
+        compile(expr.getExpression());
+        return null;
+    }
+
+    @Override
+    public Void visitLiteralExpr(Expr.Literal expr) {
+        emit(OpCode.CONSTANT, constant(expr.getValue()));
+        push(1);
+        return null;
+    }
+
+    @Override
+    public Void visitLogicalExpr(Expr.Logical expr) {
+        compile(expr.getLeft());
+
+        // the left operand is the result when it decides it
+        byte op = expr.getOperator().getType() == TokenType.OR ? OpCode.JUMP_IF_TRUE_KEEP : OpCode.JUMP_IF_FALSE_KEEP;
+        int end = emitJump(op);
+        emit(OpCode.POP);
+        pop(1);
+        compile(expr.getRight());
+        patch(end);
+        return null;
+    }
+
+    @Override
+    public Void visitUnaryExpr(Expr.Unary expr) {
+        compile(expr.getRight());
+        if (expr.getOperator().getType() == TokenType.NOT) {
+            emit(OpCode.NOT);
+        } else {
+            emit(OpCode.UNARY, token(expr.getOperator()));
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitVariableExpr(Expr.Variable expr) {
+        if (expr.isResolved()) {
+            emitGet(expr.getName(), expr.getDepth(), expr.getSlot(), expr.getDeclaredType());
+        } else {
+            emit(OpCode.UNDEFINED, variable(expr.getName(), null));
+            push(1);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitIncrementOrDecrementExpr(Expr.IncrementOrDecrement expr) {
+        // x++ is worth the old value
+        increment(expr, !expr.isPrefix());
+        return null;
+    }
+
+    // Leaves the new value on the stack, or the old one when keepOld is set
+    private void increment(Expr.IncrementOrDecrement expr, boolean keepOld) {
+        Expr.Variable variable = expr.getVariable();
+        if (!variable.isResolved()) {
+            emit(OpCode.UNDEFINED, variable(variable.getName(), null));
+            push(1);
+            return;
+        }
+
+        Token name = variable.getName();
+        emitGet(name, variable.getDepth(), variable.getSlot(), variable.getDeclaredType());
+        if (keepOld) {
+            emit(OpCode.DUP);
+            push(1);
+        }
+        emit(OpCode.INCREMENT, token(expr.getOperator()), variable(name, variable.getDeclaredType()));
+        emitSet(name, variable.getDepth(), variable.getSlot(), variable.getDeclaredType());
+        if (keepOld) {
+            emit(OpCode.POP);
+            pop(1);
+        }
+    }
+
+    // Statements ------------------------------------------------------------
+
+    @Override
+    public Void visitExpressionStmt(Stmt.Expression stmt) {
+        // the value is dropped, so a postfix x++ does not need the old one
+        if (stmt.getExpression() instanceof Expr.IncrementOrDecrement expr) {
+            increment(expr, false);
+        } else {
+            compile(stmt.getExpression());
+        }
+        emit(OpCode.POP);
+        pop(1);
+        return null;
+    }
+
+    @Override
+    public Void visitPrintStmt(Stmt.Print stmt) {
+        // a & chain is printed part by part, its joined text is never built
+        List<Expr> parts = stmt.getExpression() instanceof Expr.Concat concat
+            ? concat.getParts()
+            : List.of(stmt.getExpression());
+        for (Expr part : parts) {
+            compile(part);
+        }
+        emit(OpCode.PRINT, parts.size());
+        pop(parts.size());
+        return null;
+    }
+
+    @Override
+    public Void visitVarStmt(Stmt.Var stmt) {
+        define(stmt.getName(), stmt.getSlot(), stmt.getDeclaredType(), stmt.getInitializer());
+        return null;
+    }
+
+    @Override
+    public Void visitMultiVar(Stmt.MultiVar stmt) {
+        List<Token> names = stmt.getNames();
+        for (int i = 0; i < names.size(); i++) {
+            define(names.get(i), stmt.getSlot(i), stmt.getDeclaredType(), stmt.getInitializers().get(i));
+        }
+        return null;
+    }
+
+    private void define(Token name, int slot, TokenType type, Expr initializer) {
+        if (initializer != null) {
+            compile(initializer);
+        } else {
+            emit(OpCode.CONSTANT, constant(null));
+            push(1);
+        }
+        emitDefine(name, slot, type);
+    }
+
+    @Override
+    public Void visitBlockStmt(Stmt.Block stmt) {
+        if (stmt.isScoped()) beginScope(stmt.getSlotCount());
+        for (Stmt statement : stmt.getStatements()) {
+            compile(statement);
+        }
+        if (stmt.isScoped()) endScope();
+        return null;
+    }
+
+    @Override
+    public Void visitIfStmt(Stmt.If stmt) {
+        List<Integer> ends = new ArrayList<>();
+
+        ends.add(branch(stmt.getCondition(), stmt.getThenBranch()));
+        if (stmt.getElseIfBranches() != null) {
+            for (Stmt.ElseIf elifBranch : stmt.getElseIfBranches()) {
+                ends.add(branch(elifBranch.getCondition(), elifBranch.getBlock()));
+            }
+        }
+        if (stmt.getElseBranch() != null) {
+            compile(stmt.getElseBranch());
+        }
+
+        for (int end : ends) {
+            patch(end);
+        }
+        return null;
+    }
+
+    // Runs the branch when the condition holds, then jumps past the whole KUNG.
+    // Returns that jump.
+    private int branch(Expr condition, Stmt body) {
+        compile(condition);
+        int next = emitJump(OpCode.JUMP_IF_FALSE);
+        pop(1);
+        compile(body);
+        int end = emitJump(OpCode.JUMP);
+        patch(next);
+        return end;
+    }
+
+    @Override
+    public Void visitElseIfStmt(Stmt.ElseIf stmt) {
+        // only reached through visitIfStmt
+        patch(branch(stmt.getCondition(), stmt.getBlock()));
+        return null;
+    }
+
+    @Override
+    public Void visitWhileStmt(Stmt.While stmt) {
+        int top = length;
+        compile(stmt.getCondition());
+        int exit = emitJump(OpCode.JUMP_IF_FALSE);
+        pop(1);
+
+        Loop loop = body(stmt.getBody());
+        patchAll(loop.continues, top);
+        emit(OpCode.JUMP, top);
+
+        patch(exit);
+        patchAll(loop.breaks, length);
+        return null;
+    }
+
+    @Override
+    public Void visitDoWhileStmt(Stmt.DoWhile stmt) {
+        int top = length;
+        Loop loop = body(stmt.getBody());
+
+        // PADAYON goes on to the condition
+        patchAll(loop.continues, length);
+        compile(stmt.getCondition());
+        emit(OpCode.JUMP_IF_TRUE, top);
+        pop(1);
+
+        patchAll(loop.breaks, length);
+        return null;
+    }
+
+    @Override
+    public Void visitForStmt(Stmt.For stmt) {
+        if (stmt.isScoped()) beginScope(stmt.getSlotCount());
+        if (stmt.getInitializer() != null) compile(stmt.getInitializer());
+
+        int top = length;
+        int exit = -1;
+        if (stmt.getCondition() != null) {
+            compile(stmt.getCondition());
+            exit = emitJump(OpCode.JUMP_IF_FALSE);
+            pop(1);
+        }
+
+        Loop loop = body(stmt.getBody());
+
+        // PADAYON still runs the increment
+        patchAll(loop.continues, length);
+        if (stmt.getIncrement() != null) compile(stmt.getIncrement());
+        emit(OpCode.JUMP, top);
+
+        if (exit >= 0) patch(exit);
+        patchAll(loop.breaks, length);
+        if (stmt.isScoped()) endScope();
+        return null;
+    }
+
+    // Compiles a loop body, collecting its HUNONG and PADAYON jumps
+    private Loop body(Stmt body) {
+        Loop loop = new Loop();
+        loops.add(loop);
+        compile(body);
+        loops.remove(loops.size() - 1);
+        return loop;
+    }
+
+    private void patchAll(List<Integer> jumps, int target) {
+        for (int jump : jumps) {
+            code[jump] = (byte) (target >> 8);
+            code[jump + 1] = (byte) target;
+        }
+    }
+
+    @Override
+    public Void visitBreakStmt(Stmt.Break stmt) {
+        loops.get(loops.size() - 1).breaks.add(emitJump(OpCode.JUMP));
+        return null;
+    }
+
+    @Override
+    public Void visitContinueStmt(Stmt.Continue stmt) {
+        loops.get(loops.size() - 1).continues.add(emitJump(OpCode.JUMP));
+        return null;
+    }
+
+    @Override
+    public Void visitScanStmt(Stmt.Scan stmt) {
+        List<Token> names = stmt.getNames();
+
+        // the parts come off the stack in input order
+        emit(OpCode.READ, names.size(), token(names.get(0)));
+        push(names.size());
+
+        for (int i = 0; i < names.size(); i++) {
+            Token name = names.get(i);
+            if (stmt.isResolved(i)) {
+                emitSet(name, stmt.getDepth(i), stmt.getSlot(i), stmt.getDeclaredType(i));
+            } else {
+                emit(OpCode.NOT_DEFINED, variable(name, null));
+            }
+            emit(OpCode.POP);
+            pop(1);
+        }
+        return null;
+    }
+}